@@ -4,7 +4,17 @@ import java.io.IOException;
 import java.util.prefs.Preferences;
 
 import com.filevault.api.ApiServer;
+import com.filevault.storage.AccessTracker;
+import com.filevault.storage.BlobLayoutMigrator;
+import com.filevault.storage.ChangeJournal;
+import com.filevault.storage.ContentIndex;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.DecryptedContentCache;
+import com.filevault.storage.DeletionQueue;
+import com.filevault.storage.PreviewCache;
+import com.filevault.storage.TieringService;
+import com.filevault.storage.WriteJournal;
+import com.filevault.storage.blob.BlobStores;
 import com.filevault.util.LoggingUtil;
 
 import javafx.animation.FadeTransition;
@@ -316,6 +326,16 @@ public class FileVaultApp extends Application {
         // Initialisiere Datenbank
         DatabaseManager.initDatabase();
         
+        // Unterbrochene Importe nachtragen oder verwerfen, offene Löschvorgänge fortsetzen
+        // und Dateien in das verteilte Layout verschieben
+        WriteJournal.getInstance().recover();
+        DeletionQueue.getInstance().start();
+        BlobLayoutMigrator.getInstance().start();
+        TieringService.getInstance().start();
+        ContentIndex.getInstance().start();
+        ChangeJournal.getInstance().start();
+        PreviewCache.getInstance().start();
+        
         // Starte API-Server
         startApiServer(apiPort);
         
@@ -340,6 +360,15 @@ public class FileVaultApp extends Application {
                     LoggingUtil.logInfo("FileVaultApp", "Stopping API server");
                     apiServer.stop();
                 }
+                AccessTracker.getInstance().shutdown();
+                DeletionQueue.getInstance().shutdown();
+                BlobLayoutMigrator.getInstance().shutdown();
+                TieringService.getInstance().shutdown();
+                BlobStores.getInstance().shutdown();
+                ContentIndex.getInstance().shutdown();
+                DecryptedContentCache.getInstance().clear();
+                ChangeJournal.getInstance().shutdown();
+                PreviewCache.getInstance().shutdown();
             }));
             
             // Wichtige Benutzerbenachrichtigung beibehalten
@@ -386,6 +415,16 @@ public class FileVaultApp extends Application {
             apiServer.stop();
         }
         
+        // Gepufferte Zugriffszeitpunkte schreiben und Hintergrund-Threads beenden
+        AccessTracker.getInstance().shutdown();
+        DeletionQueue.getInstance().shutdown();
+        BlobLayoutMigrator.getInstance().shutdown();
+        TieringService.getInstance().shutdown();
+        ContentIndex.getInstance().shutdown();
+        DecryptedContentCache.getInstance().clear();
+        ChangeJournal.getInstance().shutdown();
+        PreviewCache.getInstance().shutdown();
+        
         // Bereinigung für alle Controller
         try {
             if (mainScene != null && mainScene.getRoot() != null) {
@@ -1,8 +1,13 @@
 package com.filevault.api;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.charset.StandardCharsets;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -10,15 +15,44 @@ import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.function.Consumer;
 
+import com.filevault.core.Vault;
 import com.filevault.model.EncryptedFile;
 import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+import com.filevault.storage.AccessTracker;
+import com.filevault.storage.BackupReport;
+import com.filevault.storage.BlobGarbageCollector;
+import com.filevault.storage.BlobLayoutMigrator;
+import com.filevault.storage.Change;
+import com.filevault.storage.ChangeJournal;
+import com.filevault.storage.ContentHit;
+import com.filevault.storage.ContentIndex;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.DecryptedContentCache;
+import com.filevault.storage.DeletionQueue;
+import com.filevault.storage.FileCursor;
+import com.filevault.storage.FilePage;
+import com.filevault.storage.FileSortOrder;
 import com.filevault.storage.FileStorage;
+import com.filevault.storage.FileVersion;
+import com.filevault.storage.FileVersions;
+import com.filevault.storage.FolderStats;
+import com.filevault.storage.GcReport;
+import com.filevault.storage.PreviewCache;
+import com.filevault.storage.SearchHit;
+import com.filevault.storage.SearchPage;
+import com.filevault.storage.Snapshot;
+import com.filevault.storage.SnapshotManager;
+import com.filevault.storage.TieringService;
+import com.filevault.storage.VaultBackup;
+import com.filevault.storage.WriteJournal;
+import com.filevault.util.FolderManager;
 import com.filevault.util.LoggingUtil;
 import com.sun.net.httpserver.HttpExchange;
 import com.sun.net.httpserver.HttpHandler;
@@ -52,6 +86,55 @@ public class ApiServer {
             }
             return json.substring(startIndex, endIndex).replaceAll("\"", "").trim();
         }
+
+        /**
+         * Maskiert einen String für die Verwendung als JSON-Stringwert.
+         * @param value Der zu maskierende Wert
+         * @return Der maskierte Wert (ohne umschließende Anführungszeichen)
+         */
+        public static String escape(String value) {
+            if (value == null) {
+                return "";
+            }
+            StringBuilder sb = new StringBuilder(value.length() + 8);
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"' -> sb.append("\\\"");
+                    case '\\' -> sb.append("\\\\");
+                    case '\n' -> sb.append("\\n");
+                    case '\r' -> sb.append("\\r");
+                    case '\t' -> sb.append("\\t");
+                    default -> {
+                        if (c < 0x20) {
+                            sb.append(String.format("\\u%04x", (int) c));
+                        } else {
+                            sb.append(c);
+                        }
+                    }
+                }
+            }
+            return sb.toString();
+        }
+
+        /**
+         * Zerlegt den Query-String einer URL in Parameter.
+         * @param query Der Query-String (darf null sein)
+         * @return Map der dekodierten Parameter
+         */
+        public static Map<String, String> parseQuery(String query) {
+            Map<String, String> params = new HashMap<>();
+            if (query == null || query.isEmpty()) {
+                return params;
+            }
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String key = eq >= 0 ? pair.substring(0, eq) : pair;
+                String value = eq >= 0 ? pair.substring(eq + 1) : "";
+                params.put(URLDecoder.decode(key, StandardCharsets.UTF_8), URLDecoder.decode(value, StandardCharsets.UTF_8));
+            }
+            return params;
+        }
     }
 
     /**
@@ -96,6 +179,35 @@ public class ApiServer {
         }
     }
 
+    /**
+     * Liest einen ganzzahligen Pflichtparameter aus den Anfrageparametern.
+     * @param params Die Anfrageparameter
+     * @param name Der Name des Parameters
+     * @return Der Wert des Parameters
+     * @throws IllegalArgumentException wenn der Parameter fehlt oder keine ganze Zahl ist
+     */
+    private static int parseInt(Map<String, String> params, String name) {
+        String value = params.get(name);
+        if (value == null) {
+            throw new IllegalArgumentException("Parameter " + name + " fehlt");
+        }
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Ungültiger Parameter " + name);
+        }
+    }
+
+    /**
+     * Das angefragte Objekt (z.B. Datei, Version oder Snapshot) existiert nicht; die Handler
+     * antworten darauf mit 404.
+     */
+    private static class NotFoundException extends Exception {
+        NotFoundException(String message) {
+            super(message);
+        }
+    }
+
     /**
      * Startet den API-Server auf dem angegebenen Port.
      *
@@ -115,6 +227,33 @@ public class ApiServer {
             server.createContext("/api/files", new AuthMiddleware(new FileHandler()));
             LoggingUtil.logInfo("ApiServer", "Kontext /api/files mit Authentifizierung registriert.");
 
+            server.createContext("/api/search", new AuthMiddleware(new SearchHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/search mit Authentifizierung registriert.");
+
+            server.createContext("/api/search/content", new AuthMiddleware(new ContentSearchHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/search/content mit Authentifizierung registriert.");
+
+            server.createContext("/api/versions", new AuthMiddleware(new VersionsHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/versions mit Authentifizierung registriert.");
+
+            server.createContext("/api/snapshots", new AuthMiddleware(new SnapshotsHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/snapshots mit Authentifizierung registriert.");
+
+            server.createContext("/api/backup", new AuthMiddleware(new BackupHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/backup mit Authentifizierung registriert.");
+
+            server.createContext("/api/changes", new AuthMiddleware(new ChangesHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/changes mit Authentifizierung registriert.");
+
+            server.createContext("/api/folder-stats", new AuthMiddleware(new FolderStatsHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/folder-stats mit Authentifizierung registriert.");
+
+            server.createContext("/api/stats", new AuthMiddleware(new StatsHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/stats mit Authentifizierung registriert.");
+
+            server.createContext("/api/gc", new AuthMiddleware(new GcHandler()));
+            LoggingUtil.logInfo("ApiServer", "Kontext /api/gc mit Authentifizierung registriert.");
+
             server.createContext("/", new WebInterfaceHandler());
             LoggingUtil.logInfo("ApiServer", "Kontext / für Web-Interface registriert.");
 
@@ -191,6 +330,23 @@ public class ApiServer {
                         os.write(response.getBytes());
                     }
                 }
+            } else if ("DELETE".equals(exchange.getRequestMethod())) {
+                // Abmelden: Token verwerfen und entschlüsselte Inhalte bei jeder Abmeldung verwerfen,
+                // da der Cache allen Sitzungen gemeinsam ist; andere Sitzungen füllen ihn bei Bedarf neu
+                String token = exchange.getRequestHeaders().getFirst("Authorization");
+                String response;
+                if (token != null && TokenManager.isValidToken(token)) {
+                    TokenManager.invalidateToken(token);
+                    DecryptedContentCache.getInstance().clear();
+                    response = "{\"success\":true}";
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } else {
+                    response = "{\"error\":\"Unauthorized: Invalid or missing authentication token.\"}";
+                    exchange.sendResponseHeaders(401, response.getBytes().length);
+                }
+                try (OutputStream os = exchange.getResponseBody()) {
+                    os.write(response.getBytes());
+                }
             } else {
                 LoggingUtil.logWarning("ApiServer", "HTTP-Methode nicht erlaubt: " + exchange.getRequestMethod());
                 exchange.sendResponseHeaders(405, -1); // Methode nicht erlaubt
@@ -241,8 +397,20 @@ public class ApiServer {
 
             switch (method) {
                 case "GET" -> {
-                    response = listFolders();
-                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                    Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                    if (params.containsKey("path")) {
+                        VirtualFolder folder = FolderManager.getInstance().getFolderByPath(params.get("path"));
+                        if (folder != null) {
+                            response = folderToJson(folder);
+                            exchange.sendResponseHeaders(200, response.getBytes().length);
+                        } else {
+                            response = "{\"error\":\"Ordner nicht gefunden\"}";
+                            exchange.sendResponseHeaders(404, response.getBytes().length);
+                        }
+                    } else {
+                        response = listFolders();
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
                 }
                 case "POST" -> {
                     try {
@@ -290,15 +458,24 @@ public class ApiServer {
             LoggingUtil.logInfo("ApiServer", "Liste alle Ordner auf...");
             StringBuilder response = new StringBuilder("[");
             try (Connection conn = DatabaseManager.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement("SELECT id, name, COALESCE(parent_id, 0) AS parent_id FROM folders");
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT f.id, f.name, COALESCE(f.parent_id, 0) AS parent_id, "
+                         + "COALESCE(s.direct_bytes, 0) AS direct_bytes, COALESCE(s.direct_files, 0) AS direct_files, "
+                         + "COALESCE(s.total_bytes, 0) AS total_bytes, COALESCE(s.total_files, 0) AS total_files "
+                         + "FROM folders f LEFT JOIN folder_stats s ON s.folder_id = f.id");
                  ResultSet rs = stmt.executeQuery()) {
 
                 while (rs.next()) {
                     if (response.length() > 1) {
                         response.append(",");
                     }
-                    response.append(String.format("{\"id\":%d,\"name\":\"%s\",\"parentFolderId\":%d}",
-                            rs.getInt("id"), rs.getString("name"), rs.getInt("parent_id")));
+                    String path = FolderManager.getInstance().getFolderPath(rs.getInt("id"));
+                    response.append(String.format("{\"id\":%d,\"name\":\"%s\",\"parentFolderId\":%d,\"path\":%s,"
+                            + "\"sizeBytes\":%d,\"fileCount\":%d,\"totalSizeBytes\":%d,\"totalFileCount\":%d}",
+                            rs.getInt("id"), rs.getString("name"), rs.getInt("parent_id"),
+                            path != null ? "\"" + JsonUtils.escape(path) + "\"" : "null",
+                            rs.getLong("direct_bytes"), rs.getInt("direct_files"),
+                            rs.getLong("total_bytes"), rs.getInt("total_files")));
                 }
             } catch (SQLException e) {
                 LoggingUtil.logError("ApiServer", "Datenbankfehler: " + e.getMessage());
@@ -309,6 +486,13 @@ public class ApiServer {
             return response.toString();
         }
 
+        private static String folderToJson(VirtualFolder folder) {
+            return String.format("{\"id\":%d,\"name\":\"%s\",\"parentFolderId\":%d,\"path\":\"%s\"}",
+                    folder.getId(), JsonUtils.escape(folder.getName()),
+                    folder.getParentId() != null ? folder.getParentId() : 0,
+                    JsonUtils.escape(FolderManager.getInstance().getFolderPath(folder.getId())));
+        }
+
         private String createFolder(HttpExchange exchange) {
             try {
                 String requestBody = new String(exchange.getRequestBody().readAllBytes());
@@ -398,8 +582,17 @@ public class ApiServer {
 
         private String deleteFolder(HttpExchange exchange) {
             try {
-                String query = exchange.getRequestURI().getQuery();
-                int folderId = Integer.parseInt(query.split("=")[1]);
+                Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                int folderId;
+                if (params.containsKey("path")) {
+                    VirtualFolder folder = FolderManager.getInstance().getFolderByPath(params.get("path"));
+                    if (folder == null) {
+                        return "Ordner nicht gefunden.";
+                    }
+                    folderId = folder.getId();
+                } else {
+                    folderId = Integer.parseInt(params.get("id"));
+                }
                 LoggingUtil.logInfo("ApiServer", "Empfangene Anfrage zum Löschen des Ordners mit ID: " + folderId);
                 
                 // Prüfe zuerst, ob der Ordner existiert
@@ -484,6 +677,9 @@ public class ApiServer {
      * Handler für Dateioperationen.
      */
     static class FileHandler implements HttpHandler {
+        /** Standardgröße einer Dateiseite, wenn kein limit angegeben ist */
+        private static final int DEFAULT_PAGE_SIZE = 200;
+
         @Override
         public void handle(HttpExchange exchange) throws IOException {
             String method = exchange.getRequestMethod();
@@ -493,8 +689,23 @@ public class ApiServer {
             
             switch (method) {
                 case "GET" -> {
-                    response = listFiles();
-                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                    Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                    if (params.containsKey("id")) {
+                        downloadFile(exchange, params.get("id"));
+                        return;
+                    }
+                    if (params.containsKey("folderId") || params.containsKey("folderPath")) {
+                        try {
+                            response = listFilesPage(params);
+                            exchange.sendResponseHeaders(200, response.getBytes().length);
+                        } catch (IllegalArgumentException e) {
+                            response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                            exchange.sendResponseHeaders(400, response.getBytes().length);
+                        }
+                    } else {
+                        response = listFiles();
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
                 }
                 case "POST" -> {
                     try {
@@ -560,6 +771,106 @@ public class ApiServer {
             }
         }
 
+        /**
+         * Löst einen Ordnerpfad in die ID des Ordners auf.
+         *
+         * @param path Der Pfad, z.B. {@code /Tresor/Dokumente}
+         * @return Die ID des Ordners
+         * @throws IllegalArgumentException wenn kein Ordner unter dem Pfad existiert
+         */
+        private static int resolveFolderPath(String path) {
+            VirtualFolder folder = FolderManager.getInstance().getFolderByPath(path);
+            if (folder == null) {
+                throw new IllegalArgumentException("Ordner nicht gefunden: " + path);
+            }
+            return folder.getId();
+        }
+
+        /**
+         * Liefert eine Seite der Dateien eines Ordners.
+         * Unterstützte Parameter: folderId oder folderPath (Pflicht), sort (name, size, created, last_access),
+         * order (asc, desc), after (Cursor der vorherigen Seite) und limit.
+         *
+         * @param params Die Query-Parameter der Anfrage
+         * @return JSON-Objekt mit den Dateien und dem Cursor der nächsten Seite
+         * @throws IllegalArgumentException bei ungültigen Parametern
+         */
+        private String listFilesPage(Map<String, String> params) {
+            int folderId;
+            int limit;
+            try {
+                folderId = params.containsKey("folderPath")
+                        ? resolveFolderPath(params.get("folderPath"))
+                        : Integer.parseInt(params.get("folderId"));
+                limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültige folderId oder limit");
+            }
+            FileSortOrder sortOrder = FileSortOrder.fromString(params.get("sort"));
+            boolean descending = "desc".equalsIgnoreCase(params.get("order"));
+            FileCursor after = FileCursor.decode(params.get("after"), sortOrder);
+
+            LoggingUtil.logInfo("FileHandler", "Rufe Dateiseite ab: Ordner=" + folderId + ", Sortierung=" + sortOrder);
+            FilePage page = FileStorage.getInstance().listFiles(folderId, sortOrder, descending, after, limit);
+
+            StringBuilder response = new StringBuilder("{\"items\":[");
+            boolean first = true;
+            for (EncryptedFile file : page.getFiles()) {
+                if (!first) {
+                    response.append(",");
+                }
+                first = false;
+                response.append(String.format("{\"id\":%d,\"name\":\"%s\",\"folderId\":%d,\"size\":%d,\"mimeType\":\"%s\"}",
+                        file.getId(), JsonUtils.escape(file.getOriginalName()), file.getFolderId(),
+                        file.getSizeBytes(), JsonUtils.escape(file.getMimeType())));
+            }
+            response.append("],\"nextCursor\":");
+            if (page.hasMore()) {
+                response.append("\"").append(page.getNextCursor().encode()).append("\"");
+            } else {
+                response.append("null");
+            }
+            response.append("}");
+            return response.toString();
+        }
+
+        /**
+         * Sendet den entschlüsselten Inhalt der aktuellen Version einer Datei. Kleine Dateien
+         * werden bei eingeschaltetem {@link DecryptedContentCache} aus dem Speicher geliefert.
+         */
+        private void downloadFile(HttpExchange exchange, String idParam) throws IOException {
+            String response;
+            try {
+                int fileId = Integer.parseInt(idParam);
+                EncryptedFile file = FileStorage.getInstance().getFileById(fileId);
+                if (file == null) {
+                    response = "{\"error\":\"Datei " + fileId + " nicht gefunden\"}";
+                    exchange.sendResponseHeaders(404, response.getBytes().length);
+                } else {
+                    try (InputStream in = DecryptedContentCache.getInstance().openCurrent(fileId)) {
+                        exchange.getResponseHeaders().set("Content-Type", file.getMimeType() != null
+                                ? file.getMimeType() : "application/octet-stream");
+                        exchange.sendResponseHeaders(200, 0);
+                        try (OutputStream os = exchange.getResponseBody()) {
+                            in.transferTo(os);
+                        }
+                    }
+                    AccessTracker.getInstance().recordAccess(fileId);
+                    return;
+                }
+            } catch (NumberFormatException e) {
+                response = "{\"error\":\"Ungültige id\"}";
+                exchange.sendResponseHeaders(400, response.getBytes().length);
+            } catch (SQLException e) {
+                LoggingUtil.logError("FileHandler", "Fehler beim Herunterladen: " + e.getMessage());
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(500, response.getBytes().length);
+            }
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
         private String uploadFile(HttpExchange exchange) throws IOException {
             // Implementierung für das Hochladen von Dateien
             LoggingUtil.logInfo("ApiServer", "Implementierung für uploadFile fehlt");
@@ -573,6 +884,821 @@ public class ApiServer {
         }
     }
 
+    /**
+     * Handler für die Volltextsuche über Dateien und Ordner.
+     */
+    static class SearchHandler implements HttpHandler {
+        /** Standardgröße einer Trefferseite, wenn kein limit angegeben ist */
+        private static final int DEFAULT_PAGE_SIZE = 50;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            if ("GET".equals(method)) {
+                Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                try {
+                    response = search(params);
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } catch (IllegalArgumentException e) {
+                    response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                    exchange.sendResponseHeaders(400, response.getBytes().length);
+                }
+            } else {
+                response = "Methode nicht erlaubt.";
+                LoggingUtil.logWarning("SearchHandler", "Methode nicht erlaubt: " + method);
+                exchange.sendResponseHeaders(405, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        /**
+         * Führt die Suche aus. Unterstützte Parameter: q (Pflicht), after (Cursor der
+         * vorherigen Seite) und limit.
+         *
+         * @param params Die Query-Parameter der Anfrage
+         * @return JSON-Objekt mit den Treffern und dem Cursor der nächsten Seite
+         * @throws IllegalArgumentException bei ungültigen Parametern
+         */
+        private String search(Map<String, String> params) {
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                throw new IllegalArgumentException("Parameter q fehlt");
+            }
+            int limit;
+            try {
+                limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_PAGE_SIZE;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültiges limit");
+            }
+
+            SearchPage page = Vault.getInstance().search(query, params.get("after"), limit);
+            StringBuilder response = new StringBuilder("{\"items\":[");
+            boolean first = true;
+            for (SearchHit hit : page.getHits()) {
+                if (!first) {
+                    response.append(",");
+                }
+                first = false;
+                response.append("{\"type\":\"").append(hit.getKind() == SearchHit.Kind.FOLDER ? "folder" : "file")
+                        .append("\",\"id\":").append(hit.getId())
+                        .append(",\"name\":\"").append(JsonUtils.escape(hit.getName())).append("\"")
+                        .append(",\"folderId\":").append(hit.getFolderId());
+                if (hit.getKind() == SearchHit.Kind.FILE) {
+                    response.append(",\"folder\":").append(jsonString(hit.getFolderName()))
+                            .append(",\"mimeType\":").append(jsonString(hit.getMimeType()));
+                } else {
+                    response.append(",\"description\":").append(jsonString(hit.getDescription()));
+                }
+                response.append(",\"score\":").append(hit.getScore()).append("}");
+            }
+            response.append("],\"nextCursor\":");
+            if (page.hasMore()) {
+                response.append("\"").append(page.getNextCursor()).append("\"");
+            } else {
+                response.append("null");
+            }
+            response.append("}");
+            return response.toString();
+        }
+
+        private static String jsonString(String value) {
+            return value == null ? "null" : "\"" + JsonUtils.escape(value) + "\"";
+        }
+    }
+
+    /**
+     * Handler für die Suche im Inhalt indizierter Textdateien.
+     */
+    static class ContentSearchHandler implements HttpHandler {
+        /** Standardanzahl der Treffer, wenn kein limit angegeben ist */
+        private static final int DEFAULT_LIMIT = 20;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            if ("GET".equals(method)) {
+                Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                try {
+                    response = search(params);
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } catch (IllegalArgumentException e) {
+                    response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                    exchange.sendResponseHeaders(400, response.getBytes().length);
+                } catch (IllegalStateException e) {
+                    response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                    exchange.sendResponseHeaders(409, response.getBytes().length);
+                }
+            } else {
+                response = "Methode nicht erlaubt.";
+                LoggingUtil.logWarning("ContentSearchHandler", "Methode nicht erlaubt: " + method);
+                exchange.sendResponseHeaders(405, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        /**
+         * Führt die Inhaltssuche aus. Unterstützte Parameter: q (Pflicht) und limit.
+         *
+         * @param params Die Query-Parameter der Anfrage
+         * @return JSON-Objekt mit den Treffern
+         * @throws IllegalArgumentException bei ungültigen Parametern
+         */
+        private String search(Map<String, String> params) {
+            String query = params.get("q");
+            if (query == null || query.isBlank()) {
+                throw new IllegalArgumentException("Parameter q fehlt");
+            }
+            int limit;
+            try {
+                limit = params.containsKey("limit") ? Integer.parseInt(params.get("limit")) : DEFAULT_LIMIT;
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültiges limit");
+            }
+
+            StringBuilder response = new StringBuilder("{\"items\":[");
+            boolean first = true;
+            for (ContentHit hit : Vault.getInstance().searchContent(query, limit)) {
+                if (!first) {
+                    response.append(",");
+                }
+                first = false;
+                response.append("{\"id\":").append(hit.getFileId())
+                        .append(",\"name\":\"").append(JsonUtils.escape(hit.getName())).append("\"")
+                        .append(",\"folderId\":").append(hit.getFolderId())
+                        .append(",\"snippet\":")
+                        .append(hit.getSnippet() == null ? "null" : "\"" + JsonUtils.escape(hit.getSnippet()) + "\"")
+                        .append(",\"score\":").append(hit.getScore()).append("}");
+            }
+            response.append("]}");
+            return response.toString();
+        }
+    }
+
+    /**
+     * Handler für den Versionsverlauf einer Datei: Auflisten (GET mit fileId), Herunterladen
+     * einer Version (GET mit fileId und version) und Wiederherstellen (POST mit fileId und version).
+     */
+    static class VersionsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+            String response;
+
+            try {
+                int fileId = parseInt(params, "fileId");
+                EncryptedFile file = FileStorage.getInstance().getFileById(fileId);
+                if (file == null) {
+                    throw new NotFoundException("Datei " + fileId + " nicht gefunden");
+                }
+                switch (method) {
+                    case "GET" -> {
+                        if (!params.containsKey("version")) {
+                            response = toJson(Vault.getInstance().getFileVersions(fileId));
+                            exchange.sendResponseHeaders(200, response.getBytes().length);
+                            break;
+                        }
+                        int version = parseInt(params, "version");
+                        requireVersion(fileId, version);
+                        try (InputStream in = DecryptedContentCache.getInstance().open(fileId, version)) {
+                            exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                            exchange.sendResponseHeaders(200, 0);
+                            try (OutputStream os = exchange.getResponseBody()) {
+                                in.transferTo(os);
+                            }
+                        }
+                        return;
+                    }
+                    case "POST" -> {
+                        int version = parseInt(params, "version");
+                        requireVersion(fileId, version);
+                        try {
+                            Vault.getInstance().restoreFileVersion(file, version);
+                            response = toJson(Vault.getInstance().getFileVersions(fileId).subList(0, 1));
+                            exchange.sendResponseHeaders(201, response.getBytes().length);
+                        } finally {
+                            notifyChangeListeners("restore_version");
+                        }
+                    }
+                    default -> {
+                        response = "Methode nicht erlaubt.";
+                        LoggingUtil.logWarning("VersionsHandler", "Methode nicht erlaubt: " + method);
+                        exchange.sendResponseHeaders(405, response.getBytes().length);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(400, response.getBytes().length);
+            } catch (NotFoundException e) {
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(404, response.getBytes().length);
+            } catch (Exception e) {
+                LoggingUtil.logError("VersionsHandler", "Fehler beim Zugriff auf Versionen: " + e.getMessage());
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(500, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        private static void requireVersion(int fileId, int version) throws Exception {
+            boolean exists = Vault.getInstance().getFileVersions(fileId).stream()
+                    .anyMatch(v -> v.getVersion() == version);
+            if (!exists) {
+                throw new NotFoundException("Version " + version + " der Datei " + fileId + " nicht gefunden");
+            }
+        }
+
+        private static String toJson(List<FileVersion> versions) {
+            StringBuilder json = new StringBuilder("{\"items\":[");
+            for (int i = 0; i < versions.size(); i++) {
+                FileVersion version = versions.get(i);
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append("{\"version\":").append(version.getVersion())
+                    .append(",\"current\":").append(version.isCurrent())
+                    .append(",\"kind\":\"").append(version.getKind()).append("\"")
+                    .append(",\"size\":").append(version.getSizeBytes())
+                    .append(",\"storedBytes\":").append(version.getStoredBytes())
+                    .append(",\"mimeType\":\"").append(JsonUtils.escape(version.getMimeType())).append("\"")
+                    .append(",\"createdAt\":")
+                    .append(version.getCreatedAt() == null ? "null" : "\"" + version.getCreatedAt() + "\"")
+                    .append("}");
+            }
+            return json.append("]}").toString();
+        }
+    }
+
+    /**
+     * Handler für Snapshots des Tresors: Auflisten (GET), Durchsuchen (GET mit id und optional
+     * folderId), Herunterladen einer Datei (GET mit id und fileId), Anlegen (POST mit name),
+     * Wiederherstellen (POST mit id und fileId oder folderId) und Löschen (DELETE mit id).
+     */
+    static class SnapshotsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+            SnapshotManager snapshots = SnapshotManager.getInstance();
+            String response;
+
+            try {
+                switch (method) {
+                    case "GET" -> {
+                        if (!params.containsKey("id")) {
+                            response = toJson(Vault.getInstance().getSnapshots());
+                            exchange.sendResponseHeaders(200, response.getBytes().length);
+                            break;
+                        }
+                        int id = parseInt(params, "id");
+                        Snapshot snapshot = requireSnapshot(id);
+                        if (params.containsKey("fileId")) {
+                            int fileId = parseInt(params, "fileId");
+                            if (snapshots.getFile(id, fileId) == null) {
+                                throw new NotFoundException("Datei " + fileId + " nicht in Snapshot " + id + " enthalten");
+                            }
+                            try (InputStream in = snapshots.open(id, fileId)) {
+                                exchange.getResponseHeaders().set("Content-Type", "application/octet-stream");
+                                exchange.sendResponseHeaders(200, 0);
+                                try (OutputStream os = exchange.getResponseBody()) {
+                                    in.transferTo(os);
+                                }
+                            }
+                            return;
+                        }
+                        if (params.containsKey("folderId")) {
+                            response = filesToJson(snapshots.getFiles(id, parseInt(params, "folderId")));
+                        } else {
+                            response = foldersToJson(snapshot, snapshots.getFolders(id));
+                        }
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
+                    case "POST" -> {
+                        if (!params.containsKey("id")) {
+                            String name = params.get("name");
+                            if (name == null || name.isBlank()) {
+                                throw new IllegalArgumentException("Parameter name fehlt");
+                            }
+                            response = toJson(List.of(Vault.getInstance().createSnapshot(name)));
+                            exchange.sendResponseHeaders(201, response.getBytes().length);
+                            break;
+                        }
+                        int id = parseInt(params, "id");
+                        requireSnapshot(id);
+                        int restored;
+                        try {
+                            if (params.containsKey("fileId")) {
+                                int fileId = parseInt(params, "fileId");
+                                if (snapshots.getFile(id, fileId) == null) {
+                                    throw new NotFoundException("Datei " + fileId + " nicht in Snapshot " + id + " enthalten");
+                                }
+                                Vault.getInstance().restoreFromSnapshot(id, fileId);
+                                restored = 1;
+                            } else {
+                                restored = Vault.getInstance().restoreFolderFromSnapshot(id, parseInt(params, "folderId"));
+                            }
+                        } finally {
+                            notifyChangeListeners("restore_snapshot");
+                        }
+                        response = "{\"restored\":" + restored + "}";
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
+                    case "DELETE" -> {
+                        int id = parseInt(params, "id");
+                        if (!snapshots.delete(id)) {
+                            throw new NotFoundException("Snapshot " + id + " nicht gefunden");
+                        }
+                        response = "{\"deleted\":" + id + "}";
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
+                    default -> {
+                        response = "Methode nicht erlaubt.";
+                        LoggingUtil.logWarning("SnapshotsHandler", "Methode nicht erlaubt: " + method);
+                        exchange.sendResponseHeaders(405, response.getBytes().length);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(400, response.getBytes().length);
+            } catch (NotFoundException e) {
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(404, response.getBytes().length);
+            } catch (Exception e) {
+                LoggingUtil.logError("SnapshotsHandler", "Fehler beim Zugriff auf Snapshots: " + e.getMessage());
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(500, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        private static Snapshot requireSnapshot(int id) throws Exception {
+            Snapshot snapshot = SnapshotManager.getInstance().get(id);
+            if (snapshot == null) {
+                throw new NotFoundException("Snapshot " + id + " nicht gefunden");
+            }
+            return snapshot;
+        }
+
+        private static String toJson(List<Snapshot> snapshots) {
+            StringBuilder json = new StringBuilder("{\"items\":[");
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                appendSnapshot(json, snapshots.get(i));
+            }
+            return json.append("]}").toString();
+        }
+
+        private static String foldersToJson(Snapshot snapshot, List<VirtualFolder> folders) {
+            StringBuilder json = new StringBuilder("{\"snapshot\":");
+            appendSnapshot(json, snapshot);
+            json.append(",\"folders\":[");
+            for (int i = 0; i < folders.size(); i++) {
+                VirtualFolder folder = folders.get(i);
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append("{\"id\":").append(folder.getId())
+                    .append(",\"name\":\"").append(JsonUtils.escape(folder.getName())).append("\"")
+                    .append(",\"parentId\":").append(folder.getParentId())
+                    .append("}");
+            }
+            return json.append("]}").toString();
+        }
+
+        private static String filesToJson(List<EncryptedFile> files) {
+            StringBuilder json = new StringBuilder("{\"files\":[");
+            for (int i = 0; i < files.size(); i++) {
+                EncryptedFile file = files.get(i);
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append("{\"id\":").append(file.getId())
+                    .append(",\"name\":\"").append(JsonUtils.escape(file.getOriginalName())).append("\"")
+                    .append(",\"size\":").append(file.getSizeBytes())
+                    .append(",\"mimeType\":\"").append(JsonUtils.escape(file.getMimeType())).append("\"")
+                    .append(",\"createdAt\":")
+                    .append(file.getCreatedAt() == null ? "null" : "\"" + file.getCreatedAt() + "\"")
+                    .append("}");
+            }
+            return json.append("]}").toString();
+        }
+
+        private static void appendSnapshot(StringBuilder json, Snapshot snapshot) {
+            json.append("{\"id\":").append(snapshot.getId())
+                .append(",\"name\":\"").append(JsonUtils.escape(snapshot.getName())).append("\"")
+                .append(",\"createdAt\":")
+                .append(snapshot.getCreatedAt() == null ? "null" : "\"" + snapshot.getCreatedAt() + "\"")
+                .append(",\"fileCount\":").append(snapshot.getFileCount())
+                .append(",\"totalBytes\":").append(snapshot.getTotalBytes())
+                .append("}");
+        }
+    }
+
+    /**
+     * Handler für Sicherungen: Auflisten der Archive (GET mit target), Sichern (POST mit target)
+     * und Wiederherstellen (POST auf /api/backup/restore mit archive). Alle Pfade sind relativ zum
+     * Sicherungsverzeichnis (Systemeigenschaft {@code filevault.backup.dir}, sonst
+     * {@code ~/.filevault/backups}); ohne target wird direkt in dieses Verzeichnis gesichert.
+     */
+    static class BackupHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+            boolean restore = exchange.getRequestURI().getPath().endsWith("/restore");
+            String response;
+
+            try {
+                if ("GET".equals(method) && !restore) {
+                    List<Path> archives = VaultBackup.getInstance().listArchives(resolvePath(params, "target", false));
+                    StringBuilder json = new StringBuilder("{\"archives\":[");
+                    for (int i = 0; i < archives.size(); i++) {
+                        if (i > 0) {
+                            json.append(",");
+                        }
+                        json.append("\"").append(JsonUtils.escape(archives.get(i).getFileName().toString())).append("\"");
+                    }
+                    response = json.append("]}").toString();
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } else if ("POST".equals(method)) {
+                    BackupReport report;
+                    if (restore) {
+                        try {
+                            report = Vault.getInstance().restoreBackup(resolvePath(params, "archive", true));
+                        } finally {
+                            notifyChangeListeners("restore_backup");
+                        }
+                    } else {
+                        report = Vault.getInstance().backup(resolvePath(params, "target", false));
+                    }
+                    response = report.toJson();
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } else {
+                    response = "Methode nicht erlaubt.";
+                    LoggingUtil.logWarning("BackupHandler", "Methode nicht erlaubt: " + method);
+                    exchange.sendResponseHeaders(405, response.getBytes().length);
+                }
+            } catch (IllegalArgumentException e) {
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(400, response.getBytes().length);
+            } catch (Exception e) {
+                LoggingUtil.logError("BackupHandler", (restore ? "Restore" : "Backup") + " failed: " + e.getMessage());
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(500, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        /**
+         * Gibt das Sicherungsverzeichnis zurück, auf das die API beschränkt ist.
+         *
+         * @return Der absolute, normalisierte Pfad
+         */
+        static Path backupRoot() {
+            String configured = System.getProperty("filevault.backup.dir");
+            Path root = configured != null
+                    ? Paths.get(configured)
+                    : Paths.get(System.getProperty("user.home"), ".filevault", "backups");
+            return root.toAbsolutePath().normalize();
+        }
+
+        /**
+         * Löst einen Parameter als Pfad innerhalb des Sicherungsverzeichnisses auf. Absolute Pfade
+         * und {@code ..} werden abgelehnt, damit Clients weder außerhalb schreiben noch beliebige
+         * Dateien als Datenbank einspielen können.
+         *
+         * @param params Die Anfrageparameter
+         * @param name Der Name des Parameters
+         * @param required Ob der Parameter angegeben sein muss; sonst gilt das Sicherungsverzeichnis selbst
+         * @return Der aufgelöste Pfad
+         * @throws IllegalArgumentException wenn der Parameter fehlt oder aus dem Verzeichnis herausführt
+         */
+        static Path resolvePath(Map<String, String> params, String name, boolean required) {
+            String value = params.get(name);
+            Path root = backupRoot();
+            if (value == null || value.isBlank()) {
+                if (required) {
+                    throw new IllegalArgumentException("Parameter " + name + " fehlt");
+                }
+                return root;
+            }
+            Path relative = Paths.get(value);
+            boolean escapes = relative.isAbsolute() || relative.getRoot() != null;
+            for (Path segment : relative) {
+                escapes |= "..".equals(segment.toString());
+            }
+            Path resolved = root.resolve(relative).normalize();
+            if (escapes || !resolved.startsWith(root)) {
+                LoggingUtil.logWarning("BackupHandler", "Rejected path outside the backup directory: " + value);
+                throw new IllegalArgumentException("Parameter " + name + " muss ein relativer Pfad im Sicherungsverzeichnis sein");
+            }
+            return resolved;
+        }
+    }
+
+    /**
+     * Handler für das Änderungsprotokoll. Liefert alle Änderungen nach der Sequenznummer
+     * {@code since}; ist {@code reset} gesetzt, muss der Client vollständig neu laden.
+     */
+    static class ChangesHandler implements HttpHandler {
+        /** Maximale Anzahl der Einträge je Antwort */
+        private static final int MAX_LIMIT = 1000;
+
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            if ("GET".equals(method)) {
+                Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                try {
+                    long since = Long.parseLong(params.getOrDefault("since", "0"));
+                    int limit = Integer.parseInt(params.getOrDefault("limit", String.valueOf(MAX_LIMIT)));
+                    if (since < 0 || limit < 1) {
+                        throw new NumberFormatException();
+                    }
+                    response = buildChanges(since, Math.min(limit, MAX_LIMIT));
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } catch (NumberFormatException e) {
+                    response = "{\"error\":\"Ungültiger Parameter since oder limit\"}";
+                    exchange.sendResponseHeaders(400, response.getBytes().length);
+                } catch (SQLException e) {
+                    LoggingUtil.logError("ChangesHandler", "Datenbankfehler: " + e.getMessage());
+                    response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                    exchange.sendResponseHeaders(500, response.getBytes().length);
+                }
+            } else {
+                response = "Methode nicht erlaubt.";
+                LoggingUtil.logWarning("ChangesHandler", "Methode nicht erlaubt: " + method);
+                exchange.sendResponseHeaders(405, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        private static String buildChanges(long since, int limit) throws SQLException {
+            ChangeJournal journal = ChangeJournal.getInstance();
+            // Die höchste Nummer vor den Einträgen lesen, damit keine Änderung zwischen beiden Abfragen verloren geht
+            long latest = journal.getLatestSequence();
+            if (journal.requiresReset(since)) {
+                return "{\"latest\":" + latest + ",\"reset\":true,\"next\":" + latest + ",\"changes\":[]}";
+            }
+            List<Change> changes = journal.since(since, limit);
+            long next = Math.max(since, latest);
+            if (!changes.isEmpty()) {
+                long last = changes.get(changes.size() - 1).getSequence();
+                // Bei voller Seite dort weitermachen, sonst sind alle Änderungen bis latest gesehen
+                next = changes.size() == limit ? last : Math.max(next, last);
+            }
+            StringBuilder json = new StringBuilder("{\"latest\":").append(latest)
+                    .append(",\"reset\":false")
+                    .append(",\"next\":").append(next)
+                    .append(",\"changes\":[");
+            for (int i = 0; i < changes.size(); i++) {
+                Change change = changes.get(i);
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append("{\"seq\":").append(change.getSequence())
+                    .append(",\"entity\":\"").append(change.getEntity()).append("\"")
+                    .append(",\"id\":").append(change.getEntityId())
+                    .append(",\"op\":\"").append(change.getOperation()).append("\"")
+                    .append(",\"at\":").append(change.getChangedAt() != null ? "\"" + change.getChangedAt() + "\"" : "null")
+                    .append("}");
+            }
+            return json.append("]}").toString();
+        }
+    }
+
+    /**
+     * Handler zum Prüfen (GET) und Neuberechnen (POST) der Ordnergrößen in {@code folder_stats}.
+     */
+    static class FolderStatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            try {
+                switch (method) {
+                    case "GET" -> {
+                        response = toJson(FolderStats.getInstance().verify(), false);
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                    }
+                    case "POST" -> {
+                        response = toJson(FolderStats.getInstance().rebuild(), true);
+                        exchange.sendResponseHeaders(200, response.getBytes().length);
+                        notifyChangeListeners("folder_stats");
+                    }
+                    default -> {
+                        response = "Methode nicht erlaubt.";
+                        LoggingUtil.logWarning("FolderStatsHandler", "Methode nicht erlaubt: " + method);
+                        exchange.sendResponseHeaders(405, response.getBytes().length);
+                    }
+                }
+            } catch (SQLException e) {
+                LoggingUtil.logError("FolderStatsHandler", "Datenbankfehler: " + e.getMessage());
+                response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                exchange.sendResponseHeaders(500, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        private static String toJson(List<Integer> mismatches, boolean rebuilt) {
+            StringBuilder json = new StringBuilder("{\"consistent\":").append(mismatches.isEmpty())
+                    .append(",\"rebuilt\":").append(rebuilt)
+                    .append(",\"mismatchedFolders\":[");
+            for (int i = 0; i < mismatches.size(); i++) {
+                if (i > 0) {
+                    json.append(",");
+                }
+                json.append(mismatches.get(i));
+            }
+            return json.append("]}").toString();
+        }
+    }
+
+    /**
+     * Handler für Betriebskennzahlen der Speicherschicht.
+     */
+    static class StatsHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            if ("GET".equals(method)) {
+                response = buildStats();
+                exchange.sendResponseHeaders(200, response.getBytes().length);
+            } else {
+                response = "Methode nicht erlaubt.";
+                LoggingUtil.logWarning("StatsHandler", "Methode nicht erlaubt: " + method);
+                exchange.sendResponseHeaders(405, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+
+        private String buildStats() {
+            AccessTracker tracker = AccessTracker.getInstance();
+            StringBuilder json = new StringBuilder("{");
+            json.append("\"accessTracker\":{")
+                .append("\"queueDepth\":").append(tracker.getQueueDepth()).append(",")
+                .append("\"lastFlushMicros\":").append(tracker.getLastFlushMicros()).append(",")
+                .append("\"maxFlushMicros\":").append(tracker.getMaxFlushMicros()).append(",")
+                .append("\"flushCount\":").append(tracker.getFlushCount()).append(",")
+                .append("\"flushedRows\":").append(tracker.getFlushedRows())
+                .append("}");
+            DeletionQueue deletionQueue = DeletionQueue.getInstance();
+            json.append(",\"deletionQueue\":{")
+                .append("\"backlog\":").append(deletionQueue.getBacklog()).append(",")
+                .append("\"processed\":").append(deletionQueue.getProcessedCount()).append(",")
+                .append("\"failed\":").append(deletionQueue.getFailedCount())
+                .append("}");
+            BlobLayoutMigrator migrator = BlobLayoutMigrator.getInstance();
+            json.append(",\"layoutMigration\":{")
+                .append("\"remaining\":").append(migrator.getRemaining()).append(",")
+                .append("\"migrated\":").append(migrator.getMigratedCount()).append(",")
+                .append("\"failed\":").append(migrator.getFailedCount())
+                .append("}");
+            WriteJournal journal = WriteJournal.getInstance();
+            json.append(",\"writeJournal\":{")
+                .append("\"pendingIntents\":").append(journal.getPendingIntents()).append(",")
+                .append("\"commitBatches\":").append(journal.getCommitBatches()).append(",")
+                .append("\"committedWrites\":").append(journal.getCommittedWrites()).append(",")
+                .append("\"replayed\":").append(journal.getReplayedCount()).append(",")
+                .append("\"rolledBack\":").append(journal.getRolledBackCount())
+                .append("}");
+            TieringService tiering = TieringService.getInstance();
+            json.append(",\"tiering\":{")
+                .append("\"enabled\":").append(tiering.isEnabled()).append(",")
+                .append("\"hot\":").append(tiering.countFiles(TieringService.TIER_HOT)).append(",")
+                .append("\"cold\":").append(tiering.countFiles(TieringService.TIER_COLD)).append(",")
+                .append("\"demoted\":").append(tiering.getDemotedCount()).append(",")
+                .append("\"promoted\":").append(tiering.getPromotedCount()).append(",")
+                .append("\"failed\":").append(tiering.getFailedCount())
+                .append("}");
+            ContentIndex contentIndex = ContentIndex.getInstance();
+            json.append(",\"contentIndex\":{")
+                .append("\"enabled\":").append(contentIndex.isEnabled()).append(",")
+                .append("\"indexedFiles\":").append(contentIndex.countIndexedFiles()).append(",")
+                .append("\"pending\":").append(contentIndex.getPendingCount()).append(",")
+                .append("\"indexed\":").append(contentIndex.getIndexedCount()).append(",")
+                .append("\"failed\":").append(contentIndex.getFailedCount())
+                .append("}");
+            FileVersions versions = FileVersions.getInstance();
+            json.append(",\"versions\":{")
+                .append("\"full\":").append(versions.countVersions(FileVersions.KIND_FULL)).append(",")
+                .append("\"delta\":").append(versions.countVersions(FileVersions.KIND_DELTA)).append(",")
+                .append("\"compacted\":").append(versions.getCompactedCount()).append(",")
+                .append("\"savedBytes\":").append(versions.getSavedBytes()).append(",")
+                .append("\"failed\":").append(versions.getFailedCount())
+                .append("}");
+            SnapshotManager snapshots = SnapshotManager.getInstance();
+            json.append(",\"snapshots\":{")
+                .append("\"count\":").append(snapshots.countSnapshots()).append(",")
+                .append("\"pinnedBlobs\":").append(snapshots.countPinnedBlobs())
+                .append("}");
+            ChangeJournal changes = ChangeJournal.getInstance();
+            json.append(",\"changes\":{")
+                .append("\"latest\":").append(latestSequence(changes)).append(",")
+                .append("\"entries\":").append(changes.countEntries())
+                .append("}");
+            DecryptedContentCache contentCache = DecryptedContentCache.getInstance();
+            json.append(",\"contentCache\":{")
+                .append("\"enabled\":").append(contentCache.isEnabled()).append(",")
+                .append("\"entries\":").append(contentCache.getEntryCount()).append(",")
+                .append("\"bytesHeld\":").append(contentCache.getBytesHeld()).append(",")
+                .append("\"hits\":").append(contentCache.getHitCount()).append(",")
+                .append("\"misses\":").append(contentCache.getMissCount()).append(",")
+                .append("\"hitRatio\":").append(String.format(Locale.ROOT, "%.3f", contentCache.getHitRatio()))
+                .append("}");
+            PreviewCache previews = PreviewCache.getInstance();
+            json.append(",\"previews\":{")
+                .append("\"entries\":").append(previews.countEntries()).append(",")
+                .append("\"cachedBytes\":").append(previews.getCachedBytes()).append(",")
+                .append("\"hits\":").append(previews.getHitCount()).append(",")
+                .append("\"generated\":").append(previews.getGeneratedCount()).append(",")
+                .append("\"failed\":").append(previews.getFailedCount())
+                .append("}");
+            BackupReport lastBackup = VaultBackup.getInstance().getLastReport();
+            json.append(",\"lastBackup\":").append(lastBackup != null ? lastBackup.toJson() : "null");
+            GcReport lastGc = BlobGarbageCollector.getInstance().getLastReport();
+            json.append(",\"lastGc\":").append(lastGc != null ? lastGc.toJson() : "null");
+            json.append("}");
+            return json.toString();
+        }
+
+        private static long latestSequence(ChangeJournal changes) {
+            try {
+                return changes.getLatestSequence();
+            } catch (SQLException e) {
+                LoggingUtil.logError("StatsHandler", "Error reading change sequence: " + e.getMessage());
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Handler für die Bereinigung verwaister verschlüsselter Dateien.
+     */
+    static class GcHandler implements HttpHandler {
+        @Override
+        public void handle(HttpExchange exchange) throws IOException {
+            String method = exchange.getRequestMethod();
+            String response;
+
+            if ("POST".equals(method)) {
+                Map<String, String> params = JsonUtils.parseQuery(exchange.getRequestURI().getRawQuery());
+                boolean dryRun = Boolean.parseBoolean(params.getOrDefault("dryRun", "false"));
+                try {
+                    response = BlobGarbageCollector.getInstance().collect(dryRun).toJson();
+                    exchange.sendResponseHeaders(200, response.getBytes().length);
+                } catch (IOException | SQLException e) {
+                    LoggingUtil.logError("GcHandler", "GC failed: " + e.getMessage());
+                    response = "{\"error\":\"" + JsonUtils.escape(e.getMessage()) + "\"}";
+                    exchange.sendResponseHeaders(500, response.getBytes().length);
+                }
+            } else {
+                response = "Methode nicht erlaubt.";
+                LoggingUtil.logWarning("GcHandler", "Methode nicht erlaubt: " + method);
+                exchange.sendResponseHeaders(405, response.getBytes().length);
+            }
+
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(response.getBytes());
+            }
+        }
+    }
+
     /**
      * Handler für das Web-Interface.
      */
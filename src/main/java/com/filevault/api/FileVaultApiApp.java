@@ -2,7 +2,17 @@ package com.filevault.api;
 
 import java.io.IOException;
 
+import com.filevault.storage.AccessTracker;
+import com.filevault.storage.BlobLayoutMigrator;
+import com.filevault.storage.ChangeJournal;
+import com.filevault.storage.ContentIndex;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.DecryptedContentCache;
+import com.filevault.storage.DeletionQueue;
+import com.filevault.storage.TieringService;
+import com.filevault.storage.WriteJournal;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.FolderManager;
 
 /**
  * Hauptklasse zum Starten des FileVault API-Servers.
@@ -28,13 +38,40 @@ public class FileVaultApiApp {
 
         // Initialisiere die Datenbank
         DatabaseManager.initDatabase();
+        WriteJournal.getInstance().recover();
+        DeletionQueue.getInstance().start();
+        BlobLayoutMigrator.getInstance().start();
+        TieringService.getInstance().start();
+        ContentIndex.getInstance().start();
+        ChangeJournal.getInstance().start();
+
+        // Ordner für die Auflösung von Pfaden laden und nach Änderungen über die API abgleichen;
+        // eine Wiederherstellung ersetzt den Datenbestand und wird vollständig neu geladen
+        FolderManager.getInstance().reloadFromDatabase();
+        ApiServer.addChangeListener(action -> {
+            if (action.startsWith("restore_")) {
+                FolderManager.getInstance().reloadFromDatabase();
+            } else if (action.endsWith("_folder")) {
+                FolderManager.getInstance().refresh();
+            }
+        });
 
         ApiServer server = new ApiServer();
         try {
             server.start(port);
 
             // Shutdown-Hook registrieren, um den Server beim Beenden zu stoppen
-            Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                server.stop();
+                AccessTracker.getInstance().shutdown();
+                DeletionQueue.getInstance().shutdown();
+                BlobLayoutMigrator.getInstance().shutdown();
+                TieringService.getInstance().shutdown();
+                BlobStores.getInstance().shutdown();
+                ContentIndex.getInstance().shutdown();
+                DecryptedContentCache.getInstance().clear();
+                ChangeJournal.getInstance().shutdown();
+            }));
         } catch (IOException e) {
             System.err.println("Fehler beim Starten des API-Servers: " + e.getMessage());
         } catch (RuntimeException e) {
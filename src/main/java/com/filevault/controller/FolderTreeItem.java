@@ -0,0 +1,128 @@
+package com.filevault.controller;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.filevault.model.VirtualFolder;
+import com.filevault.util.FolderManager;
+
+import javafx.collections.ObservableList;
+import javafx.scene.control.TreeItem;
+
+/**
+ * Eintrag im Ordnerbaum, der seine Unterordner erst beim ersten Aufklappen aus dem Index des
+ * {@link FolderManager} lädt. Auch bei sehr vielen Ordnern entstehen so nur Einträge für den
+ * sichtbaren Teil des Baums.
+ * <p>
+ * Nach Änderungen gleicht {@link #sync()} die bereits geladenen Einträge mit dem aktuellen Stand
+ * ab, statt den Baum neu aufzubauen. Bestehende Einträge werden wiederverwendet, sodass
+ * aufgeklappte Ordner und die Auswahl erhalten bleiben.
+ */
+class FolderTreeItem extends TreeItem<VirtualFolder> {
+
+    /** ID des künstlichen Root-Ordners, unter dem die Ordner der obersten Ebene hängen */
+    static final int ROOT_ID = -1;
+
+    /** Gibt an, ob die Unterordner bereits geladen wurden */
+    private boolean loaded;
+
+    /**
+     * Erstellt einen Eintrag, dessen Unterordner erst bei Bedarf geladen werden.
+     *
+     * @param folder Der Ordner oder der künstliche Root-Ordner mit der ID {@value #ROOT_ID}
+     */
+    FolderTreeItem(VirtualFolder folder) {
+        super(folder);
+    }
+
+    @Override
+    public boolean isLeaf() {
+        // Ohne die Unterordner zu laden: ein Blick in den Index genügt
+        return loaded ? super.getChildren().isEmpty() : subfolders().isEmpty();
+    }
+
+    @Override
+    public ObservableList<TreeItem<VirtualFolder>> getChildren() {
+        if (!loaded) {
+            loaded = true;
+            List<TreeItem<VirtualFolder>> items = new ArrayList<>();
+            for (VirtualFolder child : subfolders()) {
+                items.add(new FolderTreeItem(child));
+            }
+            super.getChildren().setAll(items);
+        }
+        return super.getChildren();
+    }
+
+    /**
+     * Prüft, ob die Unterordner bereits geladen wurden.
+     *
+     * @return true, wenn der Eintrag aufgeklappt oder seine Unterordner abgefragt wurden
+     */
+    boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * Gleicht den Eintrag und alle geladenen Unterordner mit dem {@link FolderManager} ab.
+     * Neue Ordner erhalten einen Eintrag, gelöschte und verschobene verlieren ihn; nicht
+     * geladene Teilbäume bleiben unangetastet und werden erst beim Aufklappen gelesen.
+     */
+    void sync() {
+        VirtualFolder folder = getValue();
+        if (folder.getId() != ROOT_ID) {
+            // Nach einem vollständigen Neuladen gehören zu den IDs neue Objekte
+            VirtualFolder current = FolderManager.getInstance().getFolderById(folder.getId());
+            if (current != null && current != folder) {
+                setValue(current);
+            }
+        }
+        if (!loaded) {
+            return;
+        }
+
+        ObservableList<TreeItem<VirtualFolder>> items = super.getChildren();
+        Map<Integer, TreeItem<VirtualFolder>> existing = new HashMap<>();
+        for (TreeItem<VirtualFolder> item : items) {
+            existing.put(item.getValue().getId(), item);
+        }
+        List<TreeItem<VirtualFolder>> wanted = new ArrayList<>();
+        for (VirtualFolder child : subfolders()) {
+            TreeItem<VirtualFolder> item = existing.get(child.getId());
+            wanted.add(item != null ? item : new FolderTreeItem(child));
+        }
+
+        // Nur die Unterschiede anwenden, damit die TreeView bestehende Zeilen behält
+        Set<TreeItem<VirtualFolder>> keep = Collections.newSetFromMap(new IdentityHashMap<>());
+        keep.addAll(wanted);
+        items.removeIf(item -> !keep.contains(item));
+        for (int i = 0; i < wanted.size(); i++) {
+            TreeItem<VirtualFolder> item = wanted.get(i);
+            if (i < items.size() && items.get(i) == item) {
+                continue;
+            }
+            if (item.getParent() == this) {
+                // Reihenfolge hat sich geändert
+                items.setAll(wanted);
+                break;
+            }
+            items.add(i, item);
+        }
+
+        for (TreeItem<VirtualFolder> item : wanted) {
+            ((FolderTreeItem) item).sync();
+        }
+    }
+
+    private List<VirtualFolder> subfolders() {
+        FolderManager folderManager = FolderManager.getInstance();
+        return getValue().getId() == ROOT_ID
+                ? folderManager.getRootFolders()
+                : folderManager.getSubfolders(getValue().getId());
+    }
+}
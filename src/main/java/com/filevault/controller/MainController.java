@@ -1,17 +1,34 @@
 package com.filevault.controller;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.function.Consumer;
 
 import com.filevault.FileVaultApp;
+import com.filevault.core.Vault;
 import com.filevault.model.EncryptedFile;
 import com.filevault.model.UserManager;
 import com.filevault.model.VirtualFolder;
+import com.filevault.storage.DeletionQueue;
+import com.filevault.storage.FileCursor;
+import com.filevault.storage.FilePage;
+import com.filevault.storage.FileSortOrder;
 import com.filevault.storage.FileStorage;
+import com.filevault.storage.FileVersion;
+import com.filevault.storage.FolderStats;
+import com.filevault.storage.FolderTotals;
+import com.filevault.storage.PreviewCache;
+import com.filevault.storage.SearchHit;
+import com.filevault.storage.SearchPage;
 import com.filevault.util.FolderManager;
 import com.filevault.util.LoggingUtil;
 
@@ -34,8 +51,11 @@ import javafx.scene.control.ContextMenu;
 import javafx.scene.control.Dialog;
 import javafx.scene.control.DialogPane;
 import javafx.scene.control.Label;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
 import javafx.scene.control.MenuItem;
 import javafx.scene.control.PasswordField;
+import javafx.scene.control.TableCell;
 import javafx.scene.control.TableColumn;
 import javafx.scene.control.TableRow;
 import javafx.scene.control.TableView;
@@ -46,6 +66,8 @@ import javafx.scene.control.Tooltip;
 import javafx.scene.control.TreeCell;
 import javafx.scene.control.TreeItem;
 import javafx.scene.control.TreeView;
+import javafx.scene.image.Image;
+import javafx.scene.image.ImageView;
 import javafx.scene.input.MouseButton;
 import javafx.scene.input.MouseEvent;
 import javafx.scene.layout.GridPane;
@@ -99,9 +121,40 @@ public class MainController {
     @FXML
     private Button refreshButton;
 
+    /** Suchfeld für die Volltextsuche */
+    @FXML
+    private TextField searchField;
+
     /** Formatierer für Datumsangaben */
     private final DateTimeFormatter dateFormatter = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
 
+    /** Anzahl der Dateien, die pro Seite in die Dateitabelle geladen werden */
+    private static final int FILE_PAGE_SIZE = 200;
+
+    /** Anzeigegröße der Vorschaubilder in der Dateitabelle in Pixeln */
+    private static final int THUMBNAIL_SIZE = 32;
+
+    /** Aktuelles Sortierkriterium der Dateitabelle */
+    private FileSortOrder fileSortOrder = FileSortOrder.NAME;
+
+    /** Gibt an, ob die Dateitabelle absteigend sortiert ist */
+    private boolean fileSortDescending = false;
+
+    /** Cursor für die nächste Dateiseite oder null, wenn alle Dateien geladen sind */
+    private FileCursor nextFileCursor;
+
+    /** Aktive Suchanfrage oder null, wenn der Inhalt eines Ordners angezeigt wird */
+    private String searchQuery;
+
+    /** Cursor für die nächste Trefferseite oder null, wenn alle Treffer geladen sind */
+    private String nextSearchCursor;
+
+    /** Gibt an, ob das Nachladen einer Seite bereits angestoßen wurde und noch nicht abgeschlossen ist */
+    private boolean pageLoadPending;
+
+    /** Größe und Dateianzahl je Ordner-ID, nur für die im Ordnerbaum und in der Dateitabelle angezeigten Ordner */
+    private Map<Integer, FolderTotals> folderTotals = new HashMap<>();
+
     /**
      * Initialisiert den Controller und die Benutzeroberfläche.
      * Richtet die Ordnerliste und Dateitabelle ein.
@@ -126,7 +179,10 @@ public class MainController {
                     nameLabel.setStyle("-fx-font-weight: bold;");
                     Label descLabel = new Label(folder.getDescription());
                     descLabel.setStyle("-fx-text-fill: gray; -fx-font-size: 0.9em;");
-                    vbox.getChildren().addAll(nameLabel, descLabel);
+                    FolderTotals totals = getFolderTotals(folder);
+                    Label sizeLabel = new Label(totals.getFormattedTotalSize() + " · " + totals.getTotalFiles() + " Dateien");
+                    sizeLabel.setStyle("-fx-text-fill: gray; -fx-font-size: 0.8em;");
+                    vbox.getChildren().addAll(nameLabel, descLabel, sizeLabel);
                     setGraphic(vbox);
                 }
             }
@@ -144,9 +200,47 @@ public class MainController {
             }
         });
         
+        // Vorschaubilder für Bilddateien werden im Hintergrund geladen, sobald die Zeile sichtbar wird
+        fileNameColumn.setCellFactory(column -> new TableCell<>() {
+            private final ImageView thumbnail = new ImageView();
+
+            {
+                thumbnail.setFitWidth(THUMBNAIL_SIZE);
+                thumbnail.setFitHeight(THUMBNAIL_SIZE);
+                thumbnail.setPreserveRatio(true);
+            }
+
+            @Override
+            protected void updateItem(String name, boolean empty) {
+                super.updateItem(name, empty);
+                setText(empty ? null : name);
+                thumbnail.setImage(null);
+                Object item = empty || getIndex() < 0 || getIndex() >= getTableView().getItems().size()
+                        ? null : getTableView().getItems().get(getIndex());
+                if (!(item instanceof EncryptedFile file) || !PreviewCache.isPreviewable(file.getMimeType())) {
+                    thumbnail.setUserData(null);
+                    setGraphic(null);
+                    return;
+                }
+                thumbnail.setUserData(file.getId());
+                setGraphic(thumbnail);
+                PreviewCache.getInstance().request(file.getId()).thenAccept(png -> {
+                    if (png != null) {
+                        Image image = new Image(new ByteArrayInputStream(png));
+                        Platform.runLater(() -> {
+                            // Die Zelle kann inzwischen eine andere Datei anzeigen
+                            if (Integer.valueOf(file.getId()).equals(thumbnail.getUserData())) {
+                                thumbnail.setImage(image);
+                            }
+                        });
+                    }
+                });
+            }
+        });
+        
         fileSizeColumn.setCellValueFactory(data -> {
-            if (data.getValue() instanceof VirtualFolder) {
-                return new SimpleStringProperty("[Ordner]");
+            if (data.getValue() instanceof VirtualFolder folder) {
+                return new SimpleStringProperty("[Ordner] " + getFolderTotals(folder).getFormattedTotalSize());
             } else {
                 return new SimpleStringProperty(((EncryptedFile) data.getValue()).getFormattedSize());
             }
@@ -186,7 +280,17 @@ public class MainController {
             deleteItem.setOnAction(event -> handleDeleteFile());
             deleteItem.getStyleClass().add("delete-context-item");
 
-            contextMenu.getItems().addAll(renameItem, deleteItem);
+            MenuItem versionsItem = new MenuItem("Versionen…");
+            versionsItem.setOnAction(event -> {
+                if (row.getItem() instanceof EncryptedFile file) {
+                    handleShowVersions(file);
+                }
+            });
+            // Versionen gibt es nur für Dateien, nicht für Ordner
+            versionsItem.visibleProperty().bind(Bindings.createBooleanBinding(
+                    () -> row.getItem() instanceof EncryptedFile, row.itemProperty()));
+
+            contextMenu.getItems().addAll(renameItem, versionsItem, deleteItem);
 
             // Zeige das Kontextmenü nur für nicht-leere Zeilen an
             row.contextMenuProperty().bind(
@@ -195,16 +299,34 @@ public class MainController {
                         .otherwise(contextMenu)
             );
 
-            // Füge Tooltips für Ordner hinzu
+            // Füge Tooltips für Ordner hinzu und lade die nächste Dateiseite nach,
+            // sobald die letzte geladene Zeile sichtbar wird
             row.itemProperty().addListener((obs, oldItem, newItem) -> {
                 if (newItem instanceof VirtualFolder folder) {
                     row.setTooltip(new Tooltip(folder.getDescription()));
                 }
+                // Mehrere Zeilen können gleichzeitig ans Ende rücken; pro Seite nur einmal nachladen
+                if (newItem != null && !pageLoadPending && row.getIndex() >= fileTableView.getItems().size() - 1) {
+                    if (nextFileCursor != null) {
+                        pageLoadPending = true;
+                        Platform.runLater(this::loadNextFilePage);
+                    } else if (nextSearchCursor != null) {
+                        pageLoadPending = true;
+                        Platform.runLater(this::loadNextSearchPage);
+                    }
+                }
             });
 
             return row;
         });
 
+        // Sortierung der Dateitabelle in der Datenbank durchführen, damit auch
+        // noch nicht geladene Seiten korrekt einsortiert werden
+        fileTableView.setSortPolicy(table -> {
+            applyFileSortOrder();
+            return true;
+        });
+
         // Registriere den Refresh-Handler für die Dateitabelle
         fileTableView.setOnMouseClicked(event -> {
             if (event.getClickCount() == 2) {
@@ -409,47 +531,103 @@ public class MainController {
     }
 
     /**
-     * Aktualisiert die Baumansicht der Ordner.
+     * Gibt Größe und Dateianzahl eines Ordners samt Unterordnern zurück. Für den Root-Ordner
+     * werden die Summen aller Ordner der obersten Ebene addiert.
      */
-    private void refreshFolderTree() {
-        LoggingUtil.logInfo("MainController", "Refreshing folder tree.");
-        // Erstelle einen einzelnen Root-Ordner
-        VirtualFolder rootFolder = new VirtualFolder(-1, "Root", "Root folder", null);
-        TreeItem<VirtualFolder> rootItem = new TreeItem<>(rootFolder);
-        folderTreeView.setRoot(rootItem);
-        folderTreeView.setShowRoot(true);
-
-        // Fülle den Root-Ordner mit weiteren Ordnern
-        List<VirtualFolder> folders = FolderManager.getInstance().getFolders();
-        for (VirtualFolder folder : folders) {
-            if (folder.getParentId() == null) {
-                TreeItem<VirtualFolder> folderItem = createTreeItem(folder, folders);
-                rootItem.getChildren().add(folderItem);
+    private FolderTotals getFolderTotals(VirtualFolder folder) {
+        if (folder.getId() >= 0) {
+            return folderTotals.getOrDefault(folder.getId(), FolderTotals.EMPTY);
+        }
+        long bytes = 0;
+        int files = 0;
+        for (VirtualFolder topLevel : FolderManager.getInstance().getRootFolders()) {
+            FolderTotals totals = folderTotals.getOrDefault(topLevel.getId(), FolderTotals.EMPTY);
+            bytes += totals.getTotalBytes();
+            files += totals.getTotalFiles();
+        }
+        return new FolderTotals(0, 0, bytes, files);
+    }
+
+    /**
+     * Lädt Größe und Dateianzahl nur für die angezeigten Ordner: die sichtbaren Einträge des
+     * Ordnerbaums, die Ordner der obersten Ebene für die Summe des Root-Ordners, den aktuellen
+     * Ordner und die Ordner in der Dateitabelle. Danach werden beide Ansichten neu gezeichnet.
+     */
+    private void loadFolderTotals() {
+        List<Integer> ids = new ArrayList<>();
+        for (VirtualFolder topLevel : FolderManager.getInstance().getRootFolders()) {
+            ids.add(topLevel.getId());
+        }
+        if (folderTreeView.getRoot() != null) {
+            collectExpandedFolderIds(folderTreeView.getRoot(), ids);
+        }
+        VirtualFolder currentFolder = FolderManager.getInstance().getCurrentFolder();
+        if (currentFolder != null) {
+            ids.add(currentFolder.getId());
+        }
+        for (Object item : fileTableView.getItems()) {
+            if (item instanceof VirtualFolder folder) {
+                ids.add(folder.getId());
             }
         }
+        folderTotals = FolderStats.getInstance().get(new HashSet<>(ids));
+        folderTreeView.refresh();
+        fileTableView.refresh();
+    }
 
-        // Erlaube die Auswahl des Root-Ordners
-        folderTreeView.getSelectionModel().select(rootItem);
-        LoggingUtil.logInfo("MainController", "Folder tree refreshed.");
+    /**
+     * Sammelt die IDs der Unterordner aufgeklappter Einträge, ohne zugeklappte Teilbäume zu laden.
+     */
+    private void collectExpandedFolderIds(TreeItem<VirtualFolder> item, List<Integer> ids) {
+        if (!item.isExpanded()) {
+            return;
+        }
+        for (TreeItem<VirtualFolder> child : item.getChildren()) {
+            ids.add(child.getValue().getId());
+            collectExpandedFolderIds(child, ids);
+        }
     }
-    
+
     /**
-     * Erstellt einen TreeItem für einen Ordner und seine Unterordner.
-     * 
-     * @param folder Der Ordner
-     * @param allFolders Die Liste aller Ordner
-     * @return Der erstellte TreeItem
+     * Aktualisiert die Baumansicht der Ordner. Beim ersten Aufruf wird nur der Root-Eintrag
+     * angelegt, Unterordner lädt {@link FolderTreeItem} erst beim Aufklappen. Danach werden nur
+     * die Änderungen in die bereits geladenen Einträge übernommen; aufgeklappte Ordner und die
+     * Auswahl bleiben erhalten.
      */
-    private TreeItem<VirtualFolder> createTreeItem(VirtualFolder folder, List<VirtualFolder> allFolders) {
-        TreeItem<VirtualFolder> item = new TreeItem<>(folder);
-        
-        // Füge alle Unterordner hinzu
-        for (VirtualFolder child : folder.getChildren()) {
-            TreeItem<VirtualFolder> childItem = createTreeItem(child, allFolders);
-            item.getChildren().add(childItem);
+    private void refreshFolderTree() {
+        LoggingUtil.logInfo("MainController", "Refreshing folder tree.");
+
+        TreeItem<VirtualFolder> selected = folderTreeView.getSelectionModel().getSelectedItem();
+        if (folderTreeView.getRoot() instanceof FolderTreeItem) {
+            ((FolderTreeItem) folderTreeView.getRoot()).sync();
+        } else {
+            // Erstelle einen einzelnen Root-Ordner
+            VirtualFolder rootFolder = new VirtualFolder(FolderTreeItem.ROOT_ID, "Root", "Root folder", null);
+            FolderTreeItem root = new FolderTreeItem(rootFolder);
+            // Beim Aufklappen die Summen der neu sichtbaren Unterordner nachladen
+            root.addEventHandler(TreeItem.<VirtualFolder>branchExpandedEvent(), event -> {
+                List<Integer> ids = new ArrayList<>();
+                for (TreeItem<VirtualFolder> child : event.getTreeItem().getChildren()) {
+                    ids.add(child.getValue().getId());
+                }
+                folderTotals.putAll(FolderStats.getInstance().get(ids));
+                folderTreeView.refresh();
+            });
+            folderTreeView.setRoot(root);
+            folderTreeView.setShowRoot(true);
+            selected = null;
         }
-        
-        return item;
+        // Namen und Summen bestehender Zeilen neu anzeigen
+        loadFolderTotals();
+
+        // Ist der ausgewählte Ordner verschwunden, den Root-Ordner auswählen
+        boolean selectionGone = selected == null || selected.getValue() == null
+                || (selected.getValue().getId() != FolderTreeItem.ROOT_ID
+                    && FolderManager.getInstance().getFolderById(selected.getValue().getId()) == null);
+        if (selectionGone || folderTreeView.getSelectionModel().isEmpty()) {
+            folderTreeView.getSelectionModel().select(folderTreeView.getRoot());
+        }
+        LoggingUtil.logInfo("MainController", "Folder tree refreshed.");
     }
 
     /**
@@ -470,14 +648,11 @@ public class MainController {
                 currentFolderLabel.setText(selectedFolder.getName());
                 
                 // Hole nur die obersten Ordner
-                List<VirtualFolder> topFolders = new ArrayList<>();
-                for (VirtualFolder folder : FolderManager.getInstance().getFolders()) {
-                    if (folder.getParentId() == null) {
-                        topFolders.add(folder);
-                    }
-                }
+                List<VirtualFolder> topFolders = FolderManager.getInstance().getRootFolders();
                 
+                nextFileCursor = null;
                 fileTableView.setItems(FXCollections.observableArrayList(topFolders));
+                loadFolderTotals();
                 LoggingUtil.logInfo("MainController", "Root folder selected, showing top-level folders");
             } else {
                 // Normale Ordnerauswahl
@@ -561,6 +736,103 @@ public class MainController {
         }
     }
 
+    /**
+     * Zeigt den Versionsverlauf einer Datei. Eine ausgewählte Version kann exportiert oder als
+     * neue aktuelle Version wiederhergestellt werden.
+     *
+     * @param file Die Datei
+     */
+    private void handleShowVersions(EncryptedFile file) {
+        List<FileVersion> versions;
+        try {
+            versions = Vault.getInstance().getFileVersions(file.getId());
+        } catch (Exception e) {
+            LoggingUtil.logError("MainController", "Error loading versions: " + e.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Versionen", "Fehler beim Laden der Versionen: " + e.getMessage());
+            return;
+        }
+
+        Dialog<ButtonType> dialog = new Dialog<>();
+        dialog.setTitle("Versionen");
+        dialog.setHeaderText("Versionen von " + file.getOriginalName());
+
+        ButtonType exportButtonType = new ButtonType("Exportieren", ButtonBar.ButtonData.OTHER);
+        ButtonType restoreButtonType = new ButtonType("Wiederherstellen", ButtonBar.ButtonData.OK_DONE);
+        dialog.getDialogPane().getButtonTypes().addAll(exportButtonType, restoreButtonType, ButtonType.CLOSE);
+
+        ListView<FileVersion> versionList = new ListView<>(FXCollections.observableArrayList(versions));
+        versionList.setPrefSize(420, 240);
+        versionList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(FileVersion version, boolean empty) {
+                super.updateItem(version, empty);
+                if (empty || version == null) {
+                    setText(null);
+                    return;
+                }
+                String created = version.getCreatedAt() != null ? version.getCreatedAt().format(dateFormatter) : "";
+                setText("Version " + version.getVersion() + (version.isCurrent() ? " (aktuell)" : "")
+                        + " · " + version.getFormattedSize() + " · " + created);
+            }
+        });
+        versionList.getSelectionModel().selectFirst();
+        dialog.getDialogPane().setContent(versionList);
+
+        // Wiederherstellen ist für die aktuelle Version nicht sinnvoll
+        dialog.getDialogPane().lookupButton(restoreButtonType).disableProperty().bind(Bindings.createBooleanBinding(
+                () -> {
+                    FileVersion selected = versionList.getSelectionModel().getSelectedItem();
+                    return selected == null || selected.isCurrent();
+                }, versionList.getSelectionModel().selectedItemProperty()));
+
+        Stage stage = (Stage) dialog.getDialogPane().getScene().getWindow();
+        stage.setAlwaysOnTop(true);
+
+        Optional<ButtonType> result = dialog.showAndWait();
+        FileVersion selected = versionList.getSelectionModel().getSelectedItem();
+        if (result.isEmpty() || selected == null) {
+            return;
+        }
+        if (result.get() == exportButtonType) {
+            exportVersion(file, selected);
+        } else if (result.get() == restoreButtonType) {
+            try {
+                Vault.getInstance().restoreFileVersion(file, selected.getVersion());
+                refreshFileList();
+                statusLabel.setText("Version " + selected.getVersion() + " wiederhergestellt: " + file.getOriginalName());
+            } catch (Exception e) {
+                LoggingUtil.logError("MainController", "Error restoring version: " + e.getMessage());
+                statusLabel.setText("Fehler beim Wiederherstellen: " + e.getMessage());
+                showAlert(Alert.AlertType.ERROR, "Wiederherstellungsfehler", "Fehler beim Wiederherstellen der Version: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Exportiert eine Version einer Datei an einen vom Benutzer gewählten Ort.
+     *
+     * @param file Die Datei
+     * @param version Die zu exportierende Version
+     */
+    private void exportVersion(EncryptedFile file, FileVersion version) {
+        FileChooser fileChooser = new FileChooser();
+        fileChooser.setTitle("Version exportieren");
+        fileChooser.setInitialFileName(version.isCurrent() ? file.getOriginalName()
+                : "v" + version.getVersion() + "_" + file.getOriginalName());
+        File target = fileChooser.showSaveDialog(folderTreeView.getScene().getWindow());
+        if (target == null) {
+            return;
+        }
+        try {
+            FileStorage.getInstance().exportVersion(file, version.getVersion(), target);
+            statusLabel.setText("Version " + version.getVersion() + " exportiert: " + target.getName());
+        } catch (Exception e) {
+            LoggingUtil.logError("MainController", "Error exporting version: " + e.getMessage());
+            statusLabel.setText("Fehler beim Exportieren: " + e.getMessage());
+            showAlert(Alert.AlertType.ERROR, "Exportfehler", "Fehler beim Exportieren der Version: " + e.getMessage());
+        }
+    }
+
     /**
      * Benennt eine Datei um.
      * Zeigt einen Dialog zur Eingabe des neuen Namens.
@@ -661,6 +933,10 @@ public class MainController {
             } else {
                 throw new IllegalStateException("Unexpected value: " + selectedItem);
             }
+            int backlog = DeletionQueue.getInstance().getBacklog();
+            if (backlog > 0) {
+                statusLabel.setText(statusLabel.getText() + " " + backlog + " verschlüsselte Datei(en) werden im Hintergrund entfernt.");
+            }
             refreshUI();
         } catch (RuntimeException e) {
             showAlert(Alert.AlertType.ERROR, "Fehler beim Löschen", "Fehler beim Löschen: " + e.getMessage());
@@ -719,19 +995,26 @@ public class MainController {
     
     /**
      * Aktualisiert die Liste der Dateien im aktuellen Ordner.
+     * Es wird nur die erste Seite der Dateien geladen; weitere Seiten werden beim
+     * Scrollen über {@link #loadNextFilePage()} nachgeladen.
      */
     private void refreshFileList() {
         LoggingUtil.logInfo("MainController", "Refreshing file list.");
         VirtualFolder currentFolder = FolderManager.getInstance().getCurrentFolder();
+        nextFileCursor = null;
+        searchQuery = null;
+        nextSearchCursor = null;
         if (currentFolder != null) {
             currentFolderLabel.setText(currentFolder.getName());
 
-            List<EncryptedFile> files = FileStorage.getInstance().getFilesInFolder(currentFolder);
+            FilePage page = FileStorage.getInstance().listFiles(
+                    currentFolder.getId(), fileSortOrder, fileSortDescending, null, FILE_PAGE_SIZE);
             List<VirtualFolder> subfolders = FolderManager.getInstance().getSubfolders(currentFolder.getId());
 
             List<Object> items = new ArrayList<>();
             items.addAll(subfolders);
-            items.addAll(files);
+            items.addAll(page.getFiles());
+            nextFileCursor = page.getNextCursor();
 
             fileTableView.setItems(FXCollections.observableArrayList(items));
             LoggingUtil.logInfo("MainController", "File list refreshed for folder: " + currentFolder.getName());
@@ -740,6 +1023,130 @@ public class MainController {
             fileTableView.setItems(FXCollections.observableArrayList());
             LoggingUtil.logInfo("MainController", "No folder selected. File list cleared.");
         }
+        // Ordnergrößen neu laden, da sich Dateien geändert haben können
+        loadFolderTotals();
+    }
+
+    /**
+     * Lädt die nächste Dateiseite des aktuellen Ordners und hängt sie an die Tabelle an.
+     */
+    private void loadNextFilePage() {
+        try {
+            VirtualFolder currentFolder = FolderManager.getInstance().getCurrentFolder();
+            if (nextFileCursor == null || currentFolder == null) {
+                return;
+            }
+
+            FilePage page = FileStorage.getInstance().listFiles(
+                    currentFolder.getId(), fileSortOrder, fileSortDescending, nextFileCursor, FILE_PAGE_SIZE);
+            nextFileCursor = page.getNextCursor();
+            fileTableView.getItems().addAll(page.getFiles());
+            LoggingUtil.logInfo("MainController", "Loaded " + page.getFiles().size() + " more files for folder: " + currentFolder.getName());
+        } finally {
+            pageLoadPending = false;
+        }
+    }
+
+    /**
+     * Führt die Volltextsuche mit dem Inhalt des Suchfelds aus und zeigt die Treffer,
+     * nach Relevanz sortiert, in der Dateitabelle an. Ein leeres Suchfeld zeigt wieder
+     * den aktuellen Ordner.
+     */
+    @FXML
+    private void handleSearch() {
+        String query = searchField.getText();
+        if (query == null || query.isBlank()) {
+            refreshFileList();
+            return;
+        }
+        LoggingUtil.logInfo("MainController", "Searching for: " + query);
+        nextFileCursor = null;
+        searchQuery = query.trim();
+        SearchPage page = Vault.getInstance().search(searchQuery, null, FILE_PAGE_SIZE);
+        nextSearchCursor = page.getNextCursor();
+        currentFolderLabel.setText("Suche: " + searchQuery);
+        fileTableView.setItems(FXCollections.observableArrayList(toTableItems(page)));
+        loadFolderTotals();
+        statusLabel.setText(page.hasMore()
+                ? "Mehr als " + page.getHits().size() + " Treffer"
+                : page.getHits().size() + " Treffer");
+    }
+
+    /**
+     * Lädt die nächste Trefferseite der aktiven Suche und hängt sie an die Tabelle an.
+     */
+    private void loadNextSearchPage() {
+        try {
+            if (searchQuery == null || nextSearchCursor == null) {
+                return;
+            }
+            SearchPage page = Vault.getInstance().search(searchQuery, nextSearchCursor, FILE_PAGE_SIZE);
+            nextSearchCursor = page.getNextCursor();
+            fileTableView.getItems().addAll(toTableItems(page));
+            loadFolderTotals();
+        } finally {
+            pageLoadPending = false;
+        }
+    }
+
+    /**
+     * Wandelt Suchtreffer in Tabellenzeilen (Ordner bzw. Dateien) um.
+     *
+     * @param page Die Trefferseite
+     * @return Die Zeilen in der Reihenfolge der Treffer
+     */
+    private List<Object> toTableItems(SearchPage page) {
+        // Alle Dateitreffer der Seite mit einer Abfrage laden
+        List<Integer> fileIds = new ArrayList<>();
+        for (SearchHit hit : page.getHits()) {
+            if (hit.getKind() != SearchHit.Kind.FOLDER) {
+                fileIds.add(hit.getId());
+            }
+        }
+        Map<Integer, EncryptedFile> files = fileIds.isEmpty()
+                ? Map.of()
+                : FileStorage.getInstance().getFilesByIds(fileIds);
+
+        List<Object> items = new ArrayList<>();
+        for (SearchHit hit : page.getHits()) {
+            Object item = hit.getKind() == SearchHit.Kind.FOLDER
+                    ? FolderManager.getInstance().getFolderById(hit.getId())
+                    : files.get(hit.getId());
+            if (item != null) {
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Übernimmt die in der Tabelle gewählte Sortierung und lädt die Dateiliste neu,
+     * falls sich das Sortierkriterium geändert hat.
+     */
+    private void applyFileSortOrder() {
+        FileSortOrder order = FileSortOrder.NAME;
+        boolean descending = false;
+
+        if (!fileTableView.getSortOrder().isEmpty()) {
+            TableColumn<Object, ?> column = fileTableView.getSortOrder().get(0);
+            if (column == fileSizeColumn) {
+                order = FileSortOrder.SIZE;
+            } else if (column == fileDateColumn) {
+                order = FileSortOrder.CREATED;
+            }
+            descending = column.getSortType() == TableColumn.SortType.DESCENDING;
+        }
+
+        if (order != fileSortOrder || descending != fileSortDescending) {
+            fileSortOrder = order;
+            fileSortDescending = descending;
+            // Der Root-Knoten zeigt nur Ordner an, dort muss nichts nachgeladen werden
+            TreeItem<VirtualFolder> selected = folderTreeView.getSelectionModel().getSelectedItem();
+            boolean rootSelected = selected != null && selected.getValue() != null && selected.getValue().getId() == -1;
+            if (!rootSelected && searchQuery == null && FolderManager.getInstance().getCurrentFolder() != null) {
+                refreshFileList();
+            }
+        }
     }
 
     /**
@@ -749,8 +1156,8 @@ public class MainController {
         LoggingUtil.logInfo("MainController", "Performing full UI refresh");
         
         try {
-            // Lade aktuelle Daten aus der Datenbank
-            FolderManager.getInstance().reloadFromDatabase();
+            // Lade aktuelle Daten aus der Datenbank; Ordner nur, soweit sie sich geändert haben
+            FolderManager.getInstance().refresh();
             FileStorage.getInstance().reloadFromDatabase();
             
             // Merke aktuell ausgewählten Ordner
@@ -881,27 +1288,45 @@ public class MainController {
      * @param folder Der auszuwählende Ordner
      */
     private void selectFolderInTree(VirtualFolder folder) {
-        selectFolderInTree(folderTreeView.getRoot(), folder);
+        TreeItem<VirtualFolder> item = findTreeItem(folder);
+        if (item != null) {
+            folderTreeView.getSelectionModel().select(item);
+        }
     }
     
     /**
-     * Rekursive Hilfsmethode zum Auswählen eines Ordners in der Baumansicht.
+     * Sucht den Eintrag eines Ordners entlang seiner Vorfahren. Dabei werden nur die Ordner auf
+     * diesem Pfad geladen und aufgeklappt, nicht der ganze Baum.
      * 
-     * @param parent Der übergeordnete TreeItem
-     * @param folder Der auszuwählende Ordner
-     * @return true, wenn der Ordner gefunden und ausgewählt wurde
+     * @param folder Der gesuchte Ordner
+     * @return Der Eintrag oder null, wenn der Ordner nicht im Baum liegt
      */
-    private boolean selectFolderInTree(TreeItem<VirtualFolder> parent, VirtualFolder folder) {
-        for (TreeItem<VirtualFolder> child : parent.getChildren()) {
-            if (child.getValue().equals(folder)) {
-                folderTreeView.getSelectionModel().select(child);
-                return true;
+    private TreeItem<VirtualFolder> findTreeItem(VirtualFolder folder) {
+        TreeItem<VirtualFolder> item = folderTreeView.getRoot();
+        if (item == null || folder == null) {
+            return null;
+        }
+        Deque<Integer> path = new ArrayDeque<>();
+        VirtualFolder current = FolderManager.getInstance().getFolderById(folder.getId());
+        while (current != null) {
+            path.push(current.getId());
+            current = current.getParentId() != null ? FolderManager.getInstance().getFolderById(current.getParentId()) : null;
+        }
+        for (int id : path) {
+            TreeItem<VirtualFolder> next = null;
+            for (TreeItem<VirtualFolder> child : item.getChildren()) {
+                if (child.getValue().getId() == id) {
+                    next = child;
+                    break;
+                }
             }
-            if (selectFolderInTree(child, folder)) {
-                return true;
+            if (next == null) {
+                return null;
             }
+            item.setExpanded(true);
+            item = next;
         }
-        return false;
+        return path.isEmpty() ? null : item;
     }
     
     /**
@@ -956,8 +1381,7 @@ public class MainController {
 
             if (!newName.isEmpty()) {
                 try {
-                    boolean success = FolderManager.getInstance().renameFolder(folder, newName);
-                    folder.setDescription(newDescription);
+                    boolean success = FolderManager.getInstance().renameFolder(folder, newName, newDescription);
 
                     if (success) {
                         refreshFolderTree();
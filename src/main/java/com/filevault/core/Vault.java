@@ -1,13 +1,26 @@
 package com.filevault.core;
 
 import java.io.File;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import com.filevault.model.EncryptedFile;
 import com.filevault.model.VirtualFolder;
+import com.filevault.storage.BackupReport;
+import com.filevault.storage.ContentHit;
+import com.filevault.storage.ContentIndex;
 import com.filevault.storage.FileStorage;
+import com.filevault.storage.FileVersion;
+import com.filevault.storage.FileVersions;
+import com.filevault.storage.FolderStats;
+import com.filevault.storage.FolderTotals;
+import com.filevault.storage.SearchIndex;
+import com.filevault.storage.SearchPage;
+import com.filevault.storage.Snapshot;
+import com.filevault.storage.SnapshotManager;
+import com.filevault.storage.VaultBackup;
 import com.filevault.util.FolderManager;
 import com.filevault.util.LoggingUtil;
 
@@ -45,12 +58,12 @@ public class Vault {
     /**
      * Löscht einen Ordner aus dem Tresor.
      *
-     * @param folderName Der Name des zu löschenden Ordners.
+     * @param folderName Der Pfad (z.B. {@code /Tresor/Dokumente}) oder Name des zu löschenden Ordners.
      * @throws Exception Wenn der Ordner nicht gelöscht werden kann.
      */
     public void deleteFolder(String folderName) throws Exception {
         LoggingUtil.logInfo("Vault", "Attempting to delete folder: " + folderName);
-        VirtualFolder folder = folderManager.getFolderByName(folderName);
+        VirtualFolder folder = findFolder(folderName);
         if (folder == null) {
             LoggingUtil.logError("Vault", "Folder not found: " + folderName);
             throw new Exception("Ordner nicht gefunden: " + folderName);
@@ -69,12 +82,12 @@ public class Vault {
     /**
      * Löscht einen Ordner und alle seine Unterordner rekursiv aus dem Tresor.
      *
-     * @param folderName Der Name des zu löschenden Ordners.
+     * @param folderName Der Pfad oder Name des zu löschenden Ordners.
      * @throws Exception Wenn der Ordner nicht gelöscht werden kann.
      */
     public void deleteFolderRecursive(String folderName) throws Exception {
         LoggingUtil.logInfo("Vault", "Attempting to recursively delete folder: " + folderName);
-        VirtualFolder folder = folderManager.getFolderByName(folderName);
+        VirtualFolder folder = findFolder(folderName);
         if (folder == null) {
             LoggingUtil.logError("Vault", "Folder not found: " + folderName);
             throw new Exception("Ordner nicht gefunden: " + folderName);
@@ -88,13 +101,13 @@ public class Vault {
      * Importiert eine Datei in den Tresor.
      *
      * @param sourceFile Die zu importierende Datei.
-     * @param folderName Der Name des Ordners, in den die Datei importiert werden soll.
+     * @param folderName Der Pfad oder Name des Ordners, in den die Datei importiert werden soll.
      * @return Die importierte verschlüsselte Datei.
      * @throws Exception Wenn die Datei nicht importiert werden kann.
      */
     public EncryptedFile importFile(File sourceFile, String folderName) throws Exception {
         LoggingUtil.logInfo("Vault", "Attempting to import file: " + sourceFile.getName() + " into folder: " + folderName);
-        VirtualFolder folder = folderManager.getFolderByName(folderName);
+        VirtualFolder folder = findFolder(folderName);
         if (folder == null) {
             LoggingUtil.logError("Vault", "Folder not found: " + folderName);
             throw new Exception("Ordner nicht gefunden: " + folderName);
@@ -123,16 +136,119 @@ public class Vault {
         return success;
     }
 
+    /**
+     * Gibt alle Versionen einer Datei zurück, die neueste zuerst.
+     *
+     * @param fileId Die ID der Datei.
+     * @return Die Versionen; leer, wenn die Datei nicht existiert.
+     * @throws Exception Wenn die Versionen nicht gelesen werden können.
+     */
+    public List<FileVersion> getFileVersions(int fileId) throws Exception {
+        return FileVersions.getInstance().list(fileId);
+    }
+
+    /**
+     * Stellt eine ältere Version einer Datei als neue aktuelle Version wieder her.
+     *
+     * @param encryptedFile Die Datei.
+     * @param version       Die wiederherzustellende Versionsnummer.
+     * @return Die Datei mit der neuen aktuellen Version.
+     * @throws Exception Wenn die Version nicht wiederhergestellt werden kann.
+     */
+    public EncryptedFile restoreFileVersion(EncryptedFile encryptedFile, int version) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to restore version " + version + " of file: " + encryptedFile.getOriginalName());
+        EncryptedFile restored = fileStorage.restoreVersion(encryptedFile, version);
+        LoggingUtil.logInfo("Vault", "File version restored successfully: " + encryptedFile.getOriginalName());
+        return restored;
+    }
+
+    /**
+     * Legt einen Snapshot des gesamten Tresors an.
+     *
+     * @param name Der Name des Snapshots.
+     * @return Der angelegte Snapshot.
+     * @throws Exception Wenn der Snapshot nicht angelegt werden kann.
+     */
+    public Snapshot createSnapshot(String name) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to create snapshot: " + name);
+        Snapshot snapshot = SnapshotManager.getInstance().create(name);
+        LoggingUtil.logInfo("Vault", "Snapshot created successfully: " + snapshot);
+        return snapshot;
+    }
+
+    /**
+     * Gibt alle Snapshots zurück, die neuesten zuerst.
+     *
+     * @return Die Snapshots.
+     * @throws Exception Wenn die Snapshots nicht gelesen werden können.
+     */
+    public List<Snapshot> getSnapshots() throws Exception {
+        return SnapshotManager.getInstance().list();
+    }
+
+    /**
+     * Stellt eine Datei aus einem Snapshot wieder her.
+     *
+     * @param snapshotId Die ID des Snapshots.
+     * @param fileId     Die ID der Datei im Snapshot.
+     * @return Die wiederhergestellte Datei.
+     * @throws Exception Wenn die Datei nicht wiederhergestellt werden kann.
+     */
+    public EncryptedFile restoreFromSnapshot(int snapshotId, int fileId) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to restore file " + fileId + " from snapshot " + snapshotId);
+        return SnapshotManager.getInstance().restoreFile(snapshotId, fileId);
+    }
+
+    /**
+     * Stellt einen Ordner samt Inhalt aus einem Snapshot wieder her.
+     *
+     * @param snapshotId Die ID des Snapshots.
+     * @param folderId   Die ID des Ordners im Snapshot.
+     * @return Die Anzahl der wiederhergestellten Dateien.
+     * @throws Exception Wenn der Ordner nicht wiederhergestellt werden kann.
+     */
+    public int restoreFolderFromSnapshot(int snapshotId, int folderId) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to restore folder " + folderId + " from snapshot " + snapshotId);
+        return SnapshotManager.getInstance().restoreFolder(snapshotId, folderId);
+    }
+
+    /**
+     * Sichert den Tresor in ein Verzeichnis; liegt dort bereits eine Sicherung, nur inkrementell.
+     *
+     * @param targetDir Das Sicherungsverzeichnis.
+     * @return Der Bericht der Sicherung.
+     * @throws Exception Wenn die Sicherung fehlschlägt.
+     */
+    public BackupReport backup(Path targetDir) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to back up vault to: " + targetDir);
+        return VaultBackup.getInstance().backup(targetDir);
+    }
+
+    /**
+     * Stellt den Tresor aus einem Sicherungsarchiv wieder her und lädt die Ordner neu.
+     *
+     * @param archive Das Sicherungsarchiv.
+     * @return Der Bericht der Wiederherstellung.
+     * @throws Exception Wenn die Wiederherstellung fehlschlägt.
+     */
+    public BackupReport restoreBackup(Path archive) throws Exception {
+        LoggingUtil.logInfo("Vault", "Attempting to restore vault from: " + archive);
+        BackupReport report = VaultBackup.getInstance().restore(archive);
+        folderManager.reloadFromDatabase();
+        LoggingUtil.logInfo("Vault", "Vault restored successfully from: " + archive);
+        return report;
+    }
+
     /**
      * Benennt einen Ordner im Tresor um.
      *
-     * @param oldName Der aktuelle Name des Ordners.
+     * @param oldName Der Pfad oder aktuelle Name des Ordners.
      * @param newName Der neue Name des Ordners.
      * @throws Exception Wenn der Ordner nicht umbenannt werden kann.
      */
     public void renameFolder(String oldName, String newName) throws Exception {
         LoggingUtil.logInfo("Vault", "Attempting to rename folder: " + oldName + " to: " + newName);
-        VirtualFolder folder = folderManager.getFolderByName(oldName);
+        VirtualFolder folder = findFolder(oldName);
         if (folder == null) {
             LoggingUtil.logError("Vault", "Folder not found: " + oldName);
             throw new Exception("Ordner nicht gefunden: " + oldName);
@@ -147,6 +263,42 @@ public class Vault {
         }
     }
 
+    /**
+     * Gibt Größe und Dateianzahl eines Ordners zurück, direkt und samt Unterordnern.
+     *
+     * @param folderId Die ID des Ordners.
+     * @return Die Summen des Ordners.
+     */
+    public FolderTotals getFolderTotals(int folderId) {
+        return FolderStats.getInstance().get(folderId);
+    }
+
+    /**
+     * Durchsucht Dateien und Ordner des Tresors nach Namen, MIME-Typ, Ordnername und
+     * Ordnerbeschreibung. Die Treffer sind nach Relevanz sortiert.
+     *
+     * @param query Die Suchanfrage; jedes Wort muss als Präfix vorkommen.
+     * @param after Cursor der vorherigen Seite oder null für die erste Seite.
+     * @param limit Anzahl der Treffer pro Seite.
+     * @return Die Seite mit den Treffern.
+     */
+    public SearchPage search(String query, String after, int limit) {
+        LoggingUtil.logInfo("Vault", "Searching for: " + query);
+        return SearchIndex.getInstance().search(query, after, limit);
+    }
+
+    /**
+     * Durchsucht den Inhalt der indizierten Textdateien.
+     *
+     * @param query Die Suchanfrage; jedes Wort muss im Text vorkommen.
+     * @param limit Höchstzahl der Treffer.
+     * @return Die Treffer mit Textausschnitt, die relevantesten zuerst.
+     */
+    public List<ContentHit> searchContent(String query, int limit) {
+        LoggingUtil.logInfo("Vault", "Searching content for: " + query);
+        return ContentIndex.getInstance().search(query, limit);
+    }
+
     /**
      * Gibt die Ordnerstruktur als TreeItem zurück.
      *
@@ -172,4 +324,17 @@ public class Vault {
 
         return root;
     }
-}
\ No newline at end of file
+
+    /**
+     * Sucht einen Ordner über seinen Pfad oder, ohne führenden Schrägstrich, über seinen Namen.
+     *
+     * @param pathOrName Pfad wie {@code /Tresor/Dokumente} oder ein Ordnername.
+     * @return Der Ordner oder null, wenn er nicht existiert.
+     */
+    private VirtualFolder findFolder(String pathOrName) {
+        if (pathOrName != null && pathOrName.startsWith(VirtualFolder.PATH_SEPARATOR)) {
+            return folderManager.getFolderByPath(pathOrName);
+        }
+        return folderManager.getFolderByName(pathOrName);
+    }
+}
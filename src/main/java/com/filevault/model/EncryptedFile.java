@@ -111,6 +111,15 @@ public class EncryptedFile {
         return encryptedPath;
     }
 
+    /**
+     * Setzt den Pfad zur verschlüsselten Datei, z.B. nachdem sie verschoben wurde.
+     * 
+     * @param encryptedPath Der neue Pfad zur verschlüsselten Datei
+     */
+    public void setEncryptedPath(String encryptedPath) {
+        this.encryptedPath = encryptedPath;
+    }
+
     /**
      * Gibt die Größe der Datei in Bytes zurück.
      * 
@@ -171,6 +180,16 @@ public class EncryptedFile {
      * @return Die formatierte Dateigröße.
      */
     public String getFormattedSize() {
+        return formatSize(sizeBytes);
+    }
+
+    /**
+     * Formatiert eine Größe in Bytes in lesbarer Form (z. B. "500 B", "2.0 KB", "2.0 MB" oder "3.0 GB").
+     * 
+     * @param sizeBytes Die Größe in Bytes
+     * @return Die formatierte Größe.
+     */
+    public static String formatSize(long sizeBytes) {
         if (sizeBytes < 1024) {
             return sizeBytes + " B"; // Größen unter 1 KB in Bytes anzeigen
         } else if (sizeBytes < 1024 * 1024) {
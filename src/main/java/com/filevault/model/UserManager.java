@@ -9,6 +9,7 @@ import org.mindrot.jbcrypt.BCrypt;
 
 import com.filevault.security.PasswordUtils;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.DecryptedContentCache;
 import com.filevault.util.LoggingUtil;
 
 /**
@@ -216,6 +217,8 @@ public class UserManager {
     public void logout() {
         currentUser = null;
         masterKey = null;
+        // Entschlüsselte Inhalte der Sitzung verwerfen
+        DecryptedContentCache.getInstance().clear();
     }
     
     /**
@@ -231,6 +234,7 @@ public class UserManager {
             if (affected > 0) {
                 currentUser = null;
                 masterKey = null;
+                DecryptedContentCache.getInstance().clear();
                 LoggingUtil.logInfo("UserManager", "User deleted successfully.");
                 return true;
             }
@@ -6,8 +6,14 @@ import java.util.List;
 
 /**
  * Repräsentiert einen virtuellen Ordner in der Anwendung.
+ * <p>
+ * Der {@code FolderManager} hält für seine Indizes zusätzlich mit {@link #freeze()}
+ * unveränderlich gemachte Kopien, die nicht herausgegeben werden.
  */
 public class VirtualFolder {
+    /** Trennzeichen zwischen den Ordnernamen eines Pfads */
+    public static final String PATH_SEPARATOR = "/";
+
     /** Eindeutige Kennung des Ordners */
     private int id;
     
@@ -26,6 +32,12 @@ public class VirtualFolder {
     /** Liste der untergeordneten Ordner */
     private final List<VirtualFolder> children = new ArrayList<>();
     
+    /** Übergeordneter Ordner, sobald dieser Ordner mit {@link #addChild(VirtualFolder)} eingehängt wurde */
+    private VirtualFolder parent;
+    
+    /** Gibt an, ob der Ordner unveränderlich ist */
+    private boolean frozen;
+    
     /**
      * Erstellt einen neuen virtuellen Ordner.
      * 
@@ -66,6 +78,7 @@ public class VirtualFolder {
      * @param name Der neue Ordnername
      */
     public void setName(String name) {
+        checkNotFrozen();
         this.name = name;
     }
     
@@ -84,6 +97,7 @@ public class VirtualFolder {
      * @param description Die neue Ordnerbeschreibung
      */
     public void setDescription(String description) {
+        checkNotFrozen();
         this.description = description;
     }
     
@@ -102,6 +116,7 @@ public class VirtualFolder {
      * @param parentId Die ID des übergeordneten Ordners
      */
     public void setParentId(Integer parentId) {
+        checkNotFrozen();
         this.parentId = parentId;
     }
     
@@ -120,6 +135,7 @@ public class VirtualFolder {
      * @param createdAt Das neue Erstellungsdatum
      */
     public void setCreatedAt(LocalDateTime createdAt) {
+        checkNotFrozen();
         this.createdAt = createdAt;
     }
     
@@ -138,7 +154,10 @@ public class VirtualFolder {
      * @param child Der hinzuzufügende Ordner
      */
     public void addChild(VirtualFolder child) {
+        checkNotFrozen();
+        child.checkNotFrozen();
         children.add(child);
+        child.parent = this;
     }
     
     /**
@@ -147,7 +166,36 @@ public class VirtualFolder {
      * @param child Der zu entfernende Ordner
      */
     public void removeChild(VirtualFolder child) {
-        children.remove(child);
+        checkNotFrozen();
+        if (children.remove(child) && child.parent == this) {
+            child.parent = null;
+        }
+    }
+    
+    /**
+     * Macht den Ordner unveränderlich. Setter sowie {@link #addChild(VirtualFolder)} und
+     * {@link #removeChild(VirtualFolder)} werfen danach eine {@link UnsupportedOperationException}.
+     */
+    public void freeze() {
+        frozen = true;
+    }
+    
+    /**
+     * Prüft, ob der Ordner mit {@link #freeze()} unveränderlich gemacht wurde.
+     * 
+     * @return true, wenn der Ordner unveränderlich ist
+     */
+    public boolean isFrozen() {
+        return frozen;
+    }
+    
+    /**
+     * Gibt den übergeordneten Ordner zurück, in den dieser Ordner eingehängt ist.
+     * 
+     * @return Der übergeordnete Ordner oder null für Root-Ordner und nicht eingehängte Ordner
+     */
+    public VirtualFolder getParent() {
+        return parent;
     }
     
     /**
@@ -159,6 +207,12 @@ public class VirtualFolder {
         return name;
     }
     
+    private void checkNotFrozen() {
+        if (frozen) {
+            throw new UnsupportedOperationException("Ordner " + name + " ist unveränderlich");
+        }
+    }
+    
     /**
      * Gibt den Namen des Ordners zurück.
      * 
@@ -1,9 +1,12 @@
 package com.filevault.security;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
 import java.security.SecureRandom;
 
 import javax.crypto.Cipher;
@@ -142,4 +145,55 @@ public class EncryptionService {
         LoggingUtil.logInfo("EncryptionService", "Decryption completed successfully for file: " + inputFile.getAbsolutePath());
         return true;
     }
-}
\ No newline at end of file
+
+    /**
+     * Liefert einen Datenstrom mit der verschlüsselten Form der Eingabe (IV gefolgt vom Chiffrat).
+     * Verschlüsselt wird beim Lesen, sodass das Ergebnis ohne Zwischendatei in einen
+     * {@link com.filevault.storage.blob.BlobStore} geschrieben werden kann.
+     * 
+     * @param plainStream Der Klartext; wird beim Schließen des Ergebnisses mitgeschlossen
+     * @return Der verschlüsselte Datenstrom
+     * @throws Exception wenn der Schlüssel fehlt oder die Verschlüsselung nicht initialisiert werden kann
+     */
+    public InputStream encryptStream(InputStream plainStream) throws Exception {
+        byte[] keyBytes = UserManager.getInstance().getMasterKey();
+        if (keyBytes == null) {
+            LoggingUtil.logError("EncryptionService", "Encryption failed: No master key available.");
+            throw new IllegalStateException("Kein Master-Schlüssel verfügbar. Benutzer muss authentifiziert sein.");
+        }
+
+        byte[] iv = new byte[GCM_IV_LENGTH];
+        new SecureRandom().nextBytes(iv);
+
+        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        cipher.init(Cipher.ENCRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        return new SequenceInputStream(new ByteArrayInputStream(iv), new CipherInputStream(plainStream, cipher));
+    }
+
+    /**
+     * Liefert einen Datenstrom mit dem entschlüsselten Inhalt eines verschlüsselten Datenstroms,
+     * wie ihn {@link #encryptStream(InputStream)} oder {@link #encryptFile(File, File)} erzeugt.
+     * 
+     * @param encryptedStream Der verschlüsselte Datenstrom; wird beim Schließen des Ergebnisses mitgeschlossen
+     * @return Der entschlüsselte Datenstrom
+     * @throws Exception wenn der Schlüssel fehlt oder die Daten zu kurz sind
+     */
+    public InputStream decryptStream(InputStream encryptedStream) throws Exception {
+        byte[] keyBytes = UserManager.getInstance().getMasterKey();
+        if (keyBytes == null) {
+            LoggingUtil.logError("EncryptionService", "Decryption failed: No master key available.");
+            throw new IllegalStateException("Kein Master-Schlüssel verfügbar. Benutzer muss authentifiziert sein.");
+        }
+
+        byte[] iv = encryptedStream.readNBytes(GCM_IV_LENGTH);
+        if (iv.length < GCM_IV_LENGTH) {
+            encryptedStream.close();
+            LoggingUtil.logError("EncryptionService", "Decryption failed: Input stream too short or corrupted.");
+            throw new IOException("Eingabedaten zu kurz oder beschädigt");
+        }
+
+        Cipher cipher = Cipher.getInstance(ALGORITHM);
+        cipher.init(Cipher.DECRYPT_MODE, new SecretKeySpec(keyBytes, "AES"), new GCMParameterSpec(GCM_TAG_LENGTH, iv));
+        return new CipherInputStream(encryptedStream, cipher);
+    }
+}
@@ -0,0 +1,237 @@
+package com.filevault.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Puffert Aktualisierungen von {@code files.last_access} im Speicher (Write-Behind).
+ * Mehrere Zugriffe auf dieselbe Datei werden zu einem Eintrag zusammengefasst und
+ * periodisch oder bei Erreichen eines Schwellwerts in einer einzigen Transaktion
+ * geschrieben. Beim Beenden wird der Puffer über {@link #shutdown()} geleert.
+ */
+public class AccessTracker {
+
+    /** Intervall, in dem der Puffer spätestens geschrieben wird */
+    private static final long FLUSH_INTERVAL_MS = 5000;
+
+    /** Anzahl gepufferter Dateien, ab der sofort geschrieben wird */
+    private static final int FLUSH_THRESHOLD = 1000;
+
+    /** Format von SQLite CURRENT_TIMESTAMP (UTC), damit Sortierung und Auswertung konsistent bleiben */
+    private static final DateTimeFormatter SQLITE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Die einzige Instanz des AccessTracker */
+    private static AccessTracker instance;
+
+    /** Ausstehende Zugriffe: Datei-ID → Zeitstempel des letzten Zugriffs */
+    private final ConcurrentHashMap<Integer, String> pending = new ConcurrentHashMap<>();
+
+    /** Verhindert parallele Flushes */
+    private final Object flushLock = new Object();
+
+    /** Gibt an, ob bereits ein Flush wegen des Schwellwerts eingeplant ist */
+    private final AtomicBoolean thresholdFlushScheduled = new AtomicBoolean(false);
+
+    /** Dauer des letzten Flushes in Mikrosekunden */
+    private final AtomicLong lastFlushMicros = new AtomicLong();
+
+    /** Längste bisherige Flush-Dauer in Mikrosekunden */
+    private final AtomicLong maxFlushMicros = new AtomicLong();
+
+    /** Anzahl der bisher durchgeführten Flushes */
+    private final AtomicLong flushCount = new AtomicLong();
+
+    /** Anzahl der insgesamt geschriebenen Zeilen */
+    private final AtomicLong flushedRows = new AtomicLong();
+
+    /** Scheduler für das periodische Schreiben, wird beim ersten Zugriff gestartet */
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private AccessTracker() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des AccessTracker zurück.
+     *
+     * @return Die Singleton-Instanz des AccessTracker
+     */
+    public static synchronized AccessTracker getInstance() {
+        if (instance == null) {
+            instance = new AccessTracker();
+        }
+        return instance;
+    }
+
+    /**
+     * Vermerkt einen Zugriff auf eine Datei. Der Zeitstempel wird erst beim nächsten
+     * Flush in die Datenbank geschrieben; ein späterer Zugriff überschreibt einen früheren.
+     *
+     * @param fileId Die ID der Datei
+     */
+    public void recordAccess(int fileId) {
+        pending.put(fileId, LocalDateTime.now(ZoneOffset.UTC).format(SQLITE_TIMESTAMP));
+        ScheduledExecutorService executor = ensureStarted();
+
+        if (pending.size() >= FLUSH_THRESHOLD && thresholdFlushScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                thresholdFlushScheduled.set(false);
+                flush();
+            });
+        }
+    }
+
+    /**
+     * Schreibt alle ausstehenden Zugriffe in einer Transaktion in die Datenbank.
+     * Schlägt das Schreiben fehl, werden die Einträge wieder in den Puffer übernommen,
+     * sofern für die Datei nicht inzwischen ein neuerer Zugriff vorliegt.
+     *
+     * @return Die Anzahl der geschriebenen Einträge
+     */
+    public int flush() {
+        synchronized (flushLock) {
+            if (pending.isEmpty()) {
+                return 0;
+            }
+
+            // Einträge einzeln entnehmen, damit parallel eintreffende Zugriffe nicht verloren gehen
+            Map<Integer, String> batch = new HashMap<>();
+            for (Integer fileId : pending.keySet()) {
+                String timestamp = pending.remove(fileId);
+                if (timestamp != null) {
+                    batch.put(fileId, timestamp);
+                }
+            }
+
+            long start = System.nanoTime();
+            try (Connection conn = DatabaseManager.openConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE files SET last_access = ? WHERE id = ?")) {
+                    for (Map.Entry<Integer, String> entry : batch.entrySet()) {
+                        stmt.setString(1, entry.getValue());
+                        stmt.setInt(2, entry.getKey());
+                        stmt.addBatch();
+                    }
+                    stmt.executeBatch();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            } catch (SQLException e) {
+                batch.forEach(pending::putIfAbsent);
+                LoggingUtil.logError("AccessTracker", "Error flushing last access updates: " + e.getMessage());
+                return 0;
+            }
+
+            long micros = (System.nanoTime() - start) / 1000;
+            lastFlushMicros.set(micros);
+            maxFlushMicros.accumulateAndGet(micros, Math::max);
+            flushCount.incrementAndGet();
+            flushedRows.addAndGet(batch.size());
+            LoggingUtil.logDatabase("Flush", "LastAccess", batch.size() + " access updates written in " + micros + " µs");
+            return batch.size();
+        }
+    }
+
+    /**
+     * Schreibt alle ausstehenden Zugriffe und beendet den Hintergrund-Thread.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = scheduler;
+            scheduler = null;
+        }
+        if (current != null) {
+            current.shutdown();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        flush();
+        LoggingUtil.logInfo("AccessTracker", "Access tracker stopped.");
+    }
+
+    /**
+     * Gibt die Anzahl der Dateien zurück, deren Zugriff noch nicht geschrieben wurde.
+     *
+     * @return Die aktuelle Warteschlangentiefe
+     */
+    public int getQueueDepth() {
+        return pending.size();
+    }
+
+    /**
+     * Gibt die Dauer des letzten Flushes zurück.
+     *
+     * @return Die Dauer in Mikrosekunden
+     */
+    public long getLastFlushMicros() {
+        return lastFlushMicros.get();
+    }
+
+    /**
+     * Gibt die längste bisherige Flush-Dauer zurück.
+     *
+     * @return Die Dauer in Mikrosekunden
+     */
+    public long getMaxFlushMicros() {
+        return maxFlushMicros.get();
+    }
+
+    /**
+     * Gibt die Anzahl der bisher durchgeführten Flushes zurück.
+     *
+     * @return Die Anzahl der Flushes
+     */
+    public long getFlushCount() {
+        return flushCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der insgesamt geschriebenen Zugriffe zurück.
+     *
+     * @return Die Anzahl der geschriebenen Zeilen
+     */
+    public long getFlushedRows() {
+        return flushedRows.get();
+    }
+
+    /**
+     * Startet den periodischen Flush, falls er noch nicht läuft.
+     *
+     * @return Der laufende Scheduler
+     */
+    private synchronized ScheduledExecutorService ensureStarted() {
+        if (scheduler != null) {
+            return scheduler;
+        }
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-access-tracker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush, FLUSH_INTERVAL_MS, FLUSH_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        return scheduler;
+    }
+}
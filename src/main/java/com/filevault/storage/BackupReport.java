@@ -0,0 +1,145 @@
+package com.filevault.storage;
+
+/**
+ * Ergebnis einer Sicherung oder Wiederherstellung durch {@link VaultBackup}.
+ */
+public class BackupReport {
+
+    /** Gibt an, ob es sich um eine Wiederherstellung handelt */
+    private final boolean restore;
+
+    /** Dateiname des geschriebenen bzw. gelesenen Archivs */
+    private final String archive;
+
+    /** Dateiname des vorherigen Archivs, auf dem die Sicherung aufbaut, oder null */
+    private final String baseArchive;
+
+    /** Anzahl der Blobs im Stand der Sicherung */
+    private final long totalBlobs;
+
+    /** Anzahl der kopierten Blobs */
+    private final long copiedBlobs;
+
+    /** Anzahl der Blobs, die bereits in einem früheren Archiv liegen */
+    private final long reusedBlobs;
+
+    /** Anzahl der Blobs, die fehlten und nicht gesichert werden konnten */
+    private final long missingBlobs;
+
+    /** Anzahl der übertragenen Bytes einschließlich Datenbank */
+    private final long bytes;
+
+    /** Dauer in Millisekunden */
+    private final long durationMillis;
+
+    /**
+     * Erstellt einen neuen Bericht.
+     *
+     * @param restore Gibt an, ob es sich um eine Wiederherstellung handelt
+     * @param archive Dateiname des Archivs
+     * @param baseArchive Dateiname des vorherigen Archivs oder null
+     * @param totalBlobs Anzahl der Blobs im Stand der Sicherung
+     * @param copiedBlobs Anzahl der kopierten Blobs
+     * @param reusedBlobs Anzahl der Blobs aus früheren Archiven
+     * @param missingBlobs Anzahl der fehlenden Blobs
+     * @param bytes Anzahl der übertragenen Bytes
+     * @param durationMillis Dauer in Millisekunden
+     */
+    public BackupReport(boolean restore, String archive, String baseArchive, long totalBlobs, long copiedBlobs,
+                        long reusedBlobs, long missingBlobs, long bytes, long durationMillis) {
+        this.restore = restore;
+        this.archive = archive;
+        this.baseArchive = baseArchive;
+        this.totalBlobs = totalBlobs;
+        this.copiedBlobs = copiedBlobs;
+        this.reusedBlobs = reusedBlobs;
+        this.missingBlobs = missingBlobs;
+        this.bytes = bytes;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return true, wenn es sich um eine Wiederherstellung handelt
+     */
+    public boolean isRestore() {
+        return restore;
+    }
+
+    /**
+     * @return Dateiname des Archivs
+     */
+    public String getArchive() {
+        return archive;
+    }
+
+    /**
+     * @return Dateiname des vorherigen Archivs, null bei einer Vollsicherung
+     */
+    public String getBaseArchive() {
+        return baseArchive;
+    }
+
+    /**
+     * @return Anzahl der Blobs im Stand der Sicherung
+     */
+    public long getTotalBlobs() {
+        return totalBlobs;
+    }
+
+    /**
+     * @return Anzahl der kopierten Blobs
+     */
+    public long getCopiedBlobs() {
+        return copiedBlobs;
+    }
+
+    /**
+     * @return Anzahl der Blobs, die bereits in einem früheren Archiv liegen
+     */
+    public long getReusedBlobs() {
+        return reusedBlobs;
+    }
+
+    /**
+     * @return Anzahl der fehlenden Blobs
+     */
+    public long getMissingBlobs() {
+        return missingBlobs;
+    }
+
+    /**
+     * @return Anzahl der übertragenen Bytes einschließlich Datenbank
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * @return Dauer in Millisekunden
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Gibt den Bericht als JSON-Objekt zurück.
+     *
+     * @return Die JSON-Darstellung des Berichts
+     */
+    public String toJson() {
+        return "{\"restore\":" + restore
+                + ",\"archive\":\"" + archive + "\""
+                + ",\"baseArchive\":" + (baseArchive == null ? "null" : "\"" + baseArchive + "\"")
+                + ",\"totalBlobs\":" + totalBlobs
+                + ",\"copiedBlobs\":" + copiedBlobs
+                + ",\"reusedBlobs\":" + reusedBlobs
+                + ",\"missingBlobs\":" + missingBlobs
+                + ",\"bytes\":" + bytes
+                + ",\"durationMillis\":" + durationMillis + "}";
+    }
+
+    @Override
+    public String toString() {
+        return "BackupReport" + toJson();
+    }
+}
@@ -0,0 +1,269 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Binäre Differenzen zwischen zwei Dateiversionen nach dem rsync-Verfahren: Die Basis wird in
+ * Blöcke fester Größe zerlegt und über eine rollende Prüfsumme indiziert; beim Durchlaufen der
+ * neuen Version werden übereinstimmende Blöcke als Kopieranweisung, alles andere als
+ * einzufügende Bytes kodiert.
+ * <p>
+ * Format: {@code "FVD"}, Formatversion, Länge des Ergebnisses (Varint), danach Anweisungen
+ * {@code 0x01} COPY (Offset und Länge in der Basis, je Varint) und {@code 0x02} INSERT
+ * (Länge als Varint, gefolgt von den Bytes).
+ */
+public final class BinaryDelta {
+
+    /** Kennung am Anfang jedes Deltas */
+    private static final byte[] MAGIC = {'F', 'V', 'D', 1};
+
+    /** Anweisung: Bytes aus der Basis kopieren */
+    private static final int OP_COPY = 0x01;
+
+    /** Anweisung: Bytes aus dem Delta einfügen */
+    private static final int OP_INSERT = 0x02;
+
+    /** Kleinste Blockgröße */
+    private static final int MIN_BLOCK_SIZE = 256;
+
+    /** Größte Blockgröße */
+    private static final int MAX_BLOCK_SIZE = 16 * 1024;
+
+    private BinaryDelta() {
+    }
+
+    /**
+     * Berechnet das Delta, mit dem sich {@code target} aus {@code base} herstellen lässt.
+     *
+     * @param base Die vorherige Version
+     * @param target Die neue Version
+     * @return Das kodierte Delta
+     */
+    public static byte[] encode(byte[] base, byte[] target) {
+        Encoder encoder = new Encoder(target.length);
+        int blockSize = blockSize(base.length);
+        int blocks = base.length / blockSize;
+        if (blocks == 0 || target.length < blockSize) {
+            encoder.insert(target, 0, target.length);
+            return encoder.finish();
+        }
+
+        // Hashtabelle: Prüfsumme → erster Block, weitere Blöcke mit gleicher Prüfsumme über next
+        int mask = Integer.highestOneBit(blocks * 2 - 1) * 2 - 1;
+        int[] heads = new int[mask + 1];
+        Arrays.fill(heads, -1);
+        int[] next = new int[blocks];
+        for (int block = blocks - 1; block >= 0; block--) {
+            int slot = mix(checksum(base, block * blockSize, blockSize)) & mask;
+            next[block] = heads[slot];
+            heads[slot] = block;
+        }
+
+        int literalStart = 0;
+        int pos = 0;
+        int sum = checksum(target, 0, blockSize);
+        while (pos + blockSize <= target.length) {
+            int match = findBlock(base, target, pos, blockSize, heads[mix(sum) & mask], next);
+            if (match >= 0) {
+                int offset = match * blockSize;
+                int length = blockSize;
+                while (offset + length < base.length && pos + length < target.length
+                        && base[offset + length] == target[pos + length]) {
+                    length++;
+                }
+                encoder.insert(target, literalStart, pos - literalStart);
+                encoder.copy(offset, length);
+                pos += length;
+                literalStart = pos;
+                if (pos + blockSize <= target.length) {
+                    sum = checksum(target, pos, blockSize);
+                }
+                continue;
+            }
+            if (pos + blockSize < target.length) {
+                sum = roll(sum, target[pos] & 0xff, target[pos + blockSize] & 0xff, blockSize);
+            }
+            pos++;
+        }
+        encoder.insert(target, literalStart, target.length - literalStart);
+        return encoder.finish();
+    }
+
+    /**
+     * Stellt die neue Version aus der Basis und einem Delta her.
+     *
+     * @param base Die vorherige Version
+     * @param delta Das mit {@link #encode} erzeugte Delta
+     * @return Die neue Version
+     * @throws IOException wenn das Delta ungültig ist oder nicht zur Basis passt
+     */
+    public static byte[] apply(byte[] base, byte[] delta) throws IOException {
+        if (delta.length < MAGIC.length || !Arrays.equals(delta, 0, MAGIC.length, MAGIC, 0, MAGIC.length)) {
+            throw new IOException("Ungültiges Delta: unbekanntes Format");
+        }
+        int[] pos = {MAGIC.length};
+        long targetLength = readVarint(delta, pos);
+        if (targetLength > Integer.MAX_VALUE - 8) {
+            throw new IOException("Ungültiges Delta: Ergebnis zu groß");
+        }
+        byte[] target = new byte[(int) targetLength];
+        int written = 0;
+        while (pos[0] < delta.length) {
+            int op = delta[pos[0]++];
+            if (op == OP_COPY) {
+                long offset = readVarint(delta, pos);
+                long length = readVarint(delta, pos);
+                if (offset + length > base.length || written + length > target.length) {
+                    throw new IOException("Ungültiges Delta: Kopie außerhalb der Basis");
+                }
+                System.arraycopy(base, (int) offset, target, written, (int) length);
+                written += (int) length;
+            } else if (op == OP_INSERT) {
+                long length = readVarint(delta, pos);
+                if (pos[0] + length > delta.length || written + length > target.length) {
+                    throw new IOException("Ungültiges Delta: Einfügung zu lang");
+                }
+                System.arraycopy(delta, pos[0], target, written, (int) length);
+                pos[0] += (int) length;
+                written += (int) length;
+            } else {
+                throw new IOException("Ungültiges Delta: unbekannte Anweisung " + op);
+            }
+        }
+        if (written != target.length) {
+            throw new IOException("Ungültiges Delta: " + written + " statt " + target.length + " Bytes");
+        }
+        return target;
+    }
+
+    /**
+     * Wählt die Blockgröße etwa als Wurzel der Basisgröße: Größere Blöcke halten den Index klein,
+     * kleinere finden Übereinstimmungen auch bei verstreuten Änderungen.
+     */
+    static int blockSize(int baseLength) {
+        int size = (int) Math.sqrt(baseLength);
+        return Math.max(MIN_BLOCK_SIZE, Math.min(MAX_BLOCK_SIZE, size));
+    }
+
+    /**
+     * Sucht unter den Blöcken mit passender Prüfsumme einen, der byteweise übereinstimmt.
+     */
+    private static int findBlock(byte[] base, byte[] target, int pos, int blockSize, int candidate, int[] next) {
+        while (candidate >= 0) {
+            if (Arrays.equals(base, candidate * blockSize, candidate * blockSize + blockSize,
+                    target, pos, pos + blockSize)) {
+                return candidate;
+            }
+            candidate = next[candidate];
+        }
+        return -1;
+    }
+
+    /**
+     * Rollende Prüfsumme nach Adler: untere 16 Bit Summe der Bytes, obere 16 Bit gewichtete Summe.
+     */
+    private static int checksum(byte[] data, int offset, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            a += data[offset + i] & 0xff;
+            b += a;
+        }
+        return ((b & 0xffff) << 16) | (a & 0xffff);
+    }
+
+    /**
+     * Verschiebt das Fenster der Prüfsumme um ein Byte.
+     */
+    private static int roll(int sum, int out, int in, int blockSize) {
+        int a = sum & 0xffff;
+        int b = sum >>> 16;
+        a = (a - out + in) & 0xffff;
+        b = (b - blockSize * out + a) & 0xffff;
+        return (b << 16) | a;
+    }
+
+    /**
+     * Verteilt die Prüfsumme gleichmäßig auf die Slots der Hashtabelle.
+     */
+    private static int mix(int sum) {
+        int h = sum * 0x9E3779B1;
+        return h ^ (h >>> 15);
+    }
+
+    private static long readVarint(byte[] data, int[] pos) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            if (pos[0] >= data.length) {
+                throw new IOException("Ungültiges Delta: unerwartetes Ende");
+            }
+            int b = data[pos[0]++] & 0xff;
+            value |= (long) (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                if (value < 0) {
+                    throw new IOException("Ungültiges Delta: negative Länge");
+                }
+                return value;
+            }
+        }
+        throw new IOException("Ungültiges Delta: Zahl zu lang");
+    }
+
+    /**
+     * Schreibt die Anweisungen und fasst aufeinanderfolgende Kopien zusammen.
+     */
+    private static final class Encoder {
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        private long copyOffset = -1;
+        private long copyLength;
+
+        private Encoder(int targetLength) {
+            out.writeBytes(MAGIC);
+            writeVarint(targetLength);
+        }
+
+        private void copy(long offset, long length) {
+            if (copyOffset >= 0 && copyOffset + copyLength == offset) {
+                copyLength += length;
+                return;
+            }
+            flushCopy();
+            copyOffset = offset;
+            copyLength = length;
+        }
+
+        private void insert(byte[] data, int offset, int length) {
+            if (length == 0) {
+                return;
+            }
+            flushCopy();
+            out.write(OP_INSERT);
+            writeVarint(length);
+            out.write(data, offset, length);
+        }
+
+        private byte[] finish() {
+            flushCopy();
+            return out.toByteArray();
+        }
+
+        private void flushCopy() {
+            if (copyOffset >= 0) {
+                out.write(OP_COPY);
+                writeVarint(copyOffset);
+                writeVarint(copyLength);
+                copyOffset = -1;
+            }
+        }
+
+        private void writeVarint(long value) {
+            while ((value & ~0x7fL) != 0) {
+                out.write((int) ((value & 0x7f) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+    }
+}
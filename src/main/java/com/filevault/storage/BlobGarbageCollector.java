@@ -0,0 +1,316 @@
+package com.filevault.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import com.filevault.storage.blob.LocalBlobStore;
+import com.filevault.util.FolderManager;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Entfernt verwaiste verschlüsselte Dateien aus dem Datenverzeichnis.
+ * Eine Datei gilt als verwaist, wenn keine Zeile in {@code files} über
+ * {@code encrypted_path} auf sie verweist. Bereinigt wird nur das lokale Backend;
+ * Blobs in anderen Backends (z.B. S3) werden nicht berücksichtigt. Betrachtet werden nur Dateien im
+ * verteilten Layout ({@code ab/cd/<uuid>}, siehe {@link BlobLayout}); temporäre und sonstige Dateien
+ * im Datenverzeichnis bleiben unangetastet. Das Verzeichnis wird gestreamt und
+ * blockweise gegen die Datenbank abgeglichen, sodass der Speicherbedarf unabhängig
+ * von der Anzahl der Dateien bleibt. Dateien, die jünger als die Schonfrist sind,
+ * werden nicht angefasst, weil laufende Importe die Datei vor dem Datenbankeintrag schreiben.
+ * Solange die {@link DeletionQueue} angehalten ist, z.B. während einer Sicherung, wird nichts gelöscht.
+ */
+public class BlobGarbageCollector {
+
+    /** Standard-Schonfrist für gerade importierte Dateien */
+    public static final Duration DEFAULT_GRACE_PERIOD = Duration.ofHours(1);
+
+    /** Standardanzahl paralleler Löschvorgänge */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** Standardobergrenze für Löschvorgänge pro Sekunde */
+    public static final int DEFAULT_DELETES_PER_SECOND = 200;
+
+    /** Anzahl der Pfade, die pro Datenbankabfrage abgeglichen werden */
+    private static final int LOOKUP_BATCH_SIZE = 500;
+
+    /** Die einzige Instanz des BlobGarbageCollector */
+    private static BlobGarbageCollector instance;
+
+    /** Bericht des letzten Laufs, null wenn noch keiner stattgefunden hat */
+    private volatile GcReport lastReport;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private BlobGarbageCollector() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des BlobGarbageCollector zurück.
+     *
+     * @return Die Singleton-Instanz des BlobGarbageCollector
+     */
+    public static synchronized BlobGarbageCollector getInstance() {
+        if (instance == null) {
+            instance = new BlobGarbageCollector();
+        }
+        return instance;
+    }
+
+    /**
+     * Bereinigt das Datenverzeichnis des Tresors mit den Standardeinstellungen.
+     *
+     * @param dryRun true, um verwaiste Dateien nur zu zählen, ohne sie zu löschen
+     * @return Der Bericht des Laufs
+     * @throws IOException wenn das Datenverzeichnis nicht gelesen werden kann
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public GcReport collect(boolean dryRun) throws IOException, SQLException {
+        return collect(Paths.get(FolderManager.getInstance().getDataDirectoryPath()), DEFAULT_GRACE_PERIOD,
+                DEFAULT_PARALLELISM, DEFAULT_DELETES_PER_SECOND, dryRun);
+    }
+
+    /**
+     * Bereinigt ein Datenverzeichnis.
+     *
+     * @param dataDir Das zu bereinigende Verzeichnis
+     * @param gracePeriod Dateien, die jünger sind, werden übersprungen
+     * @param parallelism Anzahl paralleler Löschvorgänge
+     * @param deletesPerSecond Obergrenze für Löschvorgänge pro Sekunde (0 = unbegrenzt)
+     * @param dryRun true, um verwaiste Dateien nur zu zählen, ohne sie zu löschen
+     * @return Der Bericht des Laufs
+     * @throws IOException wenn das Datenverzeichnis nicht gelesen werden kann
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public synchronized GcReport collect(Path dataDir, Duration gracePeriod, int parallelism,
+                                         int deletesPerSecond, boolean dryRun) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        LoggingUtil.logInfo("BlobGarbageCollector", "Starting GC of " + dataDir + (dryRun ? " (dry run)" : ""));
+
+        if (!Files.isDirectory(dataDir)) {
+            GcReport report = new GcReport(dryRun, 0, 0, 0, 0, 0, 0, System.currentTimeMillis() - start);
+            lastReport = report;
+            return report;
+        }
+
+        if (!dryRun && hasForeignReferences(dataDir)) {
+            // Verweise außerhalb des Verzeichnisses deuten auf ein verschobenes Datenverzeichnis hin;
+            // ein exakter Pfadabgleich würde dann referenzierte Dateien als verwaist einstufen.
+            LoggingUtil.logWarning("BlobGarbageCollector",
+                    "Files reference paths outside " + dataDir + ", falling back to dry run.");
+            dryRun = true;
+        }
+        if (!dryRun && DeletionQueue.getInstance().isHeld()) {
+            // Eine laufende Sicherung verlässt sich darauf, dass keine Blobs verschwinden
+            LoggingUtil.logWarning("BlobGarbageCollector",
+                    "Deletion queue is held (backup or restore running), falling back to dry run.");
+            dryRun = true;
+        }
+
+        Instant cutoff = Instant.now().minus(gracePeriod);
+        long scanned = 0;
+        long skipped = 0;
+        long orphans = 0;
+        AtomicLong deleted = new AtomicLong();
+        AtomicLong failed = new AtomicLong();
+        AtomicLong bytes = new AtomicLong();
+
+        RateLimiter limiter = new RateLimiter(deletesPerSecond);
+        ExecutorService executor = dryRun ? null : Executors.newFixedThreadPool(Math.max(1, parallelism), runnable -> {
+            Thread thread = new Thread(runnable, "filevault-blob-gc");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try (Connection conn = DatabaseManager.openConnection();
+             Stream<Path> files = Files.walk(dataDir, BlobLayout.DEPTH)) {
+
+            List<Path> batch = new ArrayList<>(LOOKUP_BATCH_SIZE);
+            Iterator<Path> it = files.iterator();
+            while (it.hasNext()) {
+                Path path = it.next();
+                if (!BlobLayout.isBlob(dataDir, path)) {
+                    continue;
+                }
+                BasicFileAttributes attrs;
+                try {
+                    attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                } catch (IOException e) {
+                    // Datei wurde zwischenzeitlich entfernt
+                    continue;
+                }
+                if (!attrs.isRegularFile()) {
+                    continue;
+                }
+                scanned++;
+                if (attrs.lastModifiedTime().toInstant().isAfter(cutoff)) {
+                    skipped++;
+                    continue;
+                }
+                batch.add(path);
+                if (batch.size() == LOOKUP_BATCH_SIZE) {
+                    orphans += reclaim(conn, dataDir, batch, executor, limiter, deleted, failed, bytes);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                orphans += reclaim(conn, dataDir, batch, executor, limiter, deleted, failed, bytes);
+            }
+        } finally {
+            if (executor != null) {
+                executor.shutdown();
+                try {
+                    executor.awaitTermination(Long.MAX_VALUE, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    executor.shutdownNow();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        GcReport report = new GcReport(dryRun, scanned, skipped, orphans, deleted.get(), failed.get(),
+                bytes.get(), System.currentTimeMillis() - start);
+        lastReport = report;
+        LoggingUtil.logInfo("BlobGarbageCollector", "GC finished: " + report);
+        return report;
+    }
+
+    /**
+     * Gibt den Bericht des letzten Laufs zurück.
+     *
+     * @return Der letzte Bericht oder null, wenn noch kein Lauf stattgefunden hat
+     */
+    public GcReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Gleicht einen Block von Kandidaten mit der Datenbank ab und löscht die verwaisten.
+     *
+     * @return Die Anzahl der verwaisten Dateien im Block
+     */
+    private long reclaim(Connection conn, Path dataDir, List<Path> candidates, ExecutorService executor,
+                         RateLimiter limiter, AtomicLong deleted, AtomicLong failed, AtomicLong bytes) throws SQLException {
+        Set<String> referenced = findReferenced(conn, dataDir, candidates);
+        long orphans = 0;
+        for (Path path : candidates) {
+            if (referenced.contains(path.toAbsolutePath().toString()) || referenced.contains(localUri(dataDir, path))) {
+                continue;
+            }
+            orphans++;
+            if (executor == null) {
+                try {
+                    bytes.addAndGet(Files.size(path));
+                } catch (IOException e) {
+                    // Datei wurde zwischenzeitlich entfernt
+                }
+                continue;
+            }
+            // Die Ratenbegrenzung greift schon beim Einreihen, damit die Warteschlange klein bleibt
+            try {
+                limiter.acquire(1);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return orphans;
+            }
+            executor.execute(() -> {
+                if (DeletionQueue.getInstance().isHeld()) {
+                    // Seit Beginn des Laufs wurde eine Sicherung gestartet
+                    return;
+                }
+                try {
+                    long size = Files.size(path);
+                    if (Files.deleteIfExists(path)) {
+                        deleted.incrementAndGet();
+                        bytes.addAndGet(size);
+                    }
+                } catch (IOException e) {
+                    failed.incrementAndGet();
+                    LoggingUtil.logError("BlobGarbageCollector", "Could not delete " + path + ": " + e.getMessage());
+                }
+            });
+        }
+        return orphans;
+    }
+
+    /**
+     * Prüft, ob Dateieinträge mit absolutem Pfad auf Orte außerhalb des Datenverzeichnisses verweisen.
+     * Einträge mit Blob-URI sind relativ zu ihrem Backend und werden nicht berücksichtigt.
+     */
+    private boolean hasForeignReferences(Path dataDir) throws SQLException {
+        String prefix = dataDir.toAbsolutePath().toString() + File.separator;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT 1 FROM files WHERE encrypted_path <> '' AND substr(encrypted_path, 1, ?) <> ? "
+                     + "AND encrypted_path NOT GLOB '[a-z][a-z0-9]*:*' LIMIT 1")) {
+            stmt.setInt(1, prefix.length());
+            stmt.setString(2, prefix);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        }
+    }
+
+    /**
+     * Ermittelt, welche der angegebenen Dateien in {@code files}, {@code file_versions},
+     * {@code snapshot_blobs} oder {@code deletion_queue} vorkommen, entweder als Blob-URI
+     * ({@code local:ab/cd/<uuid>}) oder als absoluter Pfad älterer Einträge. Blobs in der
+     * Löschwarteschlange entfernt die {@link DeletionQueue}, die dabei ihre Sperren beachtet.
+     */
+    private Set<String> findReferenced(Connection conn, Path dataDir, List<Path> candidates) throws SQLException {
+        StringBuilder placeholders = new StringBuilder();
+        for (int i = 0; i < candidates.size() * 2; i++) {
+            placeholders.append(i == 0 ? "?" : ",?");
+        }
+        String sql = "SELECT encrypted_path FROM files WHERE encrypted_path IN (" + placeholders + ") "
+                + "UNION SELECT encrypted_path FROM file_versions WHERE encrypted_path IN (" + placeholders + ") "
+                + "UNION SELECT encrypted_path FROM snapshot_blobs WHERE encrypted_path IN (" + placeholders + ") "
+                + "UNION SELECT encrypted_path FROM deletion_queue WHERE encrypted_path IN (" + placeholders + ")";
+
+        Set<String> referenced = new HashSet<>();
+        try (PreparedStatement stmt = conn.prepareStatement(sql)) {
+            int index = 1;
+            for (int pass = 0; pass < 4; pass++) {
+                for (Path candidate : candidates) {
+                    stmt.setString(index++, candidate.toAbsolutePath().toString());
+                    stmt.setString(index++, localUri(dataDir, candidate));
+                }
+            }
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    referenced.add(rs.getString(1));
+                }
+            }
+        }
+        return referenced;
+    }
+
+    /**
+     * Gibt die Blob-URI des lokalen Backends für eine Datei im Datenverzeichnis zurück.
+     */
+    private static String localUri(Path dataDir, Path path) {
+        String key = dataDir.toAbsolutePath().relativize(path.toAbsolutePath()).toString()
+                .replace(File.separator, "/");
+        return LocalBlobStore.SCHEME + ":" + key;
+    }
+}
@@ -0,0 +1,85 @@
+package com.filevault.storage;
+
+import java.nio.file.Path;
+import java.util.regex.Pattern;
+
+/**
+ * Legt fest, wo eine verschlüsselte Datei innerhalb des Datenverzeichnisses liegt.
+ * Dateien werden über zwei Verzeichnisebenen verteilt ({@code ab/cd/<uuid>}), damit
+ * kein einzelnes Verzeichnis mehr als einige hundert Einträge enthält. Die Ebenen werden
+ * aus den ersten vier Zeichen des Dateinamens gebildet; da die Namen zufällige UUIDs sind,
+ * verteilen sie sich gleichmäßig auf 65536 Verzeichnisse.
+ */
+public final class BlobLayout {
+
+    /** Anzahl der Zeichen pro Verzeichnisebene */
+    private static final int SHARD_WIDTH = 2;
+
+    /** Tiefe einer verschlüsselten Datei unterhalb des Datenverzeichnisses */
+    static final int DEPTH = 3;
+
+    /** Muster der Dateinamen verschlüsselter Dateien (UUID) */
+    private static final Pattern BLOB_NAME =
+            Pattern.compile("[0-9a-f]{8}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{4}-[0-9a-f]{12}");
+
+    /**
+     * Privater Konstruktor, da nur statische Methoden angeboten werden.
+     */
+    private BlobLayout() {
+    }
+
+    /**
+     * Gibt den Schlüssel einer verschlüsselten Datei im verteilten Layout zurück.
+     *
+     * @param blobName Der Dateiname (UUID) der verschlüsselten Datei
+     * @return Der Schlüssel {@code ab/cd/blobName}
+     */
+    public static String key(String blobName) {
+        if (blobName.length() < 2 * SHARD_WIDTH) {
+            return blobName;
+        }
+        return blobName.substring(0, SHARD_WIDTH).toLowerCase() + "/"
+                + blobName.substring(SHARD_WIDTH, 2 * SHARD_WIDTH).toLowerCase() + "/"
+                + blobName;
+    }
+
+    /**
+     * Gibt den Speicherort einer verschlüsselten Datei im verteilten Layout zurück.
+     *
+     * @param dataDir Das Datenverzeichnis
+     * @param blobName Der Dateiname (UUID) der verschlüsselten Datei
+     * @return Der Pfad {@code dataDir/ab/cd/blobName}
+     */
+    public static Path resolve(Path dataDir, String blobName) {
+        Path path = dataDir;
+        for (String segment : key(blobName).split("/")) {
+            path = path.resolve(segment);
+        }
+        return path;
+    }
+
+    /**
+     * Prüft, ob eine Datei bereits im verteilten Layout liegt.
+     *
+     * @param dataDir Das Datenverzeichnis
+     * @param blobPath Der Pfad der verschlüsselten Datei
+     * @return true, wenn der Pfad dem verteilten Layout entspricht
+     */
+    public static boolean isSharded(Path dataDir, Path blobPath) {
+        return blobPath.equals(resolve(dataDir, blobPath.getFileName().toString()));
+    }
+
+    /**
+     * Prüft, ob ein Pfad eine verschlüsselte Datei im verteilten Layout ist: Der Name ist eine
+     * UUID und die Datei liegt in dem zu ihrem Namen passenden Unterverzeichnis. Temporäre
+     * Dateien und sonstige Dateien im Datenverzeichnis erfüllen das nicht.
+     *
+     * @param dataDir Das Datenverzeichnis
+     * @param path Der zu prüfende Pfad
+     * @return true, wenn der Pfad eine verschlüsselte Datei bezeichnet
+     */
+    public static boolean isBlob(Path dataDir, Path path) {
+        Path name = path.getFileName();
+        return name != null && BLOB_NAME.matcher(name.toString()).matches() && isSharded(dataDir, path);
+    }
+}
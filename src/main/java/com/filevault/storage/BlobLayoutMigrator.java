@@ -0,0 +1,273 @@
+package com.filevault.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.storage.blob.LocalBlobStore;
+import com.filevault.util.FolderManager;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Verschiebt verschlüsselte Dateien aus dem alten, flachen Layout des Datenverzeichnisses
+ * in das verteilte Layout von {@link BlobLayout}, während die Anwendung läuft, und ersetzt
+ * absolute Pfade in {@code encrypted_path} durch Blob-URIs des lokalen Backends
+ * ({@code local:ab/cd/<uuid>}). Jede Datei wird zuerst verschoben und danach
+ * {@code encrypted_path} blockweise in einer Transaktion angepasst. Bricht die Migration dazwischen ab, erkennt der nächste Durchlauf
+ * bereits verschobene Dateien und holt nur die Aktualisierung der Datenbank nach.
+ */
+public class BlobLayoutMigrator {
+
+    /** Anzahl der Dateien pro Transaktion */
+    private static final int BATCH_SIZE = 200;
+
+    /** Pause zwischen zwei Blöcken, damit Vordergrundzugriffe nicht ausgebremst werden */
+    private static final long PAUSE_BETWEEN_BATCHES_MS = 50;
+
+    /** Bedingung für absolute Pfade im Datenverzeichnis, wie sie ältere Versionen gespeichert haben */
+    private static final String LEGACY_PATH_CONDITION = "substr(encrypted_path, 1, ?) = ?";
+
+    /** Die einzige Instanz des BlobLayoutMigrator */
+    private static BlobLayoutMigrator instance;
+
+    /** Anzahl der bisher migrierten Dateien */
+    private final AtomicLong migratedCount = new AtomicLong();
+
+    /** Anzahl der Dateien, die nicht migriert werden konnten */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Hintergrund-Thread, null solange die Migration nicht läuft */
+    private ScheduledExecutorService worker;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private BlobLayoutMigrator() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des BlobLayoutMigrator zurück.
+     *
+     * @return Die Singleton-Instanz des BlobLayoutMigrator
+     */
+    public static synchronized BlobLayoutMigrator getInstance() {
+        if (instance == null) {
+            instance = new BlobLayoutMigrator();
+        }
+        return instance;
+    }
+
+    /**
+     * Startet die Migration des Tresor-Datenverzeichnisses im Hintergrund.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        Path dataDir = Paths.get(FolderManager.getInstance().getDataDirectoryPath());
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-layout-migrator");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.execute(() -> migrate(dataDir));
+    }
+
+    /**
+     * Beendet die Migration. Sie wird beim nächsten Start an derselben Stelle fortgesetzt.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Migriert alle Dateien eines Datenverzeichnisses in das verteilte Layout.
+     *
+     * @param dataDir Das Datenverzeichnis
+     * @return Die Anzahl der migrierten Dateien
+     */
+    public int migrate(Path dataDir) {
+        LoggingUtil.logInfo("BlobLayoutMigrator", "Starting layout migration of " + dataDir);
+        int total = 0;
+        int lastId = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Object[]> batch = loadBatch(dataDir, lastId);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                // Fortsetzen nach der letzten ID, damit nicht verschiebbare Dateien nicht erneut geladen werden
+                lastId = (Integer) batch.get(batch.size() - 1)[0];
+                total += migrateBatch(dataDir, batch);
+                Thread.sleep(PAUSE_BETWEEN_BATCHES_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            LoggingUtil.logError("BlobLayoutMigrator", "Layout migration failed: " + e.getMessage());
+        }
+        LoggingUtil.logInfo("BlobLayoutMigrator", "Layout migration finished, " + total + " files moved.");
+        return total;
+    }
+
+    /**
+     * Gibt die Anzahl der Dateien zurück, die noch mit absolutem Pfad gespeichert sind.
+     *
+     * @return Die Anzahl der noch zu migrierenden Dateien
+     */
+    public int getRemaining() {
+        Path dataDir = Paths.get(FolderManager.getInstance().getDataDirectoryPath());
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM files WHERE " + LEGACY_PATH_CONDITION)) {
+            bindLegacyPathCondition(stmt, dataDir, 1);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("BlobLayoutMigrator", "Error counting remaining files: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start migrierten Dateien zurück.
+     *
+     * @return Die Anzahl der migrierten Dateien
+     */
+    public long getMigratedCount() {
+        return migratedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der Dateien zurück, die nicht migriert werden konnten.
+     *
+     * @return Die Anzahl der Fehlschläge
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private static void bindLegacyPathCondition(PreparedStatement stmt, Path dataDir, int index) throws SQLException {
+        String prefix = dataDir.toAbsolutePath().toString() + File.separator;
+        stmt.setInt(index, prefix.length());
+        stmt.setString(index + 1, prefix);
+    }
+
+    private List<Object[]> loadBatch(Path dataDir, int afterId) throws SQLException {
+        List<Object[]> batch = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, encrypted_path FROM files WHERE id > ? AND " + LEGACY_PATH_CONDITION
+                     + " ORDER BY id LIMIT ?")) {
+            stmt.setInt(1, afterId);
+            bindLegacyPathCondition(stmt, dataDir, 2);
+            stmt.setInt(4, BATCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.add(new Object[] {rs.getInt("id"), rs.getString("encrypted_path")});
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Verschiebt einen Block von Dateien, soweit sie noch flach liegen, und ersetzt anschließend
+     * die Pfade in einer Transaktion durch Blob-URIs.
+     *
+     * @return Die Anzahl der migrierten Dateien
+     */
+    private int migrateBatch(Path dataDir, List<Object[]> batch) throws SQLException {
+        List<Object[]> moved = new ArrayList<>();
+        for (Object[] entry : batch) {
+            Path source = Paths.get((String) entry[1]);
+            String blobName = source.getFileName().toString();
+            Path target = BlobLayout.resolve(dataDir.toAbsolutePath(), blobName);
+            try {
+                if (!source.equals(target) && Files.exists(source)) {
+                    Files.createDirectories(target.getParent());
+                    try {
+                        Files.move(source, target, StandardCopyOption.ATOMIC_MOVE);
+                    } catch (AtomicMoveNotSupportedException e) {
+                        Files.move(source, target);
+                    }
+                } else if (!Files.exists(target)) {
+                    // Weder alt noch neu vorhanden: Eintrag unverändert lassen, der Export meldet den Fehler
+                    failedCount.incrementAndGet();
+                    continue;
+                }
+                moved.add(new Object[] {entry[0], entry[1], LocalBlobStore.SCHEME + ":" + BlobLayout.key(blobName)});
+            } catch (IOException e) {
+                failedCount.incrementAndGet();
+                LoggingUtil.logError("BlobLayoutMigrator", "Could not move " + source + ": " + e.getMessage());
+            }
+        }
+        if (moved.isEmpty()) {
+            return 0;
+        }
+
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "UPDATE files SET encrypted_path = ? WHERE id = ? AND encrypted_path = ?");
+                 PreparedStatement versions = conn.prepareStatement(
+                    "UPDATE file_versions SET encrypted_path = ? WHERE encrypted_path = ?");
+                 PreparedStatement snapshots = conn.prepareStatement(
+                    "UPDATE snapshot_files SET encrypted_path = ? WHERE encrypted_path = ?");
+                 PreparedStatement pins = conn.prepareStatement(
+                    "UPDATE snapshot_blobs SET encrypted_path = ? WHERE encrypted_path = ?")) {
+                for (Object[] entry : moved) {
+                    stmt.setString(1, (String) entry[2]);
+                    stmt.setInt(2, (Integer) entry[0]);
+                    stmt.setString(3, (String) entry[1]);
+                    stmt.addBatch();
+                    // Ältere Versionen und Snapshots verweisen ggf. auf denselben, jetzt verschobenen Blob
+                    for (PreparedStatement reference : List.of(versions, snapshots, pins)) {
+                        reference.setString(1, (String) entry[2]);
+                        reference.setString(2, (String) entry[1]);
+                        reference.addBatch();
+                    }
+                }
+                stmt.executeBatch();
+                versions.executeBatch();
+                snapshots.executeBatch();
+                pins.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        migratedCount.addAndGet(moved.size());
+        LoggingUtil.logDatabase("Migrate", "Files", moved.size() + " blobs migrated to sharded layout");
+        return moved.size();
+    }
+}
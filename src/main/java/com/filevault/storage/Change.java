@@ -0,0 +1,81 @@
+package com.filevault.storage;
+
+import java.time.LocalDateTime;
+
+/**
+ * Ein Eintrag im Änderungsprotokoll ({@link ChangeJournal}).
+ */
+public class Change {
+
+    /** Fortlaufende Sequenznummer */
+    private final long sequence;
+
+    /** Art des Objekts: {@link ChangeJournal#ENTITY_FILE} oder {@link ChangeJournal#ENTITY_FOLDER} */
+    private final String entity;
+
+    /** ID der Datei bzw. des Ordners */
+    private final int entityId;
+
+    /** Art der Änderung: {@link ChangeJournal#OP_CREATE}, {@link ChangeJournal#OP_UPDATE} oder {@link ChangeJournal#OP_DELETE} */
+    private final String operation;
+
+    /** Zeitpunkt der Änderung */
+    private final LocalDateTime changedAt;
+
+    /**
+     * Erstellt einen Eintrag.
+     *
+     * @param sequence Sequenznummer
+     * @param entity Art des Objekts
+     * @param entityId ID der Datei bzw. des Ordners
+     * @param operation Art der Änderung
+     * @param changedAt Zeitpunkt der Änderung
+     */
+    public Change(long sequence, String entity, int entityId, String operation, LocalDateTime changedAt) {
+        this.sequence = sequence;
+        this.entity = entity;
+        this.entityId = entityId;
+        this.operation = operation;
+        this.changedAt = changedAt;
+    }
+
+    /**
+     * @return Fortlaufende Sequenznummer
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * @return Art des Objekts
+     */
+    public String getEntity() {
+        return entity;
+    }
+
+    /**
+     * @return ID der Datei bzw. des Ordners
+     */
+    public int getEntityId() {
+        return entityId;
+    }
+
+    /**
+     * @return Art der Änderung
+     */
+    public String getOperation() {
+        return operation;
+    }
+
+    /**
+     * @return Zeitpunkt der Änderung, null wenn unbekannt
+     */
+    public LocalDateTime getChangedAt() {
+        return changedAt;
+    }
+
+    @Override
+    public String toString() {
+        return "Change[" + sequence + " " + operation + " " + entity + " " + entityId + "]";
+    }
+}
@@ -0,0 +1,282 @@
+package com.filevault.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Änderungsprotokoll für Dateien und Ordner. Trigger in {@link DatabaseManager} tragen jede
+ * Änderung mit fortlaufender Sequenznummer in {@code changes} ein, in derselben Transaktion wie
+ * die Änderung selbst. Clients merken sich die zuletzt gesehene Nummer und holen mit
+ * {@link #since(long, int)} nur die neueren Einträge ab, statt alles neu aufzulisten.
+ * <p>
+ * Ein Hintergrund-Thread verdichtet das Protokoll: Von mehreren Einträgen zu derselben Datei
+ * bzw. demselben Ordner bleibt nur der neueste, und Einträge, die älter als die Aufbewahrungsdauer
+ * sind, werden entfernt. Wer zuletzt vor diesem Horizont abgefragt hat, muss einmal vollständig
+ * neu laden ({@link #requiresReset(long)}).
+ * <p>
+ * Einstellungen über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.changes.retentionDays} – Aufbewahrungsdauer in Tagen (Standard 30)</li>
+ *   <li>{@code filevault.changes.compactIntervalMinutes} – Abstand der Verdichtung (Standard 60)</li>
+ * </ul>
+ */
+public class ChangeJournal {
+
+    /** Objektart Datei */
+    public static final String ENTITY_FILE = "file";
+
+    /** Objektart Ordner */
+    public static final String ENTITY_FOLDER = "folder";
+
+    /** Änderung: angelegt */
+    public static final String OP_CREATE = "create";
+
+    /** Änderung: geändert (umbenannt, verschoben, neue Version) */
+    public static final String OP_UPDATE = "update";
+
+    /** Änderung: gelöscht */
+    public static final String OP_DELETE = "delete";
+
+    /** Schlüssel der höchsten entfernten Sequenznummer in der Tabelle settings */
+    private static final String HORIZON_SETTING = "changes_horizon";
+
+    /** Die einzige Instanz des ChangeJournal */
+    private static ChangeJournal instance;
+
+    /** Aufbewahrungsdauer der Einträge in Tagen */
+    private volatile int retentionDays = Integer.getInteger("filevault.changes.retentionDays", 30);
+
+    /** Hintergrund-Thread, null solange die Verdichtung nicht gestartet ist */
+    private ScheduledExecutorService worker;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private ChangeJournal() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des ChangeJournal zurück.
+     *
+     * @return Die Singleton-Instanz des ChangeJournal
+     */
+    public static synchronized ChangeJournal getInstance() {
+        if (instance == null) {
+            instance = new ChangeJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Ändert die Aufbewahrungsdauer zur Laufzeit.
+     *
+     * @param retentionDays Aufbewahrungsdauer in Tagen
+     */
+    public void configure(int retentionDays) {
+        this.retentionDays = Math.max(0, retentionDays);
+    }
+
+    /**
+     * Startet die regelmäßige Verdichtung im Hintergrund.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        long interval = Long.getLong("filevault.changes.compactIntervalMinutes", 60);
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-change-journal");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(() -> {
+            try {
+                compact();
+            } catch (SQLException e) {
+                LoggingUtil.logError("ChangeJournal", "Error compacting change journal: " + e.getMessage());
+            }
+        }, interval, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Beendet den Hintergrund-Thread.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Gibt die Änderungen nach einer Sequenznummer zurück, älteste zuerst.
+     *
+     * @param sequence Die zuletzt gesehene Sequenznummer, 0 für alle
+     * @param limit Die maximale Anzahl der Einträge
+     * @return Die Änderungen
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<Change> since(long sequence, int limit) throws SQLException {
+        List<Change> changes = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT seq, entity, entity_id, operation, changed_at FROM changes WHERE seq > ? ORDER BY seq LIMIT ?")) {
+            stmt.setLong(1, sequence);
+            stmt.setInt(2, limit);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    Timestamp changedAt = rs.getTimestamp("changed_at");
+                    changes.add(new Change(rs.getLong("seq"), rs.getString("entity"), rs.getInt("entity_id"),
+                            rs.getString("operation"), changedAt != null ? changedAt.toLocalDateTime() : null));
+                }
+            }
+        }
+        return changes;
+    }
+
+    /**
+     * Gibt die höchste vergebene Sequenznummer zurück, auch wenn ihr Eintrag bereits verdichtet wurde.
+     *
+     * @return Die höchste Sequenznummer, 0 wenn noch keine Änderung protokolliert wurde
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public long getLatestSequence() throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            return getLatestSequence(conn);
+        }
+    }
+
+    /**
+     * Gibt wie {@link #getLatestSequence()} die höchste vergebene Sequenznummer zurück,
+     * verwendet aber eine bestehende Verbindung.
+     *
+     * @param conn Die zu verwendende Verbindung
+     * @return Die höchste Sequenznummer, 0 wenn noch keine Änderung protokolliert wurde
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public long getLatestSequence(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT seq FROM sqlite_sequence WHERE name = 'changes'")) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Prüft, ob seit einer Sequenznummer Einträge wegen ihres Alters entfernt wurden. Der Client
+     * muss dann vollständig neu laden und mit {@link #getLatestSequence()} fortfahren.
+     *
+     * @param sequence Die zuletzt gesehene Sequenznummer
+     * @return true, wenn die Änderungen seit dieser Nummer nicht mehr vollständig vorliegen
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public boolean requiresReset(long sequence) throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            return requiresReset(conn, sequence);
+        }
+    }
+
+    /**
+     * Prüft wie {@link #requiresReset(long)}, verwendet aber eine bestehende Verbindung.
+     *
+     * @param conn Die zu verwendende Verbindung
+     * @param sequence Die zuletzt gesehene Sequenznummer
+     * @return true, wenn die Änderungen seit dieser Nummer nicht mehr vollständig vorliegen
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public boolean requiresReset(Connection conn, long sequence) throws SQLException {
+        return sequence < getHorizon(conn);
+    }
+
+    /**
+     * Verdichtet das Protokoll: entfernt überholte Einträge derselben Datei bzw. desselben Ordners
+     * und Einträge, die älter als die Aufbewahrungsdauer sind.
+     *
+     * @return Die Anzahl der entfernten Einträge
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public int compact() throws SQLException {
+        long start = System.currentTimeMillis();
+        int removed;
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                // Für den Abgleich zählt nur die letzte Änderung je Objekt
+                removed = stmt.executeUpdate("DELETE FROM changes WHERE EXISTS (SELECT 1 FROM changes n "
+                        + "WHERE n.entity = changes.entity AND n.entity_id = changes.entity_id AND n.seq > changes.seq)");
+                long cutoff = 0;
+                try (ResultSet rs = stmt.executeQuery("SELECT MAX(seq) FROM changes WHERE changed_at < datetime('now', '-"
+                        + retentionDays + " days')")) {
+                    if (rs.next()) {
+                        cutoff = rs.getLong(1);
+                    }
+                }
+                if (cutoff > 0) {
+                    removed += stmt.executeUpdate("DELETE FROM changes WHERE seq <= " + cutoff);
+                    try (PreparedStatement horizon = conn.prepareStatement(
+                            "INSERT OR REPLACE INTO settings (key, value, description) VALUES (?, ?, ?)")) {
+                        horizon.setString(1, HORIZON_SETTING);
+                        horizon.setString(2, Long.toString(cutoff));
+                        horizon.setString(3, "Höchste aus dem Änderungsprotokoll entfernte Sequenznummer");
+                        horizon.executeUpdate();
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        LoggingUtil.logDatabase("Compact", "changes", removed + " change entries removed in "
+                + (System.currentTimeMillis() - start) + " ms");
+        return removed;
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge im Protokoll zurück.
+     *
+     * @return Die Anzahl der Einträge
+     */
+    public int countEntries() {
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM changes")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("ChangeJournal", "Error counting change entries: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die höchste wegen ihres Alters entfernte Sequenznummer zurück.
+     */
+    private long getHorizon(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT value FROM settings WHERE key = ?")) {
+            stmt.setString(1, HORIZON_SETTING);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? Long.parseLong(rs.getString(1)) : 0;
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.filevault.storage;
+
+/**
+ * Ein Treffer der Inhaltssuche: eine Datei, deren Text alle Suchbegriffe enthält.
+ */
+public class ContentHit {
+
+    /** ID der Datei */
+    private final int fileId;
+
+    /** ID des Ordners, in dem die Datei liegt */
+    private final int folderId;
+
+    /** Name der Datei */
+    private final String name;
+
+    /** Textausschnitt um das erste Vorkommen eines Suchbegriffs, null wenn nicht verfügbar */
+    private final String snippet;
+
+    /** Summe der Häufigkeiten aller Suchbegriffe; größere Werte bedeuten höhere Relevanz */
+    private final int score;
+
+    /**
+     * Erstellt einen Treffer.
+     *
+     * @param fileId ID der Datei
+     * @param folderId ID des Ordners der Datei
+     * @param name Name der Datei
+     * @param snippet Textausschnitt oder null
+     * @param score Summe der Häufigkeiten der Suchbegriffe
+     */
+    public ContentHit(int fileId, int folderId, String name, String snippet, int score) {
+        this.fileId = fileId;
+        this.folderId = folderId;
+        this.name = name;
+        this.snippet = snippet;
+        this.score = score;
+    }
+
+    /**
+     * @return ID der Datei
+     */
+    public int getFileId() {
+        return fileId;
+    }
+
+    /**
+     * @return ID des Ordners der Datei
+     */
+    public int getFolderId() {
+        return folderId;
+    }
+
+    /**
+     * @return Name der Datei
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Textausschnitt um das erste Vorkommen eines Suchbegriffs oder null
+     */
+    public String getSnippet() {
+        return snippet;
+    }
+
+    /**
+     * @return Summe der Häufigkeiten der Suchbegriffe
+     */
+    public int getScore() {
+        return score;
+    }
+}
@@ -0,0 +1,669 @@
+package com.filevault.storage;
+
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.ObjIntConsumer;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.filevault.model.UserManager;
+import com.filevault.security.EncryptionService;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Invertierter Index über den Inhalt verschlüsselter Textdateien.
+ * Textdateien werden im Hintergrund blockweise entschlüsselt und in Wörter zerlegt; für jedes
+ * Wort werden Häufigkeit und erstes Vorkommen in {@code content_terms} abgelegt. Die Wörter
+ * selbst werden nicht gespeichert, sondern nur ihr HMAC mit einem aus dem Master-Schlüssel
+ * abgeleiteten Schlüssel, sodass die Datenbank keinen Klartext enthält. Die Suche berechnet
+ * dieselben HMACs für die Suchbegriffe; Textausschnitte für die Treffer werden erst bei der
+ * Suche aus der entschlüsselten Datei gelesen.
+ * <p>
+ * Konfiguration über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.contentIndex} – Inhaltsindex einschalten (Standard {@code false})</li>
+ *   <li>{@code filevault.contentIndex.maxBytes} – größte indizierte Datei in Bytes (Standard 16 MiB)</li>
+ *   <li>{@code filevault.contentIndex.maxChars} – höchstens indizierte Zeichen je Datei (Standard 4 Mio.)</li>
+ *   <li>{@code filevault.contentIndex.scanIntervalMinutes} – Abstand der Nachindizierung (Standard 5)</li>
+ * </ul>
+ */
+public class ContentIndex {
+
+    /** Größte Anzahl an Treffern pro Suche */
+    public static final int MAX_RESULTS = 100;
+
+    /** Status einer vollständig indizierten Datei in {@code content_documents} */
+    static final String STATUS_INDEXED = "indexed";
+
+    /** Status einer Datei, die nicht entschlüsselt oder gelesen werden konnte */
+    static final String STATUS_FAILED = "failed";
+
+    /** Status einer Datei, die wegen ihrer Größe nicht indiziert wird */
+    static final String STATUS_SKIPPED = "skipped";
+
+    /** Bedingung für MIME-Typen, deren Inhalt indiziert wird (entspricht {@link #isTextType(String)}) */
+    private static final String TEXT_TYPE_CONDITION = "(f.mime_type LIKE 'text/%' OR f.mime_type LIKE '%+xml' "
+            + "OR f.mime_type LIKE '%+json' OR f.mime_type IN ('application/json', 'application/xml', "
+            + "'application/javascript', 'application/x-sh', 'application/x-yaml', 'application/sql'))";
+
+    /** Größe eines beim Indizieren gelesenen Blocks in Zeichen */
+    private static final int CHUNK_CHARS = 16 * 1024;
+
+    /** Kürzeste indizierte Wortlänge */
+    private static final int MIN_TERM_LENGTH = 2;
+
+    /** Längste indizierte Wortlänge; längere Zeichenfolgen sind selten sinnvolle Suchbegriffe */
+    private static final int MAX_TERM_LENGTH = 64;
+
+    /** Länge des gespeicherten HMAC je Wort in Bytes */
+    private static final int TERM_HASH_BYTES = 16;
+
+    /** Zeichen vor bzw. nach dem Treffer im Textausschnitt */
+    private static final int SNIPPET_BEFORE = 60;
+    private static final int SNIPPET_AFTER = 100;
+
+    /** Anzahl der Dateien pro Block bei der Nachindizierung */
+    private static final int BATCH_SIZE = 100;
+
+    /** Verwendungszweck bei der Ableitung des Indexschlüssels aus dem Master-Schlüssel */
+    private static final byte[] KEY_LABEL = "filevault-content-index-v1".getBytes(StandardCharsets.UTF_8);
+
+    /** Schlüssel der Prüfsumme des Indexschlüssels in der Tabelle settings */
+    private static final String KEY_CHECK_SETTING = "content_index_key_check";
+
+    /** Die einzige Instanz des ContentIndex */
+    private static ContentIndex instance;
+
+    /** Gibt an, ob neue Dateien im Hintergrund indiziert werden */
+    private final boolean enabled;
+
+    /** Größte indizierte Dateigröße in Bytes */
+    private final long maxBytes;
+
+    /** Höchstens indizierte Zeichen je Datei */
+    private final long maxChars;
+
+    /** Dateien, deren Indizierung bereits eingeplant ist */
+    private final Set<Integer> pending = ConcurrentHashMap.newKeySet();
+
+    /** Anzahl der seit dem Start indizierten Dateien */
+    private final AtomicLong indexedCount = new AtomicLong();
+
+    /** Anzahl der seit dem Start fehlgeschlagenen Indizierungen */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Indexschlüssel, der zuletzt mit der Prüfsumme in settings abgeglichen wurde */
+    private byte[] verifiedKey;
+
+    /** Hintergrund-Thread, null solange der Dienst nicht läuft */
+    private ScheduledExecutorService worker;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private ContentIndex() {
+        enabled = Boolean.getBoolean("filevault.contentIndex");
+        maxBytes = Long.getLong("filevault.contentIndex.maxBytes", 16L * 1024 * 1024);
+        maxChars = Long.getLong("filevault.contentIndex.maxChars", 4_000_000L);
+    }
+
+    /**
+     * Gibt die einzige Instanz des ContentIndex zurück.
+     *
+     * @return Die Singleton-Instanz des ContentIndex
+     */
+    public static synchronized ContentIndex getInstance() {
+        if (instance == null) {
+            instance = new ContentIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Prüft, ob der Inhaltsindex eingeschaltet ist.
+     *
+     * @return true, wenn Dateien im Hintergrund indiziert werden
+     */
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Startet die Indizierung im Hintergrund. Dateien, die noch nicht indiziert sind (z.B. weil
+     * sie vor dem Einschalten oder ohne angemeldeten Benutzer importiert wurden), werden
+     * periodisch nachgetragen.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        if (!enabled) {
+            LoggingUtil.logInfo("ContentIndex", "Content index disabled.");
+            return;
+        }
+        long interval = Long.getLong("filevault.contentIndex.scanIntervalMinutes", 5);
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-content-index");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::indexPending, 0, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Beendet den Hintergrund-Thread. Nicht abgeschlossene Dateien werden beim nächsten Start
+     * nachindiziert.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            pending.clear();
+        }
+    }
+
+    /**
+     * Plant die Indizierung einer neu importierten Datei ein, sofern ihr Inhalt Text ist.
+     *
+     * @param fileId Die ID der Datei
+     * @param mimeType Der MIME-Typ der Datei
+     */
+    public void enqueue(int fileId, String mimeType) {
+        if (!isTextType(mimeType)) {
+            return;
+        }
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+        }
+        if (current != null && pending.add(fileId)) {
+            current.execute(() -> {
+                try {
+                    indexFile(fileId);
+                } finally {
+                    pending.remove(fileId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Indiziert alle Textdateien, die noch keinen Eintrag in {@code content_documents} haben.
+     * Ohne angemeldeten Benutzer (kein Master-Schlüssel) wird nichts getan.
+     *
+     * @return Die Anzahl der indizierten Dateien
+     */
+    public int indexPending() {
+        if (UserManager.getInstance().getMasterKey() == null) {
+            return 0;
+        }
+        int total = 0;
+        int lastId = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Integer> batch = new ArrayList<>();
+                try (Connection conn = DatabaseManager.openConnection();
+                     PreparedStatement stmt = conn.prepareStatement(
+                             "SELECT f.id FROM files f LEFT JOIN content_documents d ON d.file_id = f.id "
+                             + "WHERE d.file_id IS NULL AND f.id > ? AND " + TEXT_TYPE_CONDITION
+                             + " ORDER BY f.id LIMIT ?")) {
+                    stmt.setInt(1, lastId);
+                    stmt.setInt(2, BATCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            batch.add(rs.getInt(1));
+                        }
+                    }
+                }
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastId = batch.get(batch.size() - 1);
+                for (int fileId : batch) {
+                    if (pending.add(fileId)) {
+                        try {
+                            if (indexFile(fileId)) {
+                                total++;
+                            }
+                        } finally {
+                            pending.remove(fileId);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("ContentIndex", "Indexing pass failed: " + e.getMessage());
+        }
+        if (total > 0) {
+            LoggingUtil.logInfo("ContentIndex", total + " files added to content index.");
+        }
+        return total;
+    }
+
+    /**
+     * Entschlüsselt eine Datei blockweise und ersetzt ihre Einträge im Index.
+     *
+     * @param fileId Die ID der Datei
+     * @return true, wenn die Datei indiziert wurde
+     */
+    public boolean indexFile(int fileId) {
+        if (UserManager.getInstance().getMasterKey() == null) {
+            return false;
+        }
+        String location;
+        String mimeType;
+        long size;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT encrypted_path, mime_type, size_bytes FROM files WHERE id = ?")) {
+            stmt.setInt(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                location = rs.getString("encrypted_path");
+                mimeType = rs.getString("mime_type");
+                size = rs.getLong("size_bytes");
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("ContentIndex", "Error loading file " + fileId + ": " + e.getMessage());
+            return false;
+        }
+        if (!isTextType(mimeType)) {
+            return false;
+        }
+        if (size > maxBytes) {
+            // AES-GCM gibt Klartext erst nach Prüfung des Tags frei; große Dateien würden vollständig im Speicher landen
+            saveTerms(fileId, Map.of(), STATUS_SKIPPED);
+            return false;
+        }
+
+        Map<String, int[]> terms = new LinkedHashMap<>();
+        try {
+            byte[] key = indexKey();
+            try (Reader reader = openText(location)) {
+                char[] buffer = new char[CHUNK_CHARS];
+                Tokenizer tokenizer = new Tokenizer((term, offset) -> {
+                    int[] entry = terms.get(term);
+                    if (entry == null) {
+                        terms.put(term, new int[] {1, offset});
+                    } else {
+                        entry[0]++;
+                    }
+                });
+                long read = 0;
+                int n;
+                while (read < maxChars && (n = reader.read(buffer, 0, (int) Math.min(buffer.length, maxChars - read))) != -1) {
+                    tokenizer.accept(buffer, n);
+                    read += n;
+                }
+                tokenizer.finish();
+            }
+
+            Map<String, int[]> hashed = new LinkedHashMap<>();
+            Mac mac = newMac(key);
+            for (Map.Entry<String, int[]> entry : terms.entrySet()) {
+                hashed.put(HexFormat.of().formatHex(hashTerm(mac, entry.getKey())), entry.getValue());
+            }
+            if (saveTerms(fileId, hashed, STATUS_INDEXED)) {
+                indexedCount.incrementAndGet();
+                return true;
+            }
+            return false;
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            LoggingUtil.logError("ContentIndex", "Could not index file " + fileId + ": " + e.getMessage());
+            saveTerms(fileId, Map.of(), STATUS_FAILED);
+            return false;
+        }
+    }
+
+    /**
+     * Sucht Dateien, deren Inhalt alle Wörter der Anfrage enthält.
+     *
+     * @param query Die Suchanfrage, z.B. {@code "rechnung märz"}
+     * @param limit Höchstzahl der Treffer (höchstens {@link #MAX_RESULTS})
+     * @return Die Treffer, sortiert nach absteigender Häufigkeit der Suchbegriffe
+     * @throws IllegalStateException wenn kein Benutzer angemeldet ist
+     */
+    public List<ContentHit> search(String query, int limit) {
+        Set<String> terms = new LinkedHashSet<>();
+        if (query != null) {
+            Tokenizer tokenizer = new Tokenizer((term, offset) -> terms.add(term));
+            tokenizer.accept(query.toCharArray(), query.length());
+            tokenizer.finish();
+        }
+        if (terms.isEmpty()) {
+            return List.of();
+        }
+        int max = Math.max(1, Math.min(limit, MAX_RESULTS));
+
+        List<Object[]> rows = new ArrayList<>();
+        try {
+            Mac mac = newMac(indexKey());
+            String placeholders = String.join(", ", Collections.nCopies(terms.size(), "?"));
+            try (Connection conn = DatabaseManager.getConnection();
+                 PreparedStatement stmt = conn.prepareStatement(
+                         "SELECT t.file_id, SUM(t.frequency) AS score, MIN(t.first_offset) AS first_offset, "
+                         + "f.folder_id, f.original_name, f.encrypted_path "
+                         + "FROM content_terms t JOIN files f ON f.id = t.file_id "
+                         + "WHERE t.term IN (" + placeholders + ") "
+                         + "GROUP BY t.file_id HAVING COUNT(*) = ? ORDER BY score DESC, t.file_id LIMIT ?")) {
+                int index = 1;
+                for (String term : terms) {
+                    stmt.setBytes(index++, hashTerm(mac, term));
+                }
+                stmt.setInt(index++, terms.size());
+                stmt.setInt(index, max);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        rows.add(new Object[] {rs.getInt("file_id"), rs.getInt("folder_id"), rs.getString("original_name"),
+                                rs.getString("encrypted_path"), rs.getInt("first_offset"), rs.getInt("score")});
+                    }
+                }
+            }
+        } catch (SQLException | GeneralSecurityException e) {
+            LoggingUtil.logError("ContentIndex", "Error searching content: " + e.getMessage());
+            return List.of();
+        }
+
+        List<ContentHit> hits = new ArrayList<>();
+        for (Object[] row : rows) {
+            hits.add(new ContentHit((Integer) row[0], (Integer) row[1], (String) row[2],
+                    snippet((String) row[3], (Integer) row[4]), (Integer) row[5]));
+        }
+        return hits;
+    }
+
+    /**
+     * Gibt die Anzahl der indizierten Dateien zurück.
+     *
+     * @return Die Anzahl der Dateien mit Status {@code indexed}
+     */
+    public int countIndexedFiles() {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM content_documents WHERE status = ?")) {
+            stmt.setString(1, STATUS_INDEXED);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("ContentIndex", "Error counting indexed files: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der eingeplanten, noch nicht indizierten Dateien zurück.
+     *
+     * @return Die Anzahl der ausstehenden Dateien
+     */
+    public int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start indizierten Dateien zurück.
+     *
+     * @return Die Anzahl der indizierten Dateien
+     */
+    public long getIndexedCount() {
+        return indexedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start fehlgeschlagenen Indizierungen zurück.
+     *
+     * @return Die Anzahl der Fehlschläge
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Prüft, ob der Inhalt einer Datei mit diesem MIME-Typ indiziert wird.
+     *
+     * @param mimeType Der MIME-Typ oder null
+     * @return true für Textformate
+     */
+    public static boolean isTextType(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return type.startsWith("text/") || type.endsWith("+xml") || type.endsWith("+json")
+                || type.equals("application/json") || type.equals("application/xml")
+                || type.equals("application/javascript") || type.equals("application/x-sh")
+                || type.equals("application/x-yaml") || type.equals("application/sql");
+    }
+
+    /**
+     * Ersetzt die Einträge einer Datei in einer Transaktion. Wurde die Datei inzwischen
+     * gelöscht, schlägt der Fremdschlüssel fehl und es wird nichts gespeichert.
+     */
+    private boolean saveTerms(int fileId, Map<String, int[]> terms, String status) {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement clear = conn.prepareStatement("DELETE FROM content_terms WHERE file_id = ?");
+                 PreparedStatement insert = conn.prepareStatement(
+                         "INSERT INTO content_terms (term, file_id, frequency, first_offset) VALUES (?, ?, ?, ?)");
+                 PreparedStatement document = conn.prepareStatement(
+                         "INSERT OR REPLACE INTO content_documents (file_id, status, term_count, indexed_at) "
+                         + "VALUES (?, ?, ?, CURRENT_TIMESTAMP)")) {
+                clear.setInt(1, fileId);
+                clear.executeUpdate();
+                for (Map.Entry<String, int[]> entry : terms.entrySet()) {
+                    insert.setBytes(1, HexFormat.of().parseHex(entry.getKey()));
+                    insert.setInt(2, fileId);
+                    insert.setInt(3, entry.getValue()[0]);
+                    insert.setInt(4, entry.getValue()[1]);
+                    insert.addBatch();
+                }
+                insert.executeBatch();
+                document.setInt(1, fileId);
+                document.setString(2, status);
+                document.setInt(3, terms.size());
+                document.executeUpdate();
+                conn.commit();
+                return true;
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logWarning("ContentIndex", "Could not store index entries for file " + fileId + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Liest den Textausschnitt um eine Position, ohne die Datei über das Ende des Ausschnitts
+     * hinaus zu verarbeiten.
+     */
+    private String snippet(String location, int offset) {
+        int start = Math.max(0, offset - SNIPPET_BEFORE);
+        try (Reader reader = openText(location)) {
+            long skipped = 0;
+            while (skipped < start) {
+                long n = reader.skip(start - skipped);
+                if (n <= 0) {
+                    break;
+                }
+                skipped += n;
+            }
+            char[] window = new char[offset - start + SNIPPET_AFTER];
+            int length = 0;
+            int n;
+            while (length < window.length && (n = reader.read(window, length, window.length - length)) != -1) {
+                length += n;
+            }
+            String text = new String(window, 0, length).replaceAll("\\s+", " ").trim();
+            boolean more = reader.read() != -1;
+            return (start > 0 ? "…" : "") + text + (more ? "…" : "");
+        } catch (Exception e) {
+            LoggingUtil.logWarning("ContentIndex", "Could not read snippet from " + location + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private static Reader openText(String location) throws Exception {
+        InputStream decrypted = EncryptionService.getInstance().decryptStream(BlobStores.getInstance().resolve(location).open());
+        return new InputStreamReader(decrypted, StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPLACE)
+                .onUnmappableCharacter(CodingErrorAction.REPLACE));
+    }
+
+    /**
+     * Leitet den Indexschlüssel aus dem Master-Schlüssel ab. Passt er nicht zu dem Schlüssel,
+     * mit dem der Index aufgebaut wurde (z.B. nach einer Passwortänderung), wird der Index
+     * geleert und anschließend nachindiziert.
+     */
+    private synchronized byte[] indexKey() throws GeneralSecurityException, SQLException {
+        byte[] masterKey = UserManager.getInstance().getMasterKey();
+        if (masterKey == null) {
+            throw new IllegalStateException("Kein Master-Schlüssel verfügbar. Benutzer muss authentifiziert sein.");
+        }
+        byte[] key = newMac(masterKey).doFinal(KEY_LABEL);
+        if (Arrays.equals(key, verifiedKey)) {
+            return key;
+        }
+        String check = HexFormat.of().formatHex(newMac(key).doFinal(KEY_CHECK_SETTING.getBytes(StandardCharsets.UTF_8)));
+        try (Connection conn = DatabaseManager.openConnection()) {
+            String stored = null;
+            try (PreparedStatement stmt = conn.prepareStatement("SELECT value FROM settings WHERE key = ?")) {
+                stmt.setString(1, KEY_CHECK_SETTING);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (rs.next()) {
+                        stored = rs.getString(1);
+                    }
+                }
+            }
+            if (!check.equals(stored)) {
+                conn.setAutoCommit(false);
+                try (Statement stmt = conn.createStatement();
+                     PreparedStatement save = conn.prepareStatement(
+                             "INSERT OR REPLACE INTO settings (key, value, description) VALUES (?, ?, ?)")) {
+                    if (stored != null) {
+                        LoggingUtil.logWarning("ContentIndex", "Master key changed, clearing content index.");
+                    }
+                    stmt.executeUpdate("DELETE FROM content_terms");
+                    stmt.executeUpdate("DELETE FROM content_documents");
+                    save.setString(1, KEY_CHECK_SETTING);
+                    save.setString(2, check);
+                    save.setString(3, "Prüfsumme des Schlüssels für den Inhaltsindex");
+                    save.executeUpdate();
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+        }
+        verifiedKey = key;
+        return key;
+    }
+
+    private static Mac newMac(byte[] key) throws GeneralSecurityException {
+        Mac mac = Mac.getInstance("HmacSHA256");
+        mac.init(new SecretKeySpec(key, "HmacSHA256"));
+        return mac;
+    }
+
+    private static byte[] hashTerm(Mac mac, String term) {
+        return Arrays.copyOf(mac.doFinal(term.getBytes(StandardCharsets.UTF_8)), TERM_HASH_BYTES);
+    }
+
+    /**
+     * Zerlegt Text blockweise in normalisierte Wörter (Kleinschreibung, ohne Akzente) und meldet
+     * jedes Wort mit der Position seines ersten Zeichens. Wörter dürfen über Blockgrenzen reichen.
+     */
+    static final class Tokenizer {
+
+        /** Empfänger der Wörter samt Position */
+        private final ObjIntConsumer<String> sink;
+
+        /** Zeichen des aktuellen Wortes */
+        private final StringBuilder current = new StringBuilder();
+
+        /** Position des ersten Zeichens des aktuellen Wortes */
+        private int start;
+
+        /** Position des nächsten Zeichens im gesamten Text */
+        private int position;
+
+        Tokenizer(ObjIntConsumer<String> sink) {
+            this.sink = sink;
+        }
+
+        void accept(char[] buffer, int length) {
+            for (int i = 0; i < length; i++, position++) {
+                char ch = buffer[i];
+                if (Character.isLetterOrDigit(ch) || Character.getType(ch) == Character.NON_SPACING_MARK) {
+                    if (current.length() == 0) {
+                        start = position;
+                    }
+                    current.append(ch);
+                } else if (current.length() > 0) {
+                    emit();
+                }
+            }
+        }
+
+        void finish() {
+            if (current.length() > 0) {
+                emit();
+            }
+        }
+
+        private void emit() {
+            String term = Normalizer.normalize(current, Normalizer.Form.NFD)
+                    .replaceAll("\\p{M}", "")
+                    .toLowerCase(Locale.ROOT);
+            current.setLength(0);
+            if (term.length() >= MIN_TERM_LENGTH && term.length() <= MAX_TERM_LENGTH) {
+                sink.accept(term, start);
+            }
+        }
+    }
+}
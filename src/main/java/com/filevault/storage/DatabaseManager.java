@@ -6,8 +6,14 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
 import java.sql.DriverManager;
+import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.sqlite.SQLiteConnection;
+import org.sqlite.core.Codes;
 
 import com.filevault.util.LoggingUtil;
 
@@ -20,6 +26,7 @@ public class DatabaseManager {
     private static final String TEST_DB_PATH = System.getProperty("user.home") + File.separator + ".filevault" + File.separator + "test_vault.db";
     private static String currentDbPath = DB_PATH;
     private static final String DB_URL_PREFIX = "jdbc:sqlite:";
+    private static final int BUSY_TIMEOUT_MS = 5000;
     
     private static Connection connection;
     
@@ -56,9 +63,7 @@ public class DatabaseManager {
             connection = DriverManager.getConnection(DB_URL_PREFIX + currentDbPath);
             
             // Fremdschlüssel aktivieren
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
-            }
+            configureConnection(connection);
             
             // Prüfen, ob die Tabellenstruktur korrekt ist
             boolean needsRecreate = false;
@@ -76,6 +81,7 @@ public class DatabaseManager {
                     stmt.execute("DROP TABLE IF EXISTS folders");
                     stmt.execute("DROP TABLE IF EXISTS users");
                     stmt.execute("DROP TABLE IF EXISTS settings");
+                    stmt.execute("DROP TABLE IF EXISTS search_index");
                 }
             }
             
@@ -121,14 +127,388 @@ public class DatabaseManager {
                          "mime_type TEXT, " +
                          "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
                          "last_access TIMESTAMP, " +
+                         "tier TEXT NOT NULL DEFAULT 'hot', " +
+                         "version INTEGER NOT NULL DEFAULT 1, " +
                          "FOREIGN KEY (folder_id) REFERENCES folders(id))");
+            addColumnIfMissing(stmt, "files", "tier", "TEXT NOT NULL DEFAULT 'hot'");
+            addColumnIfMissing(stmt, "files", "version", "INTEGER NOT NULL DEFAULT 1");
             
             // Einstellungstabelle
             stmt.execute("CREATE TABLE IF NOT EXISTS settings (" +
                          "key TEXT PRIMARY KEY, " +
                          "value TEXT, " +
                          "description TEXT)");
+            
+            // Warteschlange für das Entfernen verschlüsselter Dateien im Hintergrund
+            stmt.execute("CREATE TABLE IF NOT EXISTS deletion_queue (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "encrypted_path TEXT NOT NULL, " +
+                         "secure_wipe INTEGER NOT NULL DEFAULT 0, " +
+                         "enqueued_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                         "attempts INTEGER NOT NULL DEFAULT 0, " +
+                         "last_error TEXT)");
+            
+            // Absichts-Journal für Importe, deren Dateieintrag noch nicht festgeschrieben ist (WriteJournal)
+            stmt.execute("CREATE TABLE IF NOT EXISTS write_intents (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "encrypted_path TEXT NOT NULL, " +
+                         "folder_id INTEGER, " +
+                         "original_name TEXT NOT NULL, " +
+                         "size_bytes INTEGER, " +
+                         "mime_type TEXT, " +
+                         "owner TEXT, " +
+                         "file_id INTEGER, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+            addColumnIfMissing(stmt, "write_intents", "file_id", "INTEGER");
+            
+            // Ältere Versionen von Dateien (FileVersions); die aktuelle Version steht in files
+            stmt.execute("CREATE TABLE IF NOT EXISTS file_versions (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "file_id INTEGER NOT NULL, " +
+                         "version INTEGER NOT NULL, " +
+                         "kind TEXT NOT NULL, " +
+                         "encrypted_path TEXT NOT NULL, " +
+                         "size_bytes INTEGER, " +
+                         "stored_bytes INTEGER, " +
+                         "mime_type TEXT, " +
+                         "created_at TIMESTAMP, " +
+                         "UNIQUE (file_id, version), " +
+                         "FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_file_versions_path ON file_versions (encrypted_path)");
+            // Blobs gelöschter Versionen (auch beim Löschen der Datei) über die DeletionQueue entfernen
+            stmt.execute("CREATE TRIGGER IF NOT EXISTS file_versions_delete AFTER DELETE ON file_versions BEGIN " +
+                         "INSERT INTO deletion_queue (encrypted_path, secure_wipe) VALUES (OLD.encrypted_path, " +
+                         "COALESCE((SELECT lower(value) = 'true' FROM settings WHERE key = 'secure_delete'), 0)); END");
+            
+            // Snapshots (SnapshotManager): eingefrorene Kopie der Ordner- und Dateieinträge
+            stmt.execute("CREATE TABLE IF NOT EXISTS snapshots (" +
+                         "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                         "name TEXT NOT NULL, " +
+                         "created_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP, " +
+                         "file_count INTEGER NOT NULL DEFAULT 0, " +
+                         "total_bytes INTEGER NOT NULL DEFAULT 0)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS snapshot_folders (" +
+                         "snapshot_id INTEGER NOT NULL, " +
+                         "id INTEGER NOT NULL, " +
+                         "name TEXT NOT NULL, " +
+                         "description TEXT, " +
+                         "parent_id INTEGER, " +
+                         "created_at TIMESTAMP, " +
+                         "PRIMARY KEY (snapshot_id, id), " +
+                         "FOREIGN KEY (snapshot_id) REFERENCES snapshots(id) ON DELETE CASCADE) WITHOUT ROWID");
+            stmt.execute("CREATE TABLE IF NOT EXISTS snapshot_files (" +
+                         "snapshot_id INTEGER NOT NULL, " +
+                         "id INTEGER NOT NULL, " +
+                         "folder_id INTEGER, " +
+                         "original_name TEXT NOT NULL, " +
+                         "encrypted_path TEXT NOT NULL, " +
+                         "size_bytes INTEGER, " +
+                         "mime_type TEXT, " +
+                         "created_at TIMESTAMP, " +
+                         "PRIMARY KEY (snapshot_id, id), " +
+                         "FOREIGN KEY (snapshot_id) REFERENCES snapshots(id) ON DELETE CASCADE) WITHOUT ROWID");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_snapshot_files_folder ON snapshot_files (snapshot_id, folder_id, original_name)");
+            // Referenzzähler der von Snapshots festgehaltenen Blobs; die DeletionQueue lässt sie stehen
+            stmt.execute("CREATE TABLE IF NOT EXISTS snapshot_blobs (" +
+                         "encrypted_path TEXT PRIMARY KEY, " +
+                         "ref_count INTEGER NOT NULL)");
+            
+            // Invertierter Inhaltsindex (ContentIndex): HMAC je Wort statt Klartext
+            stmt.execute("CREATE TABLE IF NOT EXISTS content_terms (" +
+                         "term BLOB NOT NULL, " +
+                         "file_id INTEGER NOT NULL, " +
+                         "frequency INTEGER NOT NULL, " +
+                         "first_offset INTEGER NOT NULL, " +
+                         "PRIMARY KEY (term, file_id), " +
+                         "FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE) WITHOUT ROWID");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_content_terms_file ON content_terms (file_id)");
+            stmt.execute("CREATE TABLE IF NOT EXISTS content_documents (" +
+                         "file_id INTEGER PRIMARY KEY, " +
+                         "status TEXT NOT NULL, " +
+                         "term_count INTEGER NOT NULL DEFAULT 0, " +
+                         "indexed_at TIMESTAMP, " +
+                         "FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE)");
+            
+            // Verschlüsselte Vorschaubilder (PreviewCache), je Datei höchstens eines
+            stmt.execute("CREATE TABLE IF NOT EXISTS previews (" +
+                         "file_id INTEGER PRIMARY KEY, " +
+                         "version INTEGER NOT NULL, " +
+                         "data BLOB NOT NULL, " +
+                         "size_bytes INTEGER NOT NULL, " +
+                         "last_used INTEGER NOT NULL, " +
+                         "FOREIGN KEY (file_id) REFERENCES files(id) ON DELETE CASCADE)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_previews_last_used ON previews (last_used, file_id)");
+            
+            // Indizes für die seitenweise, sortierte Auflistung von Dateien je Ordner
+            // (Keyset-Pagination in FileStorage.listFiles)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_folder_name ON files (folder_id, original_name, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_folder_size ON files (folder_id, size_bytes, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_folder_created ON files (folder_id, created_at, id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_folder_last_access ON files (folder_id, COALESCE(last_access, ''), id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_encrypted_path ON files (encrypted_path)");
+            // Index für Unterordner, z.B. beim rekursiven Löschen und für die Fremdschlüsselprüfung
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_folders_parent ON folders (parent_id)");
+            // Index für die Suche nach selten genutzten Dateien im schnellen Speicher (TieringService)
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_files_tier_access ON files (tier, COALESCE(last_access, created_at), id)");
+            
+            createSearchIndex(stmt);
+            createFolderPaths(stmt);
+            createFolderStats(stmt);
+            createChangeJournal(stmt);
+        }
+    }
+    
+    /**
+     * Erstellt die Abschlusstabelle {@code folder_paths} mit einer Zeile je Paar aus Vorfahre und
+     * Nachfahre samt Abstand (der Ordner selbst mit Abstand 0) und die Trigger, die sie beim
+     * Anlegen, Löschen und Verschieben von Ordnern nachführen. Teilbäume und Vorfahren lassen sich
+     * damit über den Primärschlüssel bzw. {@code idx_folder_paths_descendant} ohne Rekursion
+     * abfragen. Eine neu angelegte Tabelle wird aus den vorhandenen Ordnern befüllt.
+     * @param stmt Das zu verwendende Statement
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void createFolderPaths(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE name = 'folder_paths'")) {
+            exists = rs.next();
+        }
+        stmt.execute("CREATE TABLE IF NOT EXISTS folder_paths (" +
+                     "ancestor INTEGER NOT NULL, " +
+                     "descendant INTEGER NOT NULL, " +
+                     "depth INTEGER NOT NULL, " +
+                     "PRIMARY KEY (ancestor, descendant)) WITHOUT ROWID");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_folder_paths_descendant ON folder_paths (descendant, ancestor)");
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_paths_insert AFTER INSERT ON folders BEGIN " +
+                     "INSERT INTO folder_paths (ancestor, descendant, depth) " +
+                     "SELECT ancestor, new.id, depth + 1 FROM folder_paths WHERE descendant = new.parent_id " +
+                     "UNION ALL SELECT new.id, new.id, 0; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_paths_delete AFTER DELETE ON folders BEGIN " +
+                     "DELETE FROM folder_paths WHERE descendant = old.id; " +
+                     "DELETE FROM folder_paths WHERE ancestor = old.id; END");
+        // Verschieben: Verbindungen des Teilbaums zu seinen bisherigen Vorfahren lösen und
+        // jeden Vorfahren des neuen Elternordners mit jedem Knoten des Teilbaums verbinden
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_paths_move AFTER UPDATE OF parent_id ON folders " +
+                     "WHEN old.parent_id IS NOT new.parent_id BEGIN " +
+                     "DELETE FROM folder_paths " +
+                     "WHERE descendant IN (SELECT descendant FROM folder_paths WHERE ancestor = new.id) " +
+                     "AND ancestor NOT IN (SELECT descendant FROM folder_paths WHERE ancestor = new.id); " +
+                     "INSERT INTO folder_paths (ancestor, descendant, depth) " +
+                     "SELECT a.ancestor, d.descendant, a.depth + d.depth + 1 " +
+                     "FROM folder_paths a JOIN folder_paths d ON d.ancestor = new.id " +
+                     "WHERE a.descendant = new.parent_id; END");
+
+        if (!exists) {
+            stmt.execute("INSERT INTO folder_paths (ancestor, descendant, depth) " +
+                         "WITH RECURSIVE paths(ancestor, descendant, depth) AS (SELECT id, id, 0 FROM folders " +
+                         "UNION ALL SELECT p.ancestor, f.id, p.depth + 1 FROM folders f JOIN paths p ON f.parent_id = p.descendant) " +
+                         "SELECT ancestor, descendant, depth FROM paths");
+        }
+    }
+    
+    /**
+     * Erstellt die Tabelle {@code folder_stats} mit Größe und Dateianzahl je Ordner, direkt und
+     * samt Unterordnern, sowie die Trigger, die sie beim Anlegen, Löschen und Verschieben von
+     * Dateien und Ordnern entlang der Vorfahrenkette nachführen. Die Vorfahren lesen die Trigger
+     * aus {@code folder_paths}, ohne Rekursion über {@code folders}. Da die Trigger Teil der
+     * auslösenden Anweisung sind, sind die Summen immer im selben Transaktionsstand wie die Daten.
+     * Eine neu angelegte Tabelle wird aus den vorhandenen Daten befüllt.
+     * @param stmt Das zu verwendende Statement
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void createFolderStats(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE name = 'folder_stats'")) {
+            exists = rs.next();
+        }
+        stmt.execute("CREATE TABLE IF NOT EXISTS folder_stats (" +
+                     "folder_id INTEGER PRIMARY KEY, " +
+                     "direct_bytes INTEGER NOT NULL DEFAULT 0, " +
+                     "direct_files INTEGER NOT NULL DEFAULT 0, " +
+                     "total_bytes INTEGER NOT NULL DEFAULT 0, " +
+                     "total_files INTEGER NOT NULL DEFAULT 0)");
+
+        // Trigger älterer Datenbanken, die die Vorfahren noch rekursiv ermitteln, ersetzen
+        List<String> outdated = new ArrayList<>();
+        try (ResultSet rs = stmt.executeQuery("SELECT name FROM sqlite_master WHERE type = 'trigger' " +
+                                              "AND name LIKE 'folder_stats_%' AND sql LIKE '%WITH RECURSIVE%'")) {
+            while (rs.next()) {
+                outdated.add(rs.getString(1));
+            }
+        }
+        for (String trigger : outdated) {
+            stmt.execute("DROP TRIGGER " + trigger);
+        }
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_files_insert AFTER INSERT ON files BEGIN " +
+                     adjustFolderStats("new.folder_id", "COALESCE(new.size_bytes, 0)", "1") + " END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_files_delete AFTER DELETE ON files BEGIN " +
+                     adjustFolderStats("old.folder_id", "-COALESCE(old.size_bytes, 0)", "-1") + " END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_files_update AFTER UPDATE OF folder_id, size_bytes ON files " +
+                     "WHEN old.folder_id IS NOT new.folder_id OR old.size_bytes IS NOT new.size_bytes BEGIN " +
+                     adjustFolderStats("old.folder_id", "-COALESCE(old.size_bytes, 0)", "-1") + " " +
+                     adjustFolderStats("new.folder_id", "COALESCE(new.size_bytes, 0)", "1") + " END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_folders_insert AFTER INSERT ON folders BEGIN " +
+                     "INSERT OR IGNORE INTO folder_stats (folder_id) VALUES (new.id); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_folders_move AFTER UPDATE OF parent_id ON folders " +
+                     "WHEN old.parent_id IS NOT new.parent_id BEGIN " +
+                     "UPDATE folder_stats SET " +
+                     "total_bytes = total_bytes - (SELECT total_bytes FROM folder_stats WHERE folder_id = new.id), " +
+                     "total_files = total_files - (SELECT total_files FROM folder_stats WHERE folder_id = new.id) " +
+                     "WHERE folder_id IN " + ancestorsOf("old.parent_id") + "; " +
+                     "UPDATE folder_stats SET " +
+                     "total_bytes = total_bytes + (SELECT total_bytes FROM folder_stats WHERE folder_id = new.id), " +
+                     "total_files = total_files + (SELECT total_files FROM folder_stats WHERE folder_id = new.id) " +
+                     "WHERE folder_id IN " + ancestorsOf("new.parent_id") + "; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS folder_stats_folders_delete AFTER DELETE ON folders BEGIN " +
+                     "UPDATE folder_stats SET " +
+                     "total_bytes = total_bytes - (SELECT total_bytes FROM folder_stats WHERE folder_id = old.id), " +
+                     "total_files = total_files - (SELECT total_files FROM folder_stats WHERE folder_id = old.id) " +
+                     "WHERE folder_id IN " + ancestorsOf("old.parent_id") + "; " +
+                     "DELETE FROM folder_stats WHERE folder_id = old.id; END");
+
+        if (!exists) {
+            stmt.execute("INSERT INTO folder_stats (folder_id, direct_bytes, direct_files, total_bytes, total_files) " +
+                         FolderStats.RECOMPUTE_SQL);
+        }
+    }
+    
+    /**
+     * Erzeugt die Anweisungen eines Triggers, die Größe und Anzahl einer Datei zu den direkten
+     * Summen ihres Ordners und den Gesamtsummen aller Vorfahren addieren.
+     * @param folderId Ausdruck für die Ordner-ID, z.B. {@code new.folder_id}
+     * @param bytes Ausdruck für die zu addierende Größe
+     * @param files Zu addierende Dateianzahl
+     * @return Die Anweisungen, jeweils mit Semikolon abgeschlossen
+     */
+    private static String adjustFolderStats(String folderId, String bytes, String files) {
+        return "UPDATE folder_stats SET direct_bytes = direct_bytes + " + bytes + ", " +
+               "direct_files = direct_files + " + files + " WHERE folder_id = " + folderId + "; " +
+               "UPDATE folder_stats SET total_bytes = total_bytes + " + bytes + ", " +
+               "total_files = total_files + " + files + " WHERE folder_id IN " + ancestorsOf(folderId) + ";";
+    }
+    
+    /**
+     * Erzeugt eine Unterabfrage mit einem Ordner und allen seinen Vorfahren, gelesen aus
+     * {@code folder_paths} über {@code idx_folder_paths_descendant}. Die Vorfahrenkette eines
+     * Elternordners bleibt beim Verschieben und Löschen seiner Unterordner unverändert, daher
+     * hängt das Ergebnis nicht von der Reihenfolge der Trigger ab.
+     * @param folderId Ausdruck für die Ordner-ID
+     * @return Die Unterabfrage in Klammern
+     */
+    private static String ancestorsOf(String folderId) {
+        return "(SELECT ancestor FROM folder_paths WHERE descendant = " + folderId + ")";
+    }
+    
+    /**
+     * Erzeugt eine Unterabfrage mit einem Ordner und allen seinen Nachfahren, gelesen aus
+     * {@code folder_paths} über deren Primärschlüssel.
+     * @param folderId Ausdruck für die Ordner-ID, z.B. {@code ?}
+     * @return Die Unterabfrage in Klammern
+     */
+    public static String subtreeOf(String folderId) {
+        return "(SELECT descendant FROM folder_paths WHERE ancestor = " + folderId + ")";
+    }
+    
+    /**
+     * Erstellt den Volltextindex (FTS5) über Datei- und Ordnermetadaten samt Triggern, die ihn
+     * bei jeder Änderung an {@code files} und {@code folders} nachführen. Dateien werden unter
+     * der rowid {@code 2 * id}, Ordner unter {@code 2 * id + 1} geführt, damit Trigger ihre
+     * Zeile ohne Suche finden. Ein neu angelegter Index wird aus den vorhandenen Daten befüllt.
+     * @param stmt Das zu verwendende Statement
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void createSearchIndex(Statement stmt) throws SQLException {
+        boolean exists;
+        try (ResultSet rs = stmt.executeQuery("SELECT 1 FROM sqlite_master WHERE name = 'search_index'")) {
+            exists = rs.next();
+        }
+        stmt.execute("CREATE VIRTUAL TABLE IF NOT EXISTS search_index USING fts5(" +
+                     "kind UNINDEXED, ref_id UNINDEXED, folder_id UNINDEXED, " +
+                     "name, mime_type, folder, description, " +
+                     "tokenize = 'unicode61 remove_diacritics 2', prefix = '2 3')");
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_files_insert AFTER INSERT ON files BEGIN " +
+                     "INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, mime_type, folder) " +
+                     "VALUES (2 * new.id, 'file', new.id, new.folder_id, new.original_name, new.mime_type, " +
+                     "(SELECT name FROM folders WHERE id = new.folder_id)); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_files_update AFTER UPDATE OF original_name, mime_type, folder_id ON files BEGIN " +
+                     "UPDATE search_index SET folder_id = new.folder_id, name = new.original_name, mime_type = new.mime_type, " +
+                     "folder = (SELECT name FROM folders WHERE id = new.folder_id) WHERE rowid = 2 * new.id; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_files_delete AFTER DELETE ON files BEGIN " +
+                     "DELETE FROM search_index WHERE rowid = 2 * old.id; END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_folders_insert AFTER INSERT ON folders BEGIN " +
+                     "INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, description) " +
+                     "VALUES (2 * new.id + 1, 'folder', new.id, new.parent_id, new.name, new.description); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_folders_update AFTER UPDATE OF name, description, parent_id ON folders BEGIN " +
+                     "UPDATE search_index SET folder_id = new.parent_id, name = new.name, description = new.description " +
+                     "WHERE rowid = 2 * new.id + 1; " +
+                     "UPDATE search_index SET folder = new.name " +
+                     "WHERE new.name IS NOT old.name AND rowid IN (SELECT 2 * id FROM files WHERE folder_id = new.id); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS search_folders_delete AFTER DELETE ON folders BEGIN " +
+                     "DELETE FROM search_index WHERE rowid = 2 * old.id + 1; END");
+
+        if (!exists) {
+            stmt.execute("INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, description) " +
+                         "SELECT 2 * id + 1, 'folder', id, parent_id, name, description FROM folders");
+            stmt.execute("INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, mime_type, folder) " +
+                         "SELECT 2 * f.id, 'file', f.id, f.folder_id, f.original_name, f.mime_type, d.name " +
+                         "FROM files f LEFT JOIN folders d ON d.id = f.folder_id");
+        }
+    }
+    
+    /**
+     * Erstellt das Änderungsprotokoll {@code changes} (siehe {@link ChangeJournal}) und die Trigger,
+     * die jede Änderung an Dateien und Ordnern mit fortlaufender Sequenznummer eintragen. Als Teil
+     * der auslösenden Anweisung liegt der Eintrag immer in derselben Transaktion wie die Änderung.
+     * Interne Änderungen wie Speicherort, Speicherklasse oder letzter Zugriff werden nicht erfasst.
+     * @param stmt Das zu verwendende Statement
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void createChangeJournal(Statement stmt) throws SQLException {
+        // AUTOINCREMENT: Sequenznummern werden auch nach dem Verdichten nie wiederverwendet
+        stmt.execute("CREATE TABLE IF NOT EXISTS changes (" +
+                     "seq INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                     "entity TEXT NOT NULL, " +
+                     "entity_id INTEGER NOT NULL, " +
+                     "operation TEXT NOT NULL, " +
+                     "changed_at TIMESTAMP DEFAULT CURRENT_TIMESTAMP)");
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_changes_entity ON changes (entity, entity_id, seq)");
+
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_files_insert AFTER INSERT ON files BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('file', new.id, 'create'); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_files_update " +
+                     "AFTER UPDATE OF folder_id, original_name, size_bytes, mime_type, version ON files BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('file', new.id, 'update'); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_files_delete AFTER DELETE ON files BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('file', old.id, 'delete'); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_folders_insert AFTER INSERT ON folders BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('folder', new.id, 'create'); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_folders_update " +
+                     "AFTER UPDATE OF name, description, parent_id ON folders BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('folder', new.id, 'update'); END");
+        stmt.execute("CREATE TRIGGER IF NOT EXISTS changes_folders_delete AFTER DELETE ON folders BEGIN " +
+                     "INSERT INTO changes (entity, entity_id, operation) VALUES ('folder', old.id, 'delete'); END");
+    }
+    
+    /**
+     * Ergänzt eine Spalte in einer bestehenden Tabelle, die mit einer älteren Version angelegt wurde.
+     * @param stmt Das zu verwendende Statement
+     * @param table Der Tabellenname
+     * @param column Der Spaltenname
+     * @param definition Typ und Standardwert der Spalte
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void addColumnIfMissing(Statement stmt, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equalsIgnoreCase(rs.getString("name"))) {
+                    return;
+                }
+            }
         }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+        LoggingUtil.logDatabase("Migrate", table, "Added column " + column);
     }
     
     /**
@@ -140,14 +520,97 @@ public class DatabaseManager {
         if (connection == null || connection.isClosed()) {
             LoggingUtil.logDatabase("Connection", "Database", "Establishing new database connection.");
             connection = DriverManager.getConnection(DB_URL_PREFIX + currentDbPath);
-            try (Statement stmt = connection.createStatement()) {
-                stmt.execute("PRAGMA foreign_keys = ON");
-            }
+            configureConnection(connection);
             LoggingUtil.logDatabase("Connection", "Database", "Database connection established.");
         }
         return connection;
     }
     
+    /**
+     * Gibt den Pfad der aktuell verwendeten Datenbankdatei zurück.
+     * @return Der Pfad der Datenbankdatei
+     */
+    public static String getCurrentDbPath() {
+        return currentDbPath;
+    }
+    
+    /**
+     * Öffnet eine neue, eigenständige Verbindung zur aktuellen Datenbank.
+     * Für Hintergrund-Threads gedacht, die nicht die gemeinsame Verbindung aus
+     * {@link #getConnection()} verwenden dürfen, weil diese von anderen Aufrufern
+     * jederzeit geschlossen werden kann. Der Aufrufer muss die Verbindung selbst schließen.
+     * @return Eine neue Verbindung zur Datenbank
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public static Connection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(DB_URL_PREFIX + currentDbPath);
+        configureConnection(conn);
+        return conn;
+    }
+    
+    /**
+     * Öffnet eine eigenständige Verbindung zu einer anderen Datenbankdatei, z.B. einer
+     * Sicherungskopie. Der Aufrufer muss die Verbindung selbst schließen.
+     * @param database Die Datenbankdatei
+     * @return Eine neue Verbindung zur Datei
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public static Connection openConnection(Path database) throws SQLException {
+        Connection conn = DriverManager.getConnection(DB_URL_PREFIX + database.toAbsolutePath());
+        configureConnection(conn);
+        return conn;
+    }
+
+    /**
+     * Schreibt eine konsistente Kopie der aktuellen Datenbank über die Online-Backup-Schnittstelle
+     * von SQLite. Andere Verbindungen können währenddessen weiter lesen und schreiben. Der Pfad
+     * wird direkt an den Treiber übergeben und nicht in eine SQL-Anweisung eingesetzt, sodass
+     * beliebige Dateinamen (auch mit Anführungszeichen) möglich sind.
+     * @param target Die Zieldatei; eine vorhandene Datei wird überschrieben
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public static void backupTo(Path target) throws SQLException {
+        try (Connection conn = openConnection()) {
+            int rc = conn.unwrap(SQLiteConnection.class).getDatabase()
+                    .backup("main", target.toAbsolutePath().toString(), null);
+            if (rc != Codes.SQLITE_OK) {
+                throw new SQLException("Sicherung nach " + target + " fehlgeschlagen (SQLite-Code " + rc + ")");
+            }
+        }
+        LoggingUtil.logDatabase("Backup", "Database", "Database copied to " + target);
+    }
+
+    /**
+     * Ersetzt den Inhalt der aktuellen Datenbank durch eine mit {@link #backupTo(Path)} erstellte
+     * Kopie und bringt deren Schema auf den aktuellen Stand.
+     * @param source Die Sicherungskopie
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public static void restoreFrom(Path source) throws SQLException {
+        int rc = getConnection().unwrap(SQLiteConnection.class).getDatabase()
+                .restore("main", source.toAbsolutePath().toString(), null);
+        if (rc != Codes.SQLITE_OK) {
+            throw new SQLException("Wiederherstellen aus " + source + " fehlgeschlagen (SQLite-Code " + rc + ")");
+        }
+        createTables();
+        LoggingUtil.logDatabase("Restore", "Database", "Database restored from " + source);
+    }
+
+    /**
+     * Setzt die Verbindungsoptionen, die jede Verbindung benötigt.
+     * Neben den Fremdschlüsseln wird ein Busy-Timeout gesetzt, damit sich mehrere
+     * Verbindungen (z.B. GUI und Hintergrund-Threads) beim Schreiben abwechseln,
+     * statt sofort mit SQLITE_BUSY abzubrechen.
+     * @param conn Die zu konfigurierende Verbindung
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private static void configureConnection(Connection conn) throws SQLException {
+        try (Statement stmt = conn.createStatement()) {
+            stmt.execute("PRAGMA foreign_keys = ON");
+            stmt.execute("PRAGMA busy_timeout = " + BUSY_TIMEOUT_MS);
+        }
+    }
+    
     /**
      * Schließt alle Datenbankverbindungen.
      */
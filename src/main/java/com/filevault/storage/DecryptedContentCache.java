@@ -0,0 +1,443 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.model.UserManager;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Zwischenspeicher für den entschlüsselten Inhalt kleiner Dateien, die über die API immer
+ * wieder abgerufen werden. Der Inhalt liegt in Direct-Buffern außerhalb des Java-Heaps und
+ * belastet daher die Garbage Collection nicht; verdrängt wird der am längsten nicht abgerufene
+ * Inhalt, sobald das Speicherbudget überschritten ist.
+ * <p>
+ * Treffer werden direkt aus einer schreibgeschützten Sicht auf den Buffer gestreamt, ohne den
+ * Klartext auf den Heap zu kopieren.
+ * <p>
+ * Da der Cache Klartext enthält, gehört er zur angemeldeten Sitzung: Er wird beim Abmelden,
+ * bei einem Wechsel des Master-Schlüssels und beim Wiederherstellen einer Sicherung überschrieben
+ * und geleert; noch offene Datenströme melden danach einen Fehler. Einträge gelten je Datei und
+ * Version; beim Löschen oder Ersetzen einer Datei werden ihre Einträge entfernt, verdrängte und
+ * entfernte Einträge werden überschrieben, sobald sie niemand mehr liest.
+ * <p>
+ * Einstellungen über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.contentCache.maxBytes} – Speicherbudget in Bytes (Standard 0 = ausgeschaltet)</li>
+ *   <li>{@code filevault.contentCache.maxEntryBytes} – größte zwischengespeicherte Datei (Standard 256 KiB)</li>
+ * </ul>
+ */
+public class DecryptedContentCache {
+
+    /** Größe des Blocks, mit dem Einträge vor dem Freigeben überschrieben werden */
+    private static final int WIPE_CHUNK = 8192;
+
+    /** Die einzige Instanz des DecryptedContentCache */
+    private static DecryptedContentCache instance;
+
+    /** Einträge je Datei und Version in Zugriffsreihenfolge, der älteste zuerst */
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+
+    /** Entfernte Einträge, die noch über offene Datenströme gelesen werden */
+    private final List<Entry> retired = new ArrayList<>();
+
+    /** Speicherbudget in Bytes, 0 wenn der Cache ausgeschaltet ist */
+    private volatile long maxBytes;
+
+    /** Größte zwischengespeicherte Datei in Bytes */
+    private volatile int maxEntryBytes;
+
+    /** Belegter Speicher in Bytes */
+    private long bytesHeld;
+
+    /** Master-Schlüssel der Sitzung, zu der die Einträge gehören */
+    private byte[] owner;
+
+    /** Anzahl der aus dem Cache bedienten Abrufe */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** Anzahl der Abrufe, für die entschlüsselt werden musste */
+    private final AtomicLong missCount = new AtomicLong();
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private DecryptedContentCache() {
+        maxBytes = Math.max(0, Long.getLong("filevault.contentCache.maxBytes", 0));
+        maxEntryBytes = Math.max(0, Integer.getInteger("filevault.contentCache.maxEntryBytes", 256 * 1024));
+    }
+
+    /**
+     * Gibt die einzige Instanz des DecryptedContentCache zurück.
+     *
+     * @return Die Singleton-Instanz des DecryptedContentCache
+     */
+    public static synchronized DecryptedContentCache getInstance() {
+        if (instance == null) {
+            instance = new DecryptedContentCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Ändert die Einstellungen zur Laufzeit. Einträge über dem neuen Budget werden verdrängt.
+     *
+     * @param maxBytes Speicherbudget in Bytes, 0 schaltet den Cache aus
+     * @param maxEntryBytes Größte zwischengespeicherte Datei in Bytes
+     */
+    public synchronized void configure(long maxBytes, int maxEntryBytes) {
+        this.maxBytes = Math.max(0, maxBytes);
+        this.maxEntryBytes = Math.max(0, maxEntryBytes);
+        evict();
+    }
+
+    /**
+     * Prüft, ob der Cache eingeschaltet ist.
+     *
+     * @return true, wenn ein Speicherbudget gesetzt ist
+     */
+    public boolean isEnabled() {
+        return maxBytes > 0;
+    }
+
+    /**
+     * Öffnet den entschlüsselten Inhalt der aktuellen Version einer Datei.
+     *
+     * @param fileId Die ID der Datei
+     * @return Der Inhalt; muss vom Aufrufer geschlossen werden
+     * @throws IOException wenn der Inhalt nicht gelesen werden kann
+     * @throws SQLException wenn die Datei nicht existiert oder ein Datenbankfehler auftritt
+     */
+    public InputStream openCurrent(int fileId) throws IOException, SQLException {
+        int version;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT version FROM files WHERE id = ?")) {
+            stmt.setInt(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Datei " + fileId + " nicht gefunden");
+                }
+                version = rs.getInt(1);
+            }
+        }
+        return open(fileId, version);
+    }
+
+    /**
+     * Öffnet den entschlüsselten Inhalt einer Version, aus dem Cache oder über {@link FileVersions}.
+     * Kleine Dateien werden dabei in den Cache übernommen.
+     *
+     * @param fileId Die ID der Datei
+     * @param version Die Versionsnummer
+     * @return Der Inhalt; muss vom Aufrufer geschlossen werden
+     * @throws IOException wenn der Inhalt nicht gelesen werden kann
+     * @throws SQLException wenn die Version nicht existiert oder ein Datenbankfehler auftritt
+     */
+    public InputStream open(int fileId, int version) throws IOException, SQLException {
+        byte[] session = UserManager.getInstance().getMasterKey();
+        if (!isEnabled() || session == null) {
+            return FileVersions.getInstance().open(fileId, version);
+        }
+        long key = key(fileId, version);
+        InputStream cached = get(key, session);
+        if (cached != null) {
+            hitCount.incrementAndGet();
+            return cached;
+        }
+        missCount.incrementAndGet();
+
+        InputStream in = FileVersions.getInstance().open(fileId, version);
+        byte[] head;
+        try {
+            head = in.readNBytes(maxEntryBytes + 1);
+        } catch (IOException e) {
+            in.close();
+            throw e;
+        }
+        if (head.length > maxEntryBytes) {
+            // Zu groß für den Cache: bereits gelesenen Anfang und Rest nacheinander ausliefern
+            return new SequenceInputStream(new ByteArrayInputStream(head), in);
+        }
+        in.close();
+        put(key, head, session);
+        InputStream stored = get(key, session);
+        if (stored != null) {
+            // Der Klartext liegt jetzt im Cache, die Kopie auf dem Heap wird nicht mehr gebraucht
+            Arrays.fill(head, (byte) 0);
+            return stored;
+        }
+        return new ByteArrayInputStream(head);
+    }
+
+    /**
+     * Entfernt alle Einträge einer Datei, z.B. nach dem Löschen oder Ersetzen.
+     *
+     * @param fileId Die ID der Datei
+     */
+    public synchronized void invalidate(int fileId) {
+        Iterator<Map.Entry<Long, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, Entry> entry = iterator.next();
+            if ((int) (entry.getKey() >>> 32) == fileId) {
+                iterator.remove();
+                retire(entry.getValue());
+            }
+        }
+    }
+
+    /**
+     * Überschreibt und entfernt alle Einträge, z.B. beim Abmelden oder nach dem Wiederherstellen
+     * einer Sicherung. Auch gerade gelesene Einträge werden sofort überschrieben; ihre
+     * Datenströme melden beim nächsten Lesen einen Fehler.
+     */
+    public synchronized void clear() {
+        int count = entries.size();
+        entries.values().forEach(this::wipe);
+        entries.clear();
+        retired.forEach(this::wipe);
+        retired.clear();
+        bytesHeld = 0;
+        owner = null;
+        if (count > 0) {
+            LoggingUtil.logInfo("DecryptedContentCache", count + " cached entries wiped.");
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     *
+     * @return Die Anzahl der Einträge
+     */
+    public synchronized int getEntryCount() {
+        return entries.size();
+    }
+
+    /**
+     * Gibt den belegten Speicher zurück.
+     *
+     * @return Der belegte Speicher in Bytes
+     */
+    public synchronized long getBytesHeld() {
+        return bytesHeld;
+    }
+
+    /**
+     * Gibt die Anzahl der aus dem Cache bedienten Abrufe seit dem Start zurück.
+     *
+     * @return Die Anzahl der Treffer
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der Abrufe seit dem Start zurück, für die entschlüsselt werden musste.
+     *
+     * @return Die Anzahl der Fehlgriffe
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * Gibt den Anteil der aus dem Cache bedienten Abrufe zurück.
+     *
+     * @return Die Trefferquote zwischen 0 und 1, 0 wenn noch nichts abgerufen wurde
+     */
+    public double getHitRatio() {
+        long hits = hitCount.get();
+        long total = hits + missCount.get();
+        return total == 0 ? 0 : (double) hits / total;
+    }
+
+    private synchronized InputStream get(long key, byte[] session) {
+        if (owner != session) {
+            return null;
+        }
+        Entry entry = entries.get(key);
+        if (entry == null) {
+            return null;
+        }
+        entry.readers++;
+        return new CachedContentStream(entry);
+    }
+
+    private synchronized void put(long key, byte[] content, byte[] session) {
+        if (UserManager.getInstance().getMasterKey() != session) {
+            // Während des Entschlüsselns abgemeldet
+            return;
+        }
+        if (owner != session) {
+            // Neue Sitzung oder neuer Master-Schlüssel: Inhalte der alten Sitzung nicht weiterverwenden
+            clear();
+            owner = session;
+        }
+        if (content.length > maxBytes || entries.containsKey(key)) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.allocateDirect(content.length);
+        buffer.put(content);
+        entries.put(key, new Entry(buffer));
+        bytesHeld += content.length;
+        evict();
+    }
+
+    /**
+     * Verdrängt die am längsten nicht abgerufenen Einträge, bis das Budget eingehalten ist.
+     */
+    private void evict() {
+        Iterator<Entry> iterator = entries.values().iterator();
+        while (bytesHeld > maxBytes && iterator.hasNext()) {
+            Entry entry = iterator.next();
+            iterator.remove();
+            retire(entry);
+        }
+    }
+
+    /**
+     * Nimmt einen aus {@link #entries} entfernten Eintrag aus dem Budget. Überschrieben wird er
+     * sofort oder, solange ihn noch ein Datenstrom liest, beim Schließen des letzten.
+     */
+    private void retire(Entry entry) {
+        bytesHeld -= entry.buffer.capacity();
+        if (entry.readers == 0) {
+            wipe(entry);
+        } else {
+            retired.add(entry);
+        }
+    }
+
+    /**
+     * Überschreibt einen Eintrag mit Nullen; der Speicher wird anschließend vom JDK freigegeben.
+     */
+    private void wipe(Entry entry) {
+        entry.wiped = true;
+        ByteBuffer buffer = entry.buffer;
+        byte[] zeros = new byte[Math.min(WIPE_CHUNK, buffer.capacity())];
+        buffer.clear();
+        while (buffer.hasRemaining()) {
+            buffer.put(zeros, 0, Math.min(zeros.length, buffer.remaining()));
+        }
+    }
+
+    /**
+     * Wird von einem Datenstrom beim Schließen aufgerufen.
+     */
+    private synchronized void closed(Entry entry) {
+        entry.readers--;
+        if (entry.readers == 0 && retired.remove(entry)) {
+            wipe(entry);
+        }
+    }
+
+    private static long key(int fileId, int version) {
+        return ((long) fileId << 32) | (version & 0xffffffffL);
+    }
+
+    /**
+     * Zwischengespeicherter Inhalt samt Anzahl der offenen Datenströme.
+     */
+    private static final class Entry {
+        final ByteBuffer buffer;
+
+        /** Anzahl der offenen Datenströme, geschützt durch die Sperre des Caches */
+        int readers;
+
+        /** Gesetzt, bevor der Inhalt überschrieben wird */
+        volatile boolean wiped;
+
+        Entry(ByteBuffer buffer) {
+            this.buffer = buffer;
+        }
+    }
+
+    /**
+     * Liest einen Eintrag über eine eigene, schreibgeschützte Sicht auf den Direct-Buffer.
+     * Wird der Eintrag währenddessen überschrieben, schlägt das Lesen fehl, statt Nullen zu liefern.
+     */
+    private final class CachedContentStream extends InputStream {
+
+        private final Entry entry;
+
+        private final ByteBuffer view;
+
+        private boolean closed;
+
+        CachedContentStream(Entry entry) {
+            this.entry = entry;
+            this.view = entry.buffer.asReadOnlyBuffer().clear();
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkReadable();
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            int b = view.get() & 0xff;
+            checkReadable();
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            checkReadable();
+            if (length == 0) {
+                return 0;
+            }
+            if (!view.hasRemaining()) {
+                return -1;
+            }
+            int n = Math.min(length, view.remaining());
+            view.get(buffer, offset, n);
+            // Erst nach dem Kopieren prüfen, ob der Inhalt inzwischen überschrieben wurde
+            checkReadable();
+            return n;
+        }
+
+        @Override
+        public long skip(long n) throws IOException {
+            checkReadable();
+            int skipped = (int) Math.max(0, Math.min(n, view.remaining()));
+            view.position(view.position() + skipped);
+            return skipped;
+        }
+
+        @Override
+        public int available() throws IOException {
+            checkReadable();
+            return view.remaining();
+        }
+
+        @Override
+        public void close() {
+            if (!closed) {
+                closed = true;
+                closed(entry);
+            }
+        }
+
+        private void checkReadable() throws IOException {
+            if (closed) {
+                throw new IOException("Datenstrom ist geschlossen");
+            }
+            if (entry.wiped) {
+                throw new IOException("Zwischengespeicherter Inhalt wurde verworfen");
+            }
+        }
+    }
+}
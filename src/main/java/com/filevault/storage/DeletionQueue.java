@@ -0,0 +1,551 @@
+package com.filevault.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.security.SecureRandom;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.LocalBlobStore;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Dauerhafte Warteschlange für das Entfernen verschlüsselter Dateien.
+ * Beim Löschen wird nur ein Eintrag in {@code deletion_queue} (Tombstone) in derselben
+ * Transaktion wie das Entfernen der Metadaten geschrieben. Ein Hintergrund-Thread
+ * entfernt die Dateien anschließend blockweise, optional nach vorherigem Überschreiben.
+ * Innerhalb eines Blocks werden die Dateien von mehreren Threads parallel entfernt
+ * ({@code filevault.deletion.threads}, Standard 4).
+ * Da die Warteschlange in der Datenbank liegt, wird ein nicht abgearbeiteter Rest
+ * nach einem Neustart fortgesetzt.
+ */
+public class DeletionQueue {
+
+    /** Anzahl der Einträge, die pro Durchlauf verarbeitet werden */
+    private static final int BATCH_SIZE = 500;
+
+    /**
+     * Anzahl der Einträge, die unter einer Schreibsperre geprüft und entfernt werden. Hält die
+     * Sperre kurz genug, damit gleichzeitige Schreibzugriffe nicht in das Busy-Timeout laufen.
+     */
+    private static final int LOCK_CHUNK_SIZE = 32;
+
+    /** Intervall, in dem die Warteschlange auch ohne Anstoß geprüft wird */
+    private static final long POLL_INTERVAL_MS = 10000;
+
+    /** Nach so vielen Fehlversuchen wird ein Eintrag nicht mehr automatisch versucht */
+    private static final int MAX_ATTEMPTS = 5;
+
+    /** Schlüssel der Einstellung für sicheres Löschen in der Tabelle settings */
+    private static final String SECURE_WIPE_SETTING = "secure_delete";
+
+    /** Puffergröße für das Überschreiben beim sicheren Löschen */
+    private static final int WIPE_BUFFER_SIZE = 64 * 1024;
+
+    /** Die einzige Instanz der DeletionQueue */
+    private static DeletionQueue instance;
+
+    /** Anzahl der bisher entfernten Dateien */
+    private final AtomicLong processedCount = new AtomicLong();
+
+    /** Anzahl der bisher fehlgeschlagenen Versuche */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Verhindert parallele Durchläufe */
+    private final Object processLock = new Object();
+
+    /** Anzahl der laufenden Sicherungen und Wiederherstellungen, während derer nichts entfernt wird */
+    private final AtomicInteger holds = new AtomicInteger();
+
+    /** Hintergrund-Thread, null solange die Warteschlange nicht gestartet ist */
+    private ScheduledExecutorService worker;
+
+    /** Threads zum parallelen Entfernen der Dateien eines Blocks, null solange nicht gestartet */
+    private volatile ExecutorService unlinkPool;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private DeletionQueue() {
+    }
+
+    /**
+     * Gibt die einzige Instanz der DeletionQueue zurück.
+     *
+     * @return Die Singleton-Instanz der DeletionQueue
+     */
+    public static synchronized DeletionQueue getInstance() {
+        if (instance == null) {
+            instance = new DeletionQueue();
+        }
+        return instance;
+    }
+
+    /**
+     * Reiht eine verschlüsselte Datei zum Entfernen ein. Muss in derselben Transaktion
+     * aufgerufen werden, in der der zugehörige Dateieintrag gelöscht wird.
+     *
+     * @param conn Die Verbindung der laufenden Transaktion
+     * @param encryptedPath Der Pfad der verschlüsselten Datei
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public void enqueue(Connection conn, String encryptedPath) throws SQLException {
+        if (encryptedPath == null || encryptedPath.isEmpty()) {
+            return;
+        }
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO deletion_queue (encrypted_path, secure_wipe) VALUES (?, ?)")) {
+            stmt.setString(1, encryptedPath);
+            stmt.setBoolean(2, isSecureWipe(conn));
+            stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Reiht die verschlüsselte Datei eines Dateieintrags zum Entfernen ein. Muss in derselben
+     * Transaktion und vor dem Löschen des Dateieintrags aufgerufen werden.
+     *
+     * @param conn Die Verbindung der laufenden Transaktion
+     * @param fileId Die ID des Dateieintrags
+     * @return true, wenn eine Datei eingereiht wurde
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public boolean enqueueFile(Connection conn, int fileId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO deletion_queue (encrypted_path, secure_wipe) " +
+                "SELECT encrypted_path, ? FROM files WHERE id = ? AND encrypted_path <> ''")) {
+            stmt.setBoolean(1, isSecureWipe(conn));
+            stmt.setInt(2, fileId);
+            return stmt.executeUpdate() > 0;
+        }
+    }
+
+    /**
+     * Reiht alle verschlüsselten Dateien eines Ordners zum Entfernen ein. Muss in derselben
+     * Transaktion aufgerufen werden, in der die Dateieinträge des Ordners gelöscht werden.
+     *
+     * @param conn Die Verbindung der laufenden Transaktion
+     * @param folderId Die ID des Ordners
+     * @return Die Anzahl der eingereihten Dateien
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public int enqueueFolder(Connection conn, int folderId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO deletion_queue (encrypted_path, secure_wipe) " +
+                "SELECT encrypted_path, ? FROM files WHERE folder_id = ? AND encrypted_path <> ''")) {
+            stmt.setBoolean(1, isSecureWipe(conn));
+            stmt.setInt(2, folderId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Reiht alle verschlüsselten Dateien eines Ordners und aller seiner Unterordner zum Entfernen
+     * ein. Muss in derselben Transaktion aufgerufen werden, in der die Dateieinträge gelöscht werden.
+     *
+     * @param conn Die Verbindung der laufenden Transaktion
+     * @param folderId Die ID des obersten Ordners
+     * @return Die Anzahl der eingereihten Dateien
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public int enqueueFolderTree(Connection conn, int folderId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO deletion_queue (encrypted_path, secure_wipe) " +
+                "SELECT encrypted_path, ? FROM files WHERE folder_id IN " + DatabaseManager.subtreeOf("?") +
+                " AND encrypted_path <> ''")) {
+            stmt.setBoolean(1, isSecureWipe(conn));
+            stmt.setInt(2, folderId);
+            return stmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Startet den Hintergrund-Thread. Ein bereits vorhandener Rückstand wird sofort abgearbeitet.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-deletion-worker");
+            thread.setDaemon(true);
+            return thread;
+        });
+        int threads = Math.max(1, Integer.getInteger("filevault.deletion.threads", 4));
+        unlinkPool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "filevault-deletion-unlink");
+            thread.setDaemon(true);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::processPending, 0, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+        LoggingUtil.logInfo("DeletionQueue", "Deletion worker started.");
+    }
+
+    /**
+     * Stößt die Verarbeitung an, ohne auf das nächste Intervall zu warten.
+     */
+    public synchronized void wakeUp() {
+        if (worker != null) {
+            worker.execute(this::processPending);
+        }
+    }
+
+    /**
+     * Hält das Entfernen an, z.B. während einer Sicherung, die sich auf den Bestand der Blobs
+     * verlassen muss. Wartet, bis ein laufender Durchlauf abgeschlossen ist. Jeder Aufruf muss
+     * durch {@link #release()} aufgehoben werden.
+     */
+    public void hold() {
+        synchronized (processLock) {
+            holds.incrementAndGet();
+        }
+    }
+
+    /**
+     * Hebt ein {@link #hold()} auf. Nach dem letzten Aufruf wird die Verarbeitung angestoßen.
+     */
+    public void release() {
+        if (holds.decrementAndGet() == 0) {
+            wakeUp();
+        }
+    }
+
+    /**
+     * Prüft, ob das Entfernen gerade durch {@link #hold()} angehalten ist.
+     *
+     * @return true, solange mindestens ein {@link #hold()} nicht aufgehoben wurde
+     */
+    public boolean isHeld() {
+        return holds.get() > 0;
+    }
+
+    /**
+     * Beendet den Hintergrund-Thread. Nicht verarbeitete Einträge bleiben erhalten.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        ExecutorService pool;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+            pool = unlinkPool;
+            unlinkPool = null;
+        }
+        if (pool != null) {
+            pool.shutdownNow();
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            LoggingUtil.logInfo("DeletionQueue", "Deletion worker stopped.");
+        }
+    }
+
+    /**
+     * Arbeitet die Warteschlange ab, bis sie leer ist oder nur noch fehlgeschlagene Einträge enthält.
+     *
+     * @return Die Anzahl der entfernten Dateien
+     */
+    public int processPending() {
+        int total = 0;
+        try {
+            int processed;
+            do {
+                processed = processBatch();
+                total += processed;
+            } while (processed == BATCH_SIZE && !Thread.currentThread().isInterrupted());
+        } catch (SQLException e) {
+            LoggingUtil.logError("DeletionQueue", "Error processing deletion queue: " + e.getMessage());
+        }
+        return total;
+    }
+
+    /**
+     * Verarbeitet einen Block von Einträgen.
+     *
+     * @return Die Anzahl der verarbeiteten Einträge (erfolgreich oder nicht)
+     */
+    private int processBatch() throws SQLException {
+        synchronized (processLock) {
+            if (holds.get() > 0) {
+                return 0;
+            }
+            try (Connection conn = DatabaseManager.openConnection()) {
+                List<Object[]> entries = new ArrayList<>();
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT id, encrypted_path, secure_wipe FROM deletion_queue " +
+                        "WHERE attempts < ? ORDER BY id LIMIT ?")) {
+                    stmt.setInt(1, MAX_ATTEMPTS);
+                    stmt.setInt(2, BATCH_SIZE);
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            entries.add(new Object[] {
+                                    rs.getLong("id"), rs.getString("encrypted_path"),
+                                    rs.getBoolean("secure_wipe"), false});
+                        }
+                    }
+                }
+                if (entries.isEmpty()) {
+                    return 0;
+                }
+
+                long start = System.currentTimeMillis();
+                int removed = 0;
+                for (int from = 0; from < entries.size(); from += LOCK_CHUNK_SIZE) {
+                    removed += processChunk(conn, entries.subList(from, Math.min(from + LOCK_CHUNK_SIZE, entries.size())));
+                }
+                processedCount.addAndGet(removed);
+                LoggingUtil.logDatabase("Delete", "DeletionQueue", removed + " blobs removed in "
+                        + (System.currentTimeMillis() - start) + " ms");
+                return entries.size();
+            }
+        }
+    }
+
+    /**
+     * Entfernt einige Einträge unter der Schreibsperre der Datenbank. Die Prüfung, ob noch ein
+     * Eintrag, eine ältere Version oder ein Snapshot auf die Datei verweist, das Entfernen des
+     * Tombstones und das Löschen der Datei geschehen in einer {@code BEGIN IMMEDIATE}-Transaktion.
+     * Ein gleichzeitiges Wiederherstellen, das die Datei erneut verknüpft, sieht sie damit
+     * entweder noch als referenziert oder wartet, bis sie entfernt ist.
+     *
+     * @return Die Anzahl der entfernten Dateien
+     */
+    private int processChunk(Connection conn, List<Object[]> entries) throws SQLException {
+        try (Statement tx = conn.createStatement()) {
+            tx.execute("BEGIN IMMEDIATE");
+            try (PreparedStatement referenced = conn.prepareStatement(
+                         "SELECT EXISTS (SELECT 1 FROM files WHERE encrypted_path = ?) " +
+                         "OR EXISTS (SELECT 1 FROM file_versions WHERE encrypted_path = ?) " +
+                         "OR EXISTS (SELECT 1 FROM snapshot_blobs WHERE encrypted_path = ? AND ref_count > 0)");
+                 PreparedStatement done = conn.prepareStatement("DELETE FROM deletion_queue WHERE id = ?");
+                 PreparedStatement failed = conn.prepareStatement(
+                         "UPDATE deletion_queue SET attempts = attempts + 1, last_error = ? WHERE id = ?")) {
+                for (Object[] entry : entries) {
+                    for (int i = 1; i <= 3; i++) {
+                        referenced.setString(i, (String) entry[1]);
+                    }
+                    try (ResultSet rs = referenced.executeQuery()) {
+                        entry[3] = rs.next() && rs.getBoolean(1);
+                    }
+                }
+
+                List<Exception> errors = removeBlobs(entries);
+                int removed = 0;
+                for (int i = 0; i < entries.size(); i++) {
+                    Object[] entry = entries.get(i);
+                    long id = (Long) entry[0];
+                    Exception error = errors.get(i);
+                    if (error instanceof InterruptedException) {
+                        // Beim Beenden abgebrochen: Eintrag bleibt für den nächsten Durchlauf
+                        continue;
+                    }
+                    if (error == null) {
+                        if (!(Boolean) entry[3]) {
+                            removed++;
+                        }
+                        done.setLong(1, id);
+                        done.addBatch();
+                    } else {
+                        failedCount.incrementAndGet();
+                        failed.setString(1, error.getMessage());
+                        failed.setLong(2, id);
+                        failed.addBatch();
+                        LoggingUtil.logError("DeletionQueue", "Could not remove " + entry[1] + ": " + error.getMessage());
+                    }
+                }
+                done.executeBatch();
+                failed.executeBatch();
+                tx.execute("COMMIT");
+                return removed;
+            } catch (SQLException | RuntimeException e) {
+                tx.execute("ROLLBACK");
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Entfernt die nicht mehr referenzierten Dateien eines Blocks, parallel sofern der
+     * Hintergrund-Thread gestartet ist.
+     *
+     * @return Je Eintrag null bei Erfolg oder der aufgetretene Fehler; eine
+     *         {@link InterruptedException}, wenn das Entfernen abgebrochen wurde
+     */
+    private List<Exception> removeBlobs(List<Object[]> entries) {
+        ExecutorService pool = unlinkPool;
+        List<Future<Void>> futures = new ArrayList<>();
+        for (Object[] entry : entries) {
+            if ((Boolean) entry[3]) {
+                futures.add(null);
+                continue;
+            }
+            Callable<Void> task = () -> {
+                removeBlob((String) entry[1], (Boolean) entry[2]);
+                return null;
+            };
+            if (pool != null) {
+                futures.add(pool.submit(task));
+            } else {
+                FutureTask<Void> inline = new FutureTask<>(task);
+                inline.run();
+                futures.add(inline);
+            }
+        }
+        List<Exception> errors = new ArrayList<>();
+        for (Future<Void> future : futures) {
+            Exception error = null;
+            if (future != null) {
+                try {
+                    future.get();
+                } catch (ExecutionException e) {
+                    error = e.getCause() instanceof Exception cause ? cause : e;
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    error = e;
+                }
+            }
+            errors.add(error);
+        }
+        return errors;
+    }
+
+    /**
+     * Entfernt eine verschlüsselte Datei, optional nach einmaligem Überschreiben mit Zufallsdaten.
+     * Überschrieben werden kann nur im lokalen Backend. Eine bereits fehlende Datei gilt als entfernt.
+     */
+    private void removeBlob(String location, boolean secureWipe) throws IOException {
+        BlobLocation blob = BlobStores.getInstance().resolve(location);
+        if (secureWipe && blob.getStore() instanceof LocalBlobStore local) {
+            File file = local.toPath(blob.getKey()).toFile();
+            if (file.exists()) {
+                overwrite(file);
+            }
+        }
+        blob.delete();
+    }
+
+    /**
+     * Überschreibt den Inhalt einer Datei mit Zufallsdaten und schreibt ihn auf den Datenträger.
+     */
+    private void overwrite(File file) throws IOException {
+        SecureRandom random = new SecureRandom();
+        byte[] buffer = new byte[WIPE_BUFFER_SIZE];
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rws")) {
+            long remaining = raf.length();
+            raf.seek(0);
+            while (remaining > 0) {
+                int chunk = (int) Math.min(buffer.length, remaining);
+                random.nextBytes(buffer);
+                raf.write(buffer, 0, chunk);
+                remaining -= chunk;
+            }
+            raf.getFD().sync();
+        }
+    }
+
+    /**
+     * Gibt an, ob neu eingereihte Dateien vor dem Entfernen überschrieben werden.
+     *
+     * @param conn Die zu verwendende Verbindung
+     * @return true, wenn sicheres Löschen aktiviert ist
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private boolean isSecureWipe(Connection conn) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT value FROM settings WHERE key = ?")) {
+            stmt.setString(1, SECURE_WIPE_SETTING);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() && Boolean.parseBoolean(rs.getString("value"));
+            }
+        }
+    }
+
+    /**
+     * Gibt an, ob neu eingereihte Dateien vor dem Entfernen überschrieben werden.
+     *
+     * @return true, wenn sicheres Löschen aktiviert ist
+     */
+    public boolean isSecureWipe() {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            return isSecureWipe(conn);
+        } catch (SQLException e) {
+            LoggingUtil.logError("DeletionQueue", "Error reading secure delete setting: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Legt fest, ob neu eingereihte Dateien vor dem Entfernen überschrieben werden.
+     * Die Einstellung wird in der Datenbank gespeichert.
+     *
+     * @param secureWipe true, um sicheres Löschen zu aktivieren
+     */
+    public void setSecureWipe(boolean secureWipe) {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT OR REPLACE INTO settings (key, value, description) VALUES (?, ?, ?)")) {
+            stmt.setString(1, SECURE_WIPE_SETTING);
+            stmt.setString(2, Boolean.toString(secureWipe));
+            stmt.setString(3, "Verschlüsselte Dateien vor dem Löschen überschreiben");
+            stmt.executeUpdate();
+        } catch (SQLException e) {
+            LoggingUtil.logError("DeletionQueue", "Error saving secure delete setting: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der noch nicht entfernten Dateien zurück.
+     *
+     * @return Die Anzahl der Einträge in der Warteschlange
+     */
+    public int getBacklog() {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM deletion_queue");
+             ResultSet rs = stmt.executeQuery()) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("DeletionQueue", "Error reading deletion backlog: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start entfernten Dateien zurück.
+     *
+     * @return Die Anzahl der entfernten Dateien
+     */
+    public long getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start fehlgeschlagenen Versuche zurück.
+     *
+     * @return Die Anzahl der Fehlversuche
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+}
@@ -0,0 +1,82 @@
+package com.filevault.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position innerhalb einer sortierten Dateiliste (Keyset-Pagination).
+ * Ein Cursor besteht aus dem Sortierschlüssel und der ID der zuletzt gelieferten Datei;
+ * die nächste Seite beginnt direkt danach. Für die API wird der Cursor als
+ * undurchsichtiger Base64-String kodiert.
+ */
+public class FileCursor {
+
+    /** Der Sortierschlüssel der zuletzt gelieferten Datei */
+    private final Object sortKey;
+
+    /** Die ID der zuletzt gelieferten Datei */
+    private final int fileId;
+
+    /**
+     * Erstellt einen neuen Cursor.
+     *
+     * @param sortKey Der Sortierschlüssel (String oder Long)
+     * @param fileId Die ID der zuletzt gelieferten Datei
+     */
+    public FileCursor(Object sortKey, int fileId) {
+        this.sortKey = sortKey;
+        this.fileId = fileId;
+    }
+
+    /**
+     * Gibt den Sortierschlüssel zurück.
+     *
+     * @return Der Sortierschlüssel
+     */
+    public Object getSortKey() {
+        return sortKey;
+    }
+
+    /**
+     * Gibt die ID der zuletzt gelieferten Datei zurück.
+     *
+     * @return Die Datei-ID
+     */
+    public int getFileId() {
+        return fileId;
+    }
+
+    /**
+     * Kodiert den Cursor als URL-sicheren String.
+     *
+     * @return Der kodierte Cursor
+     */
+    public String encode() {
+        String raw = fileId + ":" + (sortKey == null ? "" : sortKey.toString());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Dekodiert einen mit {@link #encode()} erzeugten Cursor.
+     *
+     * @param token Der kodierte Cursor
+     * @param sortOrder Das Sortierkriterium, für das der Cursor erzeugt wurde
+     * @return Der Cursor oder null, wenn das Token leer ist
+     * @throws IllegalArgumentException wenn das Token ungültig ist
+     */
+    public static FileCursor decode(String token, FileSortOrder sortOrder) {
+        if (token == null || token.isBlank()) {
+            return null;
+        }
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token.trim()), StandardCharsets.UTF_8);
+            int separator = raw.indexOf(':');
+            int id = Integer.parseInt(raw.substring(0, separator));
+            String key = raw.substring(separator + 1);
+            Object sortKey = sortOrder.isNumeric() ? (Object) Long.parseLong(key) : key;
+            return new FileCursor(sortKey, id);
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + token, e);
+        }
+    }
+}
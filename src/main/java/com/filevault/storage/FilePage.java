@@ -0,0 +1,57 @@
+package com.filevault.storage;
+
+import java.util.Collections;
+import java.util.List;
+
+import com.filevault.model.EncryptedFile;
+
+/**
+ * Eine Seite einer sortierten Dateiliste, wie sie von
+ * {@link FileStorage#listFiles(int, FileSortOrder, boolean, FileCursor, int)} geliefert wird.
+ */
+public class FilePage {
+
+    /** Die Dateien dieser Seite */
+    private final List<EncryptedFile> files;
+
+    /** Cursor für die nächste Seite oder null, wenn dies die letzte Seite ist */
+    private final FileCursor nextCursor;
+
+    /**
+     * Erstellt eine neue Seite.
+     *
+     * @param files Die Dateien dieser Seite
+     * @param nextCursor Cursor für die nächste Seite oder null
+     */
+    public FilePage(List<EncryptedFile> files, FileCursor nextCursor) {
+        this.files = Collections.unmodifiableList(files);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gibt die Dateien dieser Seite zurück.
+     *
+     * @return Unveränderliche Liste der Dateien
+     */
+    public List<EncryptedFile> getFiles() {
+        return files;
+    }
+
+    /**
+     * Gibt den Cursor für die nächste Seite zurück.
+     *
+     * @return Der Cursor oder null, wenn keine weiteren Dateien existieren
+     */
+    public FileCursor getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Gibt an, ob nach dieser Seite weitere Dateien folgen.
+     *
+     * @return true, wenn eine weitere Seite existiert
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
@@ -0,0 +1,69 @@
+package com.filevault.storage;
+
+/**
+ * Sortierkriterien für die seitenweise Auflistung von Dateien eines Ordners.
+ * Jedes Kriterium kennt den SQL-Ausdruck, nach dem sortiert wird, und ob der
+ * Schlüssel numerisch ist. Zu jedem Ausdruck existiert ein passender Index
+ * {@code (folder_id, <ausdruck>, id)}, siehe {@link DatabaseManager}.
+ */
+public enum FileSortOrder {
+
+    /** Sortierung nach Originalname */
+    NAME("original_name", false),
+
+    /** Sortierung nach Dateigröße */
+    SIZE("size_bytes", true),
+
+    /** Sortierung nach Erstellungsdatum */
+    CREATED("created_at", false),
+
+    /** Sortierung nach letztem Zugriff; nie geöffnete Dateien stehen vorne */
+    LAST_ACCESS("COALESCE(last_access, '')", false);
+
+    /** Der SQL-Ausdruck, nach dem sortiert wird */
+    private final String sqlExpression;
+
+    /** Gibt an, ob der Sortierschlüssel eine Zahl ist */
+    private final boolean numeric;
+
+    FileSortOrder(String sqlExpression, boolean numeric) {
+        this.sqlExpression = sqlExpression;
+        this.numeric = numeric;
+    }
+
+    /**
+     * Gibt den SQL-Ausdruck zurück, nach dem sortiert wird.
+     *
+     * @return Der SQL-Ausdruck
+     */
+    public String getSqlExpression() {
+        return sqlExpression;
+    }
+
+    /**
+     * Gibt zurück, ob der Sortierschlüssel numerisch ist.
+     *
+     * @return true für numerische Schlüssel
+     */
+    public boolean isNumeric() {
+        return numeric;
+    }
+
+    /**
+     * Ermittelt ein Sortierkriterium anhand seines Namens (z.B. aus einem API-Parameter).
+     *
+     * @param name Der Name des Kriteriums, Groß-/Kleinschreibung wird ignoriert
+     * @return Das Sortierkriterium oder {@link #NAME}, wenn der Name null oder unbekannt ist
+     */
+    public static FileSortOrder fromString(String name) {
+        if (name != null) {
+            String normalized = name.trim().replace('-', '_');
+            for (FileSortOrder order : values()) {
+                if (order.name().equalsIgnoreCase(normalized)) {
+                    return order;
+                }
+            }
+        }
+        return NAME;
+    }
+}
@@ -1,9 +1,12 @@
 package com.filevault.storage;
 
+import java.io.BufferedInputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Paths;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
@@ -11,13 +14,18 @@ import java.sql.SQLException;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
 
 import com.filevault.model.EncryptedFile;
 import com.filevault.model.VirtualFolder;
 import com.filevault.security.EncryptionService;
-import com.filevault.util.FolderManager;
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
 import com.filevault.util.LoggingUtil;
 
 /**
@@ -25,6 +33,9 @@ import com.filevault.util.LoggingUtil;
  */
 public class FileStorage {
     
+    /** Maximale Anzahl von Dateien pro Seite bei {@link #listFiles} */
+    public static final int MAX_PAGE_SIZE = 1000;
+    
     /** Die einzige Instanz des FileStorage */
     private static FileStorage instance;
     
@@ -47,11 +58,12 @@ public class FileStorage {
     }
     
     /**
-     * Importiert eine Datei in den Tresor.
+     * Importiert eine Datei in den Tresor. Liegt im Ordner bereits eine Datei mit gleichem Namen,
+     * wird der Import als neue Version dieser Datei gespeichert (siehe {@link FileVersions}).
      * 
      * @param sourceFile Die zu importierende Datei
      * @param folder Der Ordner, in den die Datei importiert werden soll
-     * @return Die importierte Datei oder null, wenn der Import fehlgeschlagen ist
+     * @return Die importierte Datei
      * @throws Exception wenn ein Fehler während des Imports auftritt
      */
     public EncryptedFile importFile(File sourceFile, VirtualFolder folder) throws Exception {
@@ -61,54 +73,108 @@ public class FileStorage {
             throw new IOException("Quelldatei kann nicht gelesen werden: " + sourceFile.getAbsolutePath());
         }
 
-        String encryptedFileName = UUID.randomUUID().toString();
-        String encryptedFilePath = Paths.get(FolderManager.getInstance().getDataDirectoryPath(), encryptedFileName).toString();
-        File encryptedFile = new File(encryptedFilePath);
-
-        EncryptionService.getInstance().encryptFile(sourceFile, encryptedFile);
-
-        String mimeType = Files.probeContentType(sourceFile.toPath());
-        if (mimeType == null) {
-            mimeType = "application/octet-stream";
+        EncryptedFile existing = getFileByName(folder.getId(), sourceFile.getName());
+        EncryptedFile imported;
+        try (InputStream in = new BufferedInputStream(new FileInputStream(sourceFile), 2 * MimeSniffer.HEAD_BYTES)) {
+            // Den MIME-Typ am Anfang des Datenstroms erkennen, der ohnehin verschlüsselt wird
+            String mimeType = MimeSniffer.getInstance().detect(sourceFile, in);
+            imported = store(in, folder.getId(), sourceFile.getName(), sourceFile.length(), mimeType, existing);
         }
+        LoggingUtil.logInfo("FileStorage", "File imported successfully: " + sourceFile.getAbsolutePath()
+                + (existing != null ? " (new version)" : ""));
+        return imported;
+    }
 
-        try (Connection conn = DatabaseManager.getConnection();
-             PreparedStatement stmt = conn.prepareStatement(
-                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type, created_at) " +
-                     "VALUES (?, ?, ?, ?, ?, CURRENT_TIMESTAMP)",
-                     PreparedStatement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setInt(1, folder.getId());
-            stmt.setString(2, sourceFile.getName());
-            stmt.setString(3, encryptedFilePath);
-            stmt.setLong(4, sourceFile.length());
-            stmt.setString(5, mimeType);
+    /**
+     * Exportiert eine bestimmte Version einer Datei aus dem Tresor.
+     *
+     * @param encryptedFile Die Datei
+     * @param version Die Versionsnummer
+     * @param destinationFile Die Zieldatei
+     * @return true, wenn der Export erfolgreich war
+     * @throws Exception wenn die Version nicht existiert oder nicht gelesen werden kann
+     */
+    public boolean exportVersion(EncryptedFile encryptedFile, int version, File destinationFile) throws Exception {
+        LoggingUtil.logInfo("FileStorage", "Starting export of version " + version + ": " + encryptedFile.getOriginalName());
+        try (InputStream decrypted = FileVersions.getInstance().open(encryptedFile.getId(), version);
+             OutputStream out = new FileOutputStream(destinationFile)) {
+            decrypted.transferTo(out);
+        } catch (Exception e) {
+            LoggingUtil.logError("FileStorage", "Error exporting version " + version + ": " + e.getMessage());
+            throw e;
+        }
+        LoggingUtil.logInfo("FileStorage", "File version exported successfully: " + encryptedFile.getOriginalName());
+        return true;
+    }
 
-            int affected = stmt.executeUpdate();
+    /**
+     * Stellt eine ältere Version einer Datei wieder her, indem ihr Inhalt als neue Version
+     * gespeichert wird. Der Versionsverlauf bleibt dabei vollständig erhalten.
+     *
+     * @param encryptedFile Die Datei
+     * @param version Die wiederherzustellende Versionsnummer
+     * @return Die Datei mit der neuen aktuellen Version
+     * @throws Exception wenn die Version nicht existiert oder nicht gespeichert werden kann
+     */
+    public EncryptedFile restoreVersion(EncryptedFile encryptedFile, int version) throws Exception {
+        LoggingUtil.logInfo("FileStorage", "Restoring version " + version + " of file: " + encryptedFile.getOriginalName());
+        EncryptedFile current = getFileById(encryptedFile.getId());
+        if (current == null) {
+            throw new IOException("Datei nicht gefunden: " + encryptedFile.getOriginalName());
+        }
+        FileVersion restored = FileVersions.getInstance().list(current.getId()).stream()
+                .filter(v -> v.getVersion() == version)
+                .findFirst()
+                .orElseThrow(() -> new IOException("Version " + version + " nicht gefunden"));
+        try (InputStream in = FileVersions.getInstance().open(current.getId(), version)) {
+            return store(in, current.getFolderId(), current.getOriginalName(), restored.getSizeBytes(),
+                    restored.getMimeType(), current);
+        }
+    }
 
-            if (affected > 0) {
-                try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
-                    if (generatedKeys.next()) {
-                        int id = generatedKeys.getInt(1);
-                        LoggingUtil.logInfo("FileStorage", "File imported successfully: " + sourceFile.getAbsolutePath());
-                        return new EncryptedFile(
-                                id,
-                                folder.getId(),
-                                sourceFile.getName(),
-                                encryptedFilePath,
-                                sourceFile.length(),
-                                mimeType,
-                                LocalDateTime.now(),
-                                null
-                        );
-                    }
-                }
+    /**
+     * Verschlüsselt einen Inhalt und legt dafür einen Dateieintrag an oder speichert ihn als
+     * neue Version einer vorhandenen Datei.
+     */
+    private EncryptedFile store(InputStream plain, int folderId, String name, long sizeBytes, String mimeType,
+                                EncryptedFile existing) throws Exception {
+        String encryptedFileName = UUID.randomUUID().toString();
+        BlobLocation blob = new BlobLocation(BlobStores.getInstance().getDefault(), BlobLayout.key(encryptedFileName));
+        String encryptedFilePath = blob.getUri();
+
+        // Absicht vermerken, Blob dauerhaft schreiben, dann Dateieintrag festschreiben;
+        // nach einem Absturz dazwischen räumt WriteJournal.recover() auf
+        WriteJournal journal = WriteJournal.getInstance();
+        long intentId = journal.begin(encryptedFilePath, folderId, name, sizeBytes, mimeType,
+                existing != null ? existing.getId() : null);
+        int id;
+        try {
+            try (InputStream encrypted = EncryptionService.getInstance().encryptStream(plain)) {
+                blob.getStore().put(blob.getKey(), encrypted);
             }
+            id = journal.complete(intentId);
+        } catch (Exception e) {
+            journal.abort(intentId, encryptedFilePath);
+            LoggingUtil.logError("FileStorage", "File import failed: " + e.getMessage());
+            throw e;
+        }
 
-            encryptedFile.delete();
-            LoggingUtil.logError("FileStorage", "File import failed: Database insertion error.");
-            return null;
+        if (existing != null) {
+            // Die abgelöste Version nach dem Festschreiben als Delta speichern
+            FileVersions.getInstance().compactLatest(id);
+            DecryptedContentCache.getInstance().invalidate(id);
         }
+        ContentIndex.getInstance().enqueue(id, mimeType);
+        return new EncryptedFile(
+                id,
+                folderId,
+                name,
+                encryptedFilePath,
+                sizeBytes,
+                mimeType,
+                LocalDateTime.now(),
+                existing != null ? existing.getLastAccess() : null
+        );
     }
     
     /**
@@ -121,16 +187,33 @@ public class FileStorage {
      */
     public boolean exportFile(EncryptedFile encryptedFile, File destinationFile) throws Exception {
         LoggingUtil.logInfo("FileStorage", "Starting file export: " + encryptedFile.getOriginalName());
-        File sourceFile = new File(encryptedFile.getEncryptedPath());
-        if (!sourceFile.exists() || !sourceFile.isFile() || !sourceFile.canRead()) {
-            LoggingUtil.logError("FileStorage", "File export failed: Encrypted file cannot be read: " + sourceFile.getAbsolutePath());
-            throw new IOException("Verschlüsselte Datei kann nicht gelesen werden: " + sourceFile.getAbsolutePath());
+        BlobLocation blob = BlobStores.getInstance().resolve(encryptedFile.getEncryptedPath());
+        if (!blob.exists()) {
+            // Die Datei wurde eventuell inzwischen verschoben (z.B. durch den BlobLayoutMigrator oder den TieringService)
+            EncryptedFile current = getFileById(encryptedFile.getId());
+            if (current != null && !current.getEncryptedPath().equals(encryptedFile.getEncryptedPath())) {
+                encryptedFile.setEncryptedPath(current.getEncryptedPath());
+                blob = BlobStores.getInstance().resolve(current.getEncryptedPath());
+            }
+        }
+        if (!blob.exists()) {
+            LoggingUtil.logError("FileStorage", "File export failed: Encrypted file cannot be read: " + blob);
+            throw new IOException("Verschlüsselte Datei kann nicht gelesen werden: " + blob);
         }
 
-        boolean success = EncryptionService.getInstance().decryptFile(sourceFile, destinationFile);
+        boolean success;
+        try (InputStream decrypted = EncryptionService.getInstance().decryptStream(blob.open());
+             OutputStream out = new FileOutputStream(destinationFile)) {
+            decrypted.transferTo(out);
+            success = true;
+        } catch (Exception e) {
+            LoggingUtil.logError("FileStorage", "Error during decryption: " + e.getMessage());
+            throw e;
+        }
 
         if (success) {
-            updateLastAccess(encryptedFile.getId());
+            AccessTracker.getInstance().recordAccess(encryptedFile.getId());
+            TieringService.getInstance().recordAccess(encryptedFile.getId(), encryptedFile.getEncryptedPath());
             LoggingUtil.logInfo("FileStorage", "File exported successfully: " + encryptedFile.getOriginalName());
         } else {
             LoggingUtil.logError("FileStorage", "File export failed: Decryption error.");
@@ -141,29 +224,35 @@ public class FileStorage {
     
     /**
      * Löscht eine Datei aus dem Tresor.
+     * Der Dateieintrag wird sofort entfernt; die verschlüsselte Datei wird über die
+     * {@link DeletionQueue} im Hintergrund gelöscht.
      * 
      * @param encryptedFile Die zu löschende Datei
      * @return true, wenn das Löschen erfolgreich war
      */
     public boolean deleteFile(EncryptedFile encryptedFile) {
         LoggingUtil.logInfo("FileStorage", "Starting file deletion: " + encryptedFile.getOriginalName());
-        try {
-            File file = new File(encryptedFile.getEncryptedPath());
-            if (file.exists()) {
-                file.delete();
-            }
-
-            try (Connection conn = DatabaseManager.getConnection();
-                 PreparedStatement stmt = conn.prepareStatement(
-                         "DELETE FROM files WHERE id = ?")) {
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "DELETE FROM files WHERE id = ?")) {
 
+                // Pfad aus der Datenbank vormerken, da das Objekt veraltet sein kann
+                DeletionQueue.getInstance().enqueueFile(conn, encryptedFile.getId());
                 stmt.setInt(1, encryptedFile.getId());
                 int affected = stmt.executeUpdate();
 
                 if (affected > 0) {
+                    conn.commit();
+                    DeletionQueue.getInstance().wakeUp();
+                    DecryptedContentCache.getInstance().invalidate(encryptedFile.getId());
                     LoggingUtil.logInfo("FileStorage", "File deleted successfully: " + encryptedFile.getOriginalName());
                     return true;
                 }
+                conn.rollback();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
             }
         } catch (Exception e) {
             LoggingUtil.logError("FileStorage", "Error deleting file: " + e.getMessage());
@@ -246,28 +335,7 @@ public class FileStorage {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Timestamp createdTimestamp = rs.getTimestamp("created_at");
-                    Timestamp lastAccessTimestamp = rs.getTimestamp("last_access");
-                    
-                    LocalDateTime createdAt = createdTimestamp != null 
-                            ? createdTimestamp.toLocalDateTime() 
-                            : null;
-                            
-                    LocalDateTime lastAccess = lastAccessTimestamp != null 
-                            ? lastAccessTimestamp.toLocalDateTime() 
-                            : null;
-                    
-                    EncryptedFile file = new EncryptedFile(
-                            rs.getInt("id"),
-                            rs.getInt("folder_id"),
-                            rs.getString("original_name"),
-                            rs.getString("encrypted_path"),
-                            rs.getLong("size_bytes"),
-                            rs.getString("mime_type"),
-                            createdAt,
-                            lastAccess
-                    );
-                    files.add(file);
+                    files.add(mapFile(rs));
                 }
             }
         } catch (SQLException e) {
@@ -292,27 +360,7 @@ public class FileStorage {
             
             try (ResultSet rs = stmt.executeQuery()) {
                 if (rs.next()) {
-                    Timestamp createdTimestamp = rs.getTimestamp("created_at");
-                    Timestamp lastAccessTimestamp = rs.getTimestamp("last_access");
-                    
-                    LocalDateTime createdAt = createdTimestamp != null 
-                            ? createdTimestamp.toLocalDateTime() 
-                            : null;
-                            
-                    LocalDateTime lastAccess = lastAccessTimestamp != null 
-                            ? lastAccessTimestamp.toLocalDateTime() 
-                            : null;
-                    
-                    return new EncryptedFile(
-                            rs.getInt("id"),
-                            rs.getInt("folder_id"),
-                            rs.getString("original_name"),
-                            rs.getString("encrypted_path"),
-                            rs.getLong("size_bytes"),
-                            rs.getString("mime_type"),
-                            createdAt,
-                            lastAccess
-                    );
+                    return mapFile(rs);
                 }
             }
         } catch (SQLException e) {
@@ -321,24 +369,69 @@ public class FileStorage {
         
         return null;
     }
-    
+
     /**
-     * Aktualisiert den Zeitstempel des letzten Zugriffs auf eine Datei.
+     * Gibt mehrere Dateien anhand ihrer IDs zurück, z.B. für eine Seite von Suchtreffern.
+     * Die IDs werden in Blöcken mit einer Abfrage {@code WHERE id IN (...)} je Block geladen.
+     *
+     * @param fileIds Die IDs der Dateien
+     * @return Die gefundenen Dateien nach ID; fehlende IDs sind nicht enthalten
+     */
+    public Map<Integer, EncryptedFile> getFilesByIds(Collection<Integer> fileIds) {
+        Map<Integer, EncryptedFile> files = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(fileIds);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            for (int from = 0; from < ids.size(); from += MAX_PAGE_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + MAX_PAGE_SIZE));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT * FROM files WHERE id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            EncryptedFile file = mapFile(rs);
+                            files.put(file.getId(), file);
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileStorage", "Fehler beim Abrufen der Dateien: " + e.getMessage());
+        }
+
+        return files;
+    }
+
+    /**
+     * Gibt die Datei mit dem angegebenen Namen in einem Ordner zurück.
      * 
-     * @param fileId Die ID der Datei
+     * @param folderId Die ID des Ordners
+     * @param name Der Dateiname
+     * @return Die älteste Datei dieses Namens oder null, wenn es keine gibt
      */
-    private void updateLastAccess(int fileId) {
+    public EncryptedFile getFileByName(int folderId, String name) {
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
-                     "UPDATE files SET last_access = CURRENT_TIMESTAMP WHERE id = ?")) {
+                     "SELECT * FROM files WHERE folder_id = ? AND original_name = ? ORDER BY id LIMIT 1")) {
             
-            stmt.setInt(1, fileId);
-            stmt.executeUpdate();
+            stmt.setInt(1, folderId);
+            stmt.setString(2, name);
+            
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (rs.next()) {
+                    return mapFile(rs);
+                }
+            }
         } catch (SQLException e) {
-            LoggingUtil.logError("FileStorage", "Fehler beim Aktualisieren des letzten Zugriffs: " + e.getMessage());
+            LoggingUtil.logError("FileStorage", "Fehler beim Abrufen der Datei: " + e.getMessage());
         }
+        
+        return null;
     }
-
+    
     /**
      * Liefert alle Dateien aus der Datenbank zurück.
      *
@@ -352,28 +445,7 @@ public class FileStorage {
              ResultSet rs = stmt.executeQuery()) {
 
             while (rs.next()) {
-                Timestamp createdTimestamp = rs.getTimestamp("created_at");
-                Timestamp lastAccessTimestamp = rs.getTimestamp("last_access");
-
-                LocalDateTime createdAt = createdTimestamp != null
-                        ? createdTimestamp.toLocalDateTime()
-                        : null;
-
-                LocalDateTime lastAccess = lastAccessTimestamp != null
-                        ? lastAccessTimestamp.toLocalDateTime()
-                        : null;
-
-                EncryptedFile file = new EncryptedFile(
-                        rs.getInt("id"),
-                        rs.getInt("folder_id"),
-                        rs.getString("original_name"),
-                        rs.getString("encrypted_path"),
-                        rs.getLong("size_bytes"),
-                        rs.getString("mime_type"),
-                        createdAt,
-                        lastAccess
-                );
-                files.add(file);
+                files.add(mapFile(rs));
             }
         } catch (SQLException e) {
             LoggingUtil.logError("FileStorage", "Error retrieving all files: " + e.getMessage());
@@ -399,28 +471,7 @@ public class FileStorage {
 
             try (ResultSet rs = stmt.executeQuery()) {
                 while (rs.next()) {
-                    Timestamp createdTimestamp = rs.getTimestamp("created_at");
-                    Timestamp lastAccessTimestamp = rs.getTimestamp("last_access");
-
-                    LocalDateTime createdAt = createdTimestamp != null
-                            ? createdTimestamp.toLocalDateTime()
-                            : null;
-
-                    LocalDateTime lastAccess = lastAccessTimestamp != null
-                            ? lastAccessTimestamp.toLocalDateTime()
-                            : null;
-
-                    EncryptedFile file = new EncryptedFile(
-                            rs.getInt("id"),
-                            rs.getInt("folder_id"),
-                            rs.getString("original_name"),
-                            rs.getString("encrypted_path"),
-                            rs.getLong("size_bytes"),
-                            rs.getString("mime_type"),
-                            createdAt,
-                            lastAccess
-                    );
-                    files.add(file);
+                    files.add(mapFile(rs));
                 }
             }
         } catch (SQLException e) {
@@ -430,6 +481,115 @@ public class FileStorage {
         return files;
     }
 
+    /**
+     * Gibt alle Dateien eines Ordners und seiner Unterordner zurück. Der Teilbaum wird aus
+     * {@code folder_paths} gelesen, sodass eine einzige Abfrage ohne Rekursion genügt.
+     *
+     * @param folderId Die ID des Ordners.
+     * @return Die Dateien, nach Ordner und Namen sortiert.
+     */
+    public List<EncryptedFile> getFilesInSubtree(int folderId) {
+        List<EncryptedFile> files = new ArrayList<>();
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT f.* FROM folder_paths p JOIN files f ON f.folder_id = p.descendant "
+                     + "WHERE p.ancestor = ? ORDER BY f.folder_id, f.original_name")) {
+
+            stmt.setInt(1, folderId);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    files.add(mapFile(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileStorage", "Error retrieving files in subtree: " + e.getMessage());
+        }
+
+        return files;
+    }
+
+    /**
+     * Zählt die Dateien eines Ordners und seiner Unterordner mit einer Abfrage über {@code folder_paths}.
+     *
+     * @param folderId Die ID des Ordners.
+     * @return Die Anzahl der Dateien, 0 bei einem Fehler.
+     */
+    public int countFilesInSubtree(int folderId) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT COUNT(*) FROM folder_paths p JOIN files f ON f.folder_id = p.descendant WHERE p.ancestor = ?")) {
+            stmt.setInt(1, folderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileStorage", "Error counting files in subtree: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Liefert eine Seite der Dateien eines Ordners in der gewünschten Sortierung.
+     * Die Abfrage verwendet Keyset-Pagination: statt OFFSET wird direkt hinter dem
+     * Cursor weitergelesen, sodass jede Seite unabhängig von ihrer Position über den
+     * passenden Index in konstanter Zeit geladen wird.
+     *
+     * @param folderId Die ID des Ordners
+     * @param sortOrder Das Sortierkriterium
+     * @param descending true für absteigende Sortierung
+     * @param after Cursor der vorherigen Seite oder null für die erste Seite
+     * @param limit Maximale Anzahl von Dateien pro Seite (wird auf 1..{@value #MAX_PAGE_SIZE} begrenzt)
+     * @return Die Seite mit den Dateien und dem Cursor für die nächste Seite
+     */
+    public FilePage listFiles(int folderId, FileSortOrder sortOrder, boolean descending, FileCursor after, int limit) {
+        FileSortOrder order = sortOrder != null ? sortOrder : FileSortOrder.NAME;
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        String key = order.getSqlExpression();
+        String direction = descending ? "DESC" : "ASC";
+
+        StringBuilder sql = new StringBuilder("SELECT *, ").append(key).append(" AS sort_key FROM files WHERE folder_id = ?");
+        if (after != null) {
+            sql.append(" AND (").append(key).append(", id) ").append(descending ? "<" : ">").append(" (?, ?)");
+        }
+        sql.append(" ORDER BY ").append(key).append(' ').append(direction)
+           .append(", id ").append(direction).append(" LIMIT ?");
+
+        List<EncryptedFile> files = new ArrayList<>();
+        FileCursor nextCursor = null;
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+
+            int index = 1;
+            stmt.setInt(index++, folderId);
+            if (after != null) {
+                stmt.setObject(index++, after.getSortKey());
+                stmt.setInt(index++, after.getFileId());
+            }
+            // Eine Zeile mehr lesen, um zu erkennen, ob eine weitere Seite existiert
+            stmt.setInt(index, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                Object lastKey = null;
+                while (rs.next()) {
+                    if (files.size() == pageSize) {
+                        EncryptedFile last = files.get(files.size() - 1);
+                        nextCursor = new FileCursor(lastKey, last.getId());
+                        break;
+                    }
+                    lastKey = order.isNumeric() ? (Object) rs.getLong("sort_key") : rs.getString("sort_key");
+                    files.add(mapFile(rs));
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileStorage", "Error listing files page: " + e.getMessage());
+        }
+
+        return new FilePage(files, nextCursor);
+    }
+
     /**
      * Erstellt eine neue Dateirekord in der Datenbank.
      *
@@ -478,6 +638,37 @@ public class FileStorage {
         return null;
     }
 
+    /**
+     * Erstellt eine EncryptedFile aus der aktuellen Zeile eines ResultSets der Tabelle files.
+     *
+     * @param rs Das ResultSet, positioniert auf einer Dateizeile
+     * @return Die gelesene Datei
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private EncryptedFile mapFile(ResultSet rs) throws SQLException {
+        Timestamp createdTimestamp = rs.getTimestamp("created_at");
+        Timestamp lastAccessTimestamp = rs.getTimestamp("last_access");
+
+        LocalDateTime createdAt = createdTimestamp != null
+                ? createdTimestamp.toLocalDateTime()
+                : null;
+
+        LocalDateTime lastAccess = lastAccessTimestamp != null
+                ? lastAccessTimestamp.toLocalDateTime()
+                : null;
+
+        return new EncryptedFile(
+                rs.getInt("id"),
+                rs.getInt("folder_id"),
+                rs.getString("original_name"),
+                rs.getString("encrypted_path"),
+                rs.getLong("size_bytes"),
+                rs.getString("mime_type"),
+                createdAt,
+                lastAccess
+        );
+    }
+
     /**
      * Lädt die Dateiliste aus der Datenbank neu.
      * Diese Methode wird aufgerufen, wenn die Dateiliste aktualisiert werden muss.
@@ -0,0 +1,131 @@
+package com.filevault.storage;
+
+import java.time.LocalDateTime;
+
+import com.filevault.model.EncryptedFile;
+
+/**
+ * Eine Version einer Datei: entweder die aktuelle Version aus {@code files} oder eine ältere
+ * aus {@code file_versions}.
+ */
+public class FileVersion {
+
+    /** ID der Datei */
+    private final int fileId;
+
+    /** Versionsnummer, beginnend bei 1 */
+    private final int version;
+
+    /** Speicherform: {@link FileVersions#KIND_FULL} oder {@link FileVersions#KIND_DELTA} */
+    private final String kind;
+
+    /** Größe der unverschlüsselten Version in Bytes */
+    private final long sizeBytes;
+
+    /** Größe der gespeicherten Daten (vollständiger Inhalt oder Delta) in Bytes */
+    private final long storedBytes;
+
+    /** MIME-Typ der Version */
+    private final String mimeType;
+
+    /** Zeitpunkt, zu dem die Version angelegt wurde */
+    private final LocalDateTime createdAt;
+
+    /** Gibt an, ob dies die aktuelle Version der Datei ist */
+    private final boolean current;
+
+    /**
+     * Erstellt eine Dateiversion.
+     *
+     * @param fileId ID der Datei
+     * @param version Versionsnummer
+     * @param kind Speicherform
+     * @param sizeBytes Größe der unverschlüsselten Version
+     * @param storedBytes Größe der gespeicherten Daten
+     * @param mimeType MIME-Typ
+     * @param createdAt Zeitpunkt der Anlage
+     * @param current true für die aktuelle Version
+     */
+    public FileVersion(int fileId, int version, String kind, long sizeBytes, long storedBytes,
+                       String mimeType, LocalDateTime createdAt, boolean current) {
+        this.fileId = fileId;
+        this.version = version;
+        this.kind = kind;
+        this.sizeBytes = sizeBytes;
+        this.storedBytes = storedBytes;
+        this.mimeType = mimeType;
+        this.createdAt = createdAt;
+        this.current = current;
+    }
+
+    /**
+     * @return ID der Datei
+     */
+    public int getFileId() {
+        return fileId;
+    }
+
+    /**
+     * @return Versionsnummer
+     */
+    public int getVersion() {
+        return version;
+    }
+
+    /**
+     * @return Speicherform der Version
+     */
+    public String getKind() {
+        return kind;
+    }
+
+    /**
+     * @return Größe der unverschlüsselten Version in Bytes
+     */
+    public long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    /**
+     * @return Größe der gespeicherten Daten in Bytes
+     */
+    public long getStoredBytes() {
+        return storedBytes;
+    }
+
+    /**
+     * @return MIME-Typ der Version
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return Zeitpunkt der Anlage, null wenn unbekannt
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return true, wenn dies die aktuelle Version ist
+     */
+    public boolean isCurrent() {
+        return current;
+    }
+
+    /**
+     * Gibt die Größe in lesbarer Form zurück, z.B. {@code "12.5 MB"}.
+     *
+     * @return Die formatierte Größe
+     */
+    public String getFormattedSize() {
+        return EncryptedFile.formatSize(sizeBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "FileVersion[file=" + fileId + ", version=" + version + ", kind=" + kind
+                + ", size=" + sizeBytes + ", stored=" + storedBytes + (current ? ", current" : "") + "]";
+    }
+}
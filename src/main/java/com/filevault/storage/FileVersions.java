@@ -0,0 +1,392 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.security.EncryptionService;
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Versionsverlauf von Dateien. Wird eine Datei unter gleichem Namen in denselben Ordner
+ * importiert, wandert die bisherige Version in die Tabelle {@code file_versions}
+ * (siehe {@link WriteJournal}); die aktuelle Version bleibt vollständig im Dateieintrag, damit
+ * Export und Anzeige keine Rekonstruktion brauchen.
+ * <p>
+ * Ältere Versionen werden nach dem Import von {@link #compactLatest(int)} als binäres Delta
+ * ({@link BinaryDelta}) gegenüber ihrer Vorgängerversion gespeichert. Jede
+ * {@code keyframeInterval}-te Version (1, K+1, 2K+1, ...) bleibt vollständig gespeichert, sodass
+ * für eine Version höchstens K-1 Deltas angewendet werden müssen.
+ * <p>
+ * Konfiguration über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.versions.keyframeInterval} – Abstand der vollständigen Versionen (Standard 10)</li>
+ *   <li>{@code filevault.versions.maxDeltaBytes} – Dateien darüber werden nicht als Delta gespeichert (Standard 64 MiB)</li>
+ * </ul>
+ */
+public class FileVersions {
+
+    /** Speicherform: vollständiger, verschlüsselter Inhalt */
+    public static final String KIND_FULL = "full";
+
+    /** Speicherform: verschlüsseltes Delta gegenüber der Vorgängerversion */
+    public static final String KIND_DELTA = "delta";
+
+    /** Die einzige Instanz von FileVersions */
+    private static FileVersions instance;
+
+    /** Anzahl der als Delta gespeicherten Versionen */
+    private final AtomicLong compactedCount = new AtomicLong();
+
+    /** Durch Deltas eingesparte Bytes (unverschlüsselt) */
+    private final AtomicLong savedBytes = new AtomicLong();
+
+    /** Anzahl fehlgeschlagener Umwandlungen */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Abstand der vollständig gespeicherten Versionen */
+    private volatile int keyframeInterval;
+
+    /** Größte Datei, für die ein Delta berechnet wird */
+    private volatile long maxDeltaBytes;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private FileVersions() {
+        keyframeInterval = Math.max(1, Integer.getInteger("filevault.versions.keyframeInterval", 10));
+        maxDeltaBytes = Long.getLong("filevault.versions.maxDeltaBytes", 64L * 1024 * 1024);
+    }
+
+    /**
+     * Gibt die einzige Instanz von FileVersions zurück.
+     *
+     * @return Die Singleton-Instanz von FileVersions
+     */
+    public static synchronized FileVersions getInstance() {
+        if (instance == null) {
+            instance = new FileVersions();
+        }
+        return instance;
+    }
+
+    /**
+     * Ändert die Einstellungen zur Laufzeit, z.B. für Tests.
+     *
+     * @param keyframeInterval Abstand der vollständig gespeicherten Versionen, mindestens 1
+     * @param maxDeltaBytes Größte Datei, für die ein Delta berechnet wird
+     */
+    public void configure(int keyframeInterval, long maxDeltaBytes) {
+        this.keyframeInterval = Math.max(1, keyframeInterval);
+        this.maxDeltaBytes = maxDeltaBytes;
+    }
+
+    /**
+     * Gibt an, ob eine Version immer vollständig gespeichert bleibt.
+     *
+     * @param version Die Versionsnummer
+     * @return true für die Versionen 1, K+1, 2K+1, ...
+     */
+    public boolean isKeyframe(int version) {
+        return (version - 1) % keyframeInterval == 0;
+    }
+
+    /**
+     * Gibt alle Versionen einer Datei zurück, die neueste zuerst.
+     *
+     * @param fileId Die ID der Datei
+     * @return Die Versionen; leer, wenn die Datei nicht existiert
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<FileVersion> list(int fileId) throws SQLException {
+        List<FileVersion> versions = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement current = conn.prepareStatement(
+                     "SELECT version, size_bytes, mime_type, created_at FROM files WHERE id = ? AND encrypted_path <> ''");
+             PreparedStatement history = conn.prepareStatement(
+                     "SELECT version, kind, size_bytes, stored_bytes, mime_type, created_at FROM file_versions "
+                     + "WHERE file_id = ? ORDER BY version DESC")) {
+            current.setInt(1, fileId);
+            try (ResultSet rs = current.executeQuery()) {
+                if (!rs.next()) {
+                    return versions;
+                }
+                versions.add(new FileVersion(fileId, rs.getInt("version"), KIND_FULL, rs.getLong("size_bytes"),
+                        rs.getLong("size_bytes"), rs.getString("mime_type"), toLocalDateTime(rs.getTimestamp("created_at")), true));
+            }
+            history.setInt(1, fileId);
+            try (ResultSet rs = history.executeQuery()) {
+                while (rs.next()) {
+                    versions.add(new FileVersion(fileId, rs.getInt("version"), rs.getString("kind"), rs.getLong("size_bytes"),
+                            rs.getLong("stored_bytes"), rs.getString("mime_type"), toLocalDateTime(rs.getTimestamp("created_at")), false));
+                }
+            }
+        }
+        return versions;
+    }
+
+    /**
+     * Öffnet den entschlüsselten Inhalt einer Version. Vollständig gespeicherte Versionen werden
+     * gestreamt, Deltas ab der nächstälteren vollständigen Version im Speicher rekonstruiert.
+     *
+     * @param fileId Die ID der Datei
+     * @param version Die Versionsnummer
+     * @return Der entschlüsselte Inhalt; muss vom Aufrufer geschlossen werden
+     * @throws IOException wenn ein Blob nicht gelesen werden kann
+     * @throws SQLException wenn die Version nicht existiert oder ein Datenbankfehler auftritt
+     */
+    public InputStream open(int fileId, int version) throws IOException, SQLException {
+        StoredVersion stored = load(fileId, version);
+        if (KIND_FULL.equals(stored.kind)) {
+            return decrypt(stored.encryptedPath);
+        }
+        return new ByteArrayInputStream(read(fileId, version));
+    }
+
+    /**
+     * Liest den entschlüsselten Inhalt einer Version vollständig in den Speicher.
+     *
+     * @param fileId Die ID der Datei
+     * @param version Die Versionsnummer
+     * @return Der Inhalt der Version
+     * @throws IOException wenn ein Blob nicht gelesen werden kann oder ein Delta ungültig ist
+     * @throws SQLException wenn die Version nicht existiert oder ein Datenbankfehler auftritt
+     */
+    public byte[] read(int fileId, int version) throws IOException, SQLException {
+        // Von der gesuchten Version rückwärts bis zur nächsten vollständigen Version sammeln
+        Deque<StoredVersion> chain = new ArrayDeque<>();
+        StoredVersion stored = load(fileId, version);
+        while (KIND_DELTA.equals(stored.kind)) {
+            chain.push(stored);
+            stored = load(fileId, stored.version - 1);
+        }
+        byte[] content = readBlob(stored.encryptedPath);
+        while (!chain.isEmpty()) {
+            content = BinaryDelta.apply(content, readBlob(chain.pop().encryptedPath));
+        }
+        return content;
+    }
+
+    /**
+     * Speichert die neueste ältere Version einer Datei als Delta gegenüber ihrer Vorgängerversion.
+     * Sollte nach dem Festschreiben einer neuen Version aufgerufen werden. Vollständige
+     * Versionen ({@link #isKeyframe}), zu große Dateien und Versionen, bei denen das Delta
+     * nicht kleiner wäre, bleiben unverändert.
+     *
+     * @param fileId Die ID der Datei
+     * @return true, wenn eine Version als Delta gespeichert wurde
+     */
+    public boolean compactLatest(int fileId) {
+        int version;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT MAX(version) FROM file_versions WHERE file_id = ?")) {
+            stmt.setInt(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                version = rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileVersions", "Error loading versions of file " + fileId + ": " + e.getMessage());
+            return false;
+        }
+        return version > 0 && compact(fileId, version);
+    }
+
+    /**
+     * Speichert eine ältere Version als Delta gegenüber ihrer Vorgängerversion. Wie beim
+     * {@link TieringService} wird zuerst das Delta geschrieben, dann der Eintrag nur geändert,
+     * wenn er noch auf den alten Blob zeigt; der alte Blob wird über die {@link DeletionQueue}
+     * entfernt.
+     *
+     * @param fileId Die ID der Datei
+     * @param version Die Versionsnummer in {@code file_versions}
+     * @return true, wenn die Version als Delta gespeichert wurde
+     */
+    public boolean compact(int fileId, int version) {
+        if (isKeyframe(version)) {
+            return false;
+        }
+        BlobLocation target = null;
+        try {
+            StoredVersion stored = load(fileId, version);
+            if (stored.current || !KIND_FULL.equals(stored.kind) || stored.sizeBytes > maxDeltaBytes) {
+                return false;
+            }
+            byte[] base = read(fileId, version - 1);
+            byte[] content = readBlob(stored.encryptedPath);
+            byte[] delta = BinaryDelta.encode(base, content);
+            if (delta.length >= content.length) {
+                return false;
+            }
+
+            target = new BlobLocation(BlobStores.getInstance().getDefault(), BlobLayout.key(UUID.randomUUID().toString()));
+            try (InputStream encrypted = encrypt(delta)) {
+                target.getStore().put(target.getKey(), encrypted);
+            }
+            try (Connection conn = DatabaseManager.openConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE file_versions SET kind = ?, encrypted_path = ?, stored_bytes = ? "
+                        + "WHERE file_id = ? AND version = ? AND encrypted_path = ?")) {
+                    stmt.setString(1, KIND_DELTA);
+                    stmt.setString(2, target.getUri());
+                    stmt.setLong(3, delta.length);
+                    stmt.setInt(4, fileId);
+                    stmt.setInt(5, version);
+                    stmt.setString(6, stored.encryptedPath);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        target.delete();
+                        return false;
+                    }
+                    DeletionQueue.getInstance().enqueue(conn, stored.encryptedPath);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            compactedCount.incrementAndGet();
+            savedBytes.addAndGet(content.length - delta.length);
+            LoggingUtil.logDatabase("Compact", "file_versions", "File " + fileId + " version " + version
+                    + " stored as delta: " + delta.length + " of " + content.length + " bytes");
+            return true;
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            failedCount.incrementAndGet();
+            LoggingUtil.logError("FileVersions", "Could not compact version " + version + " of file " + fileId + ": " + e.getMessage());
+            if (target != null) {
+                try {
+                    target.delete();
+                } catch (IOException deleteError) {
+                    LoggingUtil.logWarning("FileVersions", "Could not remove delta " + target + ": " + deleteError.getMessage());
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * Zählt die älteren Versionen einer Speicherform.
+     *
+     * @param kind {@link #KIND_FULL} oder {@link #KIND_DELTA}
+     * @return Die Anzahl der Versionen in {@code file_versions}
+     */
+    public int countVersions(String kind) {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM file_versions WHERE kind = ?")) {
+            stmt.setString(1, kind);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FileVersions", "Error counting versions: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return Anzahl der als Delta gespeicherten Versionen seit dem Start
+     */
+    public long getCompactedCount() {
+        return compactedCount.get();
+    }
+
+    /**
+     * @return Durch Deltas eingesparte Bytes seit dem Start
+     */
+    public long getSavedBytes() {
+        return savedBytes.get();
+    }
+
+    /**
+     * @return Anzahl fehlgeschlagener Umwandlungen seit dem Start
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Lädt den Speicherort einer Version, die aktuelle Version aus {@code files}.
+     */
+    private StoredVersion load(int fileId, int version) throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT 1 AS current, ? AS kind, encrypted_path, size_bytes FROM files "
+                     + "WHERE id = ? AND version = ? AND encrypted_path <> '' "
+                     + "UNION ALL SELECT 0, kind, encrypted_path, size_bytes FROM file_versions WHERE file_id = ? AND version = ?")) {
+            stmt.setString(1, KIND_FULL);
+            stmt.setInt(2, fileId);
+            stmt.setInt(3, version);
+            stmt.setInt(4, fileId);
+            stmt.setInt(5, version);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Version " + version + " der Datei " + fileId + " nicht gefunden");
+                }
+                return new StoredVersion(version, rs.getString("kind"), rs.getString("encrypted_path"),
+                        rs.getLong("size_bytes"), rs.getInt("current") == 1);
+            }
+        }
+    }
+
+    private static InputStream decrypt(String encryptedPath) throws IOException {
+        BlobLocation blob = BlobStores.getInstance().resolve(encryptedPath);
+        try {
+            return EncryptionService.getInstance().decryptStream(blob.open());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Version kann nicht entschlüsselt werden: " + e.getMessage(), e);
+        }
+    }
+
+    private static InputStream encrypt(byte[] data) throws IOException {
+        try {
+            return EncryptionService.getInstance().encryptStream(new ByteArrayInputStream(data));
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Delta kann nicht verschlüsselt werden: " + e.getMessage(), e);
+        }
+    }
+
+    private static byte[] readBlob(String encryptedPath) throws IOException {
+        try (InputStream in = decrypt(encryptedPath)) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+
+    /** Speicherort und Form einer Version */
+    private static final class StoredVersion {
+        private final int version;
+        private final String kind;
+        private final String encryptedPath;
+        private final long sizeBytes;
+        private final boolean current;
+
+        private StoredVersion(int version, String kind, String encryptedPath, long sizeBytes, boolean current) {
+            this.version = version;
+            this.kind = kind;
+            this.encryptedPath = encryptedPath;
+            this.sizeBytes = sizeBytes;
+            this.current = current;
+        }
+    }
+}
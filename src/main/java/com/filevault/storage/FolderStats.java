@@ -0,0 +1,194 @@
+package com.filevault.storage;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Liefert Größe und Dateianzahl von Ordnern aus der Tabelle {@code folder_stats}, ohne die
+ * Ordnerhierarchie zu durchlaufen. Die Summen werden von Triggern in {@link DatabaseManager}
+ * bei jeder Änderung an Dateien und Ordnern nachgeführt; {@link #verify()} und
+ * {@link #rebuild()} prüfen bzw. berechnen sie bei Bedarf vollständig neu.
+ */
+public class FolderStats {
+
+    /**
+     * Berechnet die Summen aller Ordner aus {@code files} und {@code folders}. Liefert je Ordner
+     * die Spalten folder_id, direct_bytes, direct_files, total_bytes und total_files.
+     */
+    static final String RECOMPUTE_SQL =
+            "WITH RECURSIVE tree(ancestor, id) AS ("
+            + "SELECT id, id FROM folders "
+            + "UNION SELECT tree.ancestor, f.id FROM folders f JOIN tree ON f.parent_id = tree.id), "
+            + "direct(folder_id, bytes, files) AS ("
+            + "SELECT folder_id, COALESCE(SUM(size_bytes), 0), COUNT(*) FROM files GROUP BY folder_id) "
+            + "SELECT d.id AS folder_id, "
+            + "COALESCE((SELECT bytes FROM direct WHERE folder_id = d.id), 0) AS direct_bytes, "
+            + "COALESCE((SELECT files FROM direct WHERE folder_id = d.id), 0) AS direct_files, "
+            + "COALESCE(SUM(sub.bytes), 0) AS total_bytes, COALESCE(SUM(sub.files), 0) AS total_files "
+            + "FROM folders d JOIN tree t ON t.ancestor = d.id LEFT JOIN direct sub ON sub.folder_id = t.id "
+            + "GROUP BY d.id";
+
+    /** Höchstzahl der IDs je Abfrage in {@link #get(Collection)} */
+    private static final int IN_CHUNK_SIZE = 500;
+
+    /** Die einzige Instanz von FolderStats */
+    private static FolderStats instance;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private FolderStats() {
+    }
+
+    /**
+     * Gibt die einzige Instanz von FolderStats zurück.
+     *
+     * @return Die Singleton-Instanz von FolderStats
+     */
+    public static synchronized FolderStats getInstance() {
+        if (instance == null) {
+            instance = new FolderStats();
+        }
+        return instance;
+    }
+
+    /**
+     * Gibt die Summen eines Ordners zurück.
+     *
+     * @param folderId Die ID des Ordners
+     * @return Die Summen oder {@link FolderTotals#EMPTY}, wenn der Ordner nicht existiert
+     */
+    public FolderTotals get(int folderId) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT direct_bytes, direct_files, total_bytes, total_files FROM folder_stats WHERE folder_id = ?")) {
+            stmt.setInt(1, folderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? read(rs) : FolderTotals.EMPTY;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderStats", "Error loading stats for folder " + folderId + ": " + e.getMessage());
+            return FolderTotals.EMPTY;
+        }
+    }
+
+    /**
+     * Gibt die Summen mehrerer Ordner zurück, z.B. der gerade angezeigten Ordner. Die IDs werden
+     * in Blöcken mit einer Abfrage {@code WHERE folder_id IN (...)} je Block geladen.
+     *
+     * @param folderIds Die IDs der Ordner
+     * @return Die Summen je Ordner-ID; fehlende Ordner sind nicht enthalten
+     */
+    public Map<Integer, FolderTotals> get(Collection<Integer> folderIds) {
+        Map<Integer, FolderTotals> totals = new HashMap<>();
+        List<Integer> ids = new ArrayList<>(folderIds);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            for (int from = 0; from < ids.size(); from += IN_CHUNK_SIZE) {
+                List<Integer> chunk = ids.subList(from, Math.min(ids.size(), from + IN_CHUNK_SIZE));
+                String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "SELECT folder_id, direct_bytes, direct_files, total_bytes, total_files FROM folder_stats "
+                        + "WHERE folder_id IN (" + placeholders + ")")) {
+                    for (int i = 0; i < chunk.size(); i++) {
+                        stmt.setInt(i + 1, chunk.get(i));
+                    }
+                    try (ResultSet rs = stmt.executeQuery()) {
+                        while (rs.next()) {
+                            totals.put(rs.getInt("folder_id"), read(rs));
+                        }
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderStats", "Error loading folder stats: " + e.getMessage());
+        }
+        return totals;
+    }
+
+    /**
+     * Gibt die Summen aller Ordner zurück, z.B. für Auswertungen über den ganzen Tresor.
+     *
+     * @return Die Summen je Ordner-ID
+     */
+    public Map<Integer, FolderTotals> getAll() {
+        Map<Integer, FolderTotals> totals = new HashMap<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT folder_id, direct_bytes, direct_files, total_bytes, total_files FROM folder_stats")) {
+            while (rs.next()) {
+                totals.put(rs.getInt("folder_id"), read(rs));
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderStats", "Error loading folder stats: " + e.getMessage());
+        }
+        return totals;
+    }
+
+    /**
+     * Vergleicht die gespeicherten Summen mit einer vollständigen Neuberechnung.
+     *
+     * @return Die IDs der Ordner, deren gespeicherte Summen abweichen oder fehlen
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<Integer> verify() throws SQLException {
+        List<Integer> mismatches = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT r.folder_id FROM (" + RECOMPUTE_SQL + ") r "
+                     + "LEFT JOIN folder_stats s ON s.folder_id = r.folder_id "
+                     + "WHERE s.folder_id IS NULL OR s.direct_bytes <> r.direct_bytes OR s.direct_files <> r.direct_files "
+                     + "OR s.total_bytes <> r.total_bytes OR s.total_files <> r.total_files "
+                     + "UNION SELECT s.folder_id FROM folder_stats s "
+                     + "WHERE NOT EXISTS (SELECT 1 FROM folders WHERE id = s.folder_id) ORDER BY 1")) {
+            while (rs.next()) {
+                mismatches.add(rs.getInt(1));
+            }
+        }
+        if (!mismatches.isEmpty()) {
+            LoggingUtil.logWarning("FolderStats", "Folder stats out of date for folders " + mismatches);
+        }
+        return mismatches;
+    }
+
+    /**
+     * Berechnet alle Summen in einer Transaktion neu.
+     *
+     * @return Die IDs der Ordner, deren Summen vorher abwichen
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<Integer> rebuild() throws SQLException {
+        List<Integer> mismatches = verify();
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("DELETE FROM folder_stats");
+                stmt.executeUpdate("INSERT INTO folder_stats (folder_id, direct_bytes, direct_files, total_bytes, total_files) "
+                        + RECOMPUTE_SQL);
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        LoggingUtil.logDatabase("Rebuild", "FolderStats", "Folder stats rebuilt, " + mismatches.size() + " folders corrected");
+        return mismatches;
+    }
+
+    private static FolderTotals read(ResultSet rs) throws SQLException {
+        return new FolderTotals(rs.getLong("direct_bytes"), rs.getInt("direct_files"),
+                rs.getLong("total_bytes"), rs.getInt("total_files"));
+    }
+}
@@ -0,0 +1,101 @@
+package com.filevault.storage;
+
+import java.util.Objects;
+
+import com.filevault.model.EncryptedFile;
+
+/**
+ * Größe und Dateianzahl eines Ordners, jeweils nur für den Ordner selbst (direkt) und
+ * für den Ordner samt aller Unterordner (gesamt).
+ */
+public class FolderTotals {
+
+    /** Leere Summen, z.B. für einen Ordner ohne Eintrag in {@code folder_stats} */
+    public static final FolderTotals EMPTY = new FolderTotals(0, 0, 0, 0);
+
+    /** Summe der Dateigrößen direkt im Ordner in Bytes */
+    private final long directBytes;
+
+    /** Anzahl der Dateien direkt im Ordner */
+    private final int directFiles;
+
+    /** Summe der Dateigrößen im Ordner und allen Unterordnern in Bytes */
+    private final long totalBytes;
+
+    /** Anzahl der Dateien im Ordner und allen Unterordnern */
+    private final int totalFiles;
+
+    /**
+     * Erstellt die Summen eines Ordners.
+     *
+     * @param directBytes Summe der Dateigrößen direkt im Ordner
+     * @param directFiles Anzahl der Dateien direkt im Ordner
+     * @param totalBytes Summe der Dateigrößen samt Unterordnern
+     * @param totalFiles Anzahl der Dateien samt Unterordnern
+     */
+    public FolderTotals(long directBytes, int directFiles, long totalBytes, int totalFiles) {
+        this.directBytes = directBytes;
+        this.directFiles = directFiles;
+        this.totalBytes = totalBytes;
+        this.totalFiles = totalFiles;
+    }
+
+    /**
+     * @return Summe der Dateigrößen direkt im Ordner in Bytes
+     */
+    public long getDirectBytes() {
+        return directBytes;
+    }
+
+    /**
+     * @return Anzahl der Dateien direkt im Ordner
+     */
+    public int getDirectFiles() {
+        return directFiles;
+    }
+
+    /**
+     * @return Summe der Dateigrößen im Ordner und allen Unterordnern in Bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * @return Anzahl der Dateien im Ordner und allen Unterordnern
+     */
+    public int getTotalFiles() {
+        return totalFiles;
+    }
+
+    /**
+     * Gibt die Gesamtgröße in lesbarer Form zurück, z.B. {@code "12.5 MB"}.
+     *
+     * @return Die formatierte Gesamtgröße
+     */
+    public String getFormattedTotalSize() {
+        return EncryptedFile.formatSize(totalBytes);
+    }
+
+    @Override
+    public boolean equals(Object obj) {
+        if (this == obj) {
+            return true;
+        }
+        if (!(obj instanceof FolderTotals other)) {
+            return false;
+        }
+        return directBytes == other.directBytes && directFiles == other.directFiles
+                && totalBytes == other.totalBytes && totalFiles == other.totalFiles;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(directBytes, directFiles, totalBytes, totalFiles);
+    }
+
+    @Override
+    public String toString() {
+        return "FolderTotals[direct=" + directBytes + " B/" + directFiles + ", total=" + totalBytes + " B/" + totalFiles + "]";
+    }
+}
@@ -0,0 +1,132 @@
+package com.filevault.storage;
+
+/**
+ * Ergebnis eines Laufs des {@link BlobGarbageCollector}.
+ */
+public class GcReport {
+
+    /** Gibt an, ob nur gezählt und nichts gelöscht wurde */
+    private final boolean dryRun;
+
+    /** Anzahl der untersuchten Dateien im Datenverzeichnis */
+    private final long scannedFiles;
+
+    /** Anzahl der Dateien, die wegen der Schonfrist übersprungen wurden */
+    private final long skippedInGracePeriod;
+
+    /** Anzahl der Dateien ohne Eintrag in der Datenbank */
+    private final long orphanFiles;
+
+    /** Anzahl der gelöschten Dateien */
+    private final long deletedFiles;
+
+    /** Anzahl der Dateien, die nicht gelöscht werden konnten */
+    private final long failedDeletes;
+
+    /** Freigegebener Speicherplatz in Bytes */
+    private final long bytesReclaimed;
+
+    /** Dauer des Laufs in Millisekunden */
+    private final long durationMillis;
+
+    /**
+     * Erstellt einen neuen Bericht.
+     *
+     * @param dryRun Gibt an, ob nur gezählt und nichts gelöscht wurde
+     * @param scannedFiles Anzahl der untersuchten Dateien im Datenverzeichnis
+     * @param skippedInGracePeriod Anzahl der Dateien, die wegen der Schonfrist übersprungen wurden
+     * @param orphanFiles Anzahl der Dateien ohne Eintrag in der Datenbank
+     * @param deletedFiles Anzahl der gelöschten Dateien
+     * @param failedDeletes Anzahl der Dateien, die nicht gelöscht werden konnten
+     * @param bytesReclaimed Freigegebener Speicherplatz in Bytes
+     * @param durationMillis Dauer des Laufs in Millisekunden
+     */
+    public GcReport(boolean dryRun, long scannedFiles, long skippedInGracePeriod, long orphanFiles,
+                    long deletedFiles, long failedDeletes, long bytesReclaimed, long durationMillis) {
+        this.dryRun = dryRun;
+        this.scannedFiles = scannedFiles;
+        this.skippedInGracePeriod = skippedInGracePeriod;
+        this.orphanFiles = orphanFiles;
+        this.deletedFiles = deletedFiles;
+        this.failedDeletes = failedDeletes;
+        this.bytesReclaimed = bytesReclaimed;
+        this.durationMillis = durationMillis;
+    }
+
+    /**
+     * @return true, wenn nur gezählt und nichts gelöscht wurde
+     */
+    public boolean isDryRun() {
+        return dryRun;
+    }
+
+    /**
+     * @return Anzahl der untersuchten Dateien im Datenverzeichnis
+     */
+    public long getScannedFiles() {
+        return scannedFiles;
+    }
+
+    /**
+     * @return Anzahl der Dateien, die wegen der Schonfrist übersprungen wurden
+     */
+    public long getSkippedInGracePeriod() {
+        return skippedInGracePeriod;
+    }
+
+    /**
+     * @return Anzahl der Dateien ohne Eintrag in der Datenbank
+     */
+    public long getOrphanFiles() {
+        return orphanFiles;
+    }
+
+    /**
+     * @return Anzahl der gelöschten Dateien
+     */
+    public long getDeletedFiles() {
+        return deletedFiles;
+    }
+
+    /**
+     * @return Anzahl der Dateien, die nicht gelöscht werden konnten
+     */
+    public long getFailedDeletes() {
+        return failedDeletes;
+    }
+
+    /**
+     * @return Freigegebener Speicherplatz in Bytes
+     */
+    public long getBytesReclaimed() {
+        return bytesReclaimed;
+    }
+
+    /**
+     * @return Dauer des Laufs in Millisekunden
+     */
+    public long getDurationMillis() {
+        return durationMillis;
+    }
+
+    /**
+     * Gibt den Bericht als JSON-Objekt zurück.
+     *
+     * @return Die JSON-Darstellung des Berichts
+     */
+    public String toJson() {
+        return "{\"dryRun\":" + dryRun
+                + ",\"scannedFiles\":" + scannedFiles
+                + ",\"skippedInGracePeriod\":" + skippedInGracePeriod
+                + ",\"orphanFiles\":" + orphanFiles
+                + ",\"deletedFiles\":" + deletedFiles
+                + ",\"failedDeletes\":" + failedDeletes
+                + ",\"bytesReclaimed\":" + bytesReclaimed
+                + ",\"durationMillis\":" + durationMillis + "}";
+    }
+
+    @Override
+    public String toString() {
+        return "GcReport" + toJson();
+    }
+}
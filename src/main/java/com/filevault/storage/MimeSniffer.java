@@ -0,0 +1,468 @@
+package com.filevault.storage;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Erkennt den MIME-Typ einer Datei an ihren ersten Bytes, ersatzweise an der Dateiendung.
+ * Ersetzt beim Import {@code Files.probeContentType}, das unter Linux die MIME-Datenbank des
+ * Desktops liest, langsam sein kann und auf Servern ohne diese Datenbank oft {@code null}
+ * liefert.
+ * <p>
+ * Gelesen wird nur der Anfang des Datenstroms, der ohnehin verschlüsselt wird
+ * ({@link #detect(File, InputStream)} setzt ihn danach zurück). Container wie ZIP, OLE2 oder
+ * Text werden über die Dateiendung verfeinert, z.B. zu DOCX oder JSON. Ergebnisse werden je
+ * Quelldatei (Pfad, Größe, Änderungszeit) gemerkt, sodass erneute Importe derselben Datei
+ * nichts lesen müssen.
+ */
+public class MimeSniffer {
+
+    /** Anzahl der Bytes, die zur Erkennung gelesen werden */
+    public static final int HEAD_BYTES = 4096;
+
+    /** Typ für nicht erkannte Binärdaten */
+    public static final String OCTET_STREAM = "application/octet-stream";
+
+    /** Maximale Anzahl gemerkter Ergebnisse */
+    private static final int MEMO_SIZE = 1024;
+
+    /** MIME-Typen je Dateiendung (klein geschrieben, ohne Punkt) */
+    private static final Map<String, String> EXTENSIONS = new HashMap<>();
+
+    static {
+        // Text und Quelltexte
+        EXTENSIONS.put("txt", "text/plain");
+        EXTENSIONS.put("log", "text/plain");
+        EXTENSIONS.put("ini", "text/plain");
+        EXTENSIONS.put("conf", "text/plain");
+        EXTENSIONS.put("properties", "text/plain");
+        EXTENSIONS.put("md", "text/markdown");
+        EXTENSIONS.put("csv", "text/csv");
+        EXTENSIONS.put("tsv", "text/tab-separated-values");
+        EXTENSIONS.put("html", "text/html");
+        EXTENSIONS.put("htm", "text/html");
+        EXTENSIONS.put("css", "text/css");
+        EXTENSIONS.put("js", "application/javascript");
+        EXTENSIONS.put("json", "application/json");
+        EXTENSIONS.put("xml", "application/xml");
+        EXTENSIONS.put("svg", "image/svg+xml");
+        EXTENSIONS.put("yml", "application/x-yaml");
+        EXTENSIONS.put("yaml", "application/x-yaml");
+        EXTENSIONS.put("sql", "application/sql");
+        EXTENSIONS.put("sh", "application/x-sh");
+        EXTENSIONS.put("java", "text/x-java-source");
+        EXTENSIONS.put("py", "text/x-python");
+        EXTENSIONS.put("c", "text/x-c");
+        EXTENSIONS.put("h", "text/x-c");
+        EXTENSIONS.put("cpp", "text/x-c++src");
+        EXTENSIONS.put("rtf", "application/rtf");
+        // Bilder
+        EXTENSIONS.put("png", "image/png");
+        EXTENSIONS.put("jpg", "image/jpeg");
+        EXTENSIONS.put("jpeg", "image/jpeg");
+        EXTENSIONS.put("gif", "image/gif");
+        EXTENSIONS.put("bmp", "image/bmp");
+        EXTENSIONS.put("webp", "image/webp");
+        EXTENSIONS.put("tif", "image/tiff");
+        EXTENSIONS.put("tiff", "image/tiff");
+        EXTENSIONS.put("ico", "image/vnd.microsoft.icon");
+        EXTENSIONS.put("heic", "image/heic");
+        // Dokumente
+        EXTENSIONS.put("pdf", "application/pdf");
+        EXTENSIONS.put("ps", "application/postscript");
+        EXTENSIONS.put("doc", "application/msword");
+        EXTENSIONS.put("xls", "application/vnd.ms-excel");
+        EXTENSIONS.put("ppt", "application/vnd.ms-powerpoint");
+        EXTENSIONS.put("docx", "application/vnd.openxmlformats-officedocument.wordprocessingml.document");
+        EXTENSIONS.put("xlsx", "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        EXTENSIONS.put("pptx", "application/vnd.openxmlformats-officedocument.presentationml.presentation");
+        EXTENSIONS.put("odt", "application/vnd.oasis.opendocument.text");
+        EXTENSIONS.put("ods", "application/vnd.oasis.opendocument.spreadsheet");
+        EXTENSIONS.put("odp", "application/vnd.oasis.opendocument.presentation");
+        EXTENSIONS.put("epub", "application/epub+zip");
+        // Archive
+        EXTENSIONS.put("zip", "application/zip");
+        EXTENSIONS.put("jar", "application/java-archive");
+        EXTENSIONS.put("gz", "application/gzip");
+        EXTENSIONS.put("tgz", "application/gzip");
+        EXTENSIONS.put("bz2", "application/x-bzip2");
+        EXTENSIONS.put("xz", "application/x-xz");
+        EXTENSIONS.put("zst", "application/zstd");
+        EXTENSIONS.put("7z", "application/x-7z-compressed");
+        EXTENSIONS.put("rar", "application/vnd.rar");
+        EXTENSIONS.put("tar", "application/x-tar");
+        // Audio und Video
+        EXTENSIONS.put("mp3", "audio/mpeg");
+        EXTENSIONS.put("wav", "audio/wav");
+        EXTENSIONS.put("ogg", "audio/ogg");
+        EXTENSIONS.put("flac", "audio/flac");
+        EXTENSIONS.put("m4a", "audio/mp4");
+        EXTENSIONS.put("mp4", "video/mp4");
+        EXTENSIONS.put("mov", "video/quicktime");
+        EXTENSIONS.put("avi", "video/x-msvideo");
+        EXTENSIONS.put("mkv", "video/x-matroska");
+        EXTENSIONS.put("webm", "video/webm");
+        // Sonstige Binärformate
+        EXTENSIONS.put("db", "application/vnd.sqlite3");
+        EXTENSIONS.put("sqlite", "application/vnd.sqlite3");
+        EXTENSIONS.put("class", "application/java-vm");
+        EXTENSIONS.put("exe", "application/x-msdownload");
+        EXTENSIONS.put("dll", "application/x-msdownload");
+        EXTENSIONS.put("wasm", "application/wasm");
+        EXTENSIONS.put("woff", "font/woff");
+        EXTENSIONS.put("woff2", "font/woff2");
+        EXTENSIONS.put("ttf", "font/ttf");
+        EXTENSIONS.put("otf", "font/otf");
+    }
+
+    /** Die einzige Instanz des MimeSniffer */
+    private static MimeSniffer instance;
+
+    /** Gemerkte Ergebnisse je Quelldatei, das am längsten nicht genutzte zuerst */
+    private final Map<String, String> memo = new LinkedHashMap<>(64, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MEMO_SIZE;
+        }
+    };
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private MimeSniffer() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des MimeSniffer zurück.
+     *
+     * @return Die Singleton-Instanz des MimeSniffer
+     */
+    public static synchronized MimeSniffer getInstance() {
+        if (instance == null) {
+            instance = new MimeSniffer();
+        }
+        return instance;
+    }
+
+    /**
+     * Erkennt den MIME-Typ einer Quelldatei am Anfang ihres Datenstroms. Der Datenstrom muss
+     * {@link InputStream#markSupported()} unterstützen und steht danach wieder am Anfang.
+     *
+     * @param sourceFile Die Quelldatei (für Dateiendung und Merkschlüssel)
+     * @param in Der geöffnete Datenstrom der Quelldatei
+     * @return Der erkannte MIME-Typ, nie null
+     * @throws IOException wenn der Anfang nicht gelesen werden kann
+     */
+    public String detect(File sourceFile, InputStream in) throws IOException {
+        String memoKey = sourceFile.getAbsolutePath() + "|" + sourceFile.length() + "|" + sourceFile.lastModified();
+        synchronized (memo) {
+            String known = memo.get(memoKey);
+            if (known != null) {
+                return known;
+            }
+        }
+        in.mark(HEAD_BYTES);
+        byte[] head = in.readNBytes(HEAD_BYTES);
+        in.reset();
+        String mimeType = detect(sourceFile.getName(), head, head.length);
+        synchronized (memo) {
+            memo.put(memoKey, mimeType);
+        }
+        return mimeType;
+    }
+
+    /**
+     * Erkennt den MIME-Typ an den ersten Bytes, ersatzweise an der Dateiendung.
+     *
+     * @param fileName Der Dateiname oder null
+     * @param head Die ersten Bytes der Datei
+     * @param length Die Anzahl gültiger Bytes in {@code head}
+     * @return Der erkannte MIME-Typ, nie null
+     */
+    public String detect(String fileName, byte[] head, int length) {
+        String byExtension = EXTENSIONS.get(extension(fileName));
+        String bySignature = sniff(head, length);
+        if (bySignature == null) {
+            if (looksLikeText(head, length)) {
+                return byExtension != null && isTextual(byExtension) ? byExtension : "text/plain";
+            }
+            return byExtension != null ? byExtension : OCTET_STREAM;
+        }
+        switch (bySignature) {
+            case "application/zip" -> {
+                // OpenDocument und EPUB legen ihren Typ unkomprimiert als ersten Eintrag ab
+                String embedded = zipMimetypeEntry(head, length);
+                if (embedded != null) {
+                    return embedded;
+                }
+                return byExtension != null && (byExtension.contains("openxmlformats") || byExtension.contains("opendocument")
+                        || byExtension.equals("application/java-archive") || byExtension.equals("application/epub+zip"))
+                        ? byExtension : bySignature;
+            }
+            case "application/x-ole-storage" -> {
+                return byExtension != null && (byExtension.startsWith("application/ms") || byExtension.startsWith("application/vnd.ms"))
+                        ? byExtension : bySignature;
+            }
+            case "application/xml" -> {
+                if (indexOf(head, length, "<svg") >= 0) {
+                    return "image/svg+xml";
+                }
+                return byExtension != null && byExtension.endsWith("+xml") ? byExtension : bySignature;
+            }
+            case "text/plain" -> {
+                // Nur BOM erkannt: Textformat über die Endung bestimmen
+                return byExtension != null && isTextual(byExtension) ? byExtension : bySignature;
+            }
+            case "video/x-matroska" -> {
+                return "video/webm".equals(byExtension) ? byExtension : bySignature;
+            }
+            default -> {
+                return bySignature;
+            }
+        }
+    }
+
+    /**
+     * Gibt den MIME-Typ zu einer Dateiendung zurück.
+     *
+     * @param fileName Der Dateiname
+     * @return Der MIME-Typ oder null, wenn die Endung unbekannt ist
+     */
+    public String fromExtension(String fileName) {
+        return EXTENSIONS.get(extension(fileName));
+    }
+
+    /**
+     * Vergleicht den Anfang mit bekannten Dateisignaturen.
+     *
+     * @return Der MIME-Typ oder null, wenn keine Signatur passt
+     */
+    private static String sniff(byte[] b, int n) {
+        if (startsWith(b, n, 0, 0x89, 'P', 'N', 'G', 0x0D, 0x0A, 0x1A, 0x0A)) {
+            return "image/png";
+        }
+        if (startsWith(b, n, 0, 0xFF, 0xD8, 0xFF)) {
+            return "image/jpeg";
+        }
+        if (startsWith(b, n, 0, 'G', 'I', 'F', '8') && n > 5 && (b[4] == '7' || b[4] == '9') && b[5] == 'a') {
+            return "image/gif";
+        }
+        if (startsWith(b, n, 0, 'R', 'I', 'F', 'F')) {
+            if (startsWith(b, n, 8, 'W', 'E', 'B', 'P')) {
+                return "image/webp";
+            }
+            if (startsWith(b, n, 8, 'W', 'A', 'V', 'E')) {
+                return "audio/wav";
+            }
+            if (startsWith(b, n, 8, 'A', 'V', 'I', ' ')) {
+                return "video/x-msvideo";
+            }
+        }
+        if (startsWith(b, n, 0, 'I', 'I', '*', 0) || startsWith(b, n, 0, 'M', 'M', 0, '*')) {
+            return "image/tiff";
+        }
+        if (startsWith(b, n, 0, 'B', 'M') && n >= 14 && b[6] == 0 && b[7] == 0 && b[8] == 0 && b[9] == 0) {
+            return "image/bmp";
+        }
+        if (startsWith(b, n, 0, '%', 'P', 'D', 'F', '-')) {
+            return "application/pdf";
+        }
+        if (startsWith(b, n, 0, '%', '!', 'P', 'S')) {
+            return "application/postscript";
+        }
+        if (startsWith(b, n, 0, '{', '\\', 'r', 't', 'f')) {
+            return "application/rtf";
+        }
+        if (startsWith(b, n, 0, 'P', 'K', 3, 4) || startsWith(b, n, 0, 'P', 'K', 5, 6)) {
+            return "application/zip";
+        }
+        if (startsWith(b, n, 0, 0xD0, 0xCF, 0x11, 0xE0, 0xA1, 0xB1, 0x1A, 0xE1)) {
+            return "application/x-ole-storage";
+        }
+        if (startsWith(b, n, 0, 0x1F, 0x8B)) {
+            return "application/gzip";
+        }
+        if (startsWith(b, n, 0, 'B', 'Z', 'h')) {
+            return "application/x-bzip2";
+        }
+        if (startsWith(b, n, 0, 0xFD, '7', 'z', 'X', 'Z', 0)) {
+            return "application/x-xz";
+        }
+        if (startsWith(b, n, 0, '7', 'z', 0xBC, 0xAF, 0x27, 0x1C)) {
+            return "application/x-7z-compressed";
+        }
+        if (startsWith(b, n, 0, 'R', 'a', 'r', '!', 0x1A, 0x07)) {
+            return "application/vnd.rar";
+        }
+        if (startsWith(b, n, 0, 0x28, 0xB5, 0x2F, 0xFD)) {
+            return "application/zstd";
+        }
+        if (startsWith(b, n, 257, 'u', 's', 't', 'a', 'r')) {
+            return "application/x-tar";
+        }
+        if (startsWith(b, n, 0, 'I', 'D', '3') || (n > 1 && (b[0] & 0xFF) == 0xFF && (b[1] & 0xE6) == 0xE2)) {
+            return "audio/mpeg";
+        }
+        if (startsWith(b, n, 0, 'O', 'g', 'g', 'S')) {
+            return "audio/ogg";
+        }
+        if (startsWith(b, n, 0, 'f', 'L', 'a', 'C')) {
+            return "audio/flac";
+        }
+        if (startsWith(b, n, 4, 'f', 't', 'y', 'p') && n >= 12) {
+            String brand = new String(b, 8, 4, StandardCharsets.ISO_8859_1);
+            return switch (brand) {
+                case "qt  " -> "video/quicktime";
+                case "M4A ", "M4B " -> "audio/mp4";
+                case "heic", "heix", "mif1", "msf1" -> "image/heic";
+                default -> "video/mp4";
+            };
+        }
+        if (startsWith(b, n, 0, 0x1A, 0x45, 0xDF, 0xA3)) {
+            return "video/x-matroska";
+        }
+        if (startsWith(b, n, 0, 'S', 'Q', 'L', 'i', 't', 'e', ' ', 'f', 'o', 'r', 'm', 'a', 't', ' ', '3', 0)) {
+            return "application/vnd.sqlite3";
+        }
+        if (startsWith(b, n, 0, 0x7F, 'E', 'L', 'F')) {
+            return "application/x-executable";
+        }
+        if (startsWith(b, n, 0, 'M', 'Z') && n >= 64) {
+            return "application/x-msdownload";
+        }
+        if (startsWith(b, n, 0, 0xCA, 0xFE, 0xBA, 0xBE)) {
+            return "application/java-vm";
+        }
+        if (startsWith(b, n, 0, 0, 'a', 's', 'm')) {
+            return "application/wasm";
+        }
+        if (startsWith(b, n, 0, 'w', 'O', 'F', 'F')) {
+            return "font/woff";
+        }
+        if (startsWith(b, n, 0, 'w', 'O', 'F', '2')) {
+            return "font/woff2";
+        }
+        if (startsWith(b, n, 0, 'O', 'T', 'T', 'O')) {
+            return "font/otf";
+        }
+        if (startsWith(b, n, 0, 0xEF, 0xBB, 0xBF) || startsWith(b, n, 0, 0xFE, 0xFF) || startsWith(b, n, 0, 0xFF, 0xFE)) {
+            return sniffText(b, n, startsWith(b, n, 0, 0xEF, 0xBB, 0xBF) ? 3 : n);
+        }
+        return sniffText(b, n, 0);
+    }
+
+    /**
+     * Erkennt XML, HTML und Shell-Skripte am Textanfang.
+     *
+     * @param from Erstes zu prüfendes Byte; {@code n} für Texte, die nicht als UTF-8 geprüft werden
+     * @return Der MIME-Typ, {@code text/plain} für Texte mit BOM, sonst null
+     */
+    private static String sniffText(byte[] b, int n, int from) {
+        int start = from;
+        while (start < n && (b[start] == ' ' || b[start] == '\t' || b[start] == '\r' || b[start] == '\n')) {
+            start++;
+        }
+        String prefix = new String(b, start, Math.min(n - start, 64), StandardCharsets.ISO_8859_1).toLowerCase(Locale.ROOT);
+        if (prefix.startsWith("<?xml")) {
+            return "application/xml";
+        }
+        if (prefix.startsWith("<!doctype html") || prefix.startsWith("<html")) {
+            return "text/html";
+        }
+        if (prefix.startsWith("<svg")) {
+            return "image/svg+xml";
+        }
+        if (start == 0 && prefix.startsWith("#!") && (prefix.contains("sh\n") || prefix.contains("sh ") || prefix.contains("bash"))) {
+            return "application/x-sh";
+        }
+        return from > 0 ? "text/plain" : null;
+    }
+
+    /**
+     * Liest den Typ aus einem unkomprimierten ersten ZIP-Eintrag namens {@code mimetype}.
+     */
+    private static String zipMimetypeEntry(byte[] b, int n) {
+        if (n < 38 || !startsWith(b, n, 30, 'm', 'i', 'm', 'e', 't', 'y', 'p', 'e')) {
+            return null;
+        }
+        int method = (b[8] & 0xFF) | (b[9] & 0xFF) << 8;
+        int size = (b[18] & 0xFF) | (b[19] & 0xFF) << 8 | (b[20] & 0xFF) << 16 | (b[21] & 0xFF) << 24;
+        int nameLength = (b[26] & 0xFF) | (b[27] & 0xFF) << 8;
+        int extraLength = (b[28] & 0xFF) | (b[29] & 0xFF) << 8;
+        int offset = 30 + nameLength + extraLength;
+        if (method != 0 || nameLength != 8 || size <= 0 || size > 128 || offset + size > n) {
+            return null;
+        }
+        String type = new String(b, offset, size, StandardCharsets.US_ASCII).trim();
+        return type.matches("[a-z]+/[a-zA-Z0-9.+-]+") ? type : null;
+    }
+
+    /**
+     * Prüft, ob der Anfang wie Text aussieht: gültiges UTF-8 ohne Steuerzeichen außer Leerraum.
+     */
+    private static boolean looksLikeText(byte[] b, int n) {
+        if (n == 0) {
+            return false;
+        }
+        for (int i = 0; i < n; i++) {
+            int c = b[i] & 0xFF;
+            if (c < 0x20 && c != '\t' && c != '\n' && c != '\r' && c != '\f' && c != 0x1B) {
+                return false;
+            }
+        }
+        CharsetDecoder decoder = StandardCharsets.UTF_8.newDecoder()
+                .onMalformedInput(CodingErrorAction.REPORT)
+                .onUnmappableCharacter(CodingErrorAction.REPORT);
+        // endOfInput=false: Ein am Ende abgeschnittenes Mehrbyte-Zeichen ist kein Fehler
+        return !decoder.decode(ByteBuffer.wrap(b, 0, n), CharBuffer.allocate(n), false).isError();
+    }
+
+    private static boolean isTextual(String mimeType) {
+        return mimeType.startsWith("text/") || ContentIndex.isTextType(mimeType) || mimeType.equals("image/svg+xml")
+                || mimeType.equals("application/rtf");
+    }
+
+    private static boolean startsWith(byte[] b, int n, int offset, int... signature) {
+        if (offset + signature.length > n) {
+            return false;
+        }
+        for (int i = 0; i < signature.length; i++) {
+            if ((b[offset + i] & 0xFF) != signature[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(byte[] b, int n, String text) {
+        byte[] needle = text.getBytes(StandardCharsets.US_ASCII);
+        outer:
+        for (int i = 0; i + needle.length <= n; i++) {
+            for (int j = 0; j < needle.length; j++) {
+                if (b[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    private static String extension(String fileName) {
+        if (fileName == null) {
+            return "";
+        }
+        int dot = fileName.lastIndexOf('.');
+        return dot < 0 ? "" : fileName.substring(dot + 1).toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,414 @@
+package com.filevault.storage;
+
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.imageio.ImageIO;
+
+import com.filevault.model.UserManager;
+import com.filevault.security.EncryptionService;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Erzeugt und speichert kleine Vorschaubilder für Bilddateien. Die Vorschauen werden auf einem
+ * begrenzten Thread-Pool aus dem entschlüsselten Original verkleinert, als PNG mit dem
+ * Master-Schlüssel verschlüsselt und in {@code previews} je Datei-ID abgelegt. Beim nächsten
+ * Anzeigen wird nur noch die wenige Kilobyte große Vorschau entschlüsselt.
+ * <p>
+ * Der Cache ist in der Größe begrenzt; beim Überschreiten werden die am längsten nicht
+ * angezeigten Vorschauen entfernt. Gelöschte Dateien verlieren ihre Vorschau über den
+ * Fremdschlüssel, neue Versionen werden an der Versionsnummer erkannt und neu erzeugt.
+ * <p>
+ * Einstellungen über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.preview.size} – Kantenlänge der Vorschau in Pixeln (Standard 64)</li>
+ *   <li>{@code filevault.preview.threads} – Anzahl der Threads zum Erzeugen (Standard 2)</li>
+ *   <li>{@code filevault.preview.maxSourceBytes} – größtes verkleinertes Original in Bytes (Standard 32 MiB)</li>
+ *   <li>{@code filevault.preview.cacheBytes} – Obergrenze des Caches in Bytes (Standard 64 MiB)</li>
+ * </ul>
+ */
+public class PreviewCache {
+
+    /** Maximale Anzahl wartender Aufträge; weitere werden verworfen und beim nächsten Anzeigen erneut angefragt */
+    private static final int MAX_QUEUED = 256;
+
+    /** Die einzige Instanz des PreviewCache */
+    private static PreviewCache instance;
+
+    /** Kantenlänge der Vorschau in Pixeln */
+    private final int size;
+
+    /** Anzahl der Threads zum Erzeugen */
+    private final int threads;
+
+    /** Größtes Original, das verkleinert wird */
+    private final long maxSourceBytes;
+
+    /** Obergrenze des Caches in Bytes */
+    private volatile long cacheBytes;
+
+    /** Laufende Aufträge je Datei-ID, damit jede Vorschau nur einmal erzeugt wird */
+    private final Map<Integer, CompletableFuture<byte[]>> inFlight = new ConcurrentHashMap<>();
+
+    /** Datei-Versionen, für die keine Vorschau erzeugt werden konnte */
+    private final Set<Long> unavailable = ConcurrentHashMap.newKeySet();
+
+    /** Anzahl der aus dem Cache geladenen Vorschauen */
+    private final AtomicLong hitCount = new AtomicLong();
+
+    /** Anzahl der neu erzeugten Vorschauen */
+    private final AtomicLong generatedCount = new AtomicLong();
+
+    /** Anzahl der fehlgeschlagenen Erzeugungen */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Thread-Pool zum Erzeugen, null solange der Dienst nicht läuft */
+    private ThreadPoolExecutor workers;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private PreviewCache() {
+        size = Math.max(16, Integer.getInteger("filevault.preview.size", 64));
+        threads = Math.max(1, Integer.getInteger("filevault.preview.threads", 2));
+        maxSourceBytes = Long.getLong("filevault.preview.maxSourceBytes", 32L * 1024 * 1024);
+        cacheBytes = Long.getLong("filevault.preview.cacheBytes", 64L * 1024 * 1024);
+    }
+
+    /**
+     * Gibt die einzige Instanz des PreviewCache zurück.
+     *
+     * @return Die Singleton-Instanz des PreviewCache
+     */
+    public static synchronized PreviewCache getInstance() {
+        if (instance == null) {
+            instance = new PreviewCache();
+        }
+        return instance;
+    }
+
+    /**
+     * Ändert die Obergrenze des Caches zur Laufzeit.
+     *
+     * @param cacheBytes Obergrenze in Bytes
+     */
+    public void configure(long cacheBytes) {
+        this.cacheBytes = Math.max(0, cacheBytes);
+    }
+
+    /**
+     * Startet den Thread-Pool zum Erzeugen der Vorschauen.
+     */
+    public synchronized void start() {
+        if (workers != null) {
+            return;
+        }
+        AtomicInteger counter = new AtomicInteger();
+        workers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED), runnable -> {
+                    Thread thread = new Thread(runnable, "filevault-preview-" + counter.incrementAndGet());
+                    thread.setDaemon(true);
+                    thread.setPriority(Thread.MIN_PRIORITY);
+                    return thread;
+                });
+    }
+
+    /**
+     * Beendet den Thread-Pool. Nicht erzeugte Vorschauen werden beim nächsten Anzeigen angefragt.
+     */
+    public void shutdown() {
+        ThreadPoolExecutor current;
+        synchronized (this) {
+            current = workers;
+            workers = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            inFlight.values().forEach(future -> future.complete(null));
+            inFlight.clear();
+        }
+    }
+
+    /**
+     * Fordert die Vorschau einer Datei im Hintergrund an. Das Ergebnis wird in der Regel auf
+     * einem Thread des Pools geliefert; Oberflächen müssen es selbst in ihren Thread übernehmen.
+     *
+     * @param fileId Die ID der Datei
+     * @return Das Vorschaubild als PNG, oder null wenn keine Vorschau möglich ist
+     */
+    public CompletableFuture<byte[]> request(int fileId) {
+        ThreadPoolExecutor current;
+        synchronized (this) {
+            current = workers;
+        }
+        if (current == null || UserManager.getInstance().getMasterKey() == null) {
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<byte[]> created = new CompletableFuture<>();
+        CompletableFuture<byte[]> existing = inFlight.putIfAbsent(fileId, created);
+        if (existing != null) {
+            return existing;
+        }
+        try {
+            current.execute(() -> {
+                try {
+                    created.complete(load(fileId));
+                } catch (RuntimeException e) {
+                    created.complete(null);
+                } finally {
+                    inFlight.remove(fileId, created);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            inFlight.remove(fileId, created);
+            created.complete(null);
+        }
+        return created;
+    }
+
+    /**
+     * Gibt die Vorschau einer Datei zurück und erzeugt sie bei Bedarf.
+     *
+     * @param fileId Die ID der Datei
+     * @return Das Vorschaubild als PNG, oder null wenn keine Vorschau möglich ist
+     */
+    public byte[] load(int fileId) {
+        if (UserManager.getInstance().getMasterKey() == null) {
+            return null;
+        }
+        String location;
+        String mimeType;
+        long sourceBytes;
+        int version;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT f.encrypted_path, f.mime_type, f.size_bytes, f.version, p.version AS preview_version, p.data "
+                     + "FROM files f LEFT JOIN previews p ON p.file_id = f.id WHERE f.id = ?")) {
+            stmt.setInt(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                location = rs.getString("encrypted_path");
+                mimeType = rs.getString("mime_type");
+                sourceBytes = rs.getLong("size_bytes");
+                version = rs.getInt("version");
+                byte[] cached = rs.getBytes("data");
+                if (cached != null && rs.getInt("preview_version") == version) {
+                    try {
+                        byte[] png = decrypt(cached);
+                        hitCount.incrementAndGet();
+                        touch(conn, fileId);
+                        return png;
+                    } catch (Exception e) {
+                        // z.B. nach einer Passwortänderung; die Vorschau wird neu erzeugt
+                        LoggingUtil.logWarning("PreviewCache", "Discarding unreadable preview of file " + fileId + ": " + e.getMessage());
+                    }
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("PreviewCache", "Error loading preview for file " + fileId + ": " + e.getMessage());
+            return null;
+        }
+
+        long key = ((long) fileId << 32) | (version & 0xffffffffL);
+        if (!isPreviewable(mimeType) || sourceBytes > maxSourceBytes || unavailable.contains(key)) {
+            return null;
+        }
+        try {
+            byte[] png = render(location);
+            if (png == null) {
+                unavailable.add(key);
+                return null;
+            }
+            store(fileId, version, encrypt(png));
+            generatedCount.incrementAndGet();
+            return png;
+        } catch (Exception e) {
+            failedCount.incrementAndGet();
+            unavailable.add(key);
+            LoggingUtil.logWarning("PreviewCache", "Could not create preview for file " + fileId + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Prüft, ob für Dateien dieses MIME-Typs eine Vorschau erzeugt werden kann.
+     *
+     * @param mimeType Der MIME-Typ oder null
+     * @return true für Bildformate, die das JDK lesen kann
+     */
+    public static boolean isPreviewable(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.toLowerCase(Locale.ROOT);
+        int parameters = type.indexOf(';');
+        if (parameters >= 0) {
+            type = type.substring(0, parameters).trim();
+        }
+        return type.startsWith("image/") && ImageIO.getImageReadersByMIMEType(type).hasNext();
+    }
+
+    /**
+     * Gibt die Anzahl der gespeicherten Vorschauen zurück.
+     *
+     * @return Die Anzahl der Vorschauen
+     */
+    public int countEntries() {
+        return (int) queryLong("SELECT COUNT(*) FROM previews");
+    }
+
+    /**
+     * Gibt die Größe aller gespeicherten Vorschauen zurück.
+     *
+     * @return Die Größe in Bytes
+     */
+    public long getCachedBytes() {
+        return queryLong("SELECT COALESCE(SUM(size_bytes), 0) FROM previews");
+    }
+
+    /**
+     * Gibt die Anzahl der aus dem Cache geladenen Vorschauen seit dem Start zurück.
+     *
+     * @return Die Anzahl der Treffer
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start erzeugten Vorschauen zurück.
+     *
+     * @return Die Anzahl der erzeugten Vorschauen
+     */
+    public long getGeneratedCount() {
+        return generatedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start fehlgeschlagenen Erzeugungen zurück.
+     *
+     * @return Die Anzahl der Fehlschläge
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    /**
+     * Entschlüsselt das Original und verkleinert es auf die Vorschaugröße.
+     *
+     * @return Das Vorschaubild als PNG, oder null wenn das Format nicht gelesen werden kann
+     */
+    private byte[] render(String location) throws Exception {
+        BufferedImage source;
+        try (InputStream decrypted = EncryptionService.getInstance().decryptStream(BlobStores.getInstance().resolve(location).open())) {
+            source = ImageIO.read(decrypted);
+        }
+        if (source == null) {
+            return null;
+        }
+        double scale = Math.min(1.0, (double) size / Math.max(source.getWidth(), source.getHeight()));
+        int width = Math.max(1, (int) Math.round(source.getWidth() * scale));
+        int height = Math.max(1, (int) Math.round(source.getHeight() * scale));
+        BufferedImage thumbnail = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D graphics = thumbnail.createGraphics();
+        try {
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+            graphics.drawImage(source, 0, 0, width, height, null);
+        } finally {
+            graphics.dispose();
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(thumbnail, "png", out);
+        return out.toByteArray();
+    }
+
+    /**
+     * Speichert eine Vorschau und entfernt danach die am längsten nicht angezeigten Vorschauen,
+     * bis der Cache wieder unter der Obergrenze liegt. Wurde die Datei inzwischen gelöscht,
+     * schlägt der Fremdschlüssel fehl und es wird nichts gespeichert.
+     */
+    private void store(int fileId, int version, byte[] encrypted) throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement insert = conn.prepareStatement(
+                         "INSERT OR REPLACE INTO previews (file_id, version, data, size_bytes, last_used) VALUES (?, ?, ?, ?, ?)");
+                 PreparedStatement evict = conn.prepareStatement(
+                         "DELETE FROM previews WHERE file_id IN (SELECT file_id FROM (SELECT file_id, "
+                         + "SUM(size_bytes) OVER (ORDER BY last_used DESC, file_id DESC) AS running FROM previews) "
+                         + "WHERE running > ?)")) {
+                insert.setInt(1, fileId);
+                insert.setInt(2, version);
+                insert.setBytes(3, encrypted);
+                insert.setLong(4, encrypted.length);
+                insert.setLong(5, System.currentTimeMillis());
+                insert.executeUpdate();
+                evict.setLong(1, cacheBytes);
+                evict.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    private static void touch(Connection conn, int fileId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("UPDATE previews SET last_used = ? WHERE file_id = ?")) {
+            stmt.setLong(1, System.currentTimeMillis());
+            stmt.setInt(2, fileId);
+            stmt.executeUpdate();
+        }
+    }
+
+    private static byte[] encrypt(byte[] plain) throws Exception {
+        try (InputStream in = EncryptionService.getInstance().encryptStream(new ByteArrayInputStream(plain))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static byte[] decrypt(byte[] encrypted) throws Exception {
+        try (InputStream in = EncryptionService.getInstance().decryptStream(new ByteArrayInputStream(encrypted))) {
+            return in.readAllBytes();
+        }
+    }
+
+    private static long queryLong(String sql) {
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getLong(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("PreviewCache", "Error reading preview cache: " + e.getMessage());
+            return 0;
+        }
+    }
+}
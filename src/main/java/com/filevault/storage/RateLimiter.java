@@ -0,0 +1,47 @@
+package com.filevault.storage;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Einfache Ratenbegrenzung, die Vorgänge gleichmäßig über die Zeit und über alle Threads verteilt.
+ * Eine Einheit kann ein Löschvorgang oder ein übertragenes Byte sein.
+ */
+class RateLimiter {
+
+    /** Dauer pro Einheit in Nanosekunden, 0 = unbegrenzt */
+    private final double nanosPerPermit;
+
+    /** Frühester Zeitpunkt für den nächsten Vorgang */
+    private long nextSlot = System.nanoTime();
+
+    /**
+     * Erstellt eine Ratenbegrenzung.
+     *
+     * @param permitsPerSecond Obergrenze der Einheiten pro Sekunde (0 = unbegrenzt)
+     */
+    RateLimiter(long permitsPerSecond) {
+        this.nanosPerPermit = permitsPerSecond > 0 ? (double) TimeUnit.SECONDS.toNanos(1) / permitsPerSecond : 0;
+    }
+
+    /**
+     * Wartet, bis die angegebene Anzahl Einheiten verbraucht werden darf.
+     *
+     * @param permits Die Anzahl der Einheiten
+     * @throws InterruptedException wenn der Thread beim Warten unterbrochen wird
+     */
+    void acquire(long permits) throws InterruptedException {
+        if (nanosPerPermit == 0 || permits <= 0) {
+            return;
+        }
+        long wait;
+        synchronized (this) {
+            long now = System.nanoTime();
+            long slot = Math.max(nextSlot, now);
+            nextSlot = slot + (long) (permits * nanosPerPermit);
+            wait = slot - now;
+        }
+        if (wait > 0) {
+            TimeUnit.NANOSECONDS.sleep(wait);
+        }
+    }
+}
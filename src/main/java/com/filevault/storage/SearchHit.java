@@ -0,0 +1,119 @@
+package com.filevault.storage;
+
+/**
+ * Ein Treffer der Volltextsuche: eine Datei oder ein Ordner samt Relevanz.
+ */
+public class SearchHit {
+
+    /** Art eines Treffers */
+    public enum Kind {
+        /** Eine Datei */
+        FILE,
+        /** Ein Ordner */
+        FOLDER
+    }
+
+    /** Art des Treffers */
+    private final Kind kind;
+
+    /** ID der Datei bzw. des Ordners */
+    private final int id;
+
+    /** ID des Ordners, in dem die Datei liegt, bzw. des übergeordneten Ordners */
+    private final Integer folderId;
+
+    /** Dateiname bzw. Ordnername */
+    private final String name;
+
+    /** MIME-Typ der Datei, null bei Ordnern */
+    private final String mimeType;
+
+    /** Name des Ordners, in dem die Datei liegt, null bei Ordnern */
+    private final String folderName;
+
+    /** Beschreibung des Ordners, null bei Dateien */
+    private final String description;
+
+    /** BM25-Bewertung; kleinere Werte bedeuten höhere Relevanz */
+    private final double score;
+
+    /**
+     * Erstellt einen Treffer.
+     *
+     * @param kind Art des Treffers
+     * @param id ID der Datei bzw. des Ordners
+     * @param folderId ID des (übergeordneten) Ordners oder null
+     * @param name Datei- bzw. Ordnername
+     * @param mimeType MIME-Typ oder null
+     * @param folderName Name des Ordners der Datei oder null
+     * @param description Beschreibung des Ordners oder null
+     * @param score BM25-Bewertung
+     */
+    public SearchHit(Kind kind, int id, Integer folderId, String name, String mimeType,
+                     String folderName, String description, double score) {
+        this.kind = kind;
+        this.id = id;
+        this.folderId = folderId;
+        this.name = name;
+        this.mimeType = mimeType;
+        this.folderName = folderName;
+        this.description = description;
+        this.score = score;
+    }
+
+    /**
+     * @return Art des Treffers
+     */
+    public Kind getKind() {
+        return kind;
+    }
+
+    /**
+     * @return ID der Datei bzw. des Ordners
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return ID des (übergeordneten) Ordners oder null
+     */
+    public Integer getFolderId() {
+        return folderId;
+    }
+
+    /**
+     * @return Datei- bzw. Ordnername
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return MIME-Typ der Datei oder null
+     */
+    public String getMimeType() {
+        return mimeType;
+    }
+
+    /**
+     * @return Name des Ordners der Datei oder null
+     */
+    public String getFolderName() {
+        return folderName;
+    }
+
+    /**
+     * @return Beschreibung des Ordners oder null
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @return BM25-Bewertung; kleinere Werte bedeuten höhere Relevanz
+     */
+    public double getScore() {
+        return score;
+    }
+}
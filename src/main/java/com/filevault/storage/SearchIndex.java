@@ -0,0 +1,190 @@
+package com.filevault.storage;
+
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Volltextsuche über Dateinamen, MIME-Typen, Ordnernamen und Ordnerbeschreibungen.
+ * Grundlage ist die FTS5-Tabelle {@code search_index}, die von Triggern in
+ * {@link DatabaseManager} bei jeder Änderung nachgeführt wird. Treffer werden nach BM25
+ * sortiert, wobei Treffer im Namen am stärksten gewichtet werden. Die Seitenaufteilung
+ * erfolgt über einen Cursor aus Bewertung und rowid, sodass spätere Seiten nicht teurer
+ * als die erste sind.
+ */
+public class SearchIndex {
+
+    /** Größte zulässige Seitengröße */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /**
+     * BM25 mit Gewichten je Spalte (kind, ref_id, folder_id, name, mime_type, folder, description).
+     * Kleinere Werte bedeuten höhere Relevanz.
+     */
+    private static final String SCORE = "bm25(search_index, 0.0, 0.0, 0.0, 10.0, 2.0, 4.0, 1.0)";
+
+    /** Die einzige Instanz des SearchIndex */
+    private static SearchIndex instance;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private SearchIndex() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des SearchIndex zurück.
+     *
+     * @return Die Singleton-Instanz des SearchIndex
+     */
+    public static synchronized SearchIndex getInstance() {
+        if (instance == null) {
+            instance = new SearchIndex();
+        }
+        return instance;
+    }
+
+    /**
+     * Sucht Dateien und Ordner. Jedes Wort der Anfrage muss (als Präfix) in einem der
+     * indizierten Felder vorkommen; Sonderzeichen haben keine Bedeutung.
+     *
+     * @param query Die Suchanfrage, z.B. {@code "urlaub pdf"}
+     * @param after Cursor der vorherigen Seite oder null für die erste Seite
+     * @param limit Anzahl der Treffer pro Seite (höchstens {@link #MAX_PAGE_SIZE})
+     * @return Die Seite mit den Treffern
+     * @throws IllegalArgumentException wenn der Cursor ungültig ist
+     */
+    public SearchPage search(String query, String after, int limit) {
+        String match = toMatchExpression(query);
+        if (match.isEmpty()) {
+            return new SearchPage(List.of(), null);
+        }
+        int pageSize = Math.max(1, Math.min(limit, MAX_PAGE_SIZE));
+        double afterScore = 0;
+        long afterRowId = 0;
+        if (after != null && !after.isBlank()) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(after.trim()), StandardCharsets.UTF_8);
+                int separator = raw.indexOf(':');
+                afterScore = Double.parseDouble(raw.substring(0, separator));
+                afterRowId = Long.parseLong(raw.substring(separator + 1));
+            } catch (RuntimeException e) {
+                throw new IllegalArgumentException("Ungültiger Cursor: " + after, e);
+            }
+        }
+
+        StringBuilder sql = new StringBuilder("SELECT * FROM (SELECT rowid AS row_id, kind, ref_id, folder_id, name, ")
+                .append("mime_type, folder, description, ").append(SCORE).append(" AS score ")
+                .append("FROM search_index WHERE search_index MATCH ?)");
+        if (after != null && !after.isBlank()) {
+            sql.append(" WHERE score > ? OR (score = ? AND row_id > ?)");
+        }
+        sql.append(" ORDER BY score, row_id LIMIT ?");
+
+        List<SearchHit> hits = new ArrayList<>();
+        String nextCursor = null;
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(sql.toString())) {
+            int index = 1;
+            stmt.setString(index++, match);
+            if (after != null && !after.isBlank()) {
+                stmt.setDouble(index++, afterScore);
+                stmt.setDouble(index++, afterScore);
+                stmt.setLong(index++, afterRowId);
+            }
+            // Eine Zeile mehr lesen, um zu erkennen, ob eine weitere Seite existiert
+            stmt.setInt(index, pageSize + 1);
+
+            try (ResultSet rs = stmt.executeQuery()) {
+                long lastRowId = 0;
+                while (rs.next()) {
+                    if (hits.size() == pageSize) {
+                        String raw = hits.get(hits.size() - 1).getScore() + ":" + lastRowId;
+                        nextCursor = Base64.getUrlEncoder().withoutPadding()
+                                .encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+                        break;
+                    }
+                    lastRowId = rs.getLong("row_id");
+                    int folderId = rs.getInt("folder_id");
+                    Integer parent = rs.wasNull() ? null : folderId;
+                    hits.add(new SearchHit(
+                            "folder".equals(rs.getString("kind")) ? SearchHit.Kind.FOLDER : SearchHit.Kind.FILE,
+                            rs.getInt("ref_id"),
+                            parent,
+                            rs.getString("name"),
+                            rs.getString("mime_type"),
+                            rs.getString("folder"),
+                            rs.getString("description"),
+                            rs.getDouble("score")));
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("SearchIndex", "Error searching for '" + query + "': " + e.getMessage());
+        }
+        return new SearchPage(hits, nextCursor);
+    }
+
+    /**
+     * Baut den Index aus den Tabellen {@code files} und {@code folders} neu auf,
+     * z.B. nachdem Daten an den Triggern vorbei geändert wurden.
+     *
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public void rebuild() throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement clear = conn.prepareStatement("DELETE FROM search_index");
+                 PreparedStatement folders = conn.prepareStatement(
+                         "INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, description) "
+                         + "SELECT 2 * id + 1, 'folder', id, parent_id, name, description FROM folders");
+                 PreparedStatement files = conn.prepareStatement(
+                         "INSERT INTO search_index (rowid, kind, ref_id, folder_id, name, mime_type, folder) "
+                         + "SELECT 2 * f.id, 'file', f.id, f.folder_id, f.original_name, f.mime_type, d.name "
+                         + "FROM files f LEFT JOIN folders d ON d.id = f.folder_id");
+                 PreparedStatement optimize = conn.prepareStatement(
+                         "INSERT INTO search_index (search_index) VALUES ('optimize')")) {
+                clear.executeUpdate();
+                folders.executeUpdate();
+                files.executeUpdate();
+                optimize.executeUpdate();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        LoggingUtil.logDatabase("Rebuild", "SearchIndex", "Search index rebuilt");
+    }
+
+    /**
+     * Wandelt eine Benutzereingabe in einen FTS5-Ausdruck um: Jedes Wort wird als Präfix
+     * in Anführungszeichen gesetzt, sodass Operatoren und Sonderzeichen keine Wirkung haben.
+     *
+     * @param query Die Benutzereingabe
+     * @return Der FTS5-Ausdruck oder ein leerer String, wenn die Eingabe keine Wörter enthält
+     */
+    static String toMatchExpression(String query) {
+        if (query == null) {
+            return "";
+        }
+        StringBuilder match = new StringBuilder();
+        for (String token : query.trim().split("\\s+")) {
+            // Wörter ohne Buchstaben oder Ziffern ergeben keine Token und würden den Ausdruck ungültig machen
+            if (token.codePoints().noneMatch(Character::isLetterOrDigit)) {
+                continue;
+            }
+            if (match.length() > 0) {
+                match.append(' ');
+            }
+            match.append('"').append(token.replace("\"", "\"\"")).append("\"*");
+        }
+        return match.toString();
+    }
+}
@@ -0,0 +1,55 @@
+package com.filevault.storage;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Eine Seite von Suchergebnissen, wie sie von {@link SearchIndex#search(String, String, int)}
+ * geliefert wird.
+ */
+public class SearchPage {
+
+    /** Die Treffer dieser Seite, nach Relevanz sortiert */
+    private final List<SearchHit> hits;
+
+    /** Cursor für die nächste Seite oder null, wenn dies die letzte Seite ist */
+    private final String nextCursor;
+
+    /**
+     * Erstellt eine neue Seite.
+     *
+     * @param hits Die Treffer dieser Seite
+     * @param nextCursor Cursor für die nächste Seite oder null
+     */
+    public SearchPage(List<SearchHit> hits, String nextCursor) {
+        this.hits = Collections.unmodifiableList(hits);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * Gibt die Treffer dieser Seite zurück.
+     *
+     * @return Unveränderliche Liste der Treffer
+     */
+    public List<SearchHit> getHits() {
+        return hits;
+    }
+
+    /**
+     * Gibt den Cursor für die nächste Seite zurück.
+     *
+     * @return Der Cursor oder null, wenn keine weiteren Treffer existieren
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    /**
+     * Gibt an, ob nach dieser Seite weitere Treffer folgen.
+     *
+     * @return true, wenn eine weitere Seite existiert
+     */
+    public boolean hasMore() {
+        return nextCursor != null;
+    }
+}
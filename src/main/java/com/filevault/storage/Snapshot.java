@@ -0,0 +1,92 @@
+package com.filevault.storage;
+
+import java.time.LocalDateTime;
+
+import com.filevault.model.EncryptedFile;
+
+/**
+ * Ein Snapshot: der eingefrorene Stand aller Ordner und Dateien zu einem Zeitpunkt.
+ */
+public class Snapshot {
+
+    /** ID des Snapshots */
+    private final int id;
+
+    /** Name des Snapshots */
+    private final String name;
+
+    /** Zeitpunkt, zu dem der Snapshot angelegt wurde */
+    private final LocalDateTime createdAt;
+
+    /** Anzahl der Dateien im Snapshot */
+    private final int fileCount;
+
+    /** Summe der Dateigrößen im Snapshot in Bytes */
+    private final long totalBytes;
+
+    /**
+     * Erstellt einen Snapshot.
+     *
+     * @param id ID des Snapshots
+     * @param name Name des Snapshots
+     * @param createdAt Zeitpunkt der Anlage
+     * @param fileCount Anzahl der Dateien
+     * @param totalBytes Summe der Dateigrößen
+     */
+    public Snapshot(int id, String name, LocalDateTime createdAt, int fileCount, long totalBytes) {
+        this.id = id;
+        this.name = name;
+        this.createdAt = createdAt;
+        this.fileCount = fileCount;
+        this.totalBytes = totalBytes;
+    }
+
+    /**
+     * @return ID des Snapshots
+     */
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return Name des Snapshots
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * @return Zeitpunkt der Anlage, null wenn unbekannt
+     */
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    /**
+     * @return Anzahl der Dateien im Snapshot
+     */
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    /**
+     * @return Summe der Dateigrößen im Snapshot in Bytes
+     */
+    public long getTotalBytes() {
+        return totalBytes;
+    }
+
+    /**
+     * Gibt die Gesamtgröße in lesbarer Form zurück, z.B. {@code "12.5 MB"}.
+     *
+     * @return Die formatierte Gesamtgröße
+     */
+    public String getFormattedTotalSize() {
+        return EncryptedFile.formatSize(totalBytes);
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot[id=" + id + ", name=" + name + ", files=" + fileCount + ", bytes=" + totalBytes + "]";
+    }
+}
@@ -0,0 +1,512 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.VirtualFolder;
+import com.filevault.security.EncryptionService;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.FolderManager;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Snapshots des Tresors ohne Kopieren der verschlüsselten Dateien. Beim Anlegen werden die
+ * Einträge aus {@code folders} und {@code files} in einer Transaktion nach
+ * {@code snapshot_folders} und {@code snapshot_files} übernommen; die Blobs selbst werden nur
+ * über Referenzzähler in {@code snapshot_blobs} festgehalten. Da Blobs nie verändert, sondern
+ * immer neu geschrieben werden, genügt das: Die {@link DeletionQueue} entfernt keinen Blob,
+ * solange ein Snapshot auf ihn verweist, auch wenn die Datei inzwischen gelöscht, ersetzt oder
+ * vom {@link TieringService} verschoben wurde.
+ * <p>
+ * Snapshots lassen sich lesend durchsuchen und dateiweise oder ordnerweise wiederherstellen.
+ * Die Wiederherstellung verweist ebenfalls nur auf den vorhandenen Blob; existiert die Datei
+ * noch, entsteht eine neue Version (siehe {@link FileVersions}).
+ */
+public class SnapshotManager {
+
+    /** Die einzige Instanz des SnapshotManager */
+    private static SnapshotManager instance;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private SnapshotManager() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des SnapshotManager zurück.
+     *
+     * @return Die Singleton-Instanz des SnapshotManager
+     */
+    public static synchronized SnapshotManager getInstance() {
+        if (instance == null) {
+            instance = new SnapshotManager();
+        }
+        return instance;
+    }
+
+    /**
+     * Legt einen Snapshot des aktuellen Stands an.
+     *
+     * @param name Der Name des Snapshots
+     * @return Der angelegte Snapshot
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public Snapshot create(String name) throws SQLException {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("Snapshot-Name darf nicht leer sein");
+        }
+        long start = System.currentTimeMillis();
+        int id;
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                // Der erste Schreibzugriff sperrt die Datenbank für andere Schreiber, alle
+                // folgenden Kopien sehen daher denselben Stand
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "INSERT INTO snapshots (name, created_at) VALUES (?, CURRENT_TIMESTAMP)",
+                        Statement.RETURN_GENERATED_KEYS)) {
+                    stmt.setString(1, name);
+                    stmt.executeUpdate();
+                    try (ResultSet keys = stmt.getGeneratedKeys()) {
+                        if (!keys.next()) {
+                            throw new SQLException("Snapshot konnte nicht angelegt werden");
+                        }
+                        id = keys.getInt(1);
+                    }
+                }
+                executeForSnapshot(conn, id,
+                        "INSERT INTO snapshot_folders (snapshot_id, id, name, description, parent_id, created_at) "
+                        + "SELECT ?, id, name, description, parent_id, created_at FROM folders",
+                        "INSERT INTO snapshot_files (snapshot_id, id, folder_id, original_name, encrypted_path, size_bytes, mime_type, created_at) "
+                        + "SELECT ?, id, folder_id, original_name, encrypted_path, size_bytes, mime_type, created_at "
+                        + "FROM files WHERE encrypted_path <> ''",
+                        "INSERT INTO snapshot_blobs (encrypted_path, ref_count) "
+                        + "SELECT encrypted_path, COUNT(*) FROM snapshot_files WHERE snapshot_id = ? GROUP BY encrypted_path "
+                        + "ON CONFLICT (encrypted_path) DO UPDATE SET ref_count = ref_count + excluded.ref_count",
+                        "UPDATE snapshots SET (file_count, total_bytes) = "
+                        + "(SELECT COUNT(*), COALESCE(SUM(size_bytes), 0) FROM snapshot_files WHERE snapshot_id = snapshots.id) "
+                        + "WHERE id = ?");
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        Snapshot snapshot = get(id);
+        LoggingUtil.logDatabase("Snapshot", "snapshots", "Snapshot " + id + " (" + name + ") created with "
+                + snapshot.getFileCount() + " files in " + (System.currentTimeMillis() - start) + " ms");
+        return snapshot;
+    }
+
+    /**
+     * Gibt alle Snapshots zurück, die neuesten zuerst.
+     *
+     * @return Die Snapshots
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<Snapshot> list() throws SQLException {
+        List<Snapshot> snapshots = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(
+                     "SELECT id, name, created_at, file_count, total_bytes FROM snapshots ORDER BY id DESC")) {
+            while (rs.next()) {
+                snapshots.add(mapSnapshot(rs));
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * Gibt einen Snapshot zurück.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @return Der Snapshot oder null, wenn er nicht existiert
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public Snapshot get(int snapshotId) throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, name, created_at, file_count, total_bytes FROM snapshots WHERE id = ?")) {
+            stmt.setInt(1, snapshotId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapSnapshot(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Löscht einen Snapshot. Blobs, auf die danach weder ein Snapshot noch eine Datei verweist,
+     * werden über die {@link DeletionQueue} entfernt.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @return true, wenn der Snapshot gelöscht wurde
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public boolean delete(int snapshotId) throws SQLException {
+        List<String> released = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                executeForSnapshot(conn, snapshotId,
+                        "UPDATE snapshot_blobs SET ref_count = ref_count - "
+                        + "(SELECT COUNT(*) FROM snapshot_files s WHERE s.snapshot_id = ? AND s.encrypted_path = snapshot_blobs.encrypted_path)");
+                try (Statement stmt = conn.createStatement();
+                     ResultSet rs = stmt.executeQuery("SELECT encrypted_path FROM snapshot_blobs WHERE ref_count <= 0")) {
+                    while (rs.next()) {
+                        released.add(rs.getString(1));
+                    }
+                }
+                for (String path : released) {
+                    // Die DeletionQueue überspringt Blobs, auf die noch eine Datei oder Version verweist
+                    DeletionQueue.getInstance().enqueue(conn, path);
+                }
+                int deleted;
+                try (Statement stmt = conn.createStatement()) {
+                    stmt.executeUpdate("DELETE FROM snapshot_blobs WHERE ref_count <= 0");
+                    deleted = stmt.executeUpdate("DELETE FROM snapshots WHERE id = " + snapshotId);
+                }
+                if (deleted == 0) {
+                    conn.rollback();
+                    return false;
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+        if (!released.isEmpty()) {
+            DeletionQueue.getInstance().wakeUp();
+        }
+        LoggingUtil.logDatabase("Delete", "snapshots", "Snapshot " + snapshotId + " deleted, "
+                + released.size() + " blobs released");
+        return true;
+    }
+
+    /**
+     * Gibt alle Ordner eines Snapshots zurück.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @return Die Ordner im Stand des Snapshots
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<VirtualFolder> getFolders(int snapshotId) throws SQLException {
+        List<VirtualFolder> folders = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, name, description, parent_id, created_at FROM snapshot_folders "
+                     + "WHERE snapshot_id = ? ORDER BY name")) {
+            stmt.setInt(1, snapshotId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    int parentId = rs.getInt("parent_id");
+                    VirtualFolder folder = new VirtualFolder(rs.getInt("id"), rs.getString("name"),
+                            rs.getString("description"), rs.wasNull() ? null : parentId);
+                    folder.setCreatedAt(toLocalDateTime(rs.getTimestamp("created_at")));
+                    folders.add(folder);
+                }
+            }
+        }
+        return folders;
+    }
+
+    /**
+     * Gibt die Dateien eines Ordners im Stand des Snapshots zurück.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @param folderId Die ID des Ordners
+     * @return Die Dateien, nach Namen sortiert
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public List<EncryptedFile> getFiles(int snapshotId, int folderId) throws SQLException {
+        List<EncryptedFile> files = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT * FROM snapshot_files WHERE snapshot_id = ? AND folder_id = ? ORDER BY original_name, id")) {
+            stmt.setInt(1, snapshotId);
+            stmt.setInt(2, folderId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    files.add(mapFile(rs));
+                }
+            }
+        }
+        return files;
+    }
+
+    /**
+     * Gibt eine Datei im Stand des Snapshots zurück.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @param fileId Die ID der Datei
+     * @return Die Datei oder null, wenn sie nicht im Snapshot enthalten ist
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    public EncryptedFile getFile(int snapshotId, int fileId) throws SQLException {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT * FROM snapshot_files WHERE snapshot_id = ? AND id = ?")) {
+            stmt.setInt(1, snapshotId);
+            stmt.setInt(2, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? mapFile(rs) : null;
+            }
+        }
+    }
+
+    /**
+     * Öffnet den entschlüsselten Inhalt einer Datei im Stand des Snapshots.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @param fileId Die ID der Datei
+     * @return Der entschlüsselte Inhalt; muss vom Aufrufer geschlossen werden
+     * @throws IOException wenn der Blob nicht gelesen werden kann
+     * @throws SQLException wenn die Datei nicht im Snapshot enthalten ist
+     */
+    public InputStream open(int snapshotId, int fileId) throws IOException, SQLException {
+        EncryptedFile file = requireFile(snapshotId, fileId);
+        try {
+            return EncryptionService.getInstance().decryptStream(
+                    BlobStores.getInstance().resolve(file.getEncryptedPath()).open());
+        } catch (IOException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IOException("Datei kann nicht entschlüsselt werden: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stellt eine Datei aus einem Snapshot wieder her. Existiert im Ordner eine Datei gleichen
+     * Namens, wird der Stand des Snapshots ihre neue Version; fehlende Ordner werden angelegt.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @param fileId Die ID der Datei im Snapshot
+     * @return Die wiederhergestellte Datei
+     * @throws SQLException wenn die Datei nicht im Snapshot enthalten ist oder ein Datenbankfehler auftritt
+     */
+    public EncryptedFile restoreFile(int snapshotId, int fileId) throws SQLException {
+        EncryptedFile file = requireFile(snapshotId, fileId);
+        Map<Integer, Integer> folderMapping = new HashMap<>();
+        int restoredId = restore(snapshotId, file, folderMapping);
+        if (restoredId == -1) {
+            // Unverändert seit dem Snapshot
+            return FileStorage.getInstance().getFileByName(folderMapping.get(file.getFolderId()), file.getOriginalName());
+        }
+        LoggingUtil.logInfo("SnapshotManager", "Restored " + file.getOriginalName() + " from snapshot " + snapshotId);
+        return FileStorage.getInstance().getFileById(restoredId);
+    }
+
+    /**
+     * Stellt einen Ordner samt Unterordnern und Dateien aus einem Snapshot wieder her. Dateien,
+     * die seit dem Snapshot unverändert sind, bleiben unberührt.
+     *
+     * @param snapshotId Die ID des Snapshots
+     * @param folderId Die ID des Ordners im Snapshot
+     * @return Die Anzahl der wiederhergestellten Dateien
+     * @throws SQLException wenn der Ordner nicht im Snapshot enthalten ist oder ein Datenbankfehler auftritt
+     */
+    public int restoreFolder(int snapshotId, int folderId) throws SQLException {
+        List<Integer> folderIds = new ArrayList<>();
+        List<EncryptedFile> files = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement folders = conn.prepareStatement(
+                     "WITH RECURSIVE tree(id) AS (SELECT id FROM snapshot_folders WHERE snapshot_id = ?1 AND id = ?2 "
+                     + "UNION SELECT f.id FROM snapshot_folders f JOIN tree ON f.parent_id = tree.id WHERE f.snapshot_id = ?1) "
+                     + "SELECT id FROM tree");
+             PreparedStatement filesStmt = conn.prepareStatement(
+                     "SELECT * FROM snapshot_files WHERE snapshot_id = ? AND folder_id = ? ORDER BY id")) {
+            folders.setInt(1, snapshotId);
+            folders.setInt(2, folderId);
+            try (ResultSet rs = folders.executeQuery()) {
+                while (rs.next()) {
+                    folderIds.add(rs.getInt(1));
+                }
+            }
+            if (folderIds.isEmpty()) {
+                throw new SQLException("Ordner " + folderId + " nicht in Snapshot " + snapshotId + " enthalten");
+            }
+            for (int id : folderIds) {
+                filesStmt.setInt(1, snapshotId);
+                filesStmt.setInt(2, id);
+                try (ResultSet rs = filesStmt.executeQuery()) {
+                    while (rs.next()) {
+                        files.add(mapFile(rs));
+                    }
+                }
+            }
+        }
+
+        Map<Integer, Integer> folderMapping = new HashMap<>();
+        for (int id : folderIds) {
+            resolveFolder(snapshotId, id, folderMapping);
+        }
+        int restored = 0;
+        for (EncryptedFile file : files) {
+            if (restore(snapshotId, file, folderMapping) != -1) {
+                restored++;
+            }
+        }
+        LoggingUtil.logInfo("SnapshotManager", "Restored folder " + folderId + " from snapshot " + snapshotId
+                + ": " + restored + " of " + files.size() + " files");
+        return restored;
+    }
+
+    /**
+     * Gibt die Anzahl der Snapshots zurück.
+     *
+     * @return Die Anzahl der Einträge in {@code snapshots}
+     */
+    public int countSnapshots() {
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM snapshots")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("SnapshotManager", "Error counting snapshots: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der von Snapshots festgehaltenen Blobs zurück.
+     *
+     * @return Die Anzahl der Einträge in {@code snapshot_blobs}
+     */
+    public int countPinnedBlobs() {
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM snapshot_blobs WHERE ref_count > 0")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("SnapshotManager", "Error counting pinned blobs: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Verknüpft den Blob einer Snapshot-Datei wieder mit einem Dateieintrag.
+     *
+     * @return Die ID des Dateieintrags, -1 wenn die Datei unverändert ist
+     */
+    private int restore(int snapshotId, EncryptedFile file, Map<Integer, Integer> folderMapping) throws SQLException {
+        if (file.getFolderId() == 0) {
+            throw new SQLException("Datei " + file.getId() + " liegt in keinem Ordner");
+        }
+        int folderId = resolveFolder(snapshotId, file.getFolderId(), folderMapping);
+        EncryptedFile existing = FileStorage.getInstance().getFileByName(folderId, file.getOriginalName());
+        if (existing != null && existing.getEncryptedPath().equals(file.getEncryptedPath())) {
+            return -1;
+        }
+        int id = WriteJournal.getInstance().link(file.getEncryptedPath(), folderId, file.getOriginalName(),
+                file.getSizeBytes(), file.getMimeType(), existing != null ? existing.getId() : null);
+        ContentIndex.getInstance().enqueue(id, file.getMimeType());
+        return id;
+    }
+
+    /**
+     * Gibt die ID des aktuellen Ordners zu einem Ordner des Snapshots zurück. Existiert er nicht
+     * mehr, wird ein gleichnamiger Ordner unter dem (ggf. ebenfalls wiederhergestellten)
+     * Elternordner verwendet oder angelegt.
+     */
+    private int resolveFolder(int snapshotId, int folderId, Map<Integer, Integer> folderMapping) throws SQLException {
+        Integer mapped = folderMapping.get(folderId);
+        if (mapped != null) {
+            return mapped;
+        }
+        String name;
+        String description;
+        Integer parentId;
+        try (Connection conn = DatabaseManager.openConnection()) {
+            try (PreparedStatement live = conn.prepareStatement("SELECT 1 FROM folders WHERE id = ?")) {
+                live.setInt(1, folderId);
+                try (ResultSet rs = live.executeQuery()) {
+                    if (rs.next()) {
+                        folderMapping.put(folderId, folderId);
+                        return folderId;
+                    }
+                }
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT name, description, parent_id FROM snapshot_folders WHERE snapshot_id = ? AND id = ?")) {
+                stmt.setInt(1, snapshotId);
+                stmt.setInt(2, folderId);
+                try (ResultSet rs = stmt.executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Ordner " + folderId + " nicht in Snapshot " + snapshotId + " enthalten");
+                    }
+                    name = rs.getString("name");
+                    description = rs.getString("description");
+                    int parent = rs.getInt("parent_id");
+                    parentId = rs.wasNull() ? null : parent;
+                }
+            }
+        }
+
+        Integer targetParent = parentId != null ? resolveFolder(snapshotId, parentId, folderMapping) : null;
+        int target;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id FROM folders WHERE parent_id IS ? AND lower(name) = lower(?) ORDER BY id LIMIT 1")) {
+            stmt.setObject(1, targetParent);
+            stmt.setString(2, name);
+            try (ResultSet rs = stmt.executeQuery()) {
+                target = rs.next() ? rs.getInt(1)
+                        : FolderManager.getInstance().createFolder(name, description, targetParent).getId();
+            }
+        }
+        folderMapping.put(folderId, target);
+        return target;
+    }
+
+    private EncryptedFile requireFile(int snapshotId, int fileId) throws SQLException {
+        EncryptedFile file = getFile(snapshotId, fileId);
+        if (file == null) {
+            throw new SQLException("Datei " + fileId + " nicht in Snapshot " + snapshotId + " enthalten");
+        }
+        return file;
+    }
+
+    private static void executeForSnapshot(Connection conn, int snapshotId, String... sql) throws SQLException {
+        for (String statement : sql) {
+            try (PreparedStatement stmt = conn.prepareStatement(statement)) {
+                stmt.setInt(1, snapshotId);
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    private static Snapshot mapSnapshot(ResultSet rs) throws SQLException {
+        return new Snapshot(rs.getInt("id"), rs.getString("name"), toLocalDateTime(rs.getTimestamp("created_at")),
+                rs.getInt("file_count"), rs.getLong("total_bytes"));
+    }
+
+    private static EncryptedFile mapFile(ResultSet rs) throws SQLException {
+        return new EncryptedFile(
+                rs.getInt("id"),
+                rs.getInt("folder_id"),
+                rs.getString("original_name"),
+                rs.getString("encrypted_path"),
+                rs.getLong("size_bytes"),
+                rs.getString("mime_type"),
+                toLocalDateTime(rs.getTimestamp("created_at")),
+                null
+        );
+    }
+
+    private static LocalDateTime toLocalDateTime(Timestamp timestamp) {
+        return timestamp != null ? timestamp.toLocalDateTime() : null;
+    }
+}
@@ -0,0 +1,405 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStore;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.LocalBlobStore;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Verteilt verschlüsselte Dateien auf einen schnellen und einen günstigen Speicher.
+ * Der schnelle Speicher ist das Standard-Backend aus {@link BlobStores}; Dateien, die länger
+ * als eine einstellbare Frist nicht geöffnet wurden ({@code files.last_access}), werden im
+ * Hintergrund in den Massenspeicher verschoben und beim nächsten Zugriff zurückgeholt.
+ * Die Spalte {@code files.tier} hält fest, in welchem Speicher eine Datei liegt.
+ * <p>
+ * Konfiguration über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.tier.cold.dir} – Verzeichnis des Massenspeichers (Schema {@code cold:})</li>
+ *   <li>{@code filevault.tier.cold} – alternativ das Schema eines registrierten Backends, z.B. {@code s3}</li>
+ *   <li>{@code filevault.tier.coldAfterDays} – Tage ohne Zugriff bis zur Auslagerung (Standard 90)</li>
+ *   <li>{@code filevault.tier.scanIntervalMinutes} – Abstand der Durchläufe (Standard 60)</li>
+ * </ul>
+ * Ohne Massenspeicher ist die Auslagerung abgeschaltet.
+ */
+public class TieringService {
+
+    /** Wert von {@code files.tier} für Dateien im schnellen Speicher */
+    public static final String TIER_HOT = "hot";
+
+    /** Wert von {@code files.tier} für Dateien im Massenspeicher */
+    public static final String TIER_COLD = "cold";
+
+    /** Schema des lokalen Massenspeichers */
+    public static final String COLD_SCHEME = "cold";
+
+    /** Anzahl der Dateien pro Block */
+    private static final int BATCH_SIZE = 100;
+
+    /** Pause zwischen zwei Blöcken, damit Vordergrundzugriffe nicht ausgebremst werden */
+    private static final long PAUSE_BETWEEN_BATCHES_MS = 50;
+
+    /** Format von SQLite CURRENT_TIMESTAMP (UTC) */
+    private static final DateTimeFormatter SQLITE_TIMESTAMP = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+    /** Die einzige Instanz des TieringService */
+    private static TieringService instance;
+
+    /** Anzahl der bisher ausgelagerten Dateien */
+    private final AtomicLong demotedCount = new AtomicLong();
+
+    /** Anzahl der bisher zurückgeholten Dateien */
+    private final AtomicLong promotedCount = new AtomicLong();
+
+    /** Anzahl fehlgeschlagener Verschiebungen */
+    private final AtomicLong failedCount = new AtomicLong();
+
+    /** Dateien, deren Rückholung bereits eingeplant ist */
+    private final Set<Integer> pendingPromotions = ConcurrentHashMap.newKeySet();
+
+    /** Der Massenspeicher, null wenn die Auslagerung abgeschaltet ist */
+    private volatile BlobStore coldStore;
+
+    /** Zeit ohne Zugriff, nach der eine Datei ausgelagert wird */
+    private volatile Duration coldAfter;
+
+    /** Hintergrund-Thread, null solange der Dienst nicht läuft */
+    private ScheduledExecutorService worker;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private TieringService() {
+        coldAfter = Duration.ofDays(Long.getLong("filevault.tier.coldAfterDays", 90));
+        String coldDir = System.getProperty("filevault.tier.cold.dir");
+        String coldScheme = System.getProperty("filevault.tier.cold");
+        if (coldDir != null) {
+            configure(new LocalBlobStore(COLD_SCHEME, Paths.get(coldDir)), coldAfter);
+        } else if (coldScheme != null) {
+            BlobStore store = BlobStores.getInstance().get(coldScheme);
+            if (store == null) {
+                LoggingUtil.logWarning("TieringService", "Blob store '" + coldScheme + "' not available, tiering disabled.");
+            }
+            configure(store, coldAfter);
+        }
+    }
+
+    /**
+     * Gibt die einzige Instanz des TieringService zurück.
+     *
+     * @return Die Singleton-Instanz des TieringService
+     */
+    public static synchronized TieringService getInstance() {
+        if (instance == null) {
+            instance = new TieringService();
+        }
+        return instance;
+    }
+
+    /**
+     * Legt Massenspeicher und Auslagerungsfrist fest und registriert den Massenspeicher.
+     *
+     * @param cold Der Massenspeicher oder null, um die Auslagerung abzuschalten
+     * @param coldAfter Zeit ohne Zugriff, nach der eine Datei ausgelagert wird
+     */
+    public void configure(BlobStore cold, Duration coldAfter) {
+        if (cold != null) {
+            BlobStores.getInstance().register(cold);
+        }
+        this.coldStore = cold;
+        this.coldAfter = coldAfter;
+    }
+
+    /**
+     * Prüft, ob ein Massenspeicher eingerichtet ist.
+     *
+     * @return true, wenn Dateien ausgelagert werden
+     */
+    public boolean isEnabled() {
+        return coldStore != null;
+    }
+
+    /**
+     * Startet die periodische Auslagerung im Hintergrund.
+     */
+    public synchronized void start() {
+        if (worker != null) {
+            return;
+        }
+        if (!isEnabled()) {
+            LoggingUtil.logInfo("TieringService", "No cold tier configured, tiering disabled.");
+            return;
+        }
+        long interval = Long.getLong("filevault.tier.scanIntervalMinutes", 60);
+        worker = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "filevault-tiering");
+            thread.setDaemon(true);
+            thread.setPriority(Thread.MIN_PRIORITY);
+            return thread;
+        });
+        worker.scheduleWithFixedDelay(this::demoteCold, 1, interval, TimeUnit.MINUTES);
+    }
+
+    /**
+     * Beendet den Hintergrund-Thread. Laufende Verschiebungen werden abgebrochen und beim
+     * nächsten Durchlauf wiederholt.
+     */
+    public void shutdown() {
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+            worker = null;
+        }
+        if (current != null) {
+            current.shutdownNow();
+            try {
+                current.awaitTermination(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * Meldet einen Zugriff auf eine Datei. Liegt sie im Massenspeicher, wird sie im
+     * Hintergrund in den schnellen Speicher zurückgeholt.
+     *
+     * @param fileId Die ID der Datei
+     * @param encryptedPath Der Speicherort der Datei aus {@code files.encrypted_path}
+     */
+    public void recordAccess(int fileId, String encryptedPath) {
+        BlobStore cold = coldStore;
+        if (cold == null || !encryptedPath.startsWith(cold.getScheme() + ":")) {
+            return;
+        }
+        ScheduledExecutorService current;
+        synchronized (this) {
+            current = worker;
+        }
+        if (current != null && pendingPromotions.add(fileId)) {
+            current.execute(() -> {
+                try {
+                    promote(fileId);
+                } finally {
+                    pendingPromotions.remove(fileId);
+                }
+            });
+        }
+    }
+
+    /**
+     * Verschiebt alle Dateien, auf die länger als die Frist nicht zugegriffen wurde,
+     * in den Massenspeicher.
+     *
+     * @return Die Anzahl der ausgelagerten Dateien
+     */
+    public int demoteCold() {
+        BlobStore cold = coldStore;
+        if (cold == null) {
+            return 0;
+        }
+        String cutoff = LocalDateTime.now(ZoneOffset.UTC).minus(coldAfter).format(SQLITE_TIMESTAMP);
+        int total = 0;
+        int lastId = 0;
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<Object[]> batch = loadColdCandidates(cutoff, lastId);
+                if (batch.isEmpty()) {
+                    break;
+                }
+                lastId = (Integer) batch.get(batch.size() - 1)[0];
+                for (Object[] entry : batch) {
+                    if (move((Integer) entry[0], (String) entry[1], cold, TIER_COLD)) {
+                        demotedCount.incrementAndGet();
+                        total++;
+                    }
+                }
+                Thread.sleep(PAUSE_BETWEEN_BATCHES_MS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (SQLException e) {
+            LoggingUtil.logError("TieringService", "Tiering pass failed: " + e.getMessage());
+        }
+        if (total > 0) {
+            DeletionQueue.getInstance().wakeUp();
+            LoggingUtil.logInfo("TieringService", total + " files moved to cold tier.");
+        }
+        return total;
+    }
+
+    /**
+     * Holt eine Datei aus dem Massenspeicher in den schnellen Speicher zurück.
+     *
+     * @param fileId Die ID der Datei
+     * @return true, wenn die Datei verschoben wurde
+     */
+    public boolean promote(int fileId) {
+        String location;
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT encrypted_path FROM files WHERE id = ? AND tier = ?")) {
+            stmt.setInt(1, fileId);
+            stmt.setString(2, TIER_COLD);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    return false;
+                }
+                location = rs.getString(1);
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("TieringService", "Error loading file " + fileId + ": " + e.getMessage());
+            return false;
+        }
+        boolean moved = move(fileId, location, BlobStores.getInstance().getDefault(), TIER_HOT);
+        if (moved) {
+            promotedCount.incrementAndGet();
+            DeletionQueue.getInstance().wakeUp();
+        }
+        return moved;
+    }
+
+    /**
+     * Gibt die Anzahl der Dateien je Speicher zurück.
+     *
+     * @param tier {@link #TIER_HOT} oder {@link #TIER_COLD}
+     * @return Die Anzahl der Dateien in diesem Speicher
+     */
+    public int countFiles(String tier) {
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT COUNT(*) FROM files WHERE tier = ?")) {
+            stmt.setString(1, tier);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("TieringService", "Error counting files: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start ausgelagerten Dateien zurück.
+     *
+     * @return Die Anzahl der ausgelagerten Dateien
+     */
+    public long getDemotedCount() {
+        return demotedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl der seit dem Start zurückgeholten Dateien zurück.
+     *
+     * @return Die Anzahl der zurückgeholten Dateien
+     */
+    public long getPromotedCount() {
+        return promotedCount.get();
+    }
+
+    /**
+     * Gibt die Anzahl fehlgeschlagener Verschiebungen zurück.
+     *
+     * @return Die Anzahl der Fehlschläge
+     */
+    public long getFailedCount() {
+        return failedCount.get();
+    }
+
+    private List<Object[]> loadColdCandidates(String cutoff, int afterId) throws SQLException {
+        List<Object[]> batch = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT id, encrypted_path FROM files WHERE tier = ? "
+                     + "AND COALESCE(last_access, created_at) < ? AND id > ? ORDER BY id LIMIT ?")) {
+            stmt.setString(1, TIER_HOT);
+            stmt.setString(2, cutoff);
+            stmt.setInt(3, afterId);
+            stmt.setInt(4, BATCH_SIZE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    batch.add(new Object[] {rs.getInt("id"), rs.getString("encrypted_path")});
+                }
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * Kopiert einen Blob in das Ziel-Backend und stellt den Dateieintrag in einer Transaktion um.
+     * Der alte Blob wird über die {@link DeletionQueue} entfernt, damit sicheres Löschen
+     * berücksichtigt wird. Wurde der Eintrag währenddessen geändert oder gelöscht, wird die
+     * Kopie wieder verworfen.
+     */
+    private boolean move(int fileId, String location, BlobStore target, String tier) {
+        BlobLocation source;
+        try {
+            source = BlobStores.getInstance().resolve(location);
+        } catch (IllegalArgumentException e) {
+            failedCount.incrementAndGet();
+            LoggingUtil.logError("TieringService", "Cannot resolve " + location + ": " + e.getMessage());
+            return false;
+        }
+        if (source.getStore() == target) {
+            return false;
+        }
+        String key = BlobStores.isUri(location) ? source.getKey() : BlobLayout.key(Path.of(location).getFileName().toString());
+        BlobLocation copy = new BlobLocation(target, key);
+
+        try {
+            try (InputStream in = source.open()) {
+                target.put(key, in);
+            }
+            try (Connection conn = DatabaseManager.openConnection()) {
+                conn.setAutoCommit(false);
+                try (PreparedStatement stmt = conn.prepareStatement(
+                        "UPDATE files SET encrypted_path = ?, tier = ? WHERE id = ? AND encrypted_path = ?")) {
+                    stmt.setString(1, copy.getUri());
+                    stmt.setString(2, tier);
+                    stmt.setInt(3, fileId);
+                    stmt.setString(4, location);
+                    if (stmt.executeUpdate() == 0) {
+                        conn.rollback();
+                        copy.delete();
+                        return false;
+                    }
+                    DeletionQueue.getInstance().enqueue(conn, location);
+                    conn.commit();
+                } catch (SQLException e) {
+                    conn.rollback();
+                    throw e;
+                }
+            }
+            return true;
+        } catch (IOException | SQLException e) {
+            failedCount.incrementAndGet();
+            LoggingUtil.logError("TieringService", "Could not move " + location + " to " + tier + " tier: " + e.getMessage());
+            try {
+                copy.delete();
+            } catch (IOException deleteError) {
+                LoggingUtil.logWarning("TieringService", "Could not remove copy " + copy + ": " + deleteError.getMessage());
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,643 @@
+package com.filevault.storage;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Sichert den Tresor als ein ZIP-Archiv je Lauf in ein lokales Verzeichnis und stellt ihn daraus
+ * wieder her. Ein Archiv enthält:
+ * <ul>
+ *   <li>{@code vault.db} – eine konsistente Kopie der Datenbank über die Online-Backup-Schnittstelle von SQLite</li>
+ *   <li>{@code blobs/…} – die verschlüsselten Dateien unverändert; entschlüsselt wird nichts</li>
+ *   <li>{@code manifest.txt} – je Blob Prüfsumme, Größe und das Archiv, in dem er liegt</li>
+ * </ul>
+ * Folgesicherungen sind inkrementell: Blobs werden nie verändert, daher werden nur Blobs kopiert,
+ * die im Manifest der vorherigen Sicherung fehlen; alle übrigen verweisen auf das ältere Archiv.
+ * Die Blobs werden parallel gelesen und nacheinander in das Archiv geschrieben, die Übertragung
+ * kann auf eine Bytes-pro-Sekunde-Obergrenze begrenzt werden. Während der Sicherung hält die
+ * {@link DeletionQueue} an, damit kein Blob aus dem gesicherten Stand entfernt wird.
+ * <p>
+ * Einstellungen über Systemeigenschaften:
+ * <ul>
+ *   <li>{@code filevault.backup.parallelism} – parallele Lese- bzw. Schreibvorgänge (Standard 4)</li>
+ *   <li>{@code filevault.backup.maxBytesPerSecond} – Obergrenze der Übertragung (Standard 0 = unbegrenzt)</li>
+ * </ul>
+ */
+public class VaultBackup {
+
+    /** Präfix der Archivnamen */
+    public static final String ARCHIVE_PREFIX = "vault-backup-";
+
+    /** Endung der Archivnamen */
+    public static final String ARCHIVE_SUFFIX = ".zip";
+
+    /** Name der Datenbankkopie im Archiv */
+    private static final String DB_ENTRY = "vault.db";
+
+    /** Name des Manifests im Archiv */
+    private static final String MANIFEST_ENTRY = "manifest.txt";
+
+    /** Verzeichnis der Blobs im Archiv */
+    private static final String BLOB_PREFIX = "blobs/";
+
+    /** Formatversion des Manifests */
+    private static final int FORMAT_VERSION = 1;
+
+    /** Blobs bis zu dieser Größe werden parallel in den Speicher gelesen, größere beim Schreiben gestreamt */
+    private static final int MAX_BUFFERED_BLOB = 8 * 1024 * 1024;
+
+    /** Zeitstempel im Archivnamen; lexikografisch sortierbar */
+    private static final DateTimeFormatter NAME_FORMAT = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss-SSS");
+
+    /** Die einzige Instanz von VaultBackup */
+    private static VaultBackup instance;
+
+    /** Anzahl paralleler Lese- bzw. Schreibvorgänge */
+    private volatile int parallelism = Integer.getInteger("filevault.backup.parallelism", 4);
+
+    /** Obergrenze der Übertragung in Bytes pro Sekunde, 0 = unbegrenzt */
+    private volatile long maxBytesPerSecond = Long.getLong("filevault.backup.maxBytesPerSecond", 0L);
+
+    /** Bericht des letzten Laufs, null wenn noch keiner stattgefunden hat */
+    private volatile BackupReport lastReport;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private VaultBackup() {
+    }
+
+    /**
+     * Gibt die einzige Instanz von VaultBackup zurück.
+     *
+     * @return Die Singleton-Instanz von VaultBackup
+     */
+    public static synchronized VaultBackup getInstance() {
+        if (instance == null) {
+            instance = new VaultBackup();
+        }
+        return instance;
+    }
+
+    /**
+     * Ändert die Einstellungen zur Laufzeit.
+     *
+     * @param parallelism Anzahl paralleler Lese- bzw. Schreibvorgänge
+     * @param maxBytesPerSecond Obergrenze der Übertragung, 0 = unbegrenzt
+     */
+    public void configure(int parallelism, long maxBytesPerSecond) {
+        this.parallelism = Math.max(1, parallelism);
+        this.maxBytesPerSecond = Math.max(0, maxBytesPerSecond);
+    }
+
+    /**
+     * Gibt den Bericht des letzten Laufs zurück.
+     *
+     * @return Der letzte Bericht oder null, wenn noch kein Lauf stattgefunden hat
+     */
+    public BackupReport getLastReport() {
+        return lastReport;
+    }
+
+    /**
+     * Gibt die Archive in einem Sicherungsverzeichnis zurück, das älteste zuerst.
+     *
+     * @param targetDir Das Sicherungsverzeichnis
+     * @return Die Archive; leer, wenn das Verzeichnis nicht existiert
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann
+     */
+    public List<Path> listArchives(Path targetDir) throws IOException {
+        List<Path> archives = new ArrayList<>();
+        if (!Files.isDirectory(targetDir)) {
+            return archives;
+        }
+        try (Stream<Path> files = Files.list(targetDir)) {
+            files.filter(path -> {
+                String name = path.getFileName().toString();
+                return name.startsWith(ARCHIVE_PREFIX) && name.endsWith(ARCHIVE_SUFFIX);
+            }).sorted().forEach(archives::add);
+        }
+        return archives;
+    }
+
+    /**
+     * Schreibt eine Sicherung in ein Verzeichnis. Liegt dort bereits eine Sicherung, werden nur
+     * die seitdem hinzugekommenen Blobs kopiert.
+     *
+     * @param targetDir Das Sicherungsverzeichnis; wird bei Bedarf angelegt
+     * @return Der Bericht der Sicherung
+     * @throws IOException wenn ein referenzierter Blob fehlt, nicht gelesen oder das Archiv nicht geschrieben werden kann
+     * @throws SQLException wenn die Datenbank nicht gesichert werden kann
+     */
+    public synchronized BackupReport backup(Path targetDir) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        Files.createDirectories(targetDir);
+
+        List<Path> existing = listArchives(targetDir);
+        String baseArchive = null;
+        Map<String, ManifestEntry> previous = new HashMap<>();
+        if (!existing.isEmpty()) {
+            Path base = existing.get(existing.size() - 1);
+            baseArchive = base.getFileName().toString();
+            for (ManifestEntry entry : readManifest(base).values()) {
+                // Nur Blobs übernehmen, deren Archiv noch vorhanden ist
+                if (Files.isRegularFile(targetDir.resolve(entry.archive))) {
+                    previous.put(entry.path, entry);
+                }
+            }
+        }
+
+        String name = ARCHIVE_PREFIX + LocalDateTime.now().format(NAME_FORMAT) + ARCHIVE_SUFFIX;
+        while (Files.exists(targetDir.resolve(name))) {
+            // Namen müssen eindeutig bleiben und chronologisch sortieren
+            name = ARCHIVE_PREFIX + LocalDateTime.now().format(NAME_FORMAT) + ARCHIVE_SUFFIX;
+        }
+        LoggingUtil.logInfo("VaultBackup", "Starting backup to " + targetDir.resolve(name)
+                + (baseArchive != null ? " (incremental on " + baseArchive + ")" : ""));
+
+        Path partial = targetDir.resolve(name + ".part");
+        Path dbCopy = Files.createTempFile(targetDir, "vault-", ".db");
+        RateLimiter limiter = new RateLimiter(maxBytesPerSecond);
+        List<ManifestEntry> manifest = new ArrayList<>();
+        long copied = 0;
+        long reused = 0;
+        List<String> missing = new ArrayList<>();
+        long bytes = 0;
+
+        DeletionQueue.getInstance().hold();
+        try {
+            DatabaseManager.backupTo(dbCopy);
+            List<String> paths = referencedBlobs(dbCopy);
+            List<String> toCopy = new ArrayList<>();
+            for (String path : paths) {
+                ManifestEntry known = previous.get(path);
+                if (known != null) {
+                    manifest.add(known);
+                    reused++;
+                } else {
+                    toCopy.add(path);
+                }
+            }
+
+            try (ZipOutputStream zip = new ZipOutputStream(new BufferedOutputStream(Files.newOutputStream(partial)))) {
+                zip.putNextEntry(new ZipEntry(DB_ENTRY));
+                try (InputStream in = new ThrottledInputStream(Files.newInputStream(dbCopy), limiter)) {
+                    bytes += in.transferTo(zip);
+                }
+                zip.closeEntry();
+
+                // Verschlüsselte Daten lassen sich nicht komprimieren
+                zip.setLevel(Deflater.NO_COMPRESSION);
+                ExecutorService executor = newExecutor("filevault-backup");
+                try {
+                    ArrayDeque<Future<FetchedBlob>> window = new ArrayDeque<>();
+                    Iterator<String> it = toCopy.iterator();
+                    while (it.hasNext() || !window.isEmpty()) {
+                        // Begrenzt die gleichzeitig im Speicher gehaltenen Blobs
+                        while (it.hasNext() && window.size() < parallelism * 2) {
+                            String path = it.next();
+                            window.add(executor.submit(() -> fetch(path, limiter)));
+                        }
+                        FetchedBlob blob = await(window.poll());
+                        if (blob.size < 0) {
+                            missing.add(blob.path);
+                            continue;
+                        }
+                        zip.putNextEntry(new ZipEntry(entryName(blob.path)));
+                        String sha256;
+                        long size;
+                        if (blob.data != null) {
+                            zip.write(blob.data);
+                            sha256 = blob.sha256;
+                            size = blob.data.length;
+                        } else {
+                            MessageDigest digest = newDigest();
+                            try (InputStream in = new DigestInputStream(new ThrottledInputStream(
+                                    BlobStores.getInstance().resolve(blob.path).open(), limiter), digest)) {
+                                size = in.transferTo(zip);
+                            }
+                            sha256 = HexFormat.of().formatHex(digest.digest());
+                        }
+                        zip.closeEntry();
+                        manifest.add(new ManifestEntry(blob.path, sha256, size, name));
+                        copied++;
+                        bytes += size;
+                    }
+                } finally {
+                    executor.shutdownNow();
+                }
+                if (!missing.isEmpty()) {
+                    // Ein Archiv, dessen Datenbank auf fehlende Blobs verweist, wäre nicht wiederherstellbar
+                    throw new IOException(missing.size() + " von " + paths.size()
+                            + " Blobs fehlen, die Sicherung wird verworfen: " + missing.get(0));
+                }
+
+                zip.setLevel(Deflater.DEFAULT_COMPRESSION);
+                zip.putNextEntry(new ZipEntry(MANIFEST_ENTRY));
+                writeManifest(zip, baseArchive, manifest);
+                zip.closeEntry();
+            }
+            Files.move(partial, targetDir.resolve(name), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            DeletionQueue.getInstance().release();
+            Files.deleteIfExists(dbCopy);
+            Files.deleteIfExists(partial);
+        }
+
+        BackupReport report = new BackupReport(false, name, baseArchive, manifest.size(), copied, reused,
+                0, bytes, System.currentTimeMillis() - start);
+        lastReport = report;
+        LoggingUtil.logInfo("VaultBackup", "Backup finished: " + report);
+        return report;
+    }
+
+    /**
+     * Stellt den Tresor aus einem Archiv wieder her. Die Blobs werden parallel aus dem Archiv und
+     * den älteren Archiven, auf die es verweist, in die Blob-Backends geschrieben und dabei gegen
+     * die Prüfsummen des Manifests geprüft. Erst wenn alle Blobs wiederhergestellt sind, wird die
+     * Datenbank ersetzt.
+     *
+     * @param archive Das Archiv
+     * @return Der Bericht der Wiederherstellung
+     * @throws IOException wenn ein Archiv fehlt oder ein Blob fehlerhaft ist; die Datenbank bleibt dann unverändert
+     * @throws SQLException wenn die Datenbank nicht ersetzt werden kann
+     */
+    public synchronized BackupReport restore(Path archive) throws IOException, SQLException {
+        long start = System.currentTimeMillis();
+        Path dir = archive.toAbsolutePath().getParent();
+        String name = archive.getFileName().toString();
+        LoggingUtil.logInfo("VaultBackup", "Starting restore from " + archive);
+
+        Map<String, ManifestEntry> manifest = readManifest(archive);
+        Map<String, ZipFile> archives = new HashMap<>();
+        RateLimiter limiter = new RateLimiter(maxBytesPerSecond);
+        long bytes = 0;
+        long fromOlder = 0;
+        Path dbCopy = Files.createTempFile(dir, "vault-", ".db");
+
+        DeletionQueue.getInstance().hold();
+        try {
+            for (ManifestEntry entry : manifest.values()) {
+                if (!archives.containsKey(entry.archive)) {
+                    Path path = dir.resolve(entry.archive);
+                    if (!Files.isRegularFile(path)) {
+                        throw new IOException("Archiv " + entry.archive + " fehlt, auf das " + name + " verweist");
+                    }
+                    archives.put(entry.archive, new ZipFile(path.toFile()));
+                }
+                if (!entry.archive.equals(name)) {
+                    fromOlder++;
+                }
+            }
+
+            List<Future<Long>> results = new ArrayList<>();
+            List<String> failures = new ArrayList<>();
+            ExecutorService executor = newExecutor("filevault-restore");
+            try {
+                for (ManifestEntry entry : manifest.values()) {
+                    ZipFile zip = archives.get(entry.archive);
+                    results.add(executor.submit(() -> restoreBlob(zip, entry, limiter, dir)));
+                }
+                for (Future<Long> result : results) {
+                    try {
+                        bytes += await(result);
+                    } catch (IOException e) {
+                        failures.add(e.getMessage());
+                        LoggingUtil.logError("VaultBackup", "Restore failed: " + e.getMessage());
+                    }
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+            if (!failures.isEmpty()) {
+                throw new IOException(failures.size() + " von " + manifest.size()
+                        + " Blobs konnten nicht wiederhergestellt werden, die Datenbank bleibt unverändert: " + failures.get(0));
+            }
+
+            try (ZipFile zip = new ZipFile(archive.toFile())) {
+                ZipEntry db = zip.getEntry(DB_ENTRY);
+                if (db == null) {
+                    throw new IOException("Archiv " + name + " enthält keine Datenbank");
+                }
+                try (InputStream in = new ThrottledInputStream(zip.getInputStream(db), limiter)) {
+                    bytes += Files.copy(in, dbCopy, StandardCopyOption.REPLACE_EXISTING);
+                }
+            }
+            DatabaseManager.restoreFrom(dbCopy);
+            // Nach dem Zurücksetzen können Datei-ID und Version für einen anderen Inhalt stehen
+            DecryptedContentCache.getInstance().clear();
+        } finally {
+            for (ZipFile zip : archives.values()) {
+                zip.close();
+            }
+            Files.deleteIfExists(dbCopy);
+            DeletionQueue.getInstance().release();
+        }
+
+        BackupReport report = new BackupReport(true, name, null, manifest.size(), manifest.size() - fromOlder,
+                fromOlder, 0, bytes, System.currentTimeMillis() - start);
+        lastReport = report;
+        LoggingUtil.logInfo("VaultBackup", "Restore finished: " + report);
+        return report;
+    }
+
+    /**
+     * Liest die Blob-Verweise aus der Datenbankkopie. Offene Importe gehören nicht zum
+     * gesicherten Stand und werden aus der Kopie entfernt.
+     */
+    private List<String> referencedBlobs(Path dbCopy) throws SQLException {
+        List<String> paths = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection(dbCopy);
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM write_intents");
+            try (ResultSet rs = stmt.executeQuery(
+                    "SELECT encrypted_path FROM files WHERE encrypted_path <> '' "
+                    + "UNION SELECT encrypted_path FROM file_versions "
+                    + "UNION SELECT encrypted_path FROM snapshot_blobs WHERE ref_count > 0")) {
+                while (rs.next()) {
+                    paths.add(rs.getString(1));
+                }
+            }
+        }
+        return paths;
+    }
+
+    /**
+     * Liest einen Blob für das Archiv. Kleine Blobs werden vollständig gelesen, große nur
+     * vorgemerkt und beim Schreiben gestreamt.
+     */
+    private static FetchedBlob fetch(String path, RateLimiter limiter) throws IOException {
+        BlobLocation location;
+        long size;
+        try {
+            location = BlobStores.getInstance().resolve(path);
+            size = location.getStore().size(location.getKey());
+        } catch (IllegalArgumentException e) {
+            LoggingUtil.logWarning("VaultBackup", "Cannot read blob " + path + ": " + e.getMessage());
+            return new FetchedBlob(path, -1, null, null);
+        }
+        if (size < 0) {
+            LoggingUtil.logWarning("VaultBackup", "Missing blob " + path);
+            return new FetchedBlob(path, -1, null, null);
+        }
+        if (size > MAX_BUFFERED_BLOB) {
+            return new FetchedBlob(path, size, null, null);
+        }
+        MessageDigest digest = newDigest();
+        byte[] data;
+        try (InputStream in = new DigestInputStream(new ThrottledInputStream(location.open(), limiter), digest)) {
+            data = in.readAllBytes();
+        }
+        return new FetchedBlob(path, data.length, data, HexFormat.of().formatHex(digest.digest()));
+    }
+
+    /**
+     * Schreibt einen Blob aus dem Archiv in sein Backend. Der Blob wird zuerst in eine temporäre
+     * Datei kopiert und geprüft; ein beschädigter Blob im Archiv überschreibt so nie einen intakten
+     * Blob im Backend. Blobs, die bereits mit passender Prüfsumme vorhanden sind, werden übersprungen.
+     *
+     * @param tempDir Verzeichnis für die temporäre Kopie
+     * @return Die Anzahl der geschriebenen Bytes
+     */
+    private static Long restoreBlob(ZipFile zip, ManifestEntry entry, RateLimiter limiter, Path tempDir)
+            throws IOException {
+        ZipEntry zipEntry = zip.getEntry(entryName(entry.path));
+        if (zipEntry == null) {
+            throw new IOException("Blob " + entry.path + " fehlt in " + entry.archive);
+        }
+        BlobLocation location;
+        try {
+            location = BlobStores.getInstance().resolve(entry.path);
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Blob " + entry.path + ": " + e.getMessage(), e);
+        }
+        if (location.getStore().size(location.getKey()) == entry.size && entry.sha256.equals(hashOf(location))) {
+            return 0L;
+        }
+
+        Path temp = Files.createTempFile(tempDir, "blob-", ".part");
+        try {
+            MessageDigest digest = newDigest();
+            long copied;
+            try (InputStream in = new DigestInputStream(
+                    new ThrottledInputStream(zip.getInputStream(zipEntry), limiter), digest)) {
+                copied = Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            }
+            String sha256 = HexFormat.of().formatHex(digest.digest());
+            if (copied != entry.size || !sha256.equals(entry.sha256)) {
+                throw new IOException("Blob " + entry.path + " in " + entry.archive + " ist beschädigt");
+            }
+            try (InputStream in = Files.newInputStream(temp)) {
+                return location.getStore().put(location.getKey(), in);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Berechnet die Prüfsumme eines vorhandenen Blobs.
+     */
+    private static String hashOf(BlobLocation location) throws IOException {
+        MessageDigest digest = newDigest();
+        try (InputStream in = new DigestInputStream(location.open(), digest)) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Liest das Manifest eines Archivs.
+     *
+     * @return Die Einträge nach Blob-Pfad
+     */
+    private static Map<String, ManifestEntry> readManifest(Path archive) throws IOException {
+        Map<String, ManifestEntry> entries = new LinkedHashMap<>();
+        try (ZipFile zip = new ZipFile(archive.toFile())) {
+            ZipEntry manifest = zip.getEntry(MANIFEST_ENTRY);
+            if (manifest == null) {
+                throw new IOException("Archiv " + archive.getFileName() + " enthält kein Manifest");
+            }
+            try (BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(zip.getInputStream(manifest), StandardCharsets.UTF_8))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (line.startsWith("format=") && !line.equals("format=" + FORMAT_VERSION)) {
+                        throw new IOException("Unbekanntes Sicherungsformat in " + archive.getFileName() + ": " + line);
+                    }
+                    if (!line.startsWith("blob ")) {
+                        continue;
+                    }
+                    String[] parts = line.split(" ", 5);
+                    if (parts.length < 5) {
+                        throw new IOException("Ungültige Zeile im Manifest von " + archive.getFileName() + ": " + line);
+                    }
+                    entries.put(parts[4], new ManifestEntry(parts[4], parts[1], Long.parseLong(parts[2]), parts[3]));
+                }
+            }
+        }
+        return entries;
+    }
+
+    /**
+     * Schreibt das Manifest: Kopfzeilen, danach je Blob
+     * {@code blob <sha256> <größe> <archiv> <pfad>}.
+     */
+    private static void writeManifest(OutputStream out, String baseArchive, List<ManifestEntry> entries) throws IOException {
+        StringBuilder manifest = new StringBuilder();
+        manifest.append("format=").append(FORMAT_VERSION).append('\n')
+                .append("created=").append(LocalDateTime.now()).append('\n')
+                .append("base=").append(baseArchive != null ? baseArchive : "").append('\n');
+        for (ManifestEntry entry : entries) {
+            manifest.append("blob ").append(entry.sha256).append(' ').append(entry.size).append(' ')
+                    .append(entry.archive).append(' ').append(entry.path).append('\n');
+        }
+        out.write(manifest.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Bildet den Namen eines Blobs im Archiv. Alte Einträge mit absolutem Pfad erhalten das
+     * Präfix {@code legacy}.
+     */
+    private static String entryName(String path) {
+        return BLOB_PREFIX + (BlobStores.isUri(path) ? path : "legacy/" + path.replace('\\', '/'));
+    }
+
+    private ExecutorService newExecutor(String threadName) {
+        return Executors.newFixedThreadPool(parallelism, runnable -> {
+            Thread thread = new Thread(runnable, threadName);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static <T> T await(Future<T> future) throws IOException {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Sicherung unterbrochen");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException(e.getCause().getMessage(), e.getCause());
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 nicht verfügbar", e);
+        }
+    }
+
+    /** Eintrag des Manifests */
+    private static final class ManifestEntry {
+        private final String path;
+        private final String sha256;
+        private final long size;
+        private final String archive;
+
+        private ManifestEntry(String path, String sha256, long size, String archive) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+            this.archive = archive;
+        }
+    }
+
+    /** Ein für das Archiv gelesener Blob; {@code size} ist -1, wenn er fehlt */
+    private static final class FetchedBlob {
+        private final String path;
+        private final long size;
+        private final byte[] data;
+        private final String sha256;
+
+        private FetchedBlob(String path, long size, byte[] data, String sha256) {
+            this.path = path;
+            this.size = size;
+            this.data = data;
+            this.sha256 = sha256;
+        }
+    }
+
+    /**
+     * Datenstrom, der jeden gelesenen Block über den {@link RateLimiter} abrechnet.
+     */
+    private static class ThrottledInputStream extends FilterInputStream {
+
+        private final RateLimiter limiter;
+
+        ThrottledInputStream(InputStream in, RateLimiter limiter) {
+            super(in);
+            this.limiter = limiter;
+        }
+
+        @Override
+        public int read() throws IOException {
+            int b = super.read();
+            if (b >= 0) {
+                throttle(1);
+            }
+            return b;
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            int n = super.read(buffer, offset, length);
+            throttle(n);
+            return n;
+        }
+
+        private void throttle(long bytes) throws InterruptedIOException {
+            try {
+                limiter.acquire(bytes);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Übertragung unterbrochen");
+            }
+        }
+    }
+}
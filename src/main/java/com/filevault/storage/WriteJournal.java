@@ -0,0 +1,492 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Savepoint;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.LocalBlobStore;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Absichern von Importen über ein Absichts-Journal (Tabelle {@code write_intents}).
+ * Ein Import läuft in drei Schritten ab:
+ * <ol>
+ *   <li>{@link #begin} vermerkt Speicherort und Metadaten der neuen Datei im Journal,</li>
+ *   <li>der Blob wird über das {@link com.filevault.storage.blob.BlobStore} dauerhaft geschrieben
+ *       (temporäre Datei, fsync, atomares Umbenennen),</li>
+ *   <li>{@link #complete} legt den Dateieintrag an und entfernt den Journaleintrag in einer Transaktion.</li>
+ * </ol>
+ * Schreibzugriffe mehrerer gleichzeitiger Importe werden von einem Hintergrund-Thread in einer
+ * gemeinsamen Transaktion festgeschrieben (Group Commit), sodass sich die Importe die
+ * fsync-Aufrufe der Datenbank teilen. Nach einem Absturz spielt {@link #recover()} offene
+ * Einträge nach: Ist der Blob vollständig vorhanden, wird der Dateieintrag nachgetragen,
+ * andernfalls werden Reste entfernt.
+ */
+public class WriteJournal {
+
+    /** Höchstzahl an Schreibzugriffen pro gemeinsamer Transaktion */
+    private static final int MAX_BATCH_SIZE = 256;
+
+    /** Kennung dieses Prozesses, damit die Wiederherstellung laufende Importe anderer Prozesse nicht stört */
+    private static final String OWNER = ProcessHandle.current().pid() + "@"
+            + ProcessHandle.current().info().startInstant().map(Object::toString).orElse("");
+
+    /** Die einzige Instanz des WriteJournal */
+    private static WriteJournal instance;
+
+    /** Schreibzugriff in der gemeinsamen Transaktion */
+    @FunctionalInterface
+    public interface SqlWork<T> {
+        /**
+         * Führt den Schreibzugriff aus.
+         *
+         * @param conn Die Verbindung der gemeinsamen Transaktion
+         * @return Das Ergebnis des Zugriffs
+         * @throws SQLException wenn der Zugriff fehlschlägt; nur dieser Zugriff wird zurückgerollt
+         */
+        T run(Connection conn) throws SQLException;
+    }
+
+    /** Ein wartender Schreibzugriff */
+    private static final class Pending<T> {
+        private final SqlWork<T> work;
+        private final CompletableFuture<T> result = new CompletableFuture<>();
+        private T value;
+
+        private Pending(SqlWork<T> work) {
+            this.work = work;
+        }
+
+        private void run(Connection conn) throws SQLException {
+            value = work.run(conn);
+        }
+    }
+
+    /** Wartende Schreibzugriffe */
+    private final BlockingQueue<Pending<?>> queue = new LinkedBlockingQueue<>();
+
+    /** Anzahl der gemeinsamen Transaktionen */
+    private final AtomicLong commitBatches = new AtomicLong();
+
+    /** Anzahl der darin festgeschriebenen Schreibzugriffe */
+    private final AtomicLong committedWrites = new AtomicLong();
+
+    /** Anzahl der bei der Wiederherstellung nachgetragenen Importe */
+    private final AtomicLong replayedCount = new AtomicLong();
+
+    /** Anzahl der bei der Wiederherstellung verworfenen Importe */
+    private final AtomicLong rolledBackCount = new AtomicLong();
+
+    /** Thread, der die gemeinsamen Transaktionen festschreibt; null solange er nicht läuft */
+    private Thread committer;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private WriteJournal() {
+    }
+
+    /**
+     * Gibt die einzige Instanz des WriteJournal zurück.
+     *
+     * @return Die Singleton-Instanz des WriteJournal
+     */
+    public static synchronized WriteJournal getInstance() {
+        if (instance == null) {
+            instance = new WriteJournal();
+        }
+        return instance;
+    }
+
+    /**
+     * Vermerkt einen beginnenden Import im Journal.
+     *
+     * @param encryptedPath Der künftige Speicherort des Blobs (Blob-URI)
+     * @param folderId Die ID des Zielordners
+     * @param originalName Der ursprüngliche Dateiname
+     * @param sizeBytes Die Größe der unverschlüsselten Datei
+     * @param mimeType Der MIME-Typ
+     * @return Die ID des Journaleintrags
+     * @throws SQLException wenn der Eintrag nicht geschrieben werden kann
+     */
+    public long begin(String encryptedPath, int folderId, String originalName, long sizeBytes, String mimeType)
+            throws SQLException {
+        return begin(encryptedPath, folderId, originalName, sizeBytes, mimeType, null);
+    }
+
+    /**
+     * Vermerkt einen beginnenden Import im Journal. Ist {@code fileId} gesetzt, wird der Import
+     * als neue Version dieser Datei abgeschlossen: Die bisherige Version wandert nach
+     * {@code file_versions} und der Dateieintrag zeigt auf den neuen Blob.
+     *
+     * @param encryptedPath Der künftige Speicherort des Blobs (Blob-URI)
+     * @param folderId Die ID des Zielordners
+     * @param originalName Der ursprüngliche Dateiname
+     * @param sizeBytes Die Größe der unverschlüsselten Datei
+     * @param mimeType Der MIME-Typ
+     * @param fileId Die ID der Datei, deren neue Version importiert wird, oder null für eine neue Datei
+     * @return Die ID des Journaleintrags
+     * @throws SQLException wenn der Eintrag nicht geschrieben werden kann
+     */
+    public long begin(String encryptedPath, int folderId, String originalName, long sizeBytes, String mimeType,
+                      Integer fileId) throws SQLException {
+        return execute(conn -> insertIntent(conn, encryptedPath, folderId, originalName, sizeBytes, mimeType, fileId));
+    }
+
+    /**
+     * Legt einen Dateieintrag bzw. eine neue Version für einen bereits vorhandenen Blob an, z.B.
+     * beim Wiederherstellen aus einem Snapshot. Da kein Blob geschrieben wird, geschieht das in
+     * einer einzigen Transaktion ohne offenen Journaleintrag.
+     *
+     * @param encryptedPath Der Speicherort des vorhandenen Blobs (Blob-URI)
+     * @param folderId Die ID des Zielordners
+     * @param originalName Der Dateiname
+     * @param sizeBytes Die Größe der unverschlüsselten Datei
+     * @param mimeType Der MIME-Typ
+     * @param fileId Die ID der Datei, deren neue Version angelegt wird, oder null für eine neue Datei
+     * @return Die ID des neuen oder aktualisierten Dateieintrags
+     * @throws SQLException wenn der Eintrag nicht angelegt werden kann
+     */
+    public int link(String encryptedPath, int folderId, String originalName, long sizeBytes, String mimeType,
+                    Integer fileId) throws SQLException {
+        return execute(conn -> completeIntent(conn,
+                insertIntent(conn, encryptedPath, folderId, originalName, sizeBytes, mimeType, fileId)));
+    }
+
+    /**
+     * Schließt einen Import ab, nachdem der Blob dauerhaft geschrieben wurde: Der Dateieintrag
+     * wird angelegt (bzw. bei einer neuen Version aktualisiert) und der Journaleintrag entfernt.
+     *
+     * @param intentId Die ID des Journaleintrags
+     * @return Die ID des neuen oder aktualisierten Dateieintrags
+     * @throws SQLException wenn der Dateieintrag nicht angelegt werden kann
+     */
+    public int complete(long intentId) throws SQLException {
+        return execute(conn -> completeIntent(conn, intentId));
+    }
+
+    /**
+     * Bricht einen Import ab: Der Blob und etwaige temporäre Dateien werden entfernt und
+     * der Journaleintrag gelöscht. Schlägt das fehl, holt {@link #recover()} es nach.
+     *
+     * @param intentId Die ID des Journaleintrags
+     * @param encryptedPath Der Speicherort des Blobs
+     */
+    public void abort(long intentId, String encryptedPath) {
+        try {
+            removeBlob(encryptedPath);
+            execute(conn -> deleteIntent(conn, intentId));
+        } catch (IOException | SQLException | IllegalArgumentException e) {
+            LoggingUtil.logError("WriteJournal", "Could not roll back import of " + encryptedPath + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Spielt Journaleinträge nach, deren Import durch einen Absturz nicht abgeschlossen wurde.
+     * Einträge laufender Importe eines anderen, noch aktiven Prozesses bleiben unberührt.
+     * Sollte beim Start nach {@link DatabaseManager#initDatabase()} aufgerufen werden.
+     *
+     * @return Die Anzahl der bearbeiteten Einträge
+     */
+    public int recover() {
+        List<Object[]> intents = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT id, encrypted_path, owner FROM write_intents ORDER BY id")) {
+            while (rs.next()) {
+                if (!isOwnerAlive(rs.getString("owner"))) {
+                    intents.add(new Object[] {rs.getLong("id"), rs.getString("encrypted_path")});
+                }
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("WriteJournal", "Could not read write journal: " + e.getMessage());
+            return 0;
+        }
+
+        for (Object[] intent : intents) {
+            long intentId = (Long) intent[0];
+            String encryptedPath = (String) intent[1];
+            try {
+                if (BlobStores.getInstance().resolve(encryptedPath).exists()) {
+                    // Der Blob ist vollständig (er wird erst nach fsync umbenannt): Dateieintrag nachtragen
+                    execute(conn -> completeIntent(conn, intentId));
+                    replayedCount.incrementAndGet();
+                    continue;
+                }
+            } catch (IOException | SQLException | IllegalArgumentException e) {
+                LoggingUtil.logWarning("WriteJournal", "Could not replay import of " + encryptedPath + ": " + e.getMessage());
+            }
+            abort(intentId, encryptedPath);
+            rolledBackCount.incrementAndGet();
+        }
+        if (!intents.isEmpty()) {
+            LoggingUtil.logInfo("WriteJournal", "Recovered write journal: " + replayedCount.get() + " replayed, "
+                    + rolledBackCount.get() + " rolled back.");
+        }
+        return intents.size();
+    }
+
+    /**
+     * Führt einen Schreibzugriff in der nächsten gemeinsamen Transaktion aus und wartet, bis
+     * diese festgeschrieben ist.
+     *
+     * @param work Der Schreibzugriff
+     * @return Das Ergebnis des Zugriffs
+     * @throws SQLException wenn der Zugriff oder das Festschreiben fehlschlägt
+     */
+    public <T> T execute(SqlWork<T> work) throws SQLException {
+        Pending<T> pending = new Pending<>(work);
+        queue.add(pending);
+        ensureCommitterRunning();
+        try {
+            return pending.result.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Warten auf das Festschreiben unterbrochen", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sql) {
+                throw sql;
+            }
+            throw new SQLException(e.getCause());
+        }
+    }
+
+    /**
+     * Gibt die Anzahl der offenen Journaleinträge zurück.
+     *
+     * @return Die Anzahl laufender oder unterbrochener Importe
+     */
+    public int getPendingIntents() {
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM write_intents")) {
+            return rs.next() ? rs.getInt(1) : 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("WriteJournal", "Error counting write intents: " + e.getMessage());
+            return 0;
+        }
+    }
+
+    /**
+     * @return Anzahl der gemeinsamen Transaktionen
+     */
+    public long getCommitBatches() {
+        return commitBatches.get();
+    }
+
+    /**
+     * @return Anzahl der festgeschriebenen Schreibzugriffe
+     */
+    public long getCommittedWrites() {
+        return committedWrites.get();
+    }
+
+    /**
+     * @return Anzahl der bei der Wiederherstellung nachgetragenen Importe
+     */
+    public long getReplayedCount() {
+        return replayedCount.get();
+    }
+
+    /**
+     * @return Anzahl der bei der Wiederherstellung verworfenen Importe
+     */
+    public long getRolledBackCount() {
+        return rolledBackCount.get();
+    }
+
+    private synchronized void ensureCommitterRunning() {
+        if (committer == null || !committer.isAlive()) {
+            committer = new Thread(this::commitLoop, "filevault-group-commit");
+            committer.setDaemon(true);
+            committer.start();
+        }
+    }
+
+    private void commitLoop() {
+        List<Pending<?>> batch = new ArrayList<>();
+        while (true) {
+            try {
+                batch.add(queue.take());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            // Alles mitnehmen, was sich während der vorigen Transaktion angesammelt hat
+            queue.drainTo(batch, MAX_BATCH_SIZE - 1);
+            commitBatch(batch);
+            batch.clear();
+        }
+    }
+
+    private void commitBatch(List<Pending<?>> batch) {
+        List<Pending<?>> succeeded = new ArrayList<>();
+        try (Connection conn = DatabaseManager.openConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                for (Pending<?> pending : batch) {
+                    Savepoint savepoint = conn.setSavepoint();
+                    try {
+                        pending.run(conn);
+                        conn.releaseSavepoint(savepoint);
+                        succeeded.add(pending);
+                    } catch (SQLException | RuntimeException e) {
+                        conn.rollback(savepoint);
+                        pending.result.completeExceptionally(e);
+                    }
+                }
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("WriteJournal", "Group commit failed: " + e.getMessage());
+            for (Pending<?> pending : batch) {
+                pending.result.completeExceptionally(e);
+            }
+            return;
+        }
+        commitBatches.incrementAndGet();
+        committedWrites.addAndGet(succeeded.size());
+        for (Pending<?> pending : succeeded) {
+            complete(pending);
+        }
+    }
+
+    private static <T> void complete(Pending<T> pending) {
+        pending.result.complete(pending.value);
+    }
+
+    private static long insertIntent(Connection conn, String encryptedPath, int folderId, String originalName,
+                                     long sizeBytes, String mimeType, Integer fileId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO write_intents (encrypted_path, folder_id, original_name, size_bytes, mime_type, owner, file_id) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, encryptedPath);
+            stmt.setInt(2, folderId);
+            stmt.setString(3, originalName);
+            stmt.setLong(4, sizeBytes);
+            stmt.setString(5, mimeType);
+            stmt.setString(6, OWNER);
+            stmt.setObject(7, fileId);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Journaleintrag konnte nicht angelegt werden");
+                }
+                return keys.getLong(1);
+            }
+        }
+    }
+
+    private static int completeIntent(Connection conn, long intentId) throws SQLException {
+        Integer versionOf;
+        try (PreparedStatement stmt = conn.prepareStatement("SELECT file_id FROM write_intents WHERE id = ?")) {
+            stmt.setLong(1, intentId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                if (!rs.next()) {
+                    throw new SQLException("Journaleintrag " + intentId + " nicht gefunden");
+                }
+                int id = rs.getInt("file_id");
+                versionOf = rs.wasNull() ? null : id;
+            }
+        }
+        if (versionOf != null) {
+            completeVersion(conn, intentId, versionOf);
+            deleteIntent(conn, intentId);
+            return versionOf;
+        }
+
+        int fileId;
+        try (PreparedStatement stmt = conn.prepareStatement(
+                "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type, created_at) "
+                + "SELECT folder_id, original_name, encrypted_path, size_bytes, mime_type, CURRENT_TIMESTAMP "
+                + "FROM write_intents WHERE id = ?", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setLong(1, intentId);
+            if (stmt.executeUpdate() == 0) {
+                throw new SQLException("Journaleintrag " + intentId + " nicht gefunden");
+            }
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                if (!keys.next()) {
+                    throw new SQLException("Dateieintrag konnte nicht angelegt werden");
+                }
+                fileId = keys.getInt(1);
+            }
+        }
+        deleteIntent(conn, intentId);
+        return fileId;
+    }
+
+    /**
+     * Verschiebt die aktuelle Version einer Datei nach {@code file_versions} und lässt den
+     * Dateieintrag auf den Blob des Journaleintrags zeigen.
+     */
+    private static void completeVersion(Connection conn, long intentId, int fileId) throws SQLException {
+        try (PreparedStatement history = conn.prepareStatement(
+                "INSERT INTO file_versions (file_id, version, kind, encrypted_path, size_bytes, stored_bytes, mime_type, created_at) "
+                + "SELECT id, version, ?, encrypted_path, size_bytes, size_bytes, mime_type, created_at "
+                + "FROM files WHERE id = ? AND encrypted_path <> ''");
+             PreparedStatement update = conn.prepareStatement(
+                "UPDATE files SET (encrypted_path, size_bytes, mime_type) = "
+                + "(SELECT encrypted_path, size_bytes, mime_type FROM write_intents WHERE id = ?), "
+                + "version = version + 1, created_at = CURRENT_TIMESTAMP, tier = ? WHERE id = ?")) {
+            history.setString(1, FileVersions.KIND_FULL);
+            history.setInt(2, fileId);
+            history.executeUpdate();
+            update.setLong(1, intentId);
+            update.setString(2, TieringService.TIER_HOT);
+            update.setInt(3, fileId);
+            if (update.executeUpdate() == 0) {
+                throw new SQLException("Datei " + fileId + " für neue Version nicht gefunden");
+            }
+        }
+    }
+
+    private static Void deleteIntent(Connection conn, long intentId) throws SQLException {
+        try (PreparedStatement stmt = conn.prepareStatement("DELETE FROM write_intents WHERE id = ?")) {
+            stmt.setLong(1, intentId);
+            stmt.executeUpdate();
+        }
+        return null;
+    }
+
+    private static void removeBlob(String encryptedPath) throws IOException {
+        BlobLocation blob = BlobStores.getInstance().resolve(encryptedPath);
+        blob.delete();
+        if (blob.getStore() instanceof LocalBlobStore local) {
+            local.deleteTemporaryFiles(blob.getKey());
+        }
+    }
+
+    private static boolean isOwnerAlive(String owner) {
+        if (owner == null || owner.equals(OWNER)) {
+            // Eigene Einträge beim Start stammen nie aus einem laufenden Import
+            return false;
+        }
+        int at = owner.indexOf('@');
+        try {
+            long pid = Long.parseLong(owner.substring(0, at));
+            String started = owner.substring(at + 1);
+            return ProcessHandle.of(pid)
+                    .filter(ProcessHandle::isAlive)
+                    .map(handle -> handle.info().startInstant().map(Object::toString).orElse("").equals(started))
+                    .orElse(false);
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            return false;
+        }
+    }
+}
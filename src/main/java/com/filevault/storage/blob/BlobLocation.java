@@ -0,0 +1,85 @@
+package com.filevault.storage.blob;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Ein aufgelöster Blob: das zuständige Backend und der Schlüssel darin.
+ */
+public final class BlobLocation {
+
+    /** Das zuständige Backend */
+    private final BlobStore store;
+
+    /** Der Schlüssel im Backend */
+    private final String key;
+
+    /**
+     * Erstellt einen aufgelösten Blob.
+     *
+     * @param store Das zuständige Backend
+     * @param key Der Schlüssel im Backend
+     */
+    public BlobLocation(BlobStore store, String key) {
+        this.store = store;
+        this.key = key;
+    }
+
+    /**
+     * @return Das zuständige Backend
+     */
+    public BlobStore getStore() {
+        return store;
+    }
+
+    /**
+     * @return Der Schlüssel im Backend
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * Gibt die Blob-URI zurück, wie sie in {@code files.encrypted_path} gespeichert wird.
+     *
+     * @return Die URI in der Form {@code schema:schlüssel}
+     */
+    public String getUri() {
+        return store.getScheme() + ":" + key;
+    }
+
+    /**
+     * Öffnet den Blob vollständig zum Lesen.
+     *
+     * @return Ein Datenstrom, den der Aufrufer schließen muss
+     * @throws IOException wenn der Blob nicht gelesen werden kann
+     */
+    public InputStream open() throws IOException {
+        return store.get(key);
+    }
+
+    /**
+     * Prüft, ob der Blob existiert.
+     *
+     * @return true, wenn der Blob existiert
+     * @throws IOException wenn die Abfrage fehlschlägt
+     */
+    public boolean exists() throws IOException {
+        return store.exists(key);
+    }
+
+    /**
+     * Löscht den Blob.
+     *
+     * @return true, wenn der Blob existierte und gelöscht wurde
+     * @throws IOException wenn das Löschen fehlschlägt
+     */
+    public boolean delete() throws IOException {
+        return store.delete(key);
+    }
+
+    @Override
+    public String toString() {
+        return getUri();
+    }
+}
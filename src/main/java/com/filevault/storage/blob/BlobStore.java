@@ -0,0 +1,107 @@
+package com.filevault.storage.blob;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * Schnittstelle für Speicher-Backends der verschlüsselten Dateien.
+ * Ein Blob wird über einen Schlüssel adressiert (z.B. {@code ab/cd/<uuid>}); zusammen mit dem
+ * {@link #getScheme() Schema} des Backends ergibt sich die Blob-URI, die in
+ * {@code files.encrypted_path} gespeichert wird (z.B. {@code local:ab/cd/<uuid>}).
+ * Implementierungen müssen threadsicher sein.
+ */
+public interface BlobStore extends Closeable {
+
+    /**
+     * Gibt das URI-Schema des Backends zurück.
+     *
+     * @return Das Schema, z.B. {@code local}, {@code mem} oder {@code s3}
+     */
+    String getScheme();
+
+    /**
+     * Schreibt einen Blob vollständig aus einem Datenstrom. Ein vorhandener Blob mit
+     * demselben Schlüssel wird ersetzt. Der Datenstrom wird nicht geschlossen.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @param data Der Inhalt
+     * @return Die Anzahl der geschriebenen Bytes
+     * @throws IOException wenn das Schreiben fehlschlägt
+     */
+    long put(String key, InputStream data) throws IOException;
+
+    /**
+     * Öffnet einen Ausschnitt eines Blobs zum Lesen.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @param offset Die Startposition in Bytes
+     * @param length Die Anzahl der Bytes, oder -1 bis zum Ende
+     * @return Ein Datenstrom, den der Aufrufer schließen muss
+     * @throws java.io.FileNotFoundException wenn der Blob nicht existiert
+     * @throws IOException wenn das Lesen fehlschlägt
+     */
+    InputStream get(String key, long offset, long length) throws IOException;
+
+    /**
+     * Öffnet einen Blob vollständig zum Lesen.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @return Ein Datenstrom, den der Aufrufer schließen muss
+     * @throws java.io.FileNotFoundException wenn der Blob nicht existiert
+     * @throws IOException wenn das Lesen fehlschlägt
+     */
+    default InputStream get(String key) throws IOException {
+        return get(key, 0, -1);
+    }
+
+    /**
+     * Löscht einen Blob.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @return true, wenn der Blob existierte und gelöscht wurde
+     * @throws IOException wenn das Löschen fehlschlägt
+     */
+    boolean delete(String key) throws IOException;
+
+    /**
+     * Gibt die Größe eines Blobs zurück.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @return Die Größe in Bytes, oder -1 wenn der Blob nicht existiert
+     * @throws IOException wenn die Abfrage fehlschlägt
+     */
+    long size(String key) throws IOException;
+
+    /**
+     * Prüft, ob ein Blob existiert.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @return true, wenn der Blob existiert
+     * @throws IOException wenn die Abfrage fehlschlägt
+     */
+    default boolean exists(String key) throws IOException {
+        return size(key) >= 0;
+    }
+
+    /**
+     * Listet die Schlüssel aller Blobs mit einem Präfix auf. Die Schlüssel werden
+     * nacheinander übergeben, ohne die gesamte Liste im Speicher zu halten.
+     *
+     * @param prefix Das Präfix, leer für alle Blobs
+     * @param consumer Empfänger der Schlüssel
+     * @throws IOException wenn die Auflistung fehlschlägt
+     */
+    void list(String prefix, Consumer<String> consumer) throws IOException;
+
+    /**
+     * Gibt die Ressourcen des Backends frei, z.B. Threads für parallele Uploads.
+     * Danach darf das Backend nicht mehr verwendet werden.
+     *
+     * @throws IOException wenn die Freigabe fehlschlägt
+     */
+    @Override
+    default void close() throws IOException {
+    }
+}
@@ -0,0 +1,179 @@
+package com.filevault.storage.blob;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+import com.filevault.util.FolderManager;
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Verwaltet die verfügbaren {@link BlobStore}-Backends und löst Blob-URIs auf.
+ * Immer verfügbar sind das lokale Backend ({@code local:}) im Datenverzeichnis und das
+ * In-Memory-Backend ({@code mem:}). Ein S3-Backend ({@code s3:}) wird über Systemeigenschaften
+ * eingerichtet:
+ * <ul>
+ *   <li>{@code filevault.blobstore} – Backend für neue Dateien: {@code local} (Standard), {@code mem} oder {@code s3}</li>
+ *   <li>{@code filevault.s3.endpoint}, {@code filevault.s3.bucket} – Dienst und Bucket</li>
+ *   <li>{@code filevault.s3.region} – Region (Standard {@code us-east-1})</li>
+ *   <li>{@code filevault.s3.accessKey}, {@code filevault.s3.secretKey} – Zugangsdaten</li>
+ * </ul>
+ * Einträge ohne Schema sind absolute Pfade aus älteren Versionen und werden vom lokalen
+ * Backend gelesen.
+ */
+public class BlobStores {
+
+    /** Erkennt ein URI-Schema; mindestens zwei Zeichen, damit Windows-Laufwerke ({@code C:}) nicht passen */
+    private static final Pattern SCHEME_PATTERN = Pattern.compile("[a-z][a-z0-9+.-]+");
+
+    /** Die einzige Instanz von BlobStores */
+    private static BlobStores instance;
+
+    /** Registrierte Backends nach Schema */
+    private final Map<String, BlobStore> stores = new ConcurrentHashMap<>();
+
+    /** Das lokale Backend im Datenverzeichnis */
+    private final LocalBlobStore localStore;
+
+    /** Backend für neue Dateien */
+    private volatile BlobStore defaultStore;
+
+    /**
+     * Privater Konstruktor für das Singleton-Pattern.
+     */
+    private BlobStores() {
+        localStore = new LocalBlobStore(Paths.get(FolderManager.getInstance().getDataDirectoryPath()));
+        register(localStore);
+        register(new InMemoryBlobStore());
+        configureS3();
+
+        String configured = System.getProperty("filevault.blobstore", LocalBlobStore.SCHEME);
+        defaultStore = stores.getOrDefault(configured, localStore);
+        if (!defaultStore.getScheme().equals(configured)) {
+            LoggingUtil.logWarning("BlobStores", "Blob store '" + configured + "' not available, using local storage.");
+        }
+    }
+
+    /**
+     * Gibt die einzige Instanz von BlobStores zurück.
+     *
+     * @return Die Singleton-Instanz von BlobStores
+     */
+    public static synchronized BlobStores getInstance() {
+        if (instance == null) {
+            instance = new BlobStores();
+        }
+        return instance;
+    }
+
+    /**
+     * Registriert ein Backend. Ein vorhandenes Backend mit demselben Schema wird ersetzt.
+     *
+     * @param store Das Backend
+     */
+    public void register(BlobStore store) {
+        stores.put(store.getScheme(), store);
+    }
+
+    /**
+     * Gibt das Backend zu einem Schema zurück.
+     *
+     * @param scheme Das Schema
+     * @return Das Backend oder null, wenn keines registriert ist
+     */
+    public BlobStore get(String scheme) {
+        return stores.get(scheme);
+    }
+
+    /**
+     * Gibt das lokale Backend im Datenverzeichnis zurück.
+     *
+     * @return Das lokale Backend
+     */
+    public LocalBlobStore getLocal() {
+        return localStore;
+    }
+
+    /**
+     * Gibt das Backend zurück, in das neue Dateien geschrieben werden.
+     *
+     * @return Das Standard-Backend
+     */
+    public BlobStore getDefault() {
+        return defaultStore;
+    }
+
+    /**
+     * Legt das Backend fest, in das neue Dateien geschrieben werden, und registriert es.
+     *
+     * @param store Das neue Standard-Backend
+     */
+    public void setDefault(BlobStore store) {
+        register(store);
+        defaultStore = store;
+    }
+
+    /**
+     * Gibt die Ressourcen aller registrierten Backends frei. Sollte beim Beenden der
+     * Anwendung aufgerufen werden.
+     */
+    public void shutdown() {
+        for (BlobStore store : stores.values()) {
+            try {
+                store.close();
+            } catch (IOException e) {
+                LoggingUtil.logWarning("BlobStores", "Could not close blob store " + store.getScheme() + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Löst den Inhalt von {@code files.encrypted_path} in Backend und Schlüssel auf.
+     *
+     * @param location Eine Blob-URI ({@code schema:schlüssel}) oder ein absoluter Pfad
+     * @return Der aufgelöste Blob
+     * @throws IllegalArgumentException wenn das Schema keinem registrierten Backend entspricht
+     */
+    public BlobLocation resolve(String location) {
+        int colon = location.indexOf(':');
+        if (colon > 0) {
+            String scheme = location.substring(0, colon);
+            if (SCHEME_PATTERN.matcher(scheme).matches()) {
+                BlobStore store = stores.get(scheme);
+                if (store == null) {
+                    throw new IllegalArgumentException("Kein BlobStore für Schema '" + scheme + "' konfiguriert");
+                }
+                return new BlobLocation(store, location.substring(colon + 1));
+            }
+        }
+        return new BlobLocation(localStore, location);
+    }
+
+    /**
+     * Prüft, ob ein Eintrag eine Blob-URI und kein alter absoluter Pfad ist.
+     *
+     * @param location Der Inhalt von {@code files.encrypted_path}
+     * @return true, wenn ein Schema vorhanden ist
+     */
+    public static boolean isUri(String location) {
+        int colon = location.indexOf(':');
+        return colon > 0 && SCHEME_PATTERN.matcher(location.substring(0, colon)).matches();
+    }
+
+    private void configureS3() {
+        String endpoint = System.getProperty("filevault.s3.endpoint");
+        String bucket = System.getProperty("filevault.s3.bucket");
+        if (endpoint == null || bucket == null) {
+            return;
+        }
+        register(new S3BlobStore(URI.create(endpoint),
+                System.getProperty("filevault.s3.region", "us-east-1"),
+                bucket,
+                System.getProperty("filevault.s3.accessKey", ""),
+                System.getProperty("filevault.s3.secretKey", "")));
+        LoggingUtil.logInfo("BlobStores", "S3 blob store configured for bucket " + bucket + " at " + endpoint);
+    }
+}
@@ -0,0 +1,65 @@
+package com.filevault.storage.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+/**
+ * Hält Blobs ausschließlich im Arbeitsspeicher. Gedacht für Tests und flüchtige Tresore,
+ * deren Inhalt beim Beenden der Anwendung verworfen werden darf.
+ */
+public class InMemoryBlobStore implements BlobStore {
+
+    /** URI-Schema des In-Memory-Backends */
+    public static final String SCHEME = "mem";
+
+    /** Inhalt der Blobs, nach Schlüssel sortiert für die Auflistung per Präfix */
+    private final ConcurrentSkipListMap<String, byte[]> blobs = new ConcurrentSkipListMap<>();
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public long put(String key, InputStream data) throws IOException {
+        byte[] content = data.readAllBytes();
+        blobs.put(key, content);
+        return content.length;
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        byte[] content = blobs.get(key);
+        if (content == null) {
+            throw new FileNotFoundException(key);
+        }
+        int start = (int) Math.min(offset, content.length);
+        int count = length < 0 ? content.length - start : (int) Math.min(length, content.length - start);
+        return new ByteArrayInputStream(content, start, count);
+    }
+
+    @Override
+    public boolean delete(String key) {
+        return blobs.remove(key) != null;
+    }
+
+    @Override
+    public long size(String key) {
+        byte[] content = blobs.get(key);
+        return content != null ? content.length : -1;
+    }
+
+    @Override
+    public void list(String prefix, Consumer<String> consumer) {
+        for (String key : blobs.tailMap(prefix).keySet()) {
+            if (!key.startsWith(prefix)) {
+                break;
+            }
+            consumer.accept(key);
+        }
+    }
+}
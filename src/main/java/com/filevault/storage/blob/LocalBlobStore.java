@@ -0,0 +1,230 @@
+package com.filevault.storage.blob;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+
+/**
+ * Speichert Blobs als Dateien unterhalb eines Wurzelverzeichnisses im lokalen Dateisystem.
+ * Schlüssel sind relative Pfade mit {@code /} als Trennzeichen. Absolute Pfade werden
+ * ebenfalls akzeptiert, damit Einträge aus der Zeit vor den Blob-URIs lesbar bleiben.
+ */
+public class LocalBlobStore implements BlobStore {
+
+    /** URI-Schema des lokalen Backends */
+    public static final String SCHEME = "local";
+
+    /** Endung temporärer Dateien während des Schreibens */
+    private static final String TEMP_SUFFIX = ".tmp";
+
+    /** Fasst fsync-Aufrufe gleichzeitiger Schreibvorgänge zusammen */
+    private final SyncBatcher syncBatcher = new SyncBatcher();
+
+    /** URI-Schema dieses Backends */
+    private final String scheme;
+
+    /** Wurzelverzeichnis der Blobs */
+    private final Path root;
+
+    /**
+     * Erstellt das lokale Backend mit dem Schema {@value #SCHEME}.
+     *
+     * @param root Das Wurzelverzeichnis der Blobs
+     */
+    public LocalBlobStore(Path root) {
+        this(SCHEME, root);
+    }
+
+    /**
+     * Erstellt ein lokales Backend mit eigenem Schema, z.B. für ein weiteres Verzeichnis
+     * auf einem anderen Datenträger.
+     *
+     * @param scheme Das URI-Schema
+     * @param root Das Wurzelverzeichnis der Blobs
+     */
+    public LocalBlobStore(String scheme, Path root) {
+        this.scheme = scheme;
+        this.root = root.toAbsolutePath();
+    }
+
+    @Override
+    public String getScheme() {
+        return scheme;
+    }
+
+    /**
+     * Gibt das Wurzelverzeichnis zurück.
+     *
+     * @return Das Wurzelverzeichnis der Blobs
+     */
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Gibt den Dateipfad zu einem Schlüssel zurück.
+     *
+     * @param key Der Schlüssel des Blobs oder ein absoluter Pfad
+     * @return Der Pfad der Datei
+     * @throws IllegalArgumentException wenn ein relativer Schlüssel aus dem Wurzelverzeichnis herausführt
+     */
+    public Path toPath(String key) {
+        Path path = Path.of(key);
+        if (path.isAbsolute()) {
+            return path;
+        }
+        Path resolved = root.resolve(path).normalize();
+        if (!resolved.startsWith(root) || resolved.equals(root)) {
+            throw new IllegalArgumentException("Ungültiger Blob-Schlüssel: " + key);
+        }
+        return resolved;
+    }
+
+    /**
+     * Gibt den Schlüssel zu einem Pfad unterhalb des Wurzelverzeichnisses zurück.
+     *
+     * @param path Der Pfad der Datei
+     * @return Der relative Schlüssel mit {@code /} als Trennzeichen
+     */
+    public String toKey(Path path) {
+        return root.relativize(path.toAbsolutePath()).toString().replace(path.getFileSystem().getSeparator(), "/");
+    }
+
+    /**
+     * Schreibt einen Blob absturzsicher: Die Daten landen zuerst in einer temporären Datei,
+     * die per fsync gesichert und dann atomar umbenannt wird; anschließend wird auch das
+     * Verzeichnis synchronisiert. Die fsync-Aufrufe gleichzeitiger Schreibvorgänge werden
+     * über einen {@link SyncBatcher} zusammengefasst. Kehrt die Methode zurück, liegt der Blob
+     * vollständig und dauerhaft unter dem Schlüssel; nach einem Absturz davor liegt dort nichts.
+     */
+    @Override
+    public long put(String key, InputStream data) throws IOException {
+        Path target = toPath(key);
+        List<Path> createdDirectories = new ArrayList<>();
+        for (Path dir = target.getParent(); dir != null && !Files.isDirectory(dir); dir = dir.getParent()) {
+            createdDirectories.add(dir.getParent());
+        }
+        Files.createDirectories(target.getParent());
+        // Erst in eine temporäre Datei schreiben, damit nie ein halber Blob unter dem Schlüssel liegt
+        Path temp = Files.createTempFile(target.getParent(), target.getFileName().toString(), TEMP_SUFFIX);
+        try {
+            long written;
+            try (OutputStream out = Files.newOutputStream(temp, StandardOpenOption.WRITE)) {
+                written = data.transferTo(out);
+            }
+            syncBatcher.sync(List.of(temp), createdDirectories);
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            syncBatcher.sync(List.of(), List.of(target.getParent()));
+            return written;
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Entfernt temporäre Dateien, die ein abgebrochener Schreibvorgang für einen Schlüssel
+     * hinterlassen hat.
+     *
+     * @param key Der Schlüssel des Blobs
+     * @return Die Anzahl der entfernten Dateien
+     * @throws IOException wenn das Verzeichnis nicht gelesen werden kann
+     */
+    public int deleteTemporaryFiles(String key) throws IOException {
+        Path target = toPath(key);
+        if (!Files.isDirectory(target.getParent())) {
+            return 0;
+        }
+        int removed = 0;
+        try (DirectoryStream<Path> temps = Files.newDirectoryStream(target.getParent(),
+                target.getFileName().toString() + "*" + TEMP_SUFFIX)) {
+            for (Path temp : temps) {
+                if (Files.deleteIfExists(temp)) {
+                    removed++;
+                }
+            }
+        }
+        return removed;
+    }
+
+    /**
+     * Gibt die Anzahl der zusammengefassten fsync-Blöcke zurück.
+     *
+     * @return Die Anzahl der Blöcke
+     */
+    public long getSyncBatchCount() {
+        return syncBatcher.getBatchCount();
+    }
+
+    /**
+     * Gibt die Anzahl der per fsync gesicherten Dateien und Verzeichnisse zurück.
+     *
+     * @return Die Anzahl der Pfade
+     */
+    public long getSyncedPathCount() {
+        return syncBatcher.getSyncedPaths();
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        Path path = toPath(key);
+        SeekableByteChannel channel;
+        try {
+            channel = Files.newByteChannel(path, StandardOpenOption.READ);
+        } catch (NoSuchFileException e) {
+            throw new FileNotFoundException(path.toString());
+        }
+        channel.position(offset);
+        InputStream in = Channels.newInputStream(channel);
+        return length < 0 ? in : new BoundedInputStream(in, length);
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        return Files.deleteIfExists(toPath(key));
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        Path path = toPath(key);
+        return Files.isRegularFile(path) ? Files.size(path) : -1;
+    }
+
+    @Override
+    public void list(String prefix, Consumer<String> consumer) throws IOException {
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+        try (Stream<Path> files = Files.walk(root)) {
+            Iterator<Path> it = files.iterator();
+            while (it.hasNext()) {
+                Path path = it.next();
+                if (!Files.isRegularFile(path)) {
+                    continue;
+                }
+                String key = toKey(path);
+                if (key.startsWith(prefix)) {
+                    consumer.accept(key);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,398 @@
+package com.filevault.storage.blob;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+import com.filevault.util.LoggingUtil;
+
+/**
+ * Speichert Blobs in einem S3-kompatiblen Objektspeicher (AWS S3, MinIO, Ceph usw.).
+ * Anfragen werden mit AWS Signature Version 4 signiert und im Pfad-Stil
+ * ({@code endpoint/bucket/key}) gestellt, wie ihn MinIO und andere selbst gehostete
+ * Dienste erwarten. Blobs, die größer als eine Teilgröße sind, werden als Multipart-Upload
+ * mit mehreren parallel hochgeladenen Teilen geschrieben.
+ */
+public class S3BlobStore implements BlobStore {
+
+    /** URI-Schema des S3-Backends */
+    public static final String SCHEME = "s3";
+
+    /** Standardgröße eines Upload-Teils (S3 verlangt mindestens 5 MiB außer für den letzten Teil) */
+    public static final int DEFAULT_PART_SIZE = 8 * 1024 * 1024;
+
+    /** Standardanzahl parallel hochgeladener Teile */
+    public static final int DEFAULT_PARALLELISM = 4;
+
+    /** Nutzdaten werden nicht gehasht, damit Teile nicht doppelt gelesen werden müssen */
+    private static final String UNSIGNED_PAYLOAD = "UNSIGNED-PAYLOAD";
+
+    private static final DateTimeFormatter AMZ_DATE = DateTimeFormatter.ofPattern("yyyyMMdd'T'HHmmss'Z'");
+    private static final DateTimeFormatter AMZ_DAY = DateTimeFormatter.ofPattern("yyyyMMdd");
+    private static final Pattern KEY_PATTERN = Pattern.compile("<Key>(.*?)</Key>", Pattern.DOTALL);
+    private static final Pattern TOKEN_PATTERN = Pattern.compile("<NextContinuationToken>(.*?)</NextContinuationToken>");
+    private static final Pattern UPLOAD_ID_PATTERN = Pattern.compile("<UploadId>(.*?)</UploadId>");
+
+    private final URI endpoint;
+    private final String region;
+    private final String bucket;
+    private final String accessKey;
+    private final String secretKey;
+    private final int partSize;
+    private final int parallelism;
+    private final HttpClient httpClient;
+    private final ExecutorService uploadExecutor;
+
+    /**
+     * Erstellt ein S3-Backend mit Standardteilgröße und -parallelität.
+     *
+     * @param endpoint Basis-URI des Dienstes, z.B. {@code http://localhost:9000}
+     * @param region Die Region, z.B. {@code us-east-1}
+     * @param bucket Der Bucket
+     * @param accessKey Die Access-Key-ID
+     * @param secretKey Der geheime Schlüssel
+     */
+    public S3BlobStore(URI endpoint, String region, String bucket, String accessKey, String secretKey) {
+        this(endpoint, region, bucket, accessKey, secretKey, DEFAULT_PART_SIZE, DEFAULT_PARALLELISM);
+    }
+
+    /**
+     * Erstellt ein S3-Backend.
+     *
+     * @param endpoint Basis-URI des Dienstes, z.B. {@code http://localhost:9000}
+     * @param region Die Region, z.B. {@code us-east-1}
+     * @param bucket Der Bucket
+     * @param accessKey Die Access-Key-ID
+     * @param secretKey Der geheime Schlüssel
+     * @param partSize Größe eines Upload-Teils in Bytes
+     * @param parallelism Anzahl gleichzeitig hochgeladener Teile
+     */
+    public S3BlobStore(URI endpoint, String region, String bucket, String accessKey, String secretKey,
+                       int partSize, int parallelism) {
+        this.endpoint = endpoint;
+        this.region = region;
+        this.bucket = bucket;
+        this.accessKey = accessKey;
+        this.secretKey = secretKey;
+        this.partSize = partSize;
+        this.parallelism = Math.max(1, parallelism);
+        this.httpClient = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+        this.uploadExecutor = Executors.newFixedThreadPool(this.parallelism, runnable -> {
+            Thread thread = new Thread(runnable, "filevault-s3-upload");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getScheme() {
+        return SCHEME;
+    }
+
+    @Override
+    public long put(String key, InputStream data) throws IOException {
+        byte[] first = data.readNBytes(partSize);
+        if (first.length < partSize) {
+            send("PUT", key, Map.of(), Map.of(), first);
+            return first.length;
+        }
+        return putMultipart(key, first, data);
+    }
+
+    /**
+     * Lädt einen Blob in Teilen hoch. Es werden höchstens {@code parallelism} Teile gleichzeitig
+     * im Speicher gehalten; bei einem Fehler wird der Upload abgebrochen.
+     */
+    private long putMultipart(String key, byte[] first, InputStream data) throws IOException {
+        String createResponse = bodyAsString(send("POST", key, Map.of("uploads", ""), Map.of(), new byte[0]));
+        String uploadId = extract(UPLOAD_ID_PATTERN, createResponse);
+        if (uploadId == null) {
+            throw new IOException("S3: Keine UploadId in der Antwort");
+        }
+
+        Semaphore inFlight = new Semaphore(parallelism);
+        List<Future<String>> etags = new ArrayList<>();
+        long total = 0;
+        try {
+            byte[] part = first;
+            int partNumber = 1;
+            while (part.length > 0) {
+                total += part.length;
+                inFlight.acquire();
+                final byte[] body = part;
+                final int number = partNumber++;
+                etags.add(uploadExecutor.submit(() -> {
+                    try {
+                        HttpResponse<InputStream> response = send("PUT", key,
+                                Map.of("partNumber", Integer.toString(number), "uploadId", uploadId), Map.of(), body);
+                        response.body().close();
+                        return response.headers().firstValue("ETag").orElse("");
+                    } finally {
+                        inFlight.release();
+                    }
+                }));
+                part = data.readNBytes(partSize);
+            }
+
+            StringBuilder complete = new StringBuilder("<CompleteMultipartUpload>");
+            for (int i = 0; i < etags.size(); i++) {
+                complete.append("<Part><PartNumber>").append(i + 1).append("</PartNumber><ETag>")
+                        .append(etags.get(i).get()).append("</ETag></Part>");
+            }
+            complete.append("</CompleteMultipartUpload>");
+            String completeResponse = bodyAsString(send("POST", key, Map.of("uploadId", uploadId), Map.of(),
+                    complete.toString().getBytes(StandardCharsets.UTF_8)));
+            // S3 kann trotz Status 200 einen Fehler im Rumpf melden
+            if (completeResponse.contains("<Error>")) {
+                throw new IOException("S3: Multipart-Upload fehlgeschlagen: " + completeResponse);
+            }
+            return total;
+        } catch (InterruptedException | ExecutionException | IOException e) {
+            etags.forEach(f -> f.cancel(true));
+            abortQuietly(key, uploadId);
+            if (e instanceof InterruptedException) {
+                Thread.currentThread().interrupt();
+            }
+            if (e instanceof IOException io) {
+                throw io;
+            }
+            throw new IOException("S3: Upload eines Teils fehlgeschlagen: " + e.getMessage(), e);
+        }
+    }
+
+    private void abortQuietly(String key, String uploadId) {
+        try {
+            send("DELETE", key, Map.of("uploadId", uploadId), Map.of(), new byte[0]).body().close();
+        } catch (IOException e) {
+            LoggingUtil.logWarning("S3BlobStore", "Could not abort multipart upload " + uploadId + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public InputStream get(String key, long offset, long length) throws IOException {
+        if (length == 0) {
+            // Ein leerer Bereich lässt sich als Range-Header nicht ausdrücken
+            if (!exists(key)) {
+                throw new FileNotFoundException(SCHEME + ":" + key);
+            }
+            return InputStream.nullInputStream();
+        }
+        Map<String, String> headers = new TreeMap<>();
+        if (offset > 0 || length > 0) {
+            headers.put("Range", "bytes=" + offset + "-" + (length >= 0 ? Long.toString(offset + length - 1) : ""));
+        }
+        return send("GET", key, Map.of(), headers, null).body();
+    }
+
+    @Override
+    public boolean delete(String key) throws IOException {
+        if (!exists(key)) {
+            return false;
+        }
+        send("DELETE", key, Map.of(), Map.of(), null).body().close();
+        return true;
+    }
+
+    @Override
+    public long size(String key) throws IOException {
+        try {
+            HttpResponse<InputStream> response = send("HEAD", key, Map.of(), Map.of(), null);
+            response.body().close();
+            OptionalLong length = response.headers().firstValueAsLong("Content-Length");
+            if (length.isEmpty()) {
+                throw new IOException("S3: Keine Content-Length für " + SCHEME + ":" + key);
+            }
+            return length.getAsLong();
+        } catch (FileNotFoundException e) {
+            return -1;
+        }
+    }
+
+    @Override
+    public void list(String prefix, Consumer<String> consumer) throws IOException {
+        String token = null;
+        do {
+            Map<String, String> query = new TreeMap<>();
+            query.put("list-type", "2");
+            query.put("prefix", prefix);
+            if (token != null) {
+                query.put("continuation-token", token);
+            }
+            String body = bodyAsString(send("GET", null, query, Map.of(), null));
+            Matcher matcher = KEY_PATTERN.matcher(body);
+            while (matcher.find()) {
+                consumer.accept(unescapeXml(matcher.group(1)));
+            }
+            token = body.contains("<IsTruncated>true</IsTruncated>") ? extract(TOKEN_PATTERN, body) : null;
+            if (token != null) {
+                token = unescapeXml(token);
+            }
+        } while (token != null);
+    }
+
+    /**
+     * Beendet die Threads für parallele Uploads. Laufende Uploads werden noch abgeschlossen.
+     */
+    @Override
+    public void close() {
+        uploadExecutor.shutdown();
+    }
+
+    /**
+     * Sendet eine signierte Anfrage an den Bucket bzw. ein Objekt.
+     *
+     * @param key Der Objektschlüssel oder null für den Bucket selbst
+     * @param body Der Anfragerumpf oder null für Anfragen ohne Rumpf
+     * @return Die Antwort mit Status 2xx
+     * @throws FileNotFoundException bei Status 404
+     * @throws IOException bei anderen Fehlern
+     */
+    private HttpResponse<InputStream> send(String method, String key, Map<String, String> query,
+                                           Map<String, String> headers, byte[] body) throws IOException {
+        String path = "/" + encode(bucket, false) + (key != null ? "/" + encode(key, true) : "");
+        String canonicalQuery = canonicalQuery(query);
+        URI uri = URI.create(endpoint.toString().replaceAll("/+$", "") + path
+                + (canonicalQuery.isEmpty() ? "" : "?" + canonicalQuery));
+
+        ZonedDateTime now = ZonedDateTime.now(ZoneOffset.UTC);
+        String amzDate = AMZ_DATE.format(now);
+        String day = AMZ_DAY.format(now);
+        String host = uri.getHost() + (uri.getPort() != -1 ? ":" + uri.getPort() : "");
+
+        String canonicalRequest = method + "\n" + path + "\n" + canonicalQuery + "\n"
+                + "host:" + host + "\n"
+                + "x-amz-content-sha256:" + UNSIGNED_PAYLOAD + "\n"
+                + "x-amz-date:" + amzDate + "\n\n"
+                + "host;x-amz-content-sha256;x-amz-date\n"
+                + UNSIGNED_PAYLOAD;
+        String scope = day + "/" + region + "/s3/aws4_request";
+        String stringToSign = "AWS4-HMAC-SHA256\n" + amzDate + "\n" + scope + "\n" + hex(sha256(canonicalRequest));
+        byte[] signingKey = hmac(hmac(hmac(hmac(("AWS4" + secretKey).getBytes(StandardCharsets.UTF_8), day),
+                region), "s3"), "aws4_request");
+        String signature = hex(hmac(signingKey, stringToSign));
+
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri)
+                .header("x-amz-date", amzDate)
+                .header("x-amz-content-sha256", UNSIGNED_PAYLOAD)
+                .header("Authorization", "AWS4-HMAC-SHA256 Credential=" + accessKey + "/" + scope
+                        + ", SignedHeaders=host;x-amz-content-sha256;x-amz-date, Signature=" + signature)
+                .method(method, body != null
+                        ? HttpRequest.BodyPublishers.ofByteArray(body)
+                        : HttpRequest.BodyPublishers.noBody());
+        headers.forEach(request::header);
+
+        HttpResponse<InputStream> response;
+        try {
+            response = httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("S3: Anfrage unterbrochen", e);
+        }
+        int status = response.statusCode();
+        if (status == 404) {
+            response.body().close();
+            throw new FileNotFoundException(SCHEME + ":" + key);
+        }
+        if (status / 100 != 2) {
+            String error = bodyAsString(response);
+            throw new IOException("S3: " + method + " " + path + " fehlgeschlagen mit Status " + status + ": " + error);
+        }
+        return response;
+    }
+
+    private static String bodyAsString(HttpResponse<InputStream> response) throws IOException {
+        try (InputStream in = response.body()) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String canonicalQuery(Map<String, String> query) {
+        StringBuilder sb = new StringBuilder();
+        for (Map.Entry<String, String> entry : new TreeMap<>(query).entrySet()) {
+            if (sb.length() > 0) {
+                sb.append('&');
+            }
+            sb.append(encode(entry.getKey(), false)).append('=').append(encode(entry.getValue(), false));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * URI-Kodierung nach den Regeln von Signature Version 4 (RFC 3986, nur unreservierte Zeichen bleiben).
+     */
+    private static String encode(String value, boolean keepSlash) {
+        StringBuilder sb = new StringBuilder();
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            char c = (char) (b & 0xFF);
+            if ((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '-' || c == '_' || c == '.' || c == '~' || (keepSlash && c == '/')) {
+                sb.append(c);
+            } else {
+                sb.append('%').append(String.format("%02X", b & 0xFF));
+            }
+        }
+        return sb.toString();
+    }
+
+    private static String extract(Pattern pattern, String text) {
+        Matcher matcher = pattern.matcher(text);
+        return matcher.find() ? matcher.group(1) : null;
+    }
+
+    private static String unescapeXml(String value) {
+        return value.replace("&lt;", "<").replace("&gt;", ">").replace("&quot;", "\"")
+                .replace("&apos;", "'").replace("&amp;", "&");
+    }
+
+    private static byte[] sha256(String value) {
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(value.getBytes(StandardCharsets.UTF_8));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static byte[] hmac(byte[] key, String value) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(new SecretKeySpec(key, "HmacSHA256"));
+            return mac.doFinal(value.getBytes(StandardCharsets.UTF_8));
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String hex(byte[] bytes) {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+}
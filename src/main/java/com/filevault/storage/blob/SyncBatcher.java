@@ -0,0 +1,131 @@
+package com.filevault.storage.blob;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fasst fsync-Aufrufe gleichzeitiger Schreibvorgänge zusammen (Group Commit).
+ * Während ein Thread einen Block synchronisiert, sammeln sich die Anfragen aller anderen
+ * Threads im nächsten Block; der erste von ihnen synchronisiert diesen anschließend für alle.
+ * Verzeichnisse, die mehrere Schreibvorgänge betreffen, werden dabei nur einmal synchronisiert.
+ */
+final class SyncBatcher {
+
+    /** Ein Block gemeinsam zu synchronisierender Pfade */
+    private static final class Batch {
+        private final Set<Path> files = new LinkedHashSet<>();
+        private final Set<Path> directories = new LinkedHashSet<>();
+        private boolean done;
+        private IOException error;
+    }
+
+    /** Schützt {@link #pending} und {@link #syncing} */
+    private final Object lock = new Object();
+
+    /** Block, dem neue Anfragen beitreten */
+    private Batch pending = new Batch();
+
+    /** Gibt an, ob gerade ein Block synchronisiert wird */
+    private boolean syncing;
+
+    /** Anzahl der synchronisierten Blöcke */
+    private final AtomicLong batchCount = new AtomicLong();
+
+    /** Anzahl der synchronisierten Pfade */
+    private final AtomicLong syncedPaths = new AtomicLong();
+
+    /**
+     * Schreibt Dateien und Verzeichniseinträge dauerhaft auf den Datenträger und kehrt erst
+     * zurück, wenn der Block, dem die Anfrage beigetreten ist, synchronisiert wurde.
+     *
+     * @param files Zu synchronisierende Dateien
+     * @param directories Zu synchronisierende Verzeichnisse (z.B. nach einem Umbenennen)
+     * @throws IOException wenn die Synchronisation des Blocks fehlschlägt
+     */
+    void sync(Collection<Path> files, Collection<Path> directories) throws IOException {
+        Batch batch;
+        synchronized (lock) {
+            batch = pending;
+            batch.files.addAll(files);
+            batch.directories.addAll(directories);
+            while (syncing && !batch.done) {
+                try {
+                    lock.wait();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new InterruptedIOException("Synchronisation unterbrochen");
+                }
+            }
+            if (!batch.done) {
+                // Niemand synchronisiert gerade: dieser Thread übernimmt den Block für alle Beteiligten
+                syncing = true;
+                pending = new Batch();
+            }
+        }
+
+        if (!batch.done) {
+            IOException error = null;
+            try {
+                for (Path file : batch.files) {
+                    force(file, StandardOpenOption.WRITE);
+                }
+                for (Path directory : batch.directories) {
+                    forceDirectory(directory);
+                }
+            } catch (IOException e) {
+                error = e;
+            }
+            batchCount.incrementAndGet();
+            syncedPaths.addAndGet(batch.files.size() + batch.directories.size());
+            synchronized (lock) {
+                batch.error = error;
+                batch.done = true;
+                syncing = false;
+                lock.notifyAll();
+            }
+        }
+
+        if (batch.error != null) {
+            throw new IOException("fsync fehlgeschlagen: " + batch.error.getMessage(), batch.error);
+        }
+    }
+
+    /**
+     * @return Anzahl der bisher synchronisierten Blöcke
+     */
+    long getBatchCount() {
+        return batchCount.get();
+    }
+
+    /**
+     * @return Anzahl der bisher synchronisierten Pfade
+     */
+    long getSyncedPaths() {
+        return syncedPaths.get();
+    }
+
+    private static void force(Path path, StandardOpenOption mode) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, mode)) {
+            channel.force(true);
+        }
+    }
+
+    private static void forceDirectory(Path directory) throws IOException {
+        try {
+            force(directory, StandardOpenOption.READ);
+        } catch (IOException e) {
+            // Nicht jedes Dateisystem erlaubt das Öffnen von Verzeichnissen (z.B. Windows);
+            // dort ist das Umbenennen ohnehin bereits dauerhaft
+            if (!System.getProperty("os.name", "").toLowerCase().startsWith("windows")) {
+                throw e;
+            }
+        }
+    }
+}
@@ -11,20 +11,83 @@ import java.sql.Statement;
 import java.sql.Timestamp;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 import com.filevault.model.VirtualFolder;
+import com.filevault.storage.ChangeJournal;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.DeletionQueue;
 
 /**
  * Verwaltet virtuelle Ordner in der Anwendung.
  * Bietet Funktionen zum Erstellen, Umbenennen und Löschen von Ordnern.
+ * <p>
+ * Der FolderManager wird gleichzeitig vom JavaFX-Thread, vom API-Server und von
+ * Änderungs-Listenern verwendet. Alle Änderungen laufen nacheinander über die synchronisierten
+ * Methoden; am Ende veröffentlicht der Schreiber einen unveränderlichen Stand ({@link Snapshot}),
+ * aus dem alle lesenden Methoden ohne Sperre bedient werden. Die Indizes sind unveränderliche
+ * Bäume ({@link PersistentTreeMap}, nach ID {@link PersistentIntMap}), sodass eine Änderung nur
+ * die betroffenen Einträge kopiert und sich alles Übrige mit dem vorherigen Stand teilt.
+ * <p>
+ * Die Indizes enthalten eingefrorene Kopien der Ordner ({@link VirtualFolder#freeze()}), die
+ * Umbenennen und Verschieben durch neue ersetzen. Herausgegeben wird je ID dagegen stets
+ * dasselbe veränderbare Objekt, das wie bisher über {@link VirtualFolder#getChildren()} mit
+ * seinen Unterordnern verknüpft ist und bei Änderungen über den FolderManager nachgeführt wird.
+ * Die zurückgegebenen Listen sind nicht veränderbar.
  */
 public class FolderManager {
     
     private static FolderManager instance;
-    private final List<VirtualFolder> folders = new ArrayList<>();
-    private VirtualFolder currentFolder = null;
+
+    /** Zuletzt veröffentlichter Stand für die Leser */
+    private final AtomicReference<Snapshot> snapshot = new AtomicReference<>(Snapshot.EMPTY);
+
+    /** Vergleich der IDs übergeordneter Ordner, null (Root-Ordner) zuerst */
+    private static final Comparator<Integer> PARENT_ORDER = Comparator.nullsFirst(Comparator.naturalOrder());
+
+    /** Alle Ordner nach ID samt Position in der Lade- bzw. Erstellungsreihenfolge */
+    private PersistentIntMap<Indexed> foldersById = PersistentIntMap.empty();
+
+    /** Alle Ordner nach Position */
+    private PersistentTreeMap<Long, Indexed> foldersInOrder = PersistentTreeMap.empty();
+
+    /** Unterordner nach Position je ID des übergeordneten Ordners, Schlüssel null für die Root-Ordner */
+    private PersistentTreeMap<Integer, PersistentTreeMap<Long, Indexed>> childrenByParent =
+            PersistentTreeMap.empty(PARENT_ORDER);
+
+    /** Ordner nach übergeordnetem Ordner und Namen ohne Beachtung der Groß-/Kleinschreibung */
+    private PersistentTreeMap<SiblingKey, PersistentTreeMap<Long, Indexed>> foldersBySiblingName =
+            PersistentTreeMap.empty();
+
+    /** Ordner nach exaktem Namen, für {@link #getFolderByName(String)} */
+    private PersistentTreeMap<String, PersistentTreeMap<Long, Indexed>> foldersByName = PersistentTreeMap.empty();
+
+    /** Position des nächsten aufgenommenen Ordners */
+    private long nextPosition;
+
+    private volatile VirtualFolder currentFolder = null;
+
+    /** Eigene, nur lesende Verbindung, auf der Änderungen anderer Verbindungen erkannt werden */
+    private Connection watchConnection;
+
+    /** Vorbereitete Abfrage von {@code PRAGMA data_version} auf der Beobachtungsverbindung */
+    private PreparedStatement dataVersionStmt;
+
+    /** Datenbankdatei, für die die Beobachtungsverbindung geöffnet wurde */
+    private String watchedDbPath;
+
+    /** Zuletzt gesehener Wert von {@code PRAGMA data_version} */
+    private long dataVersion;
+
+    /** Sequenznummer im Änderungsprotokoll, bis zu der die Ordner abgeglichen sind */
+    private long syncedSequence;
     
     private FolderManager() {
         // Privater Konstruktor für Singleton-Pattern
@@ -46,16 +109,16 @@ public class FolderManager {
      * Setzt den aktuellen Ordner auf den ersten verfügbaren Ordner.
      * Erstellt das Datenverzeichnis, falls es nicht existiert.
      */
-    public void initialize() {
+    public synchronized void initialize() {
         LoggingUtil.logInfo("FolderManager", "Initializing folders.");
-        folders.clear();
+        clearIndexes();
         loadFoldersFromDatabase();
 
-        if (folders.isEmpty()) {
+        if (foldersById.isEmpty()) {
             LoggingUtil.logInfo("FolderManager", "No folders found. Creating base structure.");
             createBaseStructure();
         } else {
-            currentFolder = folders.get(0);
+            currentFolder = firstFolder();
         }
 
         createDataDirectory();
@@ -66,9 +129,9 @@ public class FolderManager {
      * Erstellt die grundlegende Ordnerstruktur für einen neuen Benutzer.
      * Erstellt Standardordner für verschiedene Dateitypen.
      */
-    public void createBaseStructure() {
+    public synchronized void createBaseStructure() {
         LoggingUtil.logInfo("FolderManager", "Creating base folder structure.");
-        folders.clear();
+        clearIndexes();
 
         // Erstelle explizit einen Root-Ordner mit parent_id als NULL
         VirtualFolder rootFolder = createFolder("Tresor", null);
@@ -80,8 +143,8 @@ public class FolderManager {
         createFolder("Musik", rootFolder.getId());
         createFolder("Andere", rootFolder.getId());
 
-        if (!folders.isEmpty()) {
-            currentFolder = folders.get(0);
+        if (!foldersById.isEmpty()) {
+            currentFolder = firstFolder();
         }
 
         createDataDirectory();
@@ -103,14 +166,16 @@ public class FolderManager {
     
     /**
      * Lädt Ordner aus der Datenbank.
-     * Stellt die Ordnerliste wieder her.
+     * Stellt die Ordnerliste und die Indizes in einem Durchlauf wieder her.
      */
     private void loadFoldersFromDatabase() {
+        // Vor dem Laden beginnen, damit keine Änderung zwischen Laden und Abgleich verloren geht
+        startWatching();
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement("SELECT * FROM folders ORDER BY name");
              ResultSet rs = stmt.executeQuery()) {
             
-            // Erstelle zunächst alle Ordner
+            // Erstelle alle Ordner und indiziere sie; die Hierarchie ergibt sich aus den Indizes
             while (rs.next()) {
                 Integer parentId = null;
                 if (rs.getObject("parent_id") != null) {
@@ -122,22 +187,9 @@ public class FolderManager {
                 String description = rs.getString("description");
                 LocalDateTime createdAt = rs.getTimestamp("created_at").toLocalDateTime();
                 
-                VirtualFolder folder = new VirtualFolder(id, name, description, parentId);
-                folder.setCreatedAt(createdAt);
-                folders.add(folder);
-            }
-            
-            // Dann, erstelle die Eltern-Kind-Beziehungen
-            for (VirtualFolder folder : folders) {
-                if (folder.getParentId() != null) {
-                    for (VirtualFolder potentialParent : folders) {
-                        if (potentialParent.getId() == folder.getParentId()) {
-                            potentialParent.addChild(folder);
-                            break;
-                        }
-                    }
-                }
+                index(newFolder(id, name, description, parentId, createdAt));
             }
+            publish();
         } catch (SQLException e) {
             LoggingUtil.logError("FolderManager", "Fehler beim Laden der Ordner aus der Datenbank: " + e.getMessage());
             throw new RuntimeException("Fehler beim Laden der Ordner", e);
@@ -161,14 +213,7 @@ public class FolderManager {
      * @return true, wenn ein Ordner mit dem gleichen Namen existiert, false sonst.
      */
     private boolean isDuplicateFolderName(String name, Integer parentId) {
-        for (VirtualFolder folder : folders) {
-            if (folder.getName().equalsIgnoreCase(name) && 
-                ((folder.getParentId() == null && parentId == null) || 
-                 (folder.getParentId() != null && folder.getParentId().equals(parentId)))) {
-                return true;
-            }
-        }
-        return false;
+        return foldersBySiblingName.get(new SiblingKey(parentId, name)) != null;
     }
 
     /**
@@ -179,12 +224,13 @@ public class FolderManager {
      * @return Der erstellte Ordner oder null bei Fehler
      * @throws IllegalArgumentException wenn der Name null oder leer ist
      */
-    public VirtualFolder createFolder(String name, String description, Integer parentId) {
+    public synchronized VirtualFolder createFolder(String name, String description, Integer parentId) {
         LoggingUtil.logInfo("FolderManager", "Creating folder: " + name);
         if (name == null || name.trim().isEmpty()) {
             LoggingUtil.logError("FolderManager", "Folder creation failed: Name is empty.");
             throw new IllegalArgumentException("Ordnername darf nicht leer sein");
         }
+        checkNoSeparator(name);
 
         if (isDuplicateFolderName(name, parentId)) {
             LoggingUtil.logError("FolderManager", "Folder creation failed: Duplicate folder name.");
@@ -210,21 +256,11 @@ public class FolderManager {
             try (ResultSet generatedKeys = stmt.getGeneratedKeys()) {
                 if (generatedKeys.next()) {
                     int id = generatedKeys.getInt(1);
-                    VirtualFolder folder = new VirtualFolder(id, name, description, parentId);
-                    folder.setCreatedAt(LocalDateTime.now());
-                    folders.add(folder);
-
-                    if (parentId != null) {
-                        for (VirtualFolder parent : folders) {
-                            if (parent.getId() == parentId) {
-                                parent.addChild(folder);
-                                break;
-                            }
-                        }
-                    }
+                    Indexed indexed = index(newFolder(id, name, description, parentId, LocalDateTime.now()));
+                    publish();
 
                     LoggingUtil.logInfo("FolderManager", "Folder created successfully: " + name);
-                    return folder;
+                    return indexed.view;
                 } else {
                     LoggingUtil.logError("FolderManager", "Folder creation failed: No ID obtained.");
                     throw new SQLException("Creating folder failed, no ID obtained.");
@@ -241,19 +277,41 @@ public class FolderManager {
      * @param folder Der umzubenennende Ordner
      * @param newName Der neue Name des Ordners
      * @return true, wenn die Umbenennung erfolgreich war
+     * @throws IllegalArgumentException wenn der Name das Pfad-Trennzeichen enthält
      */
     public boolean renameFolder(VirtualFolder folder, String newName) {
+        return renameFolder(folder, newName, folder.getDescription());
+    }
+
+    /**
+     * Ändert Namen und Beschreibung eines Ordners.
+     * @param folder Der zu ändernde Ordner
+     * @param newName Der neue Name des Ordners
+     * @param newDescription Die neue Beschreibung des Ordners
+     * @return true, wenn die Änderung erfolgreich war
+     * @throws IllegalArgumentException wenn der Name das Pfad-Trennzeichen enthält
+     */
+    public synchronized boolean renameFolder(VirtualFolder folder, String newName, String newDescription) {
+        checkNoSeparator(newName);
         try (Connection conn = DatabaseManager.getConnection();
              PreparedStatement stmt = conn.prepareStatement(
                      "UPDATE folders SET name = ?, description = ? WHERE id = ?")) {
             
             stmt.setString(1, newName);
-            stmt.setString(2, folder.getDescription());
+            stmt.setString(2, newDescription);
             stmt.setInt(3, folder.getId());
             int affected = stmt.executeUpdate();
             
             if (affected > 0) {
+                Indexed indexed = foldersById.get(folder.getId());
+                if (indexed != null) {
+                    VirtualFolder old = indexed.folder;
+                    replace(newFolder(old.getId(), newName, newDescription, old.getParentId(), old.getCreatedAt()));
+                    // Die Pfade des Ordners und aller Unterordner haben sich geändert
+                    publish();
+                }
                 folder.setName(newName);
+                folder.setDescription(newDescription);
                 return true;
             }
         } catch (SQLException e) {
@@ -262,12 +320,94 @@ public class FolderManager {
         return false;
     }
     
+    /**
+     * Verschiebt einen Ordner samt Unterordnern und Dateien unter einen anderen Ordner.
+     * Ob das Ziel im verschobenen Teilbaum liegt, wird in derselben Anweisung über
+     * {@code folder_paths} geprüft; die Trigger führen die Tabelle anschließend nach.
+     * @param folder Der zu verschiebende Ordner
+     * @param newParentId Die ID des neuen übergeordneten Ordners (null für Root-Ordner)
+     * @return true, wenn das Verschieben erfolgreich war
+     * @throws IllegalArgumentException wenn der Ordner oder das Ziel nicht existiert, das Ziel im
+     *         verschobenen Teilbaum liegt oder dort bereits ein gleichnamiger Ordner existiert
+     */
+    public synchronized boolean moveFolder(VirtualFolder folder, Integer newParentId) {
+        if (folder == null) {
+            LoggingUtil.logError("FolderManager", "Folder move failed: Folder is null.");
+            throw new IllegalArgumentException("Ordner darf nicht null sein");
+        }
+        VirtualFolder indexed = indexedFolder(folder.getId());
+        if (indexed == null) {
+            throw new IllegalArgumentException("Ordner existiert nicht: " + folder.getId());
+        }
+        if (Objects.equals(indexed.getParentId(), newParentId)) {
+            return true;
+        }
+        if (newParentId != null && indexedFolder(newParentId) == null) {
+            throw new IllegalArgumentException("Zielordner existiert nicht: " + newParentId);
+        }
+        if (isDuplicateFolderName(indexed.getName(), newParentId)) {
+            LoggingUtil.logError("FolderManager", "Folder move failed: Duplicate folder name.");
+            throw new IllegalArgumentException("Ein Ordner mit diesem Namen existiert bereits im Zielordner");
+        }
+        LoggingUtil.logInfo("FolderManager", "Moving folder " + indexed.getName() + " to parent " + newParentId);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "UPDATE folders SET parent_id = ? WHERE id = ? "
+                     + "AND NOT EXISTS (SELECT 1 FROM folder_paths WHERE ancestor = ? AND descendant = ?)")) {
+            stmt.setObject(1, newParentId);
+            stmt.setInt(2, indexed.getId());
+            stmt.setInt(3, indexed.getId());
+            stmt.setObject(4, newParentId);
+            if (stmt.executeUpdate() == 0) {
+                if (newParentId != null && isAncestor(indexed.getId(), newParentId)) {
+                    LoggingUtil.logError("FolderManager", "Folder move failed: Target lies within the moved folder.");
+                    throw new IllegalArgumentException("Ein Ordner kann nicht in sich selbst oder einen seiner Unterordner verschoben werden");
+                }
+                return false;
+            }
+
+            replace(newFolder(indexed.getId(), indexed.getName(), indexed.getDescription(), newParentId,
+                    indexed.getCreatedAt()));
+            // Die Pfade des Ordners und aller Unterordner haben sich geändert
+            publish();
+            folder.setParentId(newParentId);
+            LoggingUtil.logInfo("FolderManager", "Folder moved successfully: " + indexed.getName());
+            return true;
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderManager", "Fehler beim Verschieben des Ordners: " + e.getMessage());
+        }
+        return false;
+    }
+
+    /**
+     * Prüft über {@code folder_paths}, ob ein Ordner Vorfahre eines anderen ist.
+     * Jeder Ordner gilt dabei als sein eigener Vorfahre.
+     * @param ancestorId Die ID des möglichen Vorfahren
+     * @param descendantId Die ID des möglichen Nachfahren
+     * @return true, wenn descendantId im Teilbaum von ancestorId liegt
+     */
+    public boolean isAncestor(int ancestorId, int descendantId) {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "SELECT 1 FROM folder_paths WHERE ancestor = ? AND descendant = ?")) {
+            stmt.setInt(1, ancestorId);
+            stmt.setInt(2, descendantId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return rs.next();
+            }
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderManager", "Error checking folder ancestry: " + e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * Löscht einen Ordner und alle seine Dateien.
      * @param folder Der zu löschende Ordner
      * @throws IllegalStateException wenn der Ordner Unterordner enthält
      */
-    public void deleteFolder(VirtualFolder folder) {
+    public synchronized void deleteFolder(VirtualFolder folder) {
         if (folder == null) {
             LoggingUtil.logError("FolderManager", "Folder deletion failed: Folder is null.");
             throw new IllegalArgumentException("Ordner darf nicht null sein");
@@ -275,8 +415,7 @@ public class FolderManager {
         LoggingUtil.logInfo("FolderManager", "Deleting folder: " + folder.getName());
 
         // Prüfe auf Unterordner
-        List<VirtualFolder> subfolders = getSubfolders(folder.getId());
-        if (!subfolders.isEmpty()) {
+        if (childrenByParent.get(folder.getId()) != null) {
             LoggingUtil.logError("FolderManager", "Folder deletion failed: Folder contains subfolders.");
             throw new IllegalStateException("Ordner enthält Unterordner und kann nicht gelöscht werden");
         }
@@ -285,6 +424,9 @@ public class FolderManager {
             // Deaktiviere auto-commit-Modus
             DatabaseManager.getConnection().setAutoCommit(false);
             
+            // Verschlüsselte Dateien zum Entfernen im Hintergrund vormerken
+            DeletionQueue.getInstance().enqueueFolder(DatabaseManager.getConnection(), folder.getId());
+            
             // Lösche alle Dateien im Ordner
             String deleteFilesSql = "DELETE FROM files WHERE folder_id = ?";
             try (PreparedStatement deleteFilesStmt = DatabaseManager.getConnection().prepareStatement(deleteFilesSql)) {
@@ -302,21 +444,13 @@ public class FolderManager {
             // Commit the transaction
             DatabaseManager.getConnection().commit();
             
-            // Entferne aus der Liste der Eltern, wenn es einen Elternteil gibt
-            if (folder.getParentId() != null) {
-                for (VirtualFolder parent : folders) {
-                    if (parent.getId() == folder.getParentId()) {
-                        parent.removeChild(folder);
-                        break;
-                    }
-                }
-            }
-            
-            // Entferne aus der lokalen Liste
-            folders.remove(folder);
+            // Entferne aus den Indizes
+            unindex(folder.getId());
+            publish();
             
             // Setze auto-commit-Modus zurück
             DatabaseManager.getConnection().setAutoCommit(true);
+            DeletionQueue.getInstance().wakeUp();
             LoggingUtil.logInfo("FolderManager", "Folder deleted successfully: " + folder.getName());
         } catch (SQLException e) {
             try {
@@ -333,41 +467,66 @@ public class FolderManager {
     
     /**
      * Löscht einen Ordner und rekursiv alle seine Unterordner und Dateien.
+     * Der Teilbaum wird mit einer rekursiven Abfrage ermittelt und mit je einer Anweisung für
+     * Dateien und Ordner in einer Transaktion gelöscht; die verschlüsselten Dateien entfernt
+     * anschließend die {@link DeletionQueue}.
      * @param folder Der zu löschende Ordner
      */
-    public void deleteFolderRecursive(VirtualFolder folder) {
+    public synchronized void deleteFolderRecursive(VirtualFolder folder) {
         if (folder == null) {
             LoggingUtil.logError("FolderManager", "Recursive folder deletion failed: Folder is null.");
             throw new IllegalArgumentException("Ordner darf nicht null sein");
         }
         LoggingUtil.logInfo("FolderManager", "Recursively deleting folder: " + folder.getName());
+        long start = System.currentTimeMillis();
 
         try {
             // Deaktiviere auto-commit-Modus
-            DatabaseManager.getConnection().setAutoCommit(false);
-            
-            // Rekursiv alle Unterordner und deren Dateien löschen
-            deleteRecursively(folder);
+            Connection conn = DatabaseManager.getConnection();
+            conn.setAutoCommit(false);
             
-            // Bestätige die Transaktion
-            DatabaseManager.getConnection().commit();
-            
-            // Entferne aus der Liste der Eltern, wenn es einen Elternteil gibt
-            if (folder.getParentId() != null) {
-                for (VirtualFolder parent : folders) {
-                    if (parent.getId() == folder.getParentId()) {
-                        parent.removeChild(folder);
-                        break;
+            // Alle Ordner des Teilbaums ermitteln, um sie nach dem Commit aus den Indizes zu entfernen
+            List<Integer> subtree = new ArrayList<>();
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "SELECT id FROM folders WHERE id IN " + DatabaseManager.subtreeOf("?"))) {
+                stmt.setInt(1, folder.getId());
+                try (ResultSet rs = stmt.executeQuery()) {
+                    while (rs.next()) {
+                        subtree.add(rs.getInt(1));
                     }
                 }
             }
             
-            // Entferne aus der lokalen Liste
-            folders.remove(folder);
+            // Verschlüsselte Dateien vormerken, dann Dateien und Ordner des Teilbaums löschen
+            DeletionQueue.getInstance().enqueueFolderTree(conn, folder.getId());
+            int deletedFiles;
+            try (PreparedStatement deleteFilesStmt = conn.prepareStatement(
+                    "DELETE FROM files WHERE folder_id IN " + DatabaseManager.subtreeOf("?"))) {
+                deleteFilesStmt.setInt(1, folder.getId());
+                deletedFiles = deleteFilesStmt.executeUpdate();
+            }
+            try (PreparedStatement deleteFoldersStmt = conn.prepareStatement(
+                    "DELETE FROM folders WHERE id IN " + DatabaseManager.subtreeOf("?"))) {
+                deleteFoldersStmt.setInt(1, folder.getId());
+                deleteFoldersStmt.executeUpdate();
+            }
+            
+            // Bestätige die Transaktion
+            conn.commit();
+            
+            // Entferne den gesamten Teilbaum aus den Indizes
+            unindex(folder.getId());
+            for (int id : subtree) {
+                unindex(id);
+            }
+            publish();
             
             // Setze auto-commit-Modus zurück
-            DatabaseManager.getConnection().setAutoCommit(true);
-            LoggingUtil.logInfo("FolderManager", "Folder and all its contents deleted successfully: " + folder.getName());
+            conn.setAutoCommit(true);
+            DeletionQueue.getInstance().wakeUp();
+            LoggingUtil.logInfo("FolderManager", "Folder and all its contents deleted successfully: " + folder.getName()
+                    + " (" + subtree.size() + " folders, " + deletedFiles + " files in "
+                    + (System.currentTimeMillis() - start) + " ms)");
         } catch (SQLException e) {
             try {
                 // Rollback falls ein Fehler auftritt
@@ -381,48 +540,12 @@ public class FolderManager {
         }
     }
     
-    /**
-     * Hilfsmethode für die rekursive Löschung von Ordnern.
-     * Löscht alle Dateien und Unterordner des angegebenen Ordners rekursiv.
-     * 
-     * @param folder Der zu löschende Ordner
-     * @throws SQLException wenn ein Datenbankfehler auftritt
-     */
-    private void deleteRecursively(VirtualFolder folder) throws SQLException {
-        LoggingUtil.logInfo("FolderManager", "Processing folder for recursive deletion: " + folder.getName());
-        
-        // Zuerst alle Unterordner rekursiv löschen
-        List<VirtualFolder> subfolders = getSubfolders(folder.getId());
-        for (VirtualFolder subfolder : subfolders) {
-            deleteRecursively(subfolder);
-            
-            // Entferne aus der lokalen Liste
-            folders.remove(subfolder);
-        }
-        
-        // Dann alle Dateien im aktuellen Ordner löschen
-        String deleteFilesSql = "DELETE FROM files WHERE folder_id = ?";
-        try (PreparedStatement deleteFilesStmt = DatabaseManager.getConnection().prepareStatement(deleteFilesSql)) {
-            deleteFilesStmt.setInt(1, folder.getId());
-            deleteFilesStmt.executeUpdate();
-            LoggingUtil.logInfo("FolderManager", "Deleted all files in folder: " + folder.getName());
-        }
-        
-        // Schließlich den aktuellen Ordner selbst löschen
-        String deleteFolderSql = "DELETE FROM folders WHERE id = ?";
-        try (PreparedStatement deleteFolderStmt = DatabaseManager.getConnection().prepareStatement(deleteFolderSql)) {
-            deleteFolderStmt.setInt(1, folder.getId());
-            deleteFolderStmt.executeUpdate();
-            LoggingUtil.logInfo("FolderManager", "Deleted folder itself: " + folder.getName());
-        }
-    }
-    
     /**
      * Gibt die Liste aller Ordner zurück.
      * @return Die Liste der Ordner
      */
     public List<VirtualFolder> getFolders() {
-        return new ArrayList<>(folders);
+        return snapshot.get().folders();
     }
     
     /**
@@ -437,8 +560,8 @@ public class FolderManager {
      * Setzt den aktuellen Ordner.
      * @param folder Der neue aktuelle Ordner
      */
-    public void setCurrentFolder(VirtualFolder folder) {
-        if (folders.contains(folder)) {
+    public synchronized void setCurrentFolder(VirtualFolder folder) {
+        if (folder != null && folder.equals(snapshot.get().get(folder.getId()))) {
             currentFolder = folder;
         }
     }
@@ -457,12 +580,7 @@ public class FolderManager {
      * @return Der Ordner, wenn gefunden, null sonst.
      */
     public VirtualFolder getFolderByName(String name) {
-        for (VirtualFolder folder : folders) {
-            if (folder.getName().equals(name)) {
-                return folder;
-            }
-        }
-        return null;
+        return name != null ? view(first(snapshot.get().byName.get(name))) : null;
     }
     
     /**
@@ -471,13 +589,227 @@ public class FolderManager {
      * @return Liste der Unterordner
      */
     public List<VirtualFolder> getSubfolders(int folderId) {
-        List<VirtualFolder> subfolders = new ArrayList<>();
-        for (VirtualFolder folder : folders) {
-            if (folder.getParentId() != null && folder.getParentId() == folderId) {
-                subfolders.add(folder);
+        return snapshot.get().subfolders(folderId);
+    }
+
+    /**
+     * Gibt die Ordner der obersten Ebene zurück.
+     * @return Liste der Root-Ordner
+     */
+    public List<VirtualFolder> getRootFolders() {
+        return snapshot.get().subfolders(null);
+    }
+
+    /**
+     * Gleicht die Ordner mit der Datenbank ab, ohne alles neu zu laden. Ob sich seit dem letzten
+     * Abgleich etwas geändert hat, zeigt {@code PRAGMA data_version} auf einer eigenen Verbindung;
+     * ohne Änderung kostet der Aufruf nur diese eine Abfrage. Andernfalls werden über das
+     * Änderungsprotokoll nur die betroffenen Ordner gelesen und in den Baum übernommen. Ist das
+     * Protokoll inzwischen verdichtet oder die Datenbank gewechselt, wird vollständig neu geladen.
+     * @return true, wenn sich Ordner geändert haben
+     */
+    public synchronized boolean refresh() {
+        if (watchConnection == null || !DatabaseManager.getCurrentDbPath().equals(watchedDbPath)) {
+            reloadFromDatabase();
+            return true;
+        }
+        try {
+            long version = readDataVersion();
+            if (version == dataVersion) {
+                return false;
+            }
+            dataVersion = version;
+
+            ChangeJournal journal = ChangeJournal.getInstance();
+            long latest = journal.getLatestSequence(watchConnection);
+            if (latest < syncedSequence || journal.requiresReset(watchConnection, syncedSequence)) {
+                LoggingUtil.logInfo("FolderManager", "Change journal does not cover last refresh, reloading folders");
+                reloadFromDatabase();
+                return true;
             }
+            int applied = applyChanges(syncedSequence, latest);
+            syncedSequence = latest;
+            if (applied > 0) {
+                LoggingUtil.logInfo("FolderManager", "Applied " + applied + " folder changes from database");
+            }
+            return applied > 0;
+        } catch (SQLException e) {
+            LoggingUtil.logError("FolderManager", "Error refreshing folders, reloading: " + e.getMessage());
+            reloadFromDatabase();
+            return true;
         }
-        return subfolders;
+    }
+
+    /**
+     * Übernimmt die im Änderungsprotokoll verzeichneten Ordneränderungen in den Baum.
+     * @param afterSequence Sequenznummer, nach der die Änderungen gelesen werden
+     * @param upToSequence Höchste zu berücksichtigende Sequenznummer
+     * @return Die Anzahl der geänderten Ordner
+     * @throws SQLException wenn ein Datenbankfehler auftritt
+     */
+    private int applyChanges(long afterSequence, long upToSequence) throws SQLException {
+        int applied = 0;
+        try (PreparedStatement stmt = watchConnection.prepareStatement(
+                "SELECT c.entity_id, f.id, f.name, f.description, f.parent_id, f.created_at "
+                + "FROM (SELECT DISTINCT entity_id FROM changes WHERE entity = ? AND seq > ? AND seq <= ?) c "
+                + "LEFT JOIN folders f ON f.id = c.entity_id ORDER BY c.entity_id")) {
+            stmt.setString(1, ChangeJournal.ENTITY_FOLDER);
+            stmt.setLong(2, afterSequence);
+            stmt.setLong(3, upToSequence);
+            try (ResultSet rs = stmt.executeQuery()) {
+                while (rs.next()) {
+                    VirtualFolder existing = indexedFolder(rs.getInt(1));
+                    if (rs.getObject(2) == null) {
+                        // Gelöscht
+                        if (existing != null) {
+                            unindex(existing.getId());
+                            applied++;
+                        }
+                        continue;
+                    }
+                    String name = rs.getString(3);
+                    String description = rs.getString(4);
+                    Integer parentId = rs.getObject(5) != null ? rs.getInt(5) : null;
+                    if (existing == null) {
+                        Timestamp createdAt = rs.getTimestamp(6);
+                        index(newFolder(rs.getInt(2), name, description, parentId,
+                                createdAt != null ? createdAt.toLocalDateTime() : null));
+                        applied++;
+                    } else if (!Objects.equals(existing.getParentId(), parentId) || !existing.getName().equals(name)
+                            || !Objects.equals(existing.getDescription(), description)) {
+                        // Verschoben oder umbenannt; Eltern und Kinder finden sich über die Indizes
+                        replace(newFolder(existing.getId(), name, description, parentId, existing.getCreatedAt()));
+                        applied++;
+                    }
+                }
+            }
+        }
+        if (applied > 0) {
+            publish();
+            if (currentFolder != null && foldersById.get(currentFolder.getId()) == null) {
+                currentFolder = foldersById.isEmpty() ? null : firstFolder();
+            }
+        }
+        return applied;
+    }
+
+    /**
+     * Öffnet die Beobachtungsverbindung neu und merkt sich den aktuellen Stand der Datenbank.
+     */
+    private void startWatching() {
+        stopWatching();
+        try {
+            watchConnection = DatabaseManager.openConnection();
+            watchedDbPath = DatabaseManager.getCurrentDbPath();
+            dataVersionStmt = watchConnection.prepareStatement("PRAGMA data_version");
+            dataVersion = readDataVersion();
+            syncedSequence = ChangeJournal.getInstance().getLatestSequence(watchConnection);
+        } catch (SQLException e) {
+            // Ohne Beobachtung lädt refresh() vollständig neu
+            LoggingUtil.logError("FolderManager", "Could not watch database for folder changes: " + e.getMessage());
+            stopWatching();
+        }
+    }
+
+    private void stopWatching() {
+        if (watchConnection != null) {
+            try {
+                watchConnection.close();
+            } catch (SQLException e) {
+                LoggingUtil.logError("FolderManager", "Error closing watch connection: " + e.getMessage());
+            }
+        }
+        watchConnection = null;
+        dataVersionStmt = null;
+        watchedDbPath = null;
+    }
+
+    private long readDataVersion() throws SQLException {
+        try (ResultSet rs = dataVersionStmt.executeQuery()) {
+            return rs.next() ? rs.getLong(1) : 0;
+        }
+    }
+
+    /**
+     * Gibt einen Ordner anhand seines vollständigen Pfads zurück, z.B. {@code /Tresor/Dokumente}.
+     * Die Namen werden wie bei der Prüfung auf doppelte Namen ohne Beachtung der
+     * Groß-/Kleinschreibung verglichen. Der Aufwand wächst nur mit der Tiefe des Pfads.
+     * @param path Der Pfad, beginnend mit {@link VirtualFolder#PATH_SEPARATOR}
+     * @return Der Ordner, wenn gefunden, null sonst.
+     */
+    public VirtualFolder getFolderByPath(String path) {
+        if (path == null || !path.startsWith(VirtualFolder.PATH_SEPARATOR)) {
+            return null;
+        }
+        Snapshot current = snapshot.get();
+        Integer cachedId = current.idByPath.get(path);
+        if (cachedId != null) {
+            VirtualFolder cached = current.get(cachedId);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        Indexed folder = null;
+        for (String segment : path.split(VirtualFolder.PATH_SEPARATOR)) {
+            if (segment.isEmpty()) {
+                continue;
+            }
+            folder = first(current.bySiblingName.get(new SiblingKey(folder != null ? folder.folder.getId() : null, segment)));
+            if (folder == null) {
+                return null;
+            }
+        }
+        if (folder != null) {
+            current.idByPath.put(path, folder.folder.getId());
+        }
+        return view(folder);
+    }
+
+    /**
+     * Gibt den vollständigen Pfad eines Ordners zurück.
+     * @param folderId Die ID des Ordners
+     * @return Der Pfad, z.B. {@code /Tresor/Dokumente}, oder null, wenn der Ordner nicht existiert.
+     */
+    public String getFolderPath(int folderId) {
+        Snapshot current = snapshot.get();
+        String cached = current.pathById.get(folderId);
+        if (cached != null) {
+            return cached;
+        }
+        VirtualFolder folder = current.frozen(folderId);
+        if (folder == null) {
+            return null;
+        }
+        // Bis zum nächsten bereits bekannten Pfad aufsteigen, alles im selben Stand
+        List<String> names = new ArrayList<>();
+        String prefix = "";
+        for (VirtualFolder ancestor = folder; ancestor != null;
+             ancestor = ancestor.getParentId() != null ? current.frozen(ancestor.getParentId()) : null) {
+            String known = current.pathById.get(ancestor.getId());
+            if (known != null) {
+                prefix = known;
+                break;
+            }
+            names.add(ancestor.getName());
+        }
+        StringBuilder builder = new StringBuilder(prefix);
+        for (int i = names.size() - 1; i >= 0; i--) {
+            builder.append(VirtualFolder.PATH_SEPARATOR).append(names.get(i));
+        }
+        String path = builder.toString();
+        current.pathById.put(folderId, path);
+        current.idByPath.put(path, folderId);
+        return path;
+    }
+
+    /**
+     * Gibt einen Ordner anhand seiner ID zurück.
+     * @param folderId Die ID des Ordners
+     * @return Der Ordner, wenn gefunden, null sonst.
+     */
+    public VirtualFolder getFolderById(int folderId) {
+        return snapshot.get().get(folderId);
     }
 
     /**
@@ -486,43 +818,341 @@ public class FolderManager {
      * @return Eine Liste aller Ordner.
      */
     public List<VirtualFolder> getAllFolders() {
-        return new ArrayList<>(folders);
+        return snapshot.get().folders();
     }
 
     /**
      * Lädt die Ordnerdaten aus der Datenbank neu, ohne eine neue Grundstruktur zu erstellen.
      * Wird verwendet, um Aktualisierungen zu erhalten, die von externen Quellen (z.B. API) vorgenommen wurden.
      */
-    public void reloadFromDatabase() {
+    public synchronized void reloadFromDatabase() {
         LoggingUtil.logInfo("FolderManager", "Reloading folders from database");
-        folders.clear();
+        clearIndexes();
         loadFoldersFromDatabase();
         
         // Stell sicher, dass currentFolder auf einen gültigen Ordner zeigt
-        if (folders.isEmpty()) {
+        if (foldersById.isEmpty()) {
             LoggingUtil.logInfo("FolderManager", "No folders found after reload");
             currentFolder = null;
         } else if (currentFolder != null) {
             // Versuche, den aktuellen Ordner wiederzufinden
-            boolean found = false;
-            for (VirtualFolder folder : folders) {
-                if (folder.getId() == currentFolder.getId()) {
-                    currentFolder = folder;
-                    found = true;
-                    break;
-                }
-            }
-            
-            if (!found) {
+            Indexed reloaded = foldersById.get(currentFolder.getId());
+            if (reloaded != null) {
+                currentFolder = reloaded.view;
+            } else {
                 // Wenn der aktuelle Ordner nicht mehr existiert, setze auf den ersten verfügbaren
-                currentFolder = folders.get(0);
+                currentFolder = firstFolder();
                 LoggingUtil.logInfo("FolderManager", "Current folder not found after reload, using first available folder");
             }
         } else {
             // Wenn kein aktueller Ordner gesetzt war, setze auf den ersten verfügbaren
-            currentFolder = folders.get(0);
+            currentFolder = firstFolder();
         }
         
         LoggingUtil.logInfo("FolderManager", "Folder reload from database completed");
     }
-}
\ No newline at end of file
+
+    /**
+     * Erstellt einen unveränderlichen Ordner für die Indizes.
+     */
+    private static VirtualFolder newFolder(int id, String name, String description, Integer parentId,
+                                           LocalDateTime createdAt) {
+        VirtualFolder folder = new VirtualFolder(id, name, description, parentId);
+        if (createdAt != null) {
+            folder.setCreatedAt(createdAt);
+        }
+        folder.freeze();
+        return folder;
+    }
+
+    /**
+     * Gibt den Ordner mit der ID aus dem Stand des Schreibers zurück.
+     */
+    private VirtualFolder indexedFolder(int id) {
+        Indexed indexed = foldersById.get(id);
+        return indexed != null ? indexed.folder : null;
+    }
+
+    /**
+     * Nimmt einen neuen Ordner am Ende der Reihenfolge in alle Indizes auf und legt das
+     * herausgegebene Objekt an. Es wird in seinen übergeordneten Ordner eingehängt, und bereits
+     * indizierte Unterordner (z.B. beim Laden vor dem übergeordneten Ordner) werden angehängt.
+     * @param folder Der aufzunehmende, eingefrorene Ordner
+     * @return Der Index-Eintrag
+     */
+    private Indexed index(VirtualFolder folder) {
+        VirtualFolder view = new VirtualFolder(folder.getId(), folder.getName(), folder.getDescription(),
+                folder.getParentId());
+        view.setCreatedAt(folder.getCreatedAt());
+        PersistentTreeMap<Long, Indexed> children = childrenByParent.get(folder.getId());
+        if (children != null) {
+            children.forEach((position, child) -> view.addChild(child.view));
+        }
+        Indexed indexed = index(folder, view, nextPosition++);
+        VirtualFolder parent = parentView(folder.getParentId());
+        if (parent != null) {
+            parent.addChild(view);
+        }
+        return indexed;
+    }
+
+    private Indexed index(VirtualFolder folder, VirtualFolder view, long position) {
+        Indexed indexed = new Indexed(folder, view, position);
+        foldersById = foldersById.put(folder.getId(), indexed);
+        foldersInOrder = foldersInOrder.put(position, indexed);
+        childrenByParent = add(childrenByParent, folder.getParentId(), position, indexed);
+        foldersBySiblingName = add(foldersBySiblingName, new SiblingKey(folder.getParentId(), folder.getName()),
+                position, indexed);
+        foldersByName = add(foldersByName, folder.getName(), position, indexed);
+        return indexed;
+    }
+
+    /**
+     * Entfernt einen Ordner aus allen Indizes und aus den Unterordnern seines übergeordneten Ordners.
+     * @param id Die ID des zu entfernenden Ordners
+     * @return Der entfernte Eintrag oder null, wenn der Ordner nicht indiziert war
+     */
+    private Indexed unindex(int id) {
+        Indexed indexed = remove(id);
+        if (indexed != null) {
+            VirtualFolder parent = parentView(indexed.folder.getParentId());
+            if (parent != null) {
+                parent.removeChild(indexed.view);
+            }
+        }
+        return indexed;
+    }
+
+    private Indexed remove(int id) {
+        Indexed indexed = foldersById.get(id);
+        if (indexed == null) {
+            return null;
+        }
+        VirtualFolder folder = indexed.folder;
+        foldersById = foldersById.remove(id);
+        foldersInOrder = foldersInOrder.remove(indexed.position);
+        childrenByParent = remove(childrenByParent, folder.getParentId(), indexed.position);
+        foldersBySiblingName = remove(foldersBySiblingName, new SiblingKey(folder.getParentId(), folder.getName()),
+                indexed.position);
+        foldersByName = remove(foldersByName, folder.getName(), indexed.position);
+        return indexed;
+    }
+
+    /**
+     * Ersetzt einen Ordner durch einen geänderten mit derselben ID und führt das herausgegebene
+     * Objekt nach. Im selben übergeordneten Ordner behält er seine Position, verschoben wird er
+     * hinten angestellt und in den neuen übergeordneten Ordner umgehängt.
+     * @param updated Der geänderte, eingefrorene Ordner
+     */
+    private void replace(VirtualFolder updated) {
+        Indexed old = remove(updated.getId());
+        if (old == null) {
+            index(updated);
+            return;
+        }
+        VirtualFolder view = old.view;
+        view.setName(updated.getName());
+        view.setDescription(updated.getDescription());
+        if (Objects.equals(old.folder.getParentId(), updated.getParentId())) {
+            index(updated, view, old.position);
+            return;
+        }
+        VirtualFolder oldParent = parentView(old.folder.getParentId());
+        if (oldParent != null) {
+            oldParent.removeChild(view);
+        }
+        view.setParentId(updated.getParentId());
+        index(updated, view, nextPosition++);
+        VirtualFolder newParent = parentView(updated.getParentId());
+        if (newParent != null) {
+            newParent.addChild(view);
+        }
+    }
+
+    private VirtualFolder parentView(Integer parentId) {
+        Indexed parent = parentId != null ? foldersById.get(parentId) : null;
+        return parent != null ? parent.view : null;
+    }
+
+    private static <K> PersistentTreeMap<K, PersistentTreeMap<Long, Indexed>> add(
+            PersistentTreeMap<K, PersistentTreeMap<Long, Indexed>> index, K key, long position, Indexed folder) {
+        PersistentTreeMap<Long, Indexed> entries = index.get(key);
+        if (entries == null) {
+            entries = PersistentTreeMap.empty();
+        }
+        return index.put(key, entries.put(position, folder));
+    }
+
+    private static <K> PersistentTreeMap<K, PersistentTreeMap<Long, Indexed>> remove(
+            PersistentTreeMap<K, PersistentTreeMap<Long, Indexed>> index, K key, long position) {
+        PersistentTreeMap<Long, Indexed> entries = index.get(key);
+        if (entries == null) {
+            return index;
+        }
+        entries = entries.remove(position);
+        return entries.isEmpty() ? index.remove(key) : index.put(key, entries);
+    }
+
+    /**
+     * Gibt den ersten Ordner eines Index-Eintrags zurück. Ältere Datenbanken können gleichnamige
+     * Geschwister enthalten; dann gilt der zuerst aufgenommene.
+     */
+    private static Indexed first(PersistentTreeMap<Long, Indexed> entries) {
+        return entries != null ? entries.firstValue() : null;
+    }
+
+    private static VirtualFolder view(Indexed indexed) {
+        return indexed != null ? indexed.view : null;
+    }
+
+    /**
+     * Veröffentlicht den Stand der Indizes für die Leser. Da die Indizes unveränderlich sind,
+     * kostet das nur ein neues Objekt. Die zwischengespeicherten Pfade gehören zum alten Stand und
+     * verfallen damit, z.B. nach dem Umbenennen oder Verschieben.
+     */
+    private void publish() {
+        snapshot.set(new Snapshot(foldersById, foldersInOrder, childrenByParent, foldersBySiblingName, foldersByName));
+    }
+
+    private static void checkNoSeparator(String name) {
+        if (name != null && name.contains(VirtualFolder.PATH_SEPARATOR)) {
+            LoggingUtil.logError("FolderManager", "Invalid folder name: " + name);
+            throw new IllegalArgumentException("Ordnername darf kein \"" + VirtualFolder.PATH_SEPARATOR + "\" enthalten");
+        }
+    }
+
+    private void clearIndexes() {
+        foldersById = PersistentIntMap.empty();
+        foldersInOrder = PersistentTreeMap.empty();
+        childrenByParent = PersistentTreeMap.empty(PARENT_ORDER);
+        foldersBySiblingName = PersistentTreeMap.empty();
+        foldersByName = PersistentTreeMap.empty();
+        nextPosition = 0;
+    }
+
+    private VirtualFolder firstFolder() {
+        return view(foldersInOrder.firstValue());
+    }
+
+    /**
+     * Ein Ordner im Index: die eingefrorene Kopie, das herausgegebene Objekt und die Position in
+     * der Lade- bzw. Erstellungsreihenfolge.
+     */
+    private static final class Indexed {
+        final VirtualFolder folder;
+        final VirtualFolder view;
+        final long position;
+
+        Indexed(VirtualFolder folder, VirtualFolder view, long position) {
+            this.folder = folder;
+            this.view = view;
+            this.position = position;
+        }
+    }
+
+    /**
+     * Unveränderlicher Stand aller Ordner und Indizes. Listen für die Leser werden erst bei Bedarf
+     * aus den Indizes gebildet und wie die Pfade je Stand zwischengespeichert; nur diese Caches
+     * werden von den Lesern befüllt und sind dafür nebenläufig.
+     */
+    private static final class Snapshot {
+        static final Snapshot EMPTY = new Snapshot(PersistentIntMap.empty(), PersistentTreeMap.empty(),
+                PersistentTreeMap.empty(PARENT_ORDER), PersistentTreeMap.empty(), PersistentTreeMap.empty());
+
+        /** Schlüssel der Root-Ordner in {@link #subfolderLists}, da ConcurrentHashMap kein null erlaubt */
+        private static final Object ROOTS = new Object();
+
+        final PersistentIntMap<Indexed> byId;
+        final PersistentTreeMap<Long, Indexed> inOrder;
+        final PersistentTreeMap<Integer, PersistentTreeMap<Long, Indexed>> childrenByParent;
+        final PersistentTreeMap<SiblingKey, PersistentTreeMap<Long, Indexed>> bySiblingName;
+        final PersistentTreeMap<String, PersistentTreeMap<Long, Indexed>> byName;
+        final Map<Object, List<VirtualFolder>> subfolderLists = new ConcurrentHashMap<>();
+        final Map<String, Integer> idByPath = new ConcurrentHashMap<>();
+        final Map<Integer, String> pathById = new ConcurrentHashMap<>();
+
+        /** Alle Ordner in Reihenfolge, beim ersten Zugriff gebildet */
+        private volatile List<VirtualFolder> folders;
+
+        Snapshot(PersistentIntMap<Indexed> byId, PersistentTreeMap<Long, Indexed> inOrder,
+                 PersistentTreeMap<Integer, PersistentTreeMap<Long, Indexed>> childrenByParent,
+                 PersistentTreeMap<SiblingKey, PersistentTreeMap<Long, Indexed>> bySiblingName,
+                 PersistentTreeMap<String, PersistentTreeMap<Long, Indexed>> byName) {
+            this.byId = byId;
+            this.inOrder = inOrder;
+            this.childrenByParent = childrenByParent;
+            this.bySiblingName = bySiblingName;
+            this.byName = byName;
+        }
+
+        /** Gibt das herausgegebene Objekt zu einer ID zurück */
+        VirtualFolder get(int id) {
+            Indexed indexed = byId.get(id);
+            return indexed != null ? indexed.view : null;
+        }
+
+        /** Gibt die eingefrorene Kopie zu einer ID zurück */
+        VirtualFolder frozen(int id) {
+            Indexed indexed = byId.get(id);
+            return indexed != null ? indexed.folder : null;
+        }
+
+        List<VirtualFolder> folders() {
+            List<VirtualFolder> list = folders;
+            if (list == null) {
+                list = views(inOrder);
+                folders = list;
+            }
+            return list;
+        }
+
+        List<VirtualFolder> subfolders(Integer parentId) {
+            return subfolderLists.computeIfAbsent(parentId != null ? parentId : ROOTS, key -> {
+                PersistentTreeMap<Long, Indexed> children = childrenByParent.get(parentId);
+                return children != null ? views(children) : List.of();
+            });
+        }
+
+        private static List<VirtualFolder> views(PersistentTreeMap<Long, Indexed> entries) {
+            List<VirtualFolder> views = new ArrayList<>(entries.size());
+            entries.forEach((position, indexed) -> views.add(indexed.view));
+            return Collections.unmodifiableList(views);
+        }
+    }
+
+    /**
+     * Schlüssel aus übergeordnetem Ordner und kleingeschriebenem Namen.
+     */
+    private static final class SiblingKey implements Comparable<SiblingKey> {
+        private final Integer parentId;
+        private final String name;
+
+        SiblingKey(Integer parentId, String name) {
+            this.parentId = parentId;
+            this.name = name.toLowerCase(Locale.ROOT);
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof SiblingKey)) {
+                return false;
+            }
+            SiblingKey other = (SiblingKey) obj;
+            return Objects.equals(parentId, other.parentId) && name.equals(other.name);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * Objects.hashCode(parentId) + name.hashCode();
+        }
+
+        @Override
+        public int compareTo(SiblingKey other) {
+            int cmp = PARENT_ORDER.compare(parentId, other.parentId);
+            return cmp != 0 ? cmp : name.compareTo(other.name);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.filevault.util;
+
+/**
+ * Unveränderliche Map mit {@code int}-Schlüsseln als balancierter AVL-Baum, wie
+ * {@link PersistentTreeMap}, aber ohne Boxing der Schlüssel. {@link #get(int)} legt damit keine
+ * Objekte an; {@link #put} und {@link #remove} kopieren nur die O(log n) Knoten auf dem Weg zum
+ * Schlüssel und teilen alles Übrige mit der alten Map.
+ *
+ * @param <V> Typ der Werte
+ */
+final class PersistentIntMap<V> {
+
+    /** Die leere Map */
+    private static final PersistentIntMap<?> EMPTY = new PersistentIntMap<>(null);
+
+    /** Wurzel des Baums, null für die leere Map */
+    private final Node<V> root;
+
+    private PersistentIntMap(Node<V> root) {
+        this.root = root;
+    }
+
+    /**
+     * Gibt eine leere Map zurück.
+     *
+     * @return Die leere Map
+     */
+    @SuppressWarnings("unchecked")
+    static <V> PersistentIntMap<V> empty() {
+        return (PersistentIntMap<V>) EMPTY;
+    }
+
+    /**
+     * Gibt den Wert zu einem Schlüssel zurück.
+     *
+     * @param key Der Schlüssel
+     * @return Der Wert oder null, wenn der Schlüssel fehlt
+     */
+    V get(int key) {
+        Node<V> node = root;
+        while (node != null) {
+            if (key == node.key) {
+                return node.value;
+            }
+            node = key < node.key ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Gibt eine Map zurück, in der der Schlüssel auf den Wert zeigt.
+     *
+     * @param key Der Schlüssel
+     * @param value Der Wert
+     * @return Die neue Map
+     */
+    PersistentIntMap<V> put(int key, V value) {
+        return new PersistentIntMap<>(put(root, key, value));
+    }
+
+    /**
+     * Gibt eine Map ohne den Schlüssel zurück.
+     *
+     * @param key Der Schlüssel
+     * @return Die neue Map oder diese, wenn der Schlüssel fehlt
+     */
+    PersistentIntMap<V> remove(int key) {
+        Node<V> removed = remove(root, key);
+        return removed == root ? this : new PersistentIntMap<>(removed);
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     *
+     * @return Die Anzahl der Einträge
+     */
+    int size() {
+        return root != null ? root.size : 0;
+    }
+
+    /**
+     * Prüft, ob die Map leer ist.
+     *
+     * @return true, wenn die Map keine Einträge enthält
+     */
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    private static <V> Node<V> put(Node<V> node, int key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        if (key < node.key) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        }
+        if (key > node.key) {
+            return balance(node.key, node.value, node.left, put(node.right, key, value));
+        }
+        return node.value == value ? node : new Node<>(key, value, node.left, node.right);
+    }
+
+    private static <V> Node<V> remove(Node<V> node, int key) {
+        if (node == null) {
+            return null;
+        }
+        if (key < node.key) {
+            Node<V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (key > node.key) {
+            Node<V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private static <V> Node<V> removeFirst(Node<V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    private static <V> Node<V> balance(int key, V value, Node<V> left, Node<V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<V> pivot = left.right;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(left.key, left.value, left.left, pivot.left),
+                    new Node<>(key, value, pivot.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<V> pivot = right.left;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(key, value, left, pivot.left),
+                    new Node<>(right.key, right.value, pivot.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static int height(Node<?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    /**
+     * Unveränderlicher Knoten des Baums.
+     */
+    private static final class Node<V> {
+        final int key;
+        final V value;
+        final Node<V> left;
+        final Node<V> right;
+        final int height;
+        final int size;
+
+        Node(int key, V value, Node<V> left, Node<V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = (left != null ? left.size : 0) + (right != null ? right.size : 0) + 1;
+        }
+    }
+}
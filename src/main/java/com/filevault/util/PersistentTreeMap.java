@@ -0,0 +1,252 @@
+package com.filevault.util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.function.BiConsumer;
+
+/**
+ * Unveränderliche, sortierte Map als balancierter AVL-Baum. {@link #put} und {@link #remove}
+ * verändern die Map nicht, sondern liefern eine neue, die alle nicht betroffenen Teilbäume mit der
+ * alten teilt. Eine Änderung kopiert so nur die O(log n) Knoten auf dem Weg zum Schlüssel, und
+ * ältere Stände bleiben für Leser in anderen Threads ohne Sperre gültig.
+ * <p>
+ * Schlüssel werden über den angegebenen {@link Comparator} verglichen, der auch null erlauben darf.
+ *
+ * @param <K> Typ der Schlüssel
+ * @param <V> Typ der Werte
+ */
+final class PersistentTreeMap<K, V> {
+
+    /** Vergleich der Schlüssel */
+    private final Comparator<? super K> comparator;
+
+    /** Wurzel des Baums, null für die leere Map */
+    private final Node<K, V> root;
+
+    private PersistentTreeMap(Comparator<? super K> comparator, Node<K, V> root) {
+        this.comparator = comparator;
+        this.root = root;
+    }
+
+    /**
+     * Gibt eine leere Map zurück, deren Schlüssel natürlich sortiert werden.
+     *
+     * @return Die leere Map
+     */
+    static <K extends Comparable<? super K>, V> PersistentTreeMap<K, V> empty() {
+        return new PersistentTreeMap<>(Comparator.naturalOrder(), null);
+    }
+
+    /**
+     * Gibt eine leere Map zurück, deren Schlüssel mit dem angegebenen Vergleich sortiert werden.
+     *
+     * @param comparator Der Vergleich der Schlüssel
+     * @return Die leere Map
+     */
+    static <K, V> PersistentTreeMap<K, V> empty(Comparator<? super K> comparator) {
+        return new PersistentTreeMap<>(comparator, null);
+    }
+
+    /**
+     * Gibt den Wert zu einem Schlüssel zurück.
+     *
+     * @param key Der Schlüssel
+     * @return Der Wert oder null, wenn der Schlüssel fehlt
+     */
+    V get(K key) {
+        Node<K, V> node = root;
+        while (node != null) {
+            int cmp = comparator.compare(key, node.key);
+            if (cmp == 0) {
+                return node.value;
+            }
+            node = cmp < 0 ? node.left : node.right;
+        }
+        return null;
+    }
+
+    /**
+     * Gibt eine Map zurück, in der der Schlüssel auf den Wert zeigt.
+     *
+     * @param key Der Schlüssel
+     * @param value Der Wert
+     * @return Die neue Map
+     */
+    PersistentTreeMap<K, V> put(K key, V value) {
+        return new PersistentTreeMap<>(comparator, put(root, key, value));
+    }
+
+    /**
+     * Gibt eine Map ohne den Schlüssel zurück.
+     *
+     * @param key Der Schlüssel
+     * @return Die neue Map oder diese, wenn der Schlüssel fehlt
+     */
+    PersistentTreeMap<K, V> remove(K key) {
+        Node<K, V> removed = remove(root, key);
+        return removed == root ? this : new PersistentTreeMap<>(comparator, removed);
+    }
+
+    /**
+     * Gibt die Anzahl der Einträge zurück.
+     *
+     * @return Die Anzahl der Einträge
+     */
+    int size() {
+        return size(root);
+    }
+
+    /**
+     * Prüft, ob die Map leer ist.
+     *
+     * @return true, wenn die Map keine Einträge enthält
+     */
+    boolean isEmpty() {
+        return root == null;
+    }
+
+    /**
+     * Gibt den Wert zum kleinsten Schlüssel zurück.
+     *
+     * @return Der Wert oder null, wenn die Map leer ist
+     */
+    V firstValue() {
+        if (root == null) {
+            return null;
+        }
+        Node<K, V> node = root;
+        while (node.left != null) {
+            node = node.left;
+        }
+        return node.value;
+    }
+
+    /**
+     * Gibt alle Werte in Schlüsselreihenfolge als unveränderliche Liste zurück.
+     *
+     * @return Die Werte
+     */
+    List<V> values() {
+        List<V> values = new ArrayList<>(size());
+        forEach((key, value) -> values.add(value));
+        return Collections.unmodifiableList(values);
+    }
+
+    /**
+     * Durchläuft alle Einträge in Schlüsselreihenfolge.
+     *
+     * @param action Die Aktion je Eintrag
+     */
+    void forEach(BiConsumer<? super K, ? super V> action) {
+        forEach(root, action);
+    }
+
+    private Node<K, V> put(Node<K, V> node, K key, V value) {
+        if (node == null) {
+            return new Node<>(key, value, null, null);
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            return balance(node.key, node.value, put(node.left, key, value), node.right);
+        }
+        if (cmp > 0) {
+            return balance(node.key, node.value, node.left, put(node.right, key, value));
+        }
+        return node.value == value ? node : new Node<>(key, value, node.left, node.right);
+    }
+
+    private Node<K, V> remove(Node<K, V> node, K key) {
+        if (node == null) {
+            return null;
+        }
+        int cmp = comparator.compare(key, node.key);
+        if (cmp < 0) {
+            Node<K, V> left = remove(node.left, key);
+            return left == node.left ? node : balance(node.key, node.value, left, node.right);
+        }
+        if (cmp > 0) {
+            Node<K, V> right = remove(node.right, key);
+            return right == node.right ? node : balance(node.key, node.value, node.left, right);
+        }
+        if (node.left == null) {
+            return node.right;
+        }
+        if (node.right == null) {
+            return node.left;
+        }
+        Node<K, V> successor = node.right;
+        while (successor.left != null) {
+            successor = successor.left;
+        }
+        return balance(successor.key, successor.value, node.left, removeFirst(node.right));
+    }
+
+    private static <K, V> Node<K, V> removeFirst(Node<K, V> node) {
+        if (node.left == null) {
+            return node.right;
+        }
+        return balance(node.key, node.value, removeFirst(node.left), node.right);
+    }
+
+    private static <K, V> Node<K, V> balance(K key, V value, Node<K, V> left, Node<K, V> right) {
+        int diff = height(left) - height(right);
+        if (diff > 1) {
+            if (height(left.left) >= height(left.right)) {
+                return new Node<>(left.key, left.value, left.left, new Node<>(key, value, left.right, right));
+            }
+            Node<K, V> pivot = left.right;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(left.key, left.value, left.left, pivot.left),
+                    new Node<>(key, value, pivot.right, right));
+        }
+        if (diff < -1) {
+            if (height(right.right) >= height(right.left)) {
+                return new Node<>(right.key, right.value, new Node<>(key, value, left, right.left), right.right);
+            }
+            Node<K, V> pivot = right.left;
+            return new Node<>(pivot.key, pivot.value,
+                    new Node<>(key, value, left, pivot.left),
+                    new Node<>(right.key, right.value, pivot.right, right.right));
+        }
+        return new Node<>(key, value, left, right);
+    }
+
+    private static <K, V> void forEach(Node<K, V> node, BiConsumer<? super K, ? super V> action) {
+        while (node != null) {
+            forEach(node.left, action);
+            action.accept(node.key, node.value);
+            node = node.right;
+        }
+    }
+
+    private static int height(Node<?, ?> node) {
+        return node != null ? node.height : 0;
+    }
+
+    private static int size(Node<?, ?> node) {
+        return node != null ? node.size : 0;
+    }
+
+    /**
+     * Unveränderlicher Knoten des Baums.
+     */
+    private static final class Node<K, V> {
+        final K key;
+        final V value;
+        final Node<K, V> left;
+        final Node<K, V> right;
+        final int height;
+        final int size;
+
+        Node(K key, V value, Node<K, V> left, Node<K, V> right) {
+            this.key = key;
+            this.value = value;
+            this.left = left;
+            this.right = right;
+            this.height = Math.max(height(left), height(right)) + 1;
+            this.size = size(left) + size(right) + 1;
+        }
+    }
+}
@@ -5,6 +5,9 @@ import java.io.OutputStream;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -15,10 +18,12 @@ import java.util.function.Consumer;
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Testklasse für den ApiServer.
@@ -227,4 +232,34 @@ class ApiServerTest {
         // Wir erwarten eine 405 Method Not Allowed Antwort
         assertEquals(405, responseCode, "Antwortcode sollte 405 (Method Not Allowed) sein");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Testet, dass Sicherungspfade der API auf das Sicherungsverzeichnis beschränkt sind.
+     * Absolute Pfade und {@code ..} werden abgelehnt.
+     */
+    @Test
+    void testBackupPathsStayInBackupDirectory(@TempDir Path tempDir) {
+        String previous = System.getProperty("filevault.backup.dir");
+        System.setProperty("filevault.backup.dir", tempDir.toString());
+        try {
+            Path root = tempDir.toAbsolutePath().normalize();
+            assertEquals(root, ApiServer.BackupHandler.resolvePath(Map.of(), "target", false));
+            assertEquals(root.resolve("nacht"), ApiServer.BackupHandler.resolvePath(Map.of("target", "nacht"), "target", false));
+            assertEquals(root.resolve("nacht/a.zip"),
+                    ApiServer.BackupHandler.resolvePath(Map.of("archive", "nacht/a.zip"), "archive", true));
+
+            assertThrows(IllegalArgumentException.class,
+                    () -> ApiServer.BackupHandler.resolvePath(Map.of(), "archive", true));
+            for (String escaping : List.of("/etc", root.resolve("x").toString(), "..", "../x", "nacht/../../x", "nacht/../a.zip")) {
+                assertThrows(IllegalArgumentException.class,
+                        () -> ApiServer.BackupHandler.resolvePath(Map.of("target", escaping), "target", false), escaping);
+            }
+        } finally {
+            if (previous != null) {
+                System.setProperty("filevault.backup.dir", previous);
+            } else {
+                System.clearProperty("filevault.backup.dir");
+            }
+        }
+    }
+}
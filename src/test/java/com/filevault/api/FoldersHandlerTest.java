@@ -9,6 +9,7 @@ import java.util.concurrent.TimeUnit;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -140,6 +141,27 @@ class FoldersHandlerTest {
         assertEquals(401, responseCode, "Should get 401 Unauthorized with no token");
     }
     
+    /**
+     * Testet die Abfrage eines Ordners über seinen Pfad.
+     * Überprüft, ob bekannte Pfade gefunden werden und unbekannte 404 ergeben.
+     */
+    @Test
+    void testGetFolderByPath() throws IOException {
+        startServer();
+
+        HttpURLConnection connection = (HttpURLConnection) new URL("http://localhost:" + TEST_PORT
+                + "/api/folders?path=%2FTresor%2FDokumente").openConnection();
+        connection.setRequestProperty("Authorization", validToken);
+        assertEquals(200, connection.getResponseCode(), "Should find the base folder by its path");
+        String body = new String(connection.getInputStream().readAllBytes());
+        assertTrue(body.contains("\"path\":\"/Tresor/Dokumente\""), body);
+
+        connection = (HttpURLConnection) new URL("http://localhost:" + TEST_PORT
+                + "/api/folders?path=%2FTresor%2FGibtEsNicht").openConnection();
+        connection.setRequestProperty("Authorization", validToken);
+        assertEquals(404, connection.getResponseCode(), "Should get 404 for an unknown path");
+    }
+
     /**
      * Hilfsmethode zum Starten des Servers und Warten, bis er bereit ist.
      */
@@ -0,0 +1,136 @@
+package com.filevault.controller;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.filevault.model.VirtualFolder;
+import com.filevault.storage.DatabaseManager;
+import com.filevault.util.FolderManager;
+import com.filevault.util.LoggingUtil;
+
+import javafx.scene.control.TreeItem;
+
+/**
+ * Testklasse für FolderTreeItem.
+ * Prüft das verzögerte Laden der Unterordner und den Abgleich nach Änderungen.
+ */
+class FolderTreeItemTest {
+
+    private FolderManager folderManager;
+
+    private FolderTreeItem root;
+
+    /**
+     * Initialisiert die Testdatenbank und den Root-Eintrag vor jedem Test.
+     */
+    @BeforeEach
+    void setUp() {
+        DatabaseManager.initDatabase(true);
+        folderManager = FolderManager.getInstance();
+        folderManager.initialize();
+        root = new FolderTreeItem(new VirtualFolder(FolderTreeItem.ROOT_ID, "Root", "Root folder", null));
+    }
+
+    /**
+     * Löscht die Testdatenbank nach jedem Test.
+     */
+    @AfterEach
+    void tearDown() {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass Unterordner erst beim Zugriff auf die Kinder geladen werden.
+     */
+    @Test
+    void testChildrenAreLoadedOnDemand() throws Exception {
+        VirtualFolder big = folderManager.createFolder("Gross", null);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO folders (name, description, parent_id) VALUES (?, '', ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < 10000; i++) {
+                stmt.setString(1, "Ordner" + i);
+                stmt.setInt(2, big.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        folderManager.reloadFromDatabase();
+
+        long start = System.nanoTime();
+        assertFalse(root.isLeaf());
+        FolderTreeItem bigItem = (FolderTreeItem) find(root, "Gross");
+        assertFalse(bigItem.isLeaf(), "Unterordner werden über den Index erkannt");
+        assertFalse(bigItem.isLoaded(), "Unterordner werden erst beim Aufklappen geladen");
+        LoggingUtil.logInfo("FolderTreeItemTest", "Top level of 10001 folders built in "
+                + (System.nanoTime() - start) / 1000 + " us");
+
+        assertEquals(10000, bigItem.getChildren().size());
+        assertTrue(bigItem.isLoaded());
+        FolderTreeItem leaf = (FolderTreeItem) bigItem.getChildren().get(0);
+        assertTrue(leaf.isLeaf());
+        assertFalse(leaf.isLoaded());
+    }
+
+    /**
+     * Testet, dass sync() Änderungen übernimmt und bestehende Einträge samt Zustand behält.
+     */
+    @Test
+    void testSyncKeepsExistingItems() {
+        VirtualFolder parent = folderManager.createFolder("Eltern", null);
+        VirtualFolder keep = folderManager.createFolder("Bleibt", parent.getId());
+        VirtualFolder doomed = folderManager.createFolder("Weg", parent.getId());
+        folderManager.createFolder("Tief", keep.getId());
+
+        TreeItem<VirtualFolder> parentItem = find(root, "Eltern");
+        parentItem.setExpanded(true);
+        TreeItem<VirtualFolder> keepItem = find(parentItem, "Bleibt");
+        TreeItem<VirtualFolder> doomedItem = find(parentItem, "Weg");
+        int rootCount = root.getChildren().size();
+
+        folderManager.deleteFolder(doomed);
+        folderManager.renameFolder(keep, "Umbenannt");
+        VirtualFolder added = folderManager.createFolder("Neu", parent.getId());
+        folderManager.createFolder("NeuOben", null);
+        root.sync();
+
+        assertSame(parentItem, find(root, "Eltern"));
+        assertTrue(parentItem.isExpanded(), "Aufgeklappte Ordner bleiben aufgeklappt");
+        assertEquals(2, parentItem.getChildren().size());
+        assertSame(keepItem, parentItem.getChildren().get(0));
+        assertEquals("Umbenannt", keepItem.getValue().getName());
+        assertEquals(added, parentItem.getChildren().get(1).getValue());
+        assertFalse(parentItem.getChildren().contains(doomedItem));
+        assertFalse(((FolderTreeItem) keepItem).isLoaded(), "Nicht aufgeklappte Ordner bleiben ungeladen");
+        assertEquals(rootCount + 1, root.getChildren().size());
+
+        // Nach einem vollständigen Neuladen zeigen die Einträge auf die neuen Objekte
+        folderManager.reloadFromDatabase();
+        root.sync();
+        assertSame(parentItem, find(root, "Eltern"));
+        assertNotSame(parent, parentItem.getValue());
+        assertSame(folderManager.getFolderById(parent.getId()), parentItem.getValue());
+    }
+
+    private static TreeItem<VirtualFolder> find(TreeItem<VirtualFolder> parent, String name) {
+        for (TreeItem<VirtualFolder> child : parent.getChildren()) {
+            if (child.getValue().getName().equals(name)) {
+                return child;
+            }
+        }
+        throw new AssertionError("Ordner nicht im Baum: " + name);
+    }
+}
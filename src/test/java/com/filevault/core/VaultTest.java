@@ -23,6 +23,7 @@ import com.filevault.model.UserManager;
 import com.filevault.model.VirtualFolder;
 import com.filevault.storage.DatabaseManager;
 import com.filevault.storage.FileStorage;
+import com.filevault.storage.blob.BlobStores;
 import com.filevault.util.FolderManager;
 
 /**
@@ -110,6 +111,25 @@ class VaultTest {
         DatabaseManager.deleteTestDatabase();
     }
 
+    /**
+     * Testet das Importieren einer Datei in einen über seinen Pfad adressierten Ordner.
+     * Gleichnamige Ordner in anderen Verzeichnissen dürfen dabei nicht verwechselt werden.
+     */
+    @Test
+    void testImportFileByPath() throws Exception {
+        VirtualFolder nested = folderManager.createFolder("TestFolder", testFolder.getId());
+        File testFile = createTestFile("pfad.txt", "Inhalt");
+
+        EncryptedFile encryptedFile = vault.importFile(testFile, "/TestFolder/TestFolder");
+        assertEquals(nested.getId(), encryptedFile.getFolderId());
+
+        vault.renameFolder("/TestFolder/TestFolder", "Unterordner");
+        assertEquals("Unterordner", nested.getName());
+        assertThrows(Exception.class, () -> vault.importFile(testFile, "/TestFolder/TestFolder"));
+        vault.deleteFolder("/TestFolder/Unterordner");
+        assertNull(folderManager.getFolderByPath("/TestFolder/Unterordner"));
+    }
+
     /**
      * Testet das Importieren einer Datei.
      * Überprüft, ob die Datei erfolgreich importiert wurde.
@@ -126,7 +146,7 @@ class VaultTest {
         assertNotNull(encryptedFile);
         assertEquals("testImport.txt", encryptedFile.getOriginalName());
         assertEquals(testFolder.getId(), encryptedFile.getFolderId());
-        assertTrue(new File(encryptedFile.getEncryptedPath()).exists());
+        assertTrue(BlobStores.getInstance().resolve(encryptedFile.getEncryptedPath()).exists());
         
         // Überprüfe, ob die Datei im Ordner ist
         List<EncryptedFile> files = FileStorage.getInstance().getFilesInFolder(testFolder);
@@ -0,0 +1,107 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für den AccessTracker.
+ * Überprüft, dass Zugriffe gepuffert, zusammengefasst und gesammelt geschrieben werden.
+ */
+class AccessTrackerTest {
+
+    /** Temporäres Verzeichnis für die Testdatenbank */
+    @TempDir
+    Path tempDir;
+
+    /** Die zu testende AccessTracker-Instanz */
+    private AccessTracker tracker;
+
+    /** ID der Testdatei in der Datenbank */
+    private int fileId;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und einer Datei.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        tracker = AccessTracker.getInstance();
+        tracker.flush();
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+            stmt.executeUpdate("INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (1, 1, 'test.txt', 'x.enc', 10, 'text/plain')");
+        }
+        fileId = 1;
+    }
+
+    /**
+     * Beendet den Tracker und löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        tracker.shutdown();
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass mehrere Zugriffe auf dieselbe Datei zu einem Eintrag zusammengefasst
+     * und erst beim Flush geschrieben werden.
+     */
+    @Test
+    void testRecordAccessIsBufferedUntilFlush() throws Exception {
+        tracker.recordAccess(fileId);
+        tracker.recordAccess(fileId);
+
+        assertEquals(1, tracker.getQueueDepth());
+        assertNull(readLastAccess());
+
+        long rowsBefore = tracker.getFlushedRows();
+        assertEquals(1, tracker.flush());
+
+        assertEquals(0, tracker.getQueueDepth());
+        assertEquals(rowsBefore + 1, tracker.getFlushedRows());
+        assertTrue(tracker.getFlushCount() > 0);
+        assertNotNull(readLastAccess());
+    }
+
+    /**
+     * Testet, dass ein Flush ohne ausstehende Zugriffe nichts schreibt.
+     */
+    @Test
+    void testFlushWithoutPendingAccess() {
+        assertEquals(0, tracker.flush());
+        assertEquals(0, tracker.getQueueDepth());
+    }
+
+    private String readLastAccess() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT last_access FROM files WHERE id = ?")) {
+            stmt.setInt(1, fileId);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString("last_access");
+            }
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testklasse für BinaryDelta.
+ */
+class BinaryDeltaTest {
+
+    /**
+     * Testet, dass kleine Änderungen in einer großen Datei ein kleines Delta ergeben.
+     */
+    @Test
+    void testSmallEditGivesSmallDelta() throws Exception {
+        byte[] base = randomBytes(200_000, 1);
+        byte[] target = base.clone();
+        // Einfügen am Anfang verschiebt alle folgenden Blöcke
+        target = concat("Kopfzeile\n".getBytes(StandardCharsets.UTF_8), target);
+        target[100_000] ^= 0x55;
+        target = concat(target, "Fußzeile".getBytes(StandardCharsets.UTF_8));
+
+        byte[] delta = BinaryDelta.encode(base, target);
+        assertTrue(delta.length < 3 * BinaryDelta.blockSize(base.length), "Delta zu groß: " + delta.length);
+        assertArrayEquals(target, BinaryDelta.apply(base, delta));
+    }
+
+    /**
+     * Testet Sonderfälle: leere Eingaben, kurze Dateien und völlig verschiedene Inhalte.
+     */
+    @Test
+    void testEdgeCases() throws Exception {
+        byte[][] samples = {
+                new byte[0],
+                "kurz".getBytes(StandardCharsets.UTF_8),
+                randomBytes(1000, 2),
+                randomBytes(70_000, 3),
+        };
+        for (byte[] base : samples) {
+            for (byte[] target : samples) {
+                assertArrayEquals(target, BinaryDelta.apply(base, BinaryDelta.encode(base, target)));
+            }
+        }
+
+        // Wiederholte Blöcke in der neuen Version verweisen mehrfach auf dieselbe Stelle
+        byte[] block = randomBytes(BinaryDelta.blockSize(4096), 4);
+        byte[] repeated = concat(concat(block, block), block);
+        byte[] delta = BinaryDelta.encode(block, repeated);
+        assertTrue(delta.length < 32, "Delta zu groß: " + delta.length);
+        assertArrayEquals(repeated, BinaryDelta.apply(block, delta));
+    }
+
+    /**
+     * Testet, dass beschädigte oder unpassende Deltas abgewiesen werden.
+     */
+    @Test
+    void testRejectsInvalidDelta() {
+        byte[] base = randomBytes(10_000, 5);
+        byte[] delta = BinaryDelta.encode(base, randomBytes(10_000, 6));
+
+        assertThrows(IOException.class, () -> BinaryDelta.apply(base, new byte[] {1, 2, 3}));
+        assertThrows(IOException.class, () -> BinaryDelta.apply(base, Arrays.copyOf(delta, delta.length - 1)));
+
+        byte[] copy = BinaryDelta.encode(base, base);
+        assertThrows(IOException.class, () -> BinaryDelta.apply(Arrays.copyOf(base, 100), copy));
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] data = new byte[length];
+        new Random(seed).nextBytes(data);
+        return data;
+    }
+
+    private static byte[] concat(byte[] a, byte[] b) {
+        byte[] result = Arrays.copyOf(a, a.length + b.length);
+        System.arraycopy(b, 0, result, a.length, b.length);
+        return result;
+    }
+}
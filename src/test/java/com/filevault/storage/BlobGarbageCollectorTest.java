@@ -0,0 +1,228 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für den BlobGarbageCollector.
+ * Überprüft, dass nur unreferenzierte Dateien außerhalb der Schonfrist gelöscht werden.
+ */
+class BlobGarbageCollectorTest {
+
+    /** Dateiname der alten, unreferenzierten Datei */
+    private static final String ORPHAN = "1b2c3d4e-0000-4000-8000-000000000002";
+
+    /** Temporäres Verzeichnis für Datenbank und Datenverzeichnis */
+    @TempDir
+    Path tempDir;
+
+    /** Das zu bereinigende Datenverzeichnis */
+    private Path dataDir;
+
+    /** Referenzierte Datei */
+    private Path referenced;
+
+    /** Alte, unreferenzierte Datei */
+    private Path orphan;
+
+    /** Gerade geschriebene, noch unreferenzierte Datei (laufender Import) */
+    private Path inFlight;
+
+    /**
+     * Legt eine Testdatenbank und ein Datenverzeichnis mit drei Dateien an.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        dataDir = Files.createDirectory(tempDir.resolve("data"));
+        referenced = writeBlob("0a1b2c3d-0000-4000-8000-000000000001", 10);
+        orphan = writeBlob(ORPHAN, 25);
+        inFlight = writeBlob("2c3d4e5f-0000-4000-8000-000000000003", 5);
+
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        Files.setLastModifiedTime(referenced, old);
+        Files.setLastModifiedTime(orphan, old);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            try (Statement stmt = conn.createStatement()) {
+                stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+            }
+            try (PreparedStatement stmt = conn.prepareStatement(
+                    "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (1, 'test.txt', ?, 10, 'text/plain')")) {
+                stmt.setString(1, referenced.toAbsolutePath().toString());
+                stmt.executeUpdate();
+            }
+        }
+    }
+
+    /**
+     * Löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass ein Probelauf verwaiste Dateien zählt, aber nichts löscht.
+     */
+    @Test
+    void testDryRunDeletesNothing() throws Exception {
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 0, true);
+
+        assertTrue(report.isDryRun());
+        assertEquals(3, report.getScannedFiles());
+        assertEquals(1, report.getSkippedInGracePeriod());
+        assertEquals(1, report.getOrphanFiles());
+        assertEquals(0, report.getDeletedFiles());
+        assertEquals(25, report.getBytesReclaimed());
+        assertTrue(Files.exists(orphan));
+    }
+
+    /**
+     * Testet, dass nur die alte, unreferenzierte Datei gelöscht wird.
+     */
+    @Test
+    void testCollectDeletesOnlyOrphans() throws Exception {
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 100, false);
+
+        assertFalse(report.isDryRun());
+        assertEquals(1, report.getDeletedFiles());
+        assertEquals(0, report.getFailedDeletes());
+        assertEquals(25, report.getBytesReclaimed());
+        assertFalse(Files.exists(orphan));
+        assertTrue(Files.exists(referenced));
+        assertTrue(Files.exists(inFlight));
+    }
+
+    /**
+     * Testet, dass Blobs älterer Dateiversionen nicht als verwaist gelten.
+     */
+    @Test
+    void testVersionBlobsAreReferenced() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO file_versions (file_id, version, kind, encrypted_path, size_bytes, stored_bytes) "
+                     + "VALUES (1, 1, 'full', ?, 25, 25)")) {
+            stmt.setString(1, "local:" + BlobLayout.key(ORPHAN));
+            stmt.executeUpdate();
+        }
+
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 100, false);
+
+        assertEquals(0, report.getOrphanFiles());
+        assertTrue(Files.exists(orphan));
+    }
+
+    /**
+     * Testet, dass nur verschlüsselte Dateien im verteilten Layout betrachtet werden und
+     * sonstige Dateien im Datenverzeichnis auch nach der Schonfrist erhalten bleiben.
+     */
+    @Test
+    void testNonBlobFilesAreKept() throws Exception {
+        FileTime old = FileTime.from(Instant.now().minus(Duration.ofDays(1)));
+        List<Path> others = List.of(
+                dataDir.resolve("notes.txt"),
+                dataDir.resolve(ORPHAN),
+                orphan.resolveSibling(ORPHAN + "123.tmp"),
+                dataDir.resolve("ff").resolve("ee").resolve(ORPHAN),
+                orphan.resolveSibling("nested").resolve(ORPHAN));
+        for (Path other : others) {
+            Files.createDirectories(other.getParent());
+            Files.write(other, new byte[1]);
+            Files.setLastModifiedTime(other, old);
+        }
+
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 100, false);
+
+        assertEquals(3, report.getScannedFiles());
+        assertEquals(1, report.getDeletedFiles());
+        assertFalse(Files.exists(orphan));
+        for (Path other : others) {
+            assertTrue(Files.exists(other), other.toString());
+        }
+    }
+
+    /**
+     * Testet, dass bei Verweisen außerhalb des Datenverzeichnisses nichts gelöscht wird.
+     */
+    @Test
+    void testForeignReferencesForceDryRun() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                     + "VALUES (1, 'moved.txt', ?, 1, 'text/plain')")) {
+            stmt.setString(1, tempDir.resolve("elsewhere").resolve("blob").toString());
+            stmt.executeUpdate();
+        }
+
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 0, false);
+
+        assertTrue(report.isDryRun());
+        assertTrue(Files.exists(orphan));
+    }
+
+    /**
+     * Testet, dass während einer Sicherung nichts gelöscht wird.
+     */
+    @Test
+    void testHeldDeletionQueueForcesDryRun() throws Exception {
+        DeletionQueue.getInstance().hold();
+        GcReport report;
+        try {
+            report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 0, false);
+        } finally {
+            DeletionQueue.getInstance().release();
+        }
+
+        assertTrue(report.isDryRun());
+        assertEquals(0, report.getDeletedFiles());
+        assertTrue(Files.exists(orphan));
+    }
+
+    /**
+     * Testet, dass Blobs in der Löschwarteschlange der DeletionQueue überlassen bleiben.
+     */
+    @Test
+    void testQueuedBlobsAreReferenced() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO deletion_queue (encrypted_path) VALUES (?)")) {
+            stmt.setString(1, "local:" + BlobLayout.key(ORPHAN));
+            stmt.executeUpdate();
+        }
+
+        GcReport report = BlobGarbageCollector.getInstance().collect(dataDir, Duration.ofHours(1), 2, 100, false);
+
+        assertEquals(0, report.getOrphanFiles());
+        assertTrue(Files.exists(orphan));
+    }
+
+    private Path writeBlob(String name, int size) throws Exception {
+        Path path = BlobLayout.resolve(dataDir, name);
+        Files.createDirectories(path.getParent());
+        return Files.write(path, new byte[size]);
+    }
+}
@@ -0,0 +1,144 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für den BlobLayoutMigrator und das verteilte Layout.
+ */
+class BlobLayoutMigratorTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Datenverzeichnis */
+    @TempDir
+    Path tempDir;
+
+    /** Das zu migrierende Datenverzeichnis */
+    private Path dataDir;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        dataDir = Files.createDirectory(tempDir.resolve("data")).toAbsolutePath();
+    }
+
+    /**
+     * Löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass Dateien auf zwei Verzeichnisebenen verteilt werden.
+     */
+    @Test
+    void testResolve() {
+        Path path = BlobLayout.resolve(dataDir, "abcdef01-2345");
+
+        assertEquals(dataDir.resolve("ab").resolve("cd").resolve("abcdef01-2345"), path);
+        assertTrue(BlobLayout.isSharded(dataDir, path));
+        assertFalse(BlobLayout.isSharded(dataDir, dataDir.resolve("abcdef01-2345")));
+    }
+
+    /**
+     * Testet, dass flach abgelegte Dateien verschoben und die Pfade durch Blob-URIs ersetzt werden.
+     */
+    @Test
+    void testMigrateMovesFlatBlobs() throws Exception {
+        Path flat = Files.write(dataDir.resolve("1234abcd-flat"), new byte[] {1, 2, 3});
+        int id = insertFile(flat.toString());
+
+        int migrated = BlobLayoutMigrator.getInstance().migrate(dataDir);
+
+        Path expected = BlobLayout.resolve(dataDir, "1234abcd-flat");
+        assertEquals(1, migrated);
+        assertFalse(Files.exists(flat));
+        assertTrue(Files.exists(expected));
+        assertEquals("local:12/34/1234abcd-flat", readPath(id));
+    }
+
+    /**
+     * Testet, dass bereits verteilt abgelegte Dateien mit absolutem Pfad nur auf eine Blob-URI umgestellt werden.
+     */
+    @Test
+    void testMigrateConvertsShardedPathToUri() throws Exception {
+        Path sharded = BlobLayout.resolve(dataDir, "9abc0000-sharded");
+        Files.createDirectories(sharded.getParent());
+        Files.write(sharded, new byte[] {6});
+        int id = insertFile(sharded.toString());
+
+        BlobLayoutMigrator.getInstance().migrate(dataDir);
+
+        assertEquals("local:9a/bc/9abc0000-sharded", readPath(id));
+        assertTrue(Files.exists(sharded));
+    }
+
+    /**
+     * Testet, dass nach einem Abbruch zwischen Verschieben und Datenbankaktualisierung
+     * nur noch der Pfad nachgetragen wird.
+     */
+    @Test
+    void testMigrateCompletesInterruptedMove() throws Exception {
+        Path flat = dataDir.resolve("5678ef00-moved");
+        Path target = BlobLayout.resolve(dataDir, "5678ef00-moved");
+        Files.createDirectories(target.getParent());
+        Files.write(target, new byte[] {4, 5});
+        int id = insertFile(flat.toString());
+
+        BlobLayoutMigrator.getInstance().migrate(dataDir);
+
+        assertEquals("local:56/78/5678ef00-moved", readPath(id));
+        assertTrue(Files.exists(target));
+    }
+
+    private int insertFile(String encryptedPath) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                     + "VALUES (1, 'test.txt', ?, 3, 'text/plain')", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, encryptedPath);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private String readPath(int id) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT encrypted_path FROM files WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,167 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+
+/**
+ * Testklasse für das Änderungsprotokoll (ChangeJournal).
+ */
+class ChangeJournalTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Testdateien */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+    }
+
+    /**
+     * Setzt die Einstellungen zurück, löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        ChangeJournal.getInstance().configure(30);
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass Anlegen, Umbenennen und Löschen von Dateien und Ordnern in Reihenfolge protokolliert werden.
+     */
+    @Test
+    void testMutationsAreRecorded() throws Exception {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        long start = journal.getLatestSequence();
+
+        EncryptedFile file = importText("a.txt", "Inhalt");
+        assertTrue(FileStorage.getInstance().renameFile(file, "b.txt"));
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE folders SET description = 'Neu' WHERE id = 1");
+        }
+        assertTrue(FileStorage.getInstance().deleteFile(file));
+
+        List<Change> changes = journal.since(start, 100);
+        assertEquals(List.of("file create", "file update", "folder update", "file delete"),
+                changes.stream().map(change -> change.getEntity() + " " + change.getOperation()).toList());
+        assertEquals(file.getId(), changes.get(0).getEntityId());
+        assertEquals(1, changes.get(2).getEntityId());
+        for (int i = 1; i < changes.size(); i++) {
+            assertTrue(changes.get(i).getSequence() > changes.get(i - 1).getSequence());
+        }
+        assertEquals(changes.get(changes.size() - 1).getSequence(), journal.getLatestSequence());
+    }
+
+    /**
+     * Testet das seitenweise Abholen ab einer Sequenznummer.
+     */
+    @Test
+    void testPagingSinceSequence() throws Exception {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        long start = journal.getLatestSequence();
+        for (int i = 0; i < 5; i++) {
+            importText("datei" + i + ".txt", "Inhalt " + i);
+        }
+
+        List<Change> first = journal.since(start, 3);
+        assertEquals(3, first.size());
+        List<Change> second = journal.since(first.get(2).getSequence(), 3);
+        assertEquals(2, second.size());
+        assertTrue(journal.since(second.get(1).getSequence(), 3).isEmpty());
+    }
+
+    /**
+     * Testet, dass die Verdichtung nur die letzte Änderung je Objekt behält und die Sequenz nicht zurücksetzt.
+     */
+    @Test
+    void testCompactionKeepsLatestPerEntity() throws Exception {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        EncryptedFile file = importText("a.txt", "Inhalt");
+        assertTrue(FileStorage.getInstance().renameFile(file, "b.txt"));
+        assertTrue(FileStorage.getInstance().renameFile(file, "c.txt"));
+        long latest = journal.getLatestSequence();
+
+        assertTrue(journal.compact() >= 2);
+        List<Change> remaining = journal.since(0, 100).stream()
+                .filter(change -> ChangeJournal.ENTITY_FILE.equals(change.getEntity())).toList();
+        assertEquals(1, remaining.size());
+        assertEquals(ChangeJournal.OP_UPDATE, remaining.get(0).getOperation());
+        assertEquals(latest, remaining.get(0).getSequence());
+        assertFalse(journal.requiresReset(0));
+
+        importText("d.txt", "Weiter");
+        assertTrue(journal.getLatestSequence() > latest);
+    }
+
+    /**
+     * Testet, dass abgelaufene Einträge entfernt werden und Clients davor einen vollständigen Abgleich brauchen.
+     */
+    @Test
+    void testRetentionRequiresReset() throws Exception {
+        ChangeJournal journal = ChangeJournal.getInstance();
+        importText("alt.txt", "Alt");
+        long old = journal.getLatestSequence();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE changes SET changed_at = datetime('now', '-40 days')");
+        }
+        importText("neu.txt", "Neu");
+
+        journal.configure(30);
+        journal.compact();
+        assertTrue(journal.requiresReset(0));
+        assertTrue(journal.requiresReset(old - 1));
+        assertFalse(journal.requiresReset(old));
+        assertEquals(1, journal.since(old, 100).size());
+        assertEquals(1, journal.countEntries());
+    }
+
+    private EncryptedFile importText(String name, String content) throws Exception {
+        Path source = Files.createTempDirectory(tempDir, "import").resolve(name);
+        Files.writeString(source, content);
+        return FileStorage.getInstance().importFile(source.toFile(), folder);
+    }
+}
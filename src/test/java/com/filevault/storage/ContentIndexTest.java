@@ -0,0 +1,211 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.UserManager;
+import com.filevault.security.EncryptionService;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.InMemoryBlobStore;
+
+/**
+ * Testklasse für den ContentIndex.
+ */
+class ContentIndexTest {
+
+    /** Temporäres Verzeichnis für die Datenbank */
+    @TempDir
+    Path tempDir;
+
+    /** Speicher für die verschlüsselten Testdateien */
+    private final InMemoryBlobStore store = new InMemoryBlobStore();
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        setMasterKey(1);
+        BlobStores.getInstance().register(store);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+    }
+
+    /**
+     * Löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass eine Textdatei über ihren Inhalt gefunden wird, samt Textausschnitt.
+     */
+    @Test
+    void testIndexAndSearch() throws Exception {
+        int id = insertFile("rechnung.txt", "text/plain",
+                "Sehr geehrte Damen und Herren,\nanbei die Rechnung für März. Die Rechnung ist bis Ende April zu begleichen.");
+        insertFile("brief.txt", "text/plain", "Ein Brief ohne Zahlungsaufforderung.");
+
+        ContentIndex index = ContentIndex.getInstance();
+        assertTrue(index.indexFile(id));
+
+        List<ContentHit> hits = index.search("RECHNUNG marz", 10);
+        assertEquals(1, hits.size());
+        assertEquals(id, hits.get(0).getFileId());
+        assertEquals("rechnung.txt", hits.get(0).getName());
+        assertEquals(3, hits.get(0).getScore());
+        assertTrue(hits.get(0).getSnippet().contains("die Rechnung für März"), hits.get(0).getSnippet());
+
+        assertTrue(index.search("rechnung brief", 10).isEmpty());
+        assertTrue(index.search("  !? ", 10).isEmpty());
+    }
+
+    /**
+     * Testet, dass die Datenbank nur HMACs und keine Wörter im Klartext enthält.
+     */
+    @Test
+    void testIndexContainsNoPlaintext() throws Exception {
+        int id = insertFile("geheim.txt", "text/plain", "streng vertraulich vertraulich");
+        assertTrue(ContentIndex.getInstance().indexFile(id));
+
+        List<byte[]> terms = new ArrayList<>();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT term, frequency FROM content_terms ORDER BY frequency")) {
+            while (rs.next()) {
+                terms.add(rs.getBytes("term"));
+            }
+        }
+        assertEquals(2, terms.size());
+        for (byte[] term : terms) {
+            assertEquals(16, term.length);
+            String text = new String(term, StandardCharsets.UTF_8);
+            assertFalse(text.contains("streng") || text.contains("vertraulich"));
+        }
+    }
+
+    /**
+     * Testet, dass nur Textdateien indiziert und gelöschte Dateien aus dem Index entfernt werden.
+     */
+    @Test
+    void testIndexPendingAndDelete() throws Exception {
+        int text = insertFile("notiz.md", "text/markdown", "Einkaufsliste: Milch, Brot");
+        int json = insertFile("daten.json", "application/json", "{\"einkauf\": \"brot\"}");
+        int image = insertFile("bild.png", "image/png", "brot");
+
+        assertEquals(2, ContentIndex.getInstance().indexPending());
+        assertEquals(0, ContentIndex.getInstance().indexPending());
+        assertFalse(ContentIndex.getInstance().indexFile(image));
+        assertEquals(2, ContentIndex.getInstance().search("brot", 10).size());
+
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("DELETE FROM files WHERE id = ?")) {
+            stmt.setInt(1, json);
+            stmt.executeUpdate();
+        }
+        List<ContentHit> hits = ContentIndex.getInstance().search("brot", 10);
+        assertEquals(1, hits.size());
+        assertEquals(text, hits.get(0).getFileId());
+        assertEquals(0, count("SELECT COUNT(*) FROM content_terms WHERE file_id = " + json));
+    }
+
+    /**
+     * Testet, dass ein geänderter Master-Schlüssel den Index leert.
+     */
+    @Test
+    void testKeyChangeClearsIndex() throws Exception {
+        int id = insertFile("a.txt", "text/plain", "Apfelkuchen");
+        assertTrue(ContentIndex.getInstance().indexFile(id));
+        assertEquals(1, ContentIndex.getInstance().search("apfelkuchen", 10).size());
+
+        setMasterKey(2);
+        assertTrue(ContentIndex.getInstance().search("apfelkuchen", 10).isEmpty());
+        assertEquals(0, count("SELECT COUNT(*) FROM content_documents"));
+    }
+
+    /**
+     * Testet die Zerlegung in Wörter über Blockgrenzen hinweg.
+     */
+    @Test
+    void testTokenizerAcrossChunks() {
+        List<String> terms = new ArrayList<>();
+        ContentIndex.Tokenizer tokenizer = new ContentIndex.Tokenizer((term, offset) -> terms.add(term + "@" + offset));
+        tokenizer.accept("Hal".toCharArray(), 3);
+        tokenizer.accept("lo, Wélt! x 42".toCharArray(), 14);
+        tokenizer.finish();
+
+        assertEquals(List.of("hallo@0", "welt@7", "42@15"), terms);
+    }
+
+    private int insertFile(String name, String mimeType, String content) throws Exception {
+        String key = BlobLayout.key(UUID.randomUUID().toString());
+        byte[] plain = content.getBytes(StandardCharsets.UTF_8);
+        try (InputStream encrypted = EncryptionService.getInstance().encryptStream(new ByteArrayInputStream(plain))) {
+            store.put(key, encrypted);
+        }
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) VALUES (1, ?, ?, ?, ?)",
+                     Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, name);
+            stmt.setString(2, InMemoryBlobStore.SCHEME + ":" + key);
+            stmt.setLong(3, plain.length);
+            stmt.setString(4, mimeType);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private static void setMasterKey(int seed) throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i * seed);
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+    }
+}
@@ -4,15 +4,19 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.sql.Connection;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 
 import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 /**
  * Unit tests für DatabaseManager.
@@ -63,4 +67,29 @@ public class DatabaseManagerTest {
 
         assertFalse(Files.exists(testDbPath));
     }
-}
\ No newline at end of file
+
+    /**
+     * Testet Sichern und Wiederherstellen über einen Pfad mit Anführungszeichen, der nicht in
+     * SQL eingesetzt werden darf.
+     */
+    @Test
+    void testBackupAndRestoreWithQuotesInPath(@TempDir Path tempDir) throws Exception {
+        try (Statement stmt = DatabaseManager.getConnection().createStatement()) {
+            stmt.executeUpdate("INSERT INTO settings (key, value) VALUES ('backup_test', 'vorher')");
+        }
+        Path target = tempDir.resolve("a\" b'c.db");
+
+        DatabaseManager.backupTo(target);
+        assertTrue(Files.size(target) > 0);
+
+        try (Statement stmt = DatabaseManager.getConnection().createStatement()) {
+            stmt.executeUpdate("UPDATE settings SET value = 'nachher' WHERE key = 'backup_test'");
+        }
+        DatabaseManager.restoreFrom(target);
+        try (Statement stmt = DatabaseManager.getConnection().createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT value FROM settings WHERE key = 'backup_test'")) {
+            assertTrue(rs.next());
+            assertEquals("vorher", rs.getString(1));
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+
+/**
+ * Testklasse für den Zwischenspeicher entschlüsselter Inhalte (DecryptedContentCache).
+ */
+class DecryptedContentCacheTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Testdateien */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner, setzt einen Master-Schlüssel
+     * und schaltet den Cache ein.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        setMasterKey(newKey((byte) 0));
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        DecryptedContentCache.getInstance().configure(1024 * 1024, 1024);
+    }
+
+    /**
+     * Schaltet den Cache aus, löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DecryptedContentCache.getInstance().clear();
+        DecryptedContentCache.getInstance().configure(0, 256 * 1024);
+        setMasterKey(null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass ein wiederholter Abruf aus dem Cache bedient wird.
+     */
+    @Test
+    void testRepeatedReadIsServedFromCache() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        EncryptedFile file = importText("config.yml", "port: 8080");
+        long hits = cache.getHitCount();
+        long misses = cache.getMissCount();
+
+        assertEquals("port: 8080", read(cache.openCurrent(file.getId())));
+        assertEquals(misses + 1, cache.getMissCount());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(10, cache.getBytesHeld());
+
+        assertEquals("port: 8080", read(cache.openCurrent(file.getId())));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(misses + 1, cache.getMissCount());
+        assertTrue(cache.getHitRatio() > 0);
+    }
+
+    /**
+     * Testet, dass große Dateien vollständig ausgeliefert, aber nicht zwischengespeichert werden.
+     */
+    @Test
+    void testLargeFilesAreNotCached() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        String content = "x".repeat(5000);
+        EncryptedFile file = importText("gross.txt", content);
+
+        assertEquals(content, read(cache.openCurrent(file.getId())));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytesHeld());
+    }
+
+    /**
+     * Testet, dass Löschen und Ersetzen einer Datei ihre Einträge entfernen.
+     */
+    @Test
+    void testInvalidationOnReplaceAndDelete() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        EncryptedFile file = importText("config.yml", "alt");
+        assertEquals("alt", read(cache.openCurrent(file.getId())));
+        assertEquals(1, cache.getEntryCount());
+
+        EncryptedFile replaced = importText("config.yml", "neu");
+        assertEquals(file.getId(), replaced.getId());
+        assertEquals(0, cache.getEntryCount());
+        assertEquals("neu", read(cache.openCurrent(file.getId())));
+
+        assertTrue(FileStorage.getInstance().deleteFile(replaced));
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytesHeld());
+    }
+
+    /**
+     * Testet, dass der Cache bei Überschreiten des Budgets die ältesten Einträge verdrängt.
+     */
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        cache.configure(250, 1024);
+        EncryptedFile first = importText("a.txt", "a".repeat(100));
+        EncryptedFile second = importText("b.txt", "b".repeat(100));
+        EncryptedFile third = importText("c.txt", "c".repeat(100));
+
+        read(cache.openCurrent(first.getId()));
+        read(cache.openCurrent(second.getId()));
+        read(cache.openCurrent(first.getId()));
+        read(cache.openCurrent(third.getId()));
+
+        assertEquals(2, cache.getEntryCount());
+        assertEquals(200, cache.getBytesHeld());
+        long hits = cache.getHitCount();
+        read(cache.openCurrent(first.getId()));
+        assertEquals(hits + 1, cache.getHitCount(), "zuletzt genutzter Eintrag bleibt erhalten");
+        read(cache.openCurrent(second.getId()));
+        assertEquals(hits + 1, cache.getHitCount(), "ältester Eintrag wurde verdrängt");
+    }
+
+    /**
+     * Testet, dass Abmelden und ein neuer Master-Schlüssel den Cache leeren.
+     */
+    @Test
+    void testClearedOnLogoutAndNewSession() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        EncryptedFile file = importText("config.yml", "geheim");
+        read(cache.openCurrent(file.getId()));
+        assertEquals(1, cache.getEntryCount());
+
+        UserManager.getInstance().logout();
+        assertEquals(0, cache.getEntryCount());
+        assertEquals(0, cache.getBytesHeld());
+
+        // Eine neue Sitzung mit demselben Schlüssel, aber neuer Anmeldung, sieht alte Einträge nicht
+        setMasterKey(newKey((byte) 0));
+        read(cache.openCurrent(file.getId()));
+        long hits = cache.getHitCount();
+        setMasterKey(newKey((byte) 0));
+        read(cache.openCurrent(file.getId()));
+        assertEquals(hits, cache.getHitCount());
+        assertEquals(1, cache.getEntryCount());
+        assertEquals(6, cache.getBytesHeld());
+    }
+
+    /**
+     * Testet, dass offene Datenströme eine Verdrängung überstehen, nach dem Leeren aber nichts
+     * mehr liefern.
+     */
+    @Test
+    void testOpenStreamsSurviveEvictionButNotClear() throws Exception {
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        cache.configure(150, 1024);
+        EncryptedFile first = importText("a.txt", "a".repeat(100));
+        EncryptedFile second = importText("b.txt", "b".repeat(100));
+        read(cache.openCurrent(first.getId()));
+
+        long hits = cache.getHitCount();
+        InputStream open = cache.openCurrent(first.getId());
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals('a', open.read());
+        read(cache.openCurrent(second.getId()));
+        assertEquals(1, cache.getEntryCount(), "Der gelesene Eintrag wurde verdrängt");
+        assertEquals("a".repeat(99), read(open));
+
+        InputStream wiped = cache.openCurrent(second.getId());
+        cache.clear();
+        assertThrows(IOException.class, wiped::read);
+        wiped.close();
+        assertEquals(0, cache.getBytesHeld());
+    }
+
+    private EncryptedFile importText(String name, String content) throws Exception {
+        Path source = Files.createTempDirectory(tempDir, "import").resolve(name);
+        Files.writeString(source, content);
+        return FileStorage.getInstance().importFile(source.toFile(), folder);
+    }
+
+    private static String read(InputStream in) throws Exception {
+        try (in) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static byte[] newKey(byte offset) {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) (i + offset);
+        }
+        return key;
+    }
+
+    private static void setMasterKey(byte[] key) throws Exception {
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+    }
+}
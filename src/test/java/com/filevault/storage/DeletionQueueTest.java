@@ -0,0 +1,225 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.Statement;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für die DeletionQueue.
+ * Überprüft das Einreihen, das Abarbeiten und den Schutz noch referenzierter Dateien.
+ */
+class DeletionQueueTest {
+
+    /** Temporäres Verzeichnis für Datenbank und verschlüsselte Dateien */
+    @TempDir
+    Path tempDir;
+
+    /** Die zu testende DeletionQueue-Instanz */
+    private DeletionQueue queue;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        queue = DeletionQueue.getInstance();
+    }
+
+    /**
+     * Setzt die Einstellung zurück und löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        queue.setSecureWipe(false);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass eingereihte Dateien erst beim Abarbeiten entfernt werden.
+     */
+    @Test
+    void testEnqueueAndProcess() throws Exception {
+        Path blob = Files.write(tempDir.resolve("blob"), new byte[100]);
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            queue.enqueue(conn, blob.toString());
+        }
+
+        assertEquals(1, queue.getBacklog());
+        assertTrue(Files.exists(blob));
+
+        assertEquals(1, queue.processPending());
+        assertEquals(0, queue.getBacklog());
+        assertFalse(Files.exists(blob));
+    }
+
+    /**
+     * Testet, dass alle Dateien eines Ordners eingereiht werden und eine bereits
+     * fehlende Datei als entfernt gilt.
+     */
+    @Test
+    void testEnqueueFolder() throws Exception {
+        Path blob = Files.write(tempDir.resolve("folder-blob"), new byte[10]);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                     + "VALUES (1, ?, ?, 10, 'text/plain')")) {
+            stmt.setString(1, "a.txt");
+            stmt.setString(2, blob.toString());
+            stmt.executeUpdate();
+            stmt.setString(1, "b.txt");
+            stmt.setString(2, tempDir.resolve("missing").toString());
+            stmt.executeUpdate();
+        }
+
+        try (Connection conn = DatabaseManager.getConnection()) {
+            assertEquals(2, queue.enqueueFolder(conn, 1));
+        }
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("DELETE FROM files WHERE folder_id = 1");
+        }
+
+        queue.processPending();
+        assertEquals(0, queue.getBacklog());
+        assertFalse(Files.exists(blob));
+    }
+
+    /**
+     * Testet, dass die Dateien eines ganzen Teilbaums eingereiht und nach dem Start
+     * parallel entfernt werden.
+     */
+    @Test
+    void testEnqueueFolderTreeAndParallelUnlink() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name, parent_id) VALUES (2, 'Kind', 1), (3, 'Enkel', 2), (4, 'Andere', NULL)");
+        }
+        Path[] blobs = new Path[40];
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                     + "VALUES (?, ?, ?, 10, 'text/plain')")) {
+            for (int i = 0; i < blobs.length; i++) {
+                blobs[i] = Files.write(tempDir.resolve("tree-blob-" + i), new byte[10]);
+                stmt.setInt(1, 1 + i % 4);
+                stmt.setString(2, i + ".txt");
+                stmt.setString(3, blobs[i].toString());
+                stmt.executeUpdate();
+            }
+        }
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            assertEquals(30, queue.enqueueFolderTree(conn, 1));
+            stmt.executeUpdate("DELETE FROM files WHERE folder_id IN (1, 2, 3)");
+        }
+
+        queue.start();
+        try {
+            queue.processPending();
+        } finally {
+            queue.shutdown();
+        }
+        assertEquals(0, queue.getBacklog());
+        for (int i = 0; i < blobs.length; i++) {
+            assertEquals(i % 4 == 3, Files.exists(blobs[i]), blobs[i].toString());
+        }
+    }
+
+    /**
+     * Testet, dass eine Datei, auf die noch ein Eintrag verweist, nicht entfernt wird.
+     */
+    @Test
+    void testReferencedBlobIsKept() throws Exception {
+        Path blob = Files.write(tempDir.resolve("still-used"), new byte[10]);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                     + "VALUES (1, 'a.txt', ?, 10, 'text/plain')")) {
+            stmt.setString(1, blob.toString());
+            stmt.executeUpdate();
+        }
+        try (Connection conn = DatabaseManager.getConnection()) {
+            queue.enqueue(conn, blob.toString());
+        }
+
+        queue.processPending();
+
+        assertEquals(0, queue.getBacklog());
+        assertTrue(Files.exists(blob));
+    }
+
+    /**
+     * Testet, dass eine Datei nicht entfernt wird, wenn sie während des Durchlaufs erneut
+     * verknüpft wird, z.B. durch ein gleichzeitiges Wiederherstellen aus einem Snapshot.
+     */
+    @Test
+    void testBlobLinkedDuringProcessingIsKept() throws Exception {
+        Path blob = Files.write(tempDir.resolve("relinked"), new byte[10]);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            queue.enqueue(conn, blob.toString());
+        }
+
+        Thread processor;
+        try (Connection restore = DatabaseManager.openConnection();
+             Statement tx = restore.createStatement()) {
+            // Das Wiederherstellen hält die Schreibsperre, bevor der Durchlauf prüft
+            tx.execute("BEGIN IMMEDIATE");
+            processor = new Thread(queue::processPending);
+            processor.start();
+            Thread.sleep(200);
+            try (PreparedStatement stmt = restore.prepareStatement(
+                    "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (1, 'a.txt', ?, 10, 'text/plain')")) {
+                stmt.setString(1, blob.toString());
+                stmt.executeUpdate();
+            }
+            tx.execute("COMMIT");
+        }
+        processor.join(10000);
+
+        assertFalse(processor.isAlive());
+        assertEquals(0, queue.getBacklog());
+        assertTrue(Files.exists(blob));
+    }
+
+    /**
+     * Testet, dass die Einstellung für sicheres Löschen gespeichert wird und
+     * überschriebene Dateien ebenfalls entfernt werden.
+     */
+    @Test
+    void testSecureWipe() throws Exception {
+        queue.setSecureWipe(true);
+        assertTrue(queue.isSecureWipe());
+
+        Path blob = Files.write(tempDir.resolve("secret"), new byte[200_000]);
+        try (Connection conn = DatabaseManager.getConnection()) {
+            queue.enqueue(conn, blob.toString());
+        }
+
+        queue.processPending();
+        assertFalse(Files.exists(blob));
+    }
+}
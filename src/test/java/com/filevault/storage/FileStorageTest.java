@@ -5,6 +5,7 @@ import java.lang.reflect.Field;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 import org.junit.jupiter.api.AfterEach;
@@ -19,6 +20,7 @@ import org.junit.jupiter.api.io.TempDir;
 import com.filevault.model.EncryptedFile;
 import com.filevault.model.UserManager;
 import com.filevault.model.VirtualFolder;
+import com.filevault.storage.blob.BlobStores;
 
 /**
  * Testklasse für die FileStorage-Klasse.
@@ -150,7 +152,7 @@ class FileStorageTest {
         assertEquals(testFile.getName(), importedFile.getOriginalName());
         assertEquals(testFile.length(), importedFile.getSizeBytes());
         assertNotNull(importedFile.getEncryptedPath());
-        assertTrue(new File(importedFile.getEncryptedPath()).exists());
+        assertTrue(BlobStores.getInstance().resolve(importedFile.getEncryptedPath()).exists());
         
         // Hole die Datei aus der Datenbank
         EncryptedFile retrievedFile = fileStorage.getFileById(importedFile.getId());
@@ -160,6 +162,26 @@ class FileStorageTest {
         assertEquals(importedFile.getSizeBytes(), retrievedFile.getSizeBytes());
     }
     
+    /**
+     * Testet das Abrufen mehrerer Dateien anhand ihrer IDs mit einer Abfrage.
+     * Fehlende IDs werden ausgelassen.
+     */
+    @Test
+    void testGetFilesByIds() throws Exception {
+        File testFile2 = tempDir.resolve("testfile2.txt").toFile();
+        Files.writeString(testFile2.toPath(), "Testdatei 2");
+        EncryptedFile importedFile1 = fileStorage.importFile(testFile, testFolder);
+        EncryptedFile importedFile2 = fileStorage.importFile(testFile2, testFolder);
+
+        Map<Integer, EncryptedFile> files = fileStorage.getFilesByIds(
+                List.of(importedFile2.getId(), importedFile1.getId(), -1));
+
+        assertEquals(2, files.size());
+        assertEquals(testFile.getName(), files.get(importedFile1.getId()).getOriginalName());
+        assertEquals("testfile2.txt", files.get(importedFile2.getId()).getOriginalName());
+        assertTrue(fileStorage.getFilesByIds(List.of()).isEmpty());
+    }
+
     /**
      * Testet das Abrufen aller Dateien in einem Ordner.
      * Überprüft, ob alle importierten Dateien in einem Ordner korrekt abgerufen werden können.
@@ -185,6 +207,41 @@ class FileStorageTest {
         assertTrue(files.stream().anyMatch(f -> f.getId() == importedFile2.getId()));
     }
     
+    /**
+     * Testet das Auflisten und Zählen der Dateien eines Teilbaums, auch nach dem Verschieben.
+     */
+    @Test
+    void testFilesInSubtree() throws Exception {
+        VirtualFolder sub = new VirtualFolder(2, "Sub", "", 1);
+        VirtualFolder other = new VirtualFolder(3, "Anderer", "", null);
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name, parent_id) VALUES (2, 'Sub', 1)");
+            stmt.executeUpdate("INSERT INTO folders (id, name, parent_id) VALUES (3, 'Anderer', NULL)");
+        }
+        File subFile = tempDir.resolve("sub.txt").toFile();
+        Files.writeString(subFile.toPath(), "Unterordner");
+        File otherFile = tempDir.resolve("other.txt").toFile();
+        Files.writeString(otherFile.toPath(), "Anderer Ordner");
+        EncryptedFile top = fileStorage.importFile(testFile, testFolder);
+        EncryptedFile nested = fileStorage.importFile(subFile, sub);
+        fileStorage.importFile(otherFile, other);
+
+        List<EncryptedFile> files = fileStorage.getFilesInSubtree(testFolder.getId());
+        assertEquals(List.of(top.getId(), nested.getId()),
+                files.stream().map(EncryptedFile::getId).collect(Collectors.toList()));
+        assertEquals(2, fileStorage.countFilesInSubtree(testFolder.getId()));
+        assertEquals(1, fileStorage.countFilesInSubtree(other.getId()));
+
+        try (var conn = DatabaseManager.getConnection();
+             var stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE folders SET parent_id = 3 WHERE id = 2");
+        }
+        assertEquals(1, fileStorage.countFilesInSubtree(testFolder.getId()));
+        assertEquals(2, fileStorage.countFilesInSubtree(other.getId()));
+        assertEquals(nested.getId(), fileStorage.getFilesInSubtree(other.getId()).get(0).getId());
+    }
+
     /**
      * Testet das Umbenennen einer Datei.
      * Überprüft, ob eine Datei erfolgreich umbenannt werden kann.
@@ -223,9 +280,9 @@ class FileStorageTest {
         List<EncryptedFile> files = fileStorage.getFilesInFolder(testFolder);
         assertTrue(files.isEmpty());
         
-        // Die verschlüsselte Datei sollte ebenfalls gelöscht sein
-        File encryptedFile = new File(importedFile.getEncryptedPath());
-        assertFalse(encryptedFile.exists());
+        // Die verschlüsselte Datei wird über die Löschwarteschlange entfernt
+        DeletionQueue.getInstance().processPending();
+        assertFalse(BlobStores.getInstance().resolve(importedFile.getEncryptedPath()).exists());
     }
     
     /**
@@ -278,4 +335,36 @@ class FileStorageTest {
         assertTrue(searchResults.stream().anyMatch(f -> f.getOriginalName().equals("document.txt")));
         assertTrue(searchResults.stream().anyMatch(f -> f.getOriginalName().equals("document_v2.txt")));
     }
+    
+    /**
+     * Testet die seitenweise Auflistung von Dateien.
+     * Überprüft, ob alle Seiten zusammen jede Datei genau einmal in der richtigen Reihenfolge liefern.
+     */
+    @Test
+    void testListFilesPaginated() throws Exception {
+        for (int i = 0; i < 5; i++) {
+            File file = tempDir.resolve("page_" + i + ".txt").toFile();
+            Files.writeString(file.toPath(), "x".repeat(i + 1));
+            fileStorage.importFile(file, testFolder);
+        }
+        
+        FilePage first = fileStorage.listFiles(testFolder.getId(), FileSortOrder.NAME, false, null, 2);
+        assertEquals(2, first.getFiles().size());
+        assertTrue(first.hasMore());
+        assertEquals("page_0.txt", first.getFiles().get(0).getOriginalName());
+        
+        // Der Cursor muss auch nach Kodierung für die API funktionieren
+        FileCursor cursor = FileCursor.decode(first.getNextCursor().encode(), FileSortOrder.NAME);
+        FilePage second = fileStorage.listFiles(testFolder.getId(), FileSortOrder.NAME, false, cursor, 2);
+        assertEquals("page_2.txt", second.getFiles().get(0).getOriginalName());
+        
+        FilePage last = fileStorage.listFiles(testFolder.getId(), FileSortOrder.NAME, false, second.getNextCursor(), 2);
+        assertEquals(1, last.getFiles().size());
+        assertFalse(last.hasMore());
+        
+        FilePage bySizeDesc = fileStorage.listFiles(testFolder.getId(), FileSortOrder.SIZE, true, null, 10);
+        assertEquals(5, bySizeDesc.getFiles().size());
+        assertEquals("page_4.txt", bySizeDesc.getFiles().get(0).getOriginalName());
+        assertEquals("page_0.txt", bySizeDesc.getFiles().get(4).getOriginalName());
+    }
 }
@@ -0,0 +1,172 @@
+package com.filevault.storage;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+
+/**
+ * Testklasse für den Versionsverlauf von Dateien (FileVersions).
+ */
+class FileVersionsTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Testdateien */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        FileVersions.getInstance().configure(3, 64L * 1024 * 1024);
+    }
+
+    /**
+     * Löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        FileVersions.getInstance().configure(10, 64L * 1024 * 1024);
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass ein Import unter gleichem Namen eine neue Version statt einer zweiten Datei anlegt.
+     */
+    @Test
+    void testReimportCreatesVersion() throws Exception {
+        EncryptedFile first = importText("notiz.txt", "Erste Fassung");
+        EncryptedFile second = importText("notiz.txt", "Zweite, längere Fassung");
+
+        assertEquals(first.getId(), second.getId());
+        assertEquals(1, count("SELECT COUNT(*) FROM files"));
+        assertEquals(1, count("SELECT COUNT(*) FROM file_versions"));
+
+        List<FileVersion> versions = FileVersions.getInstance().list(first.getId());
+        assertEquals(2, versions.size());
+        assertTrue(versions.get(0).isCurrent());
+        assertEquals(2, versions.get(0).getVersion());
+        assertEquals("Zweite, längere Fassung".getBytes(StandardCharsets.UTF_8).length, versions.get(0).getSizeBytes());
+        assertEquals("Erste Fassung", read(first.getId(), 1));
+        assertEquals("Zweite, längere Fassung", read(first.getId(), 2));
+        assertEquals(new FolderTotals(second.getSizeBytes(), 1, second.getSizeBytes(), 1), FolderStats.getInstance().get(1));
+    }
+
+    /**
+     * Testet die Speicherung als Delta mit vollständigen Versionen im festen Abstand.
+     */
+    @Test
+    void testDeltasAndKeyframes() throws Exception {
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < 2000; i++) {
+            text.append("Zeile ").append(i).append(": unverändert\n");
+        }
+        String[] contents = new String[7];
+        int fileId = 0;
+        for (int v = 1; v <= contents.length; v++) {
+            contents[v - 1] = text + "Nachtrag " + v + "\n";
+            text.insert(0, "Neue Kopfzeile " + v + "\n");
+            fileId = importText("log.txt", contents[v - 1]).getId();
+        }
+
+        // Versionen 1, 4 und 7 (aktuell) vollständig, 2, 3, 5 und 6 als Delta
+        for (FileVersion version : FileVersions.getInstance().list(fileId)) {
+            boolean keyframe = version.getVersion() % 3 == 1;
+            assertEquals(keyframe ? FileVersions.KIND_FULL : FileVersions.KIND_DELTA, version.getKind(), version.toString());
+            if (!keyframe) {
+                assertTrue(version.getStoredBytes() < version.getSizeBytes() / 10, version.toString());
+            }
+        }
+        for (int v = 1; v <= contents.length; v++) {
+            assertEquals(contents[v - 1], read(fileId, v));
+        }
+        assertTrue(FileVersions.getInstance().getCompactedCount() >= 4);
+    }
+
+    /**
+     * Testet das Wiederherstellen einer alten Version und das Aufräumen beim Löschen der Datei.
+     */
+    @Test
+    void testRestoreAndDelete() throws Exception {
+        importText("brief.txt", "Entwurf");
+        EncryptedFile file = importText("brief.txt", "Endfassung");
+
+        EncryptedFile restored = FileStorage.getInstance().restoreVersion(file, 1);
+        assertEquals("Entwurf", read(file.getId(), 3));
+        assertEquals(3, FileVersions.getInstance().list(file.getId()).size());
+        assertEquals("Entwurf".length(), restored.getSizeBytes());
+
+        File exported = tempDir.resolve("export.txt").toFile();
+        assertTrue(FileStorage.getInstance().exportVersion(file, 2, exported));
+        assertEquals("Endfassung", Files.readString(exported.toPath()));
+
+        int queued = count("SELECT COUNT(*) FROM deletion_queue");
+        assertTrue(FileStorage.getInstance().deleteFile(file));
+        assertEquals(0, count("SELECT COUNT(*) FROM file_versions"));
+        // Aktuelle Version plus zwei ältere Versionen
+        assertEquals(queued + 3, count("SELECT COUNT(*) FROM deletion_queue"));
+        assertFalse(FileVersions.getInstance().list(file.getId()).iterator().hasNext());
+    }
+
+    private EncryptedFile importText(String name, String content) throws Exception {
+        Path dir = Files.createTempDirectory(tempDir, "import");
+        Path source = dir.resolve(name);
+        Files.writeString(source, content);
+        return FileStorage.getInstance().importFile(source.toFile(), folder);
+    }
+
+    private static String read(int fileId, int version) throws Exception {
+        return new String(FileVersions.getInstance().read(fileId, version), StandardCharsets.UTF_8);
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für FolderStats und die Trigger, die {@code folder_stats} nachführen.
+ */
+class FolderStatsTest {
+
+    /** Temporäres Verzeichnis für die Datenbank */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit der Ordnerkette 1 → 2 → 3 und dem Ordner 4.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        execute("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')",
+                "INSERT INTO folders (id, name, parent_id) VALUES (2, 'Kind', 1)",
+                "INSERT INTO folders (id, name, parent_id) VALUES (3, 'Enkel', 2)",
+                "INSERT INTO folders (id, name) VALUES (4, 'Andere')");
+    }
+
+    /**
+     * Löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass Importe und Löschungen die Summen aller Vorfahren anpassen.
+     */
+    @Test
+    void testInsertAndDeleteUpdateAncestors() throws Exception {
+        execute(insertFile(10, 3, 100), insertFile(11, 2, 50), insertFile(12, 1, 7));
+        FolderStats stats = FolderStats.getInstance();
+
+        assertEquals(new FolderTotals(7, 1, 157, 3), stats.get(1));
+        assertEquals(new FolderTotals(50, 1, 150, 2), stats.get(2));
+        assertEquals(new FolderTotals(100, 1, 100, 1), stats.get(3));
+        assertEquals(FolderTotals.EMPTY, stats.get(4));
+
+        execute("DELETE FROM files WHERE id = 10");
+        assertEquals(new FolderTotals(7, 1, 57, 2), stats.get(1));
+        assertEquals(new FolderTotals(0, 0, 0, 0), stats.get(3));
+        assertTrue(stats.verify().isEmpty());
+
+        // Nur die angefragten Ordner werden geladen, unbekannte IDs fehlen
+        Map<Integer, FolderTotals> shown = stats.get(List.of(1, 2, 99));
+        assertEquals(2, shown.size());
+        assertEquals(new FolderTotals(7, 1, 57, 2), shown.get(1));
+        assertEquals(new FolderTotals(50, 1, 50, 1), shown.get(2));
+    }
+
+    /**
+     * Testet das Verschieben von Dateien und Ordnern sowie Größenänderungen.
+     */
+    @Test
+    void testMoveFilesAndFolders() throws Exception {
+        execute(insertFile(10, 3, 100), insertFile(11, 2, 50));
+        FolderStats stats = FolderStats.getInstance();
+
+        execute("UPDATE files SET folder_id = 4 WHERE id = 11");
+        assertEquals(new FolderTotals(0, 0, 100, 1), stats.get(1));
+        assertEquals(new FolderTotals(50, 1, 50, 1), stats.get(4));
+
+        execute("UPDATE files SET size_bytes = 30 WHERE id = 10");
+        assertEquals(new FolderTotals(0, 0, 30, 1), stats.get(2));
+
+        // Teilbaum 2 → 3 unter Ordner 4 verschieben
+        execute("UPDATE folders SET parent_id = 4 WHERE id = 2");
+        assertEquals(new FolderTotals(0, 0, 0, 0), stats.get(1));
+        assertEquals(new FolderTotals(50, 1, 80, 2), stats.get(4));
+        assertEquals(new FolderTotals(0, 0, 30, 1), stats.get(2));
+
+        execute("DELETE FROM files WHERE id = 10", "DELETE FROM folders WHERE id = 3");
+        assertEquals(new FolderTotals(50, 1, 50, 1), stats.get(4));
+        assertEquals(3, stats.getAll().size());
+        assertTrue(stats.verify().isEmpty());
+    }
+
+    /**
+     * Testet, dass verify Abweichungen erkennt und rebuild sie behebt.
+     */
+    @Test
+    void testVerifyAndRebuild() throws Exception {
+        execute(insertFile(10, 3, 100), insertFile(11, 4, 5));
+        execute("UPDATE folder_stats SET total_bytes = 0 WHERE folder_id = 1",
+                "DELETE FROM folder_stats WHERE folder_id = 4");
+        FolderStats stats = FolderStats.getInstance();
+
+        assertEquals(List.of(1, 4), stats.verify());
+        assertEquals(List.of(1, 4), stats.rebuild());
+        assertTrue(stats.verify().isEmpty());
+        assertEquals(new FolderTotals(0, 0, 100, 1), stats.get(1));
+        assertEquals(new FolderTotals(5, 1, 5, 1), stats.get(4));
+    }
+
+    /**
+     * Testet, dass Trigger älterer Datenbanken, die die Vorfahren rekursiv ermitteln, beim
+     * Initialisieren durch solche über {@code folder_paths} ersetzt werden.
+     */
+    @Test
+    void testRecursiveTriggersAreReplaced() throws Exception {
+        execute("DROP TRIGGER folder_stats_files_insert",
+                "CREATE TRIGGER folder_stats_files_insert AFTER INSERT ON files BEGIN "
+                + "UPDATE folder_stats SET total_files = total_files + 1 WHERE folder_id IN "
+                + "(WITH RECURSIVE chain(id) AS (SELECT new.folder_id) SELECT id FROM chain); END");
+
+        DatabaseManager.closeConnections();
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT sql FROM sqlite_master WHERE type = 'trigger' AND name LIKE 'folder_stats_%'")) {
+            while (rs.next()) {
+                assertFalse(rs.getString(1).contains("WITH RECURSIVE"), rs.getString(1));
+            }
+        }
+        execute(insertFile(10, 3, 100));
+        assertEquals(new FolderTotals(0, 0, 100, 1), FolderStats.getInstance().get(1));
+        assertTrue(FolderStats.getInstance().verify().isEmpty());
+    }
+
+    private static String insertFile(int id, int folderId, long size) {
+        return "INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) VALUES ("
+                + id + ", " + folderId + ", 'datei-" + id + "', 'mem:" + id + "', " + size + ", 'text/plain')";
+    }
+
+    private static void execute(String... sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (String statement : sql) {
+                stmt.executeUpdate(statement);
+            }
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package com.filevault.storage;
+
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import javax.imageio.ImageIO;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für die Erkennung von MIME-Typen (MimeSniffer).
+ */
+class MimeSnifferTest {
+
+    /** Temporäres Verzeichnis für die Beispieldateien */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Testet die Erkennung an Signaturen, auch wenn die Dateiendung fehlt oder falsch ist.
+     */
+    @Test
+    void testSignatures() throws Exception {
+        MimeSniffer sniffer = MimeSniffer.getInstance();
+        assertEquals("image/png", detect("bild", png()));
+        assertEquals("image/jpeg", detect("bild.png", jpeg()));
+        assertEquals("application/pdf", detect("dokument.bin", "%PDF-1.7\n%âãÏÓ\n".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("application/gzip", detect("daten", gzip("Inhalt")));
+        assertEquals("image/gif", detect("x", "GIF89a\u0001\u0000".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals("video/mp4", detect("film", new byte[] {0, 0, 0, 0x18, 'f', 't', 'y', 'p', 'i', 's', 'o', 'm'}));
+        assertEquals("application/vnd.sqlite3", detect("vault", "SQLite format 3\u0000".getBytes(StandardCharsets.ISO_8859_1)));
+        assertEquals(MimeSniffer.OCTET_STREAM, sniffer.detect("unbekannt", new byte[] {0, 1, 2, 3, (byte) 0xFE}, 5));
+        assertEquals(MimeSniffer.OCTET_STREAM, sniffer.detect("leer", new byte[0], 0));
+    }
+
+    /**
+     * Testet, dass ZIP-Container und Texte über die Dateiendung verfeinert werden.
+     */
+    @Test
+    void testContainerAndTextRefinement() throws Exception {
+        assertEquals("application/zip", detect("archiv.zip", zip("a.txt", null)));
+        assertEquals("application/vnd.openxmlformats-officedocument.wordprocessingml.document",
+                detect("brief.docx", zip("[Content_Types].xml", null)));
+        assertEquals("application/vnd.oasis.opendocument.text",
+                detect("ohne-endung", zip("mimetype", "application/vnd.oasis.opendocument.text")));
+
+        assertEquals("application/json", detect("config.json", "{\"port\": 8080}".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("text/csv", detect("tabelle.csv", "a;b\n1;2\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("text/plain", detect("notiz", "Grüße aus Köln".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("text/plain", detect("bild.png", "kein Bild".getBytes(StandardCharsets.UTF_8)),
+                "Inhalt hat Vorrang vor einer falschen Endung");
+        assertEquals("text/html", detect("seite", "  <!DOCTYPE html><html></html>".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("image/svg+xml", detect("grafik", "<?xml version=\"1.0\"?><svg/>".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("application/x-sh", detect("start", "#!/bin/sh\necho hallo\n".getBytes(StandardCharsets.UTF_8)));
+        assertEquals("application/pdf", detect("kaputt.pdf", new byte[] {0, 1, 2, 3}), "Endung als Rückfall für Binärdaten");
+
+        // Ein am Ende des gelesenen Anfangs abgeschnittenes Mehrbyte-Zeichen bleibt Text
+        byte[] text = ("a".repeat(MimeSniffer.HEAD_BYTES - 1) + "ü").getBytes(StandardCharsets.UTF_8);
+        assertEquals("text/plain", MimeSniffer.getInstance().detect("lang", text, MimeSniffer.HEAD_BYTES));
+    }
+
+    /**
+     * Testet, dass der Datenstrom nach der Erkennung wieder am Anfang steht und importierte
+     * Dateien den erkannten Typ erhalten.
+     */
+    @Test
+    void testStreamIsResetAndResultMemoised() throws Exception {
+        Path file = write("bild", png());
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            assertEquals("image/png", MimeSniffer.getInstance().detect(file.toFile(), in));
+            assertEquals(Files.size(file), in.readAllBytes().length);
+        }
+        // Gemerktes Ergebnis: der Datenstrom wird nicht mehr gelesen
+        try (InputStream in = new BufferedInputStream(new FileInputStream(file.toFile()))) {
+            in.close();
+            assertEquals("image/png", MimeSniffer.getInstance().detect(file.toFile(), in));
+        }
+    }
+
+    /**
+     * Testet die Erkennung über einen gemischten Bestand mit und ohne passende Endung,
+     * jeweils nur anhand der ersten {@link MimeSniffer#HEAD_BYTES} Bytes der Datei.
+     */
+    @Test
+    void testCorpusAccuracy() throws Exception {
+        Map<Path, String> corpus = new LinkedHashMap<>();
+        corpus.put(write("foto.png", png()), "image/png");
+        corpus.put(write("foto.jpg", jpeg()), "image/jpeg");
+        corpus.put(write("scan", png()), "image/png");
+        corpus.put(write("bericht.pdf", "%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII)), "application/pdf");
+        corpus.put(write("archiv.zip", zip("a.txt", null)), "application/zip");
+        corpus.put(write("daten.gz", gzip("x")), "application/gzip");
+        corpus.put(write("notiz.txt", "Hallo".getBytes(StandardCharsets.UTF_8)), "text/plain");
+        corpus.put(write("README", "Ohne Endung".getBytes(StandardCharsets.UTF_8)), "text/plain");
+        corpus.put(write("seite.html", "<html></html>".getBytes(StandardCharsets.UTF_8)), "text/html");
+        corpus.put(write("config.json", "{}".getBytes(StandardCharsets.UTF_8)), "application/json");
+
+        for (Map.Entry<Path, String> entry : corpus.entrySet()) {
+            try (InputStream in = new BufferedInputStream(new FileInputStream(entry.getKey().toFile()))) {
+                byte[] head = in.readNBytes(MimeSniffer.HEAD_BYTES);
+                String name = entry.getKey().getFileName().toString();
+                assertEquals(entry.getValue(), MimeSniffer.getInstance().detect(name, head, head.length), name);
+            }
+        }
+    }
+
+    private String detect(String name, byte[] content) {
+        return MimeSniffer.getInstance().detect(name, content, content.length);
+    }
+
+    private Path write(String name, byte[] content) throws Exception {
+        Path file = Files.createTempDirectory(tempDir, "corpus").resolve(name);
+        Files.write(file, content);
+        return file;
+    }
+
+    private static byte[] png() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "png", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] jpeg() throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ImageIO.write(new BufferedImage(4, 4, BufferedImage.TYPE_INT_RGB), "jpg", out);
+        return out.toByteArray();
+    }
+
+    private static byte[] gzip(String content) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(content.getBytes(StandardCharsets.UTF_8));
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Erzeugt ein ZIP-Archiv mit einem Eintrag; mit {@code storedContent} wird er unkomprimiert abgelegt.
+     */
+    private static byte[] zip(String entryName, String storedContent) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(out)) {
+            ZipEntry entry = new ZipEntry(entryName);
+            byte[] data = (storedContent != null ? storedContent : "Inhalt").getBytes(StandardCharsets.US_ASCII);
+            if (storedContent != null) {
+                CRC32 crc = new CRC32();
+                crc.update(data);
+                entry.setMethod(ZipEntry.STORED);
+                entry.setSize(data.length);
+                entry.setCompressedSize(data.length);
+                entry.setCrc(crc.getValue());
+            }
+            zip.putNextEntry(entry);
+            zip.write(data);
+            zip.closeEntry();
+        }
+        return out.toByteArray();
+    }
+}
@@ -0,0 +1,209 @@
+package com.filevault.storage;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.concurrent.TimeUnit;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+
+/**
+ * Testklasse für die verschlüsselten Vorschaubilder (PreviewCache).
+ */
+class PreviewCacheTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Testdateien */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+    }
+
+    /**
+     * Beendet den Thread-Pool, löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        PreviewCache.getInstance().shutdown();
+        PreviewCache.getInstance().configure(64L * 1024 * 1024);
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass die Vorschau verkleinert, verschlüsselt gespeichert und danach aus dem Cache geladen wird.
+     */
+    @Test
+    void testPreviewIsScaledEncryptedAndCached() throws Exception {
+        EncryptedFile file = importImage("bild.png", 200, 100);
+        PreviewCache cache = PreviewCache.getInstance();
+
+        long generated = cache.getGeneratedCount();
+        byte[] png = cache.load(file.getId());
+        assertNotNull(png);
+        BufferedImage thumbnail = ImageIO.read(new ByteArrayInputStream(png));
+        assertEquals(64, thumbnail.getWidth());
+        assertEquals(32, thumbnail.getHeight());
+        assertEquals(generated + 1, cache.getGeneratedCount());
+
+        byte[] stored = storedPreview(file.getId());
+        assertNotNull(stored);
+        assertFalse(startsWith(stored, new byte[] {(byte) 0x89, 'P', 'N', 'G'}), "Vorschau liegt unverschlüsselt vor");
+
+        long hits = cache.getHitCount();
+        assertArrayEquals(png, cache.load(file.getId()));
+        assertEquals(hits + 1, cache.getHitCount());
+        assertEquals(generated + 1, cache.getGeneratedCount());
+    }
+
+    /**
+     * Testet das Anfordern im Hintergrund und dass für andere Dateitypen keine Vorschau entsteht.
+     */
+    @Test
+    void testRequestInBackground() throws Exception {
+        EncryptedFile image = importImage("bild.png", 40, 40);
+        Path text = Files.createTempDirectory(tempDir, "import").resolve("notiz.txt");
+        Files.writeString(text, "Kein Bild");
+        EncryptedFile other = FileStorage.getInstance().importFile(text.toFile(), folder);
+
+        PreviewCache cache = PreviewCache.getInstance();
+        assertNull(cache.request(image.getId()).get(5, TimeUnit.SECONDS), "ohne gestarteten Pool keine Vorschau");
+        cache.start();
+        byte[] png = cache.request(image.getId()).get(5, TimeUnit.SECONDS);
+        assertNotNull(png);
+        assertEquals(40, ImageIO.read(new ByteArrayInputStream(png)).getWidth(), "kleine Bilder werden nicht vergrößert");
+        assertNull(cache.request(other.getId()).get(5, TimeUnit.SECONDS));
+        assertNull(storedPreview(other.getId()));
+    }
+
+    /**
+     * Testet, dass neue Versionen eine neue Vorschau erhalten und gelöschte Dateien ihre Vorschau verlieren.
+     */
+    @Test
+    void testInvalidationOnNewVersionAndDelete() throws Exception {
+        EncryptedFile file = importImage("bild.png", 100, 100);
+        PreviewCache cache = PreviewCache.getInstance();
+        assertNotNull(cache.load(file.getId()));
+
+        long generated = cache.getGeneratedCount();
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE files SET version = version + 1 WHERE id = " + file.getId());
+        }
+        assertNotNull(cache.load(file.getId()));
+        assertEquals(generated + 1, cache.getGeneratedCount());
+
+        assertTrue(FileStorage.getInstance().deleteFile(file));
+        assertNull(storedPreview(file.getId()));
+        assertNull(cache.load(file.getId()));
+    }
+
+    /**
+     * Testet, dass der Cache beim Überschreiten der Obergrenze die ältesten Vorschauen entfernt.
+     */
+    @Test
+    void testEvictsLeastRecentlyUsed() throws Exception {
+        PreviewCache cache = PreviewCache.getInstance();
+        EncryptedFile first = importImage("a.png", 80, 80);
+        EncryptedFile second = importImage("b.png", 80, 80);
+        EncryptedFile third = importImage("c.png", 80, 80);
+
+        assertNotNull(cache.load(first.getId()));
+        long entryBytes = cache.getCachedBytes();
+        cache.configure(entryBytes * 2 + entryBytes / 2);
+        Thread.sleep(5);
+        assertNotNull(cache.load(second.getId()));
+        Thread.sleep(5);
+        assertNotNull(cache.load(first.getId()));
+        Thread.sleep(5);
+        assertNotNull(cache.load(third.getId()));
+
+        assertEquals(2, cache.countEntries());
+        assertTrue(cache.getCachedBytes() <= entryBytes * 2 + entryBytes / 2);
+        assertNotNull(storedPreview(first.getId()));
+        assertNull(storedPreview(second.getId()));
+        assertNotNull(storedPreview(third.getId()));
+    }
+
+    private EncryptedFile importImage(String name, int width, int height) throws Exception {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        Graphics2D graphics = image.createGraphics();
+        graphics.setColor(new Color(name.hashCode()));
+        graphics.fillRect(0, 0, width, height);
+        graphics.dispose();
+        Path source = Files.createTempDirectory(tempDir, "import").resolve(name);
+        ImageIO.write(image, "png", source.toFile());
+        EncryptedFile file = FileStorage.getInstance().importFile(source.toFile(), folder);
+        assertEquals("image/png", file.getMimeType());
+        return file;
+    }
+
+    private static byte[] storedPreview(int fileId) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT data FROM previews WHERE file_id = " + fileId)) {
+            return rs.next() ? rs.getBytes(1) : null;
+        }
+    }
+
+    private static boolean startsWith(byte[] data, byte[] prefix) {
+        if (data.length < prefix.length) {
+            return false;
+        }
+        for (int i = 0; i < prefix.length; i++) {
+            if (data[i] != prefix[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,151 @@
+package com.filevault.storage;
+
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für den SearchIndex.
+ */
+class SearchIndexTest {
+
+    /** Temporäres Verzeichnis für die Datenbank */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit Ordnern und Dateien.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name, description) VALUES (1, 'Urlaub', 'Fotos vom Strand')");
+            stmt.executeUpdate("INSERT INTO folders (id, name, description) VALUES (2, 'Finanzen', 'Steuer und Rechnungen')");
+            stmt.executeUpdate("INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (1, 1, 'strand.jpg', 'mem:1', 10, 'image/jpeg')");
+            stmt.executeUpdate("INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (2, 2, 'steuererklärung-2024.pdf', 'mem:2', 20, 'application/pdf')");
+            stmt.executeUpdate("INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                    + "VALUES (3, 2, 'rechnung.pdf', 'mem:3', 30, 'application/pdf')");
+        }
+    }
+
+    /**
+     * Löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet die Suche nach Dateinamen, MIME-Typ, Ordnername und Beschreibung.
+     */
+    @Test
+    void testSearchFields() {
+        SearchIndex index = SearchIndex.getInstance();
+
+        assertEquals(Set.of("strand.jpg", "Urlaub"), names(index.search("strand", null, 10)));
+        assertEquals(Set.of("steuererklärung-2024.pdf", "rechnung.pdf"), names(index.search("pdf", null, 10)));
+        assertEquals(Set.of("strand.jpg", "Urlaub"), names(index.search("urlaub", null, 10)));
+        assertEquals(Set.of("steuererklärung-2024.pdf"), names(index.search("steuererklarung 2024", null, 10)));
+        assertTrue(index.search("nichtvorhanden", null, 10).getHits().isEmpty());
+    }
+
+    /**
+     * Testet, dass Treffer im Namen vor Treffern im Ordnernamen stehen.
+     */
+    @Test
+    void testRanking() {
+        List<SearchHit> hits = SearchIndex.getInstance().search("rechnung", null, 10).getHits();
+
+        assertEquals("rechnung.pdf", hits.get(0).getName());
+        assertEquals(SearchHit.Kind.FILE, hits.get(0).getKind());
+        assertEquals(Integer.valueOf(2), hits.get(0).getFolderId());
+        assertEquals("Finanzen", hits.get(0).getFolderName());
+    }
+
+    /**
+     * Testet, dass Umbenennen, Verschieben und Löschen den Index nachführen.
+     */
+    @Test
+    void testTriggersKeepIndexInSync() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("UPDATE folders SET name = 'Ferien' WHERE id = 1");
+            stmt.executeUpdate("UPDATE files SET original_name = 'beleg.pdf' WHERE id = 3");
+            stmt.executeUpdate("DELETE FROM files WHERE id = 2");
+        }
+        SearchIndex index = SearchIndex.getInstance();
+
+        assertEquals(Set.of("strand.jpg", "Ferien"), names(index.search("ferien", null, 10)));
+        assertTrue(index.search("urlaub", null, 10).getHits().isEmpty());
+        assertEquals(Set.of("beleg.pdf"), names(index.search("beleg", null, 10)));
+        assertFalse(names(index.search("pdf", null, 10)).contains("steuererklärung-2024.pdf"));
+
+        index.rebuild();
+        assertEquals(Set.of("strand.jpg", "Ferien"), names(index.search("ferien", null, 10)));
+    }
+
+    /**
+     * Testet die seitenweise Abfrage über den Cursor.
+     */
+    @Test
+    void testPagination() throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            for (int i = 10; i < 35; i++) {
+                stmt.executeUpdate("INSERT INTO files (id, folder_id, original_name, encrypted_path, size_bytes, mime_type) "
+                        + "VALUES (" + i + ", 1, 'bericht-" + i + ".txt', 'mem:" + i + "', 1, 'text/plain')");
+            }
+        }
+        List<Integer> ids = new ArrayList<>();
+        String cursor = null;
+        do {
+            SearchPage page = SearchIndex.getInstance().search("bericht", cursor, 10);
+            page.getHits().forEach(hit -> ids.add(hit.getId()));
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        assertEquals(25, ids.size());
+        assertEquals(25, new HashSet<>(ids).size());
+        assertThrows(IllegalArgumentException.class, () -> SearchIndex.getInstance().search("bericht", "kaputt", 10));
+    }
+
+    /**
+     * Testet, dass Sonderzeichen und FTS5-Operatoren in der Eingabe keine Fehler verursachen.
+     */
+    @Test
+    void testSpecialCharacters() {
+        assertEquals("\"a\"\"b\"* \"NOT\"*", SearchIndex.toMatchExpression("a\"b NOT -"));
+        assertTrue(SearchIndex.getInstance().search("\" OR * ( -", null, 10).getHits().isEmpty());
+        assertEquals(Set.of("rechnung.pdf"), names(SearchIndex.getInstance().search("rechnung.pdf", null, 10)));
+    }
+
+    private static Set<String> names(SearchPage page) {
+        Set<String> names = new HashSet<>();
+        page.getHits().forEach(hit -> names.add(hit.getName()));
+        return names;
+    }
+}
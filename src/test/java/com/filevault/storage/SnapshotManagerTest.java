@@ -0,0 +1,191 @@
+package com.filevault.storage;
+
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.List;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.util.FolderManager;
+
+/**
+ * Testklasse für Snapshots des Tresors (SnapshotManager).
+ */
+class SnapshotManagerTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Testdateien */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        FolderManager.getInstance().reloadFromDatabase();
+    }
+
+    /**
+     * Löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass ein Snapshot den Stand beim Anlegen zeigt, auch nachdem sich der Tresor ändert.
+     */
+    @Test
+    void testSnapshotIsFrozen() throws Exception {
+        EncryptedFile note = importText(folder, "notiz.txt", "Alt");
+        importText(folder, "liste.txt", "Eins");
+
+        Snapshot snapshot = SnapshotManager.getInstance().create("Vorher");
+        assertEquals(2, snapshot.getFileCount());
+        assertEquals(2, count("SELECT COUNT(*) FROM snapshot_blobs WHERE ref_count = 1"));
+
+        importText(folder, "notiz.txt", "Neu");
+        importText(folder, "weitere.txt", "Später");
+
+        List<EncryptedFile> files = SnapshotManager.getInstance().getFiles(snapshot.getId(), 1);
+        assertEquals(2, files.size());
+        assertEquals("liste.txt", files.get(0).getOriginalName());
+        assertEquals("notiz.txt", files.get(1).getOriginalName());
+        assertEquals("Alt", read(snapshot.getId(), note.getId()));
+        assertEquals(1, SnapshotManager.getInstance().getFolders(snapshot.getId()).size());
+        assertEquals(1, SnapshotManager.getInstance().list().size());
+    }
+
+    /**
+     * Testet, dass gelöschte Dateien erst mit dem letzten Snapshot aus dem Speicher verschwinden.
+     */
+    @Test
+    void testSnapshotPinsBlobs() throws Exception {
+        EncryptedFile file = importText(folder, "bericht.txt", "Inhalt");
+        Snapshot first = SnapshotManager.getInstance().create("Erster");
+        Snapshot second = SnapshotManager.getInstance().create("Zweiter");
+        assertEquals(1, count("SELECT COUNT(*) FROM snapshot_blobs"));
+        assertEquals(2, count("SELECT SUM(ref_count) FROM snapshot_blobs"));
+
+        assertTrue(FileStorage.getInstance().deleteFile(file));
+        DeletionQueue.getInstance().processPending();
+        assertTrue(BlobStores.getInstance().resolve(file.getEncryptedPath()).exists());
+
+        assertTrue(SnapshotManager.getInstance().delete(first.getId()));
+        DeletionQueue.getInstance().processPending();
+        assertTrue(BlobStores.getInstance().resolve(file.getEncryptedPath()).exists());
+        assertEquals("Inhalt", read(second.getId(), file.getId()));
+
+        assertTrue(SnapshotManager.getInstance().delete(second.getId()));
+        DeletionQueue.getInstance().processPending();
+        assertFalse(BlobStores.getInstance().resolve(file.getEncryptedPath()).exists());
+        assertEquals(0, count("SELECT COUNT(*) FROM snapshot_blobs"));
+        assertEquals(0, count("SELECT COUNT(*) FROM snapshot_files"));
+        assertFalse(SnapshotManager.getInstance().delete(second.getId()));
+    }
+
+    /**
+     * Testet die Wiederherstellung einzelner Dateien und ganzer Ordner.
+     */
+    @Test
+    void testRestoreFileAndFolder() throws Exception {
+        VirtualFolder sub = FolderManager.getInstance().createFolder("Projekte", "Unterordner", 1);
+        VirtualFolder nested = FolderManager.getInstance().createFolder("Archiv", null, sub.getId());
+        EncryptedFile plan = importText(sub, "plan.txt", "Plan A");
+        importText(nested, "alt.txt", "Archiviert");
+        EncryptedFile note = importText(folder, "notiz.txt", "Original");
+        Snapshot snapshot = SnapshotManager.getInstance().create("Sicherung");
+
+        // Geänderte Datei: der Stand des Snapshots wird neue Version
+        importText(folder, "notiz.txt", "Überschrieben");
+        EncryptedFile restored = SnapshotManager.getInstance().restoreFile(snapshot.getId(), note.getId());
+        assertEquals(note.getId(), restored.getId());
+        assertEquals(3, FileVersions.getInstance().list(note.getId()).size());
+        assertEquals("Original", new String(FileVersions.getInstance().read(note.getId(), 3), StandardCharsets.UTF_8));
+        assertEquals(note.getEncryptedPath(), restored.getEncryptedPath());
+
+        // Gelöschter Ordner wird mit Unterordnern und Dateien neu angelegt
+        FolderManager.getInstance().deleteFolderRecursive(sub);
+        DeletionQueue.getInstance().processPending();
+        assertNull(FileStorage.getInstance().getFileByName(sub.getId(), "plan.txt"));
+        assertEquals(2, SnapshotManager.getInstance().restoreFolder(snapshot.getId(), sub.getId()));
+
+        VirtualFolder restoredSub = FolderManager.getInstance().getSubfolders(1).get(0);
+        assertEquals("Projekte", restoredSub.getName());
+        EncryptedFile restoredPlan = FileStorage.getInstance().getFileByName(restoredSub.getId(), "plan.txt");
+        assertNotNull(restoredPlan);
+        assertEquals(plan.getEncryptedPath(), restoredPlan.getEncryptedPath());
+        assertEquals(1, FolderManager.getInstance().getSubfolders(restoredSub.getId()).size());
+        try (InputStream in = FileVersions.getInstance().open(restoredPlan.getId(), 1)) {
+            assertEquals("Plan A", new String(in.readAllBytes(), StandardCharsets.UTF_8));
+        }
+
+        // Unveränderte Dateien werden nicht erneut angelegt
+        assertEquals(0, SnapshotManager.getInstance().restoreFolder(snapshot.getId(), sub.getId()));
+        assertEquals(0, count("SELECT COUNT(*) FROM write_intents"));
+    }
+
+    private EncryptedFile importText(VirtualFolder target, String name, String content) throws Exception {
+        Path dir = Files.createTempDirectory(tempDir, "import");
+        Path source = dir.resolve(name);
+        Files.writeString(source, content);
+        return FileStorage.getInstance().importFile(source.toFile(), target);
+    }
+
+    private static String read(int snapshotId, int fileId) throws Exception {
+        try (InputStream in = SnapshotManager.getInstance().open(snapshotId, fileId)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
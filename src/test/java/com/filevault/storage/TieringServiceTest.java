@@ -0,0 +1,135 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.time.Duration;
+import java.util.UUID;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.LocalBlobStore;
+
+/**
+ * Testklasse für den TieringService.
+ */
+class TieringServiceTest {
+
+    /** Temporäres Verzeichnis für Datenbank und Massenspeicher */
+    @TempDir
+    Path tempDir;
+
+    /** Der Massenspeicher des Tests */
+    private LocalBlobStore coldStore;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und richtet einen Massenspeicher ein.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+        coldStore = new LocalBlobStore("cold-test", tempDir.resolve("cold"));
+        TieringService.getInstance().configure(coldStore, Duration.ofDays(30));
+    }
+
+    /**
+     * Schaltet die Auslagerung ab und löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        TieringService.getInstance().configure(null, Duration.ofDays(90));
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass lange nicht genutzte Dateien ausgelagert und wieder zurückgeholt werden.
+     */
+    @Test
+    void testDemoteAndPromote() throws Exception {
+        byte[] content = {1, 2, 3, 4};
+        String key = BlobLayout.key(UUID.randomUUID().toString());
+        LocalBlobStore hotStore = BlobStores.getInstance().getLocal();
+        hotStore.put(key, new ByteArrayInputStream(content));
+        int id = insertFile("local:" + key, "2000-01-01 00:00:00");
+
+        assertEquals(1, TieringService.getInstance().demoteCold());
+        assertEquals("cold-test:" + key, readColumn(id, "encrypted_path"));
+        assertEquals(TieringService.TIER_COLD, readColumn(id, "tier"));
+        DeletionQueue.getInstance().processPending();
+        assertFalse(hotStore.exists(key));
+        try (InputStream in = BlobStores.getInstance().resolve("cold-test:" + key).open()) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+
+        assertTrue(TieringService.getInstance().promote(id));
+        assertEquals("local:" + key, readColumn(id, "encrypted_path"));
+        assertEquals(TieringService.TIER_HOT, readColumn(id, "tier"));
+        DeletionQueue.getInstance().processPending();
+        assertFalse(coldStore.exists(key));
+        assertTrue(hotStore.delete(key));
+    }
+
+    /**
+     * Testet, dass kürzlich genutzte Dateien im schnellen Speicher bleiben.
+     */
+    @Test
+    void testRecentFilesStayHot() throws Exception {
+        String key = BlobLayout.key(UUID.randomUUID().toString());
+        LocalBlobStore hotStore = BlobStores.getInstance().getLocal();
+        hotStore.put(key, new ByteArrayInputStream(new byte[] {5}));
+        int id = insertFile("local:" + key, null);
+
+        assertEquals(0, TieringService.getInstance().demoteCold());
+        assertEquals(TieringService.TIER_HOT, readColumn(id, "tier"));
+        assertFalse(TieringService.getInstance().promote(id));
+        assertTrue(hotStore.delete(key));
+    }
+
+    private int insertFile(String encryptedPath, String lastAccess) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes, mime_type, last_access) "
+                     + "VALUES (1, 'test.txt', ?, 4, 'text/plain', ?)", Statement.RETURN_GENERATED_KEYS)) {
+            stmt.setString(1, encryptedPath);
+            stmt.setString(2, lastAccess);
+            stmt.executeUpdate();
+            try (ResultSet keys = stmt.getGeneratedKeys()) {
+                keys.next();
+                return keys.getInt(1);
+            }
+        }
+    }
+
+    private String readColumn(int id, String column) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT " + column + " FROM files WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}
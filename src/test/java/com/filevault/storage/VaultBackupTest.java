@@ -0,0 +1,294 @@
+package com.filevault.storage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Enumeration;
+import java.util.List;
+import java.util.Random;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+import java.util.zip.ZipOutputStream;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.model.EncryptedFile;
+import com.filevault.model.UserManager;
+import com.filevault.model.VirtualFolder;
+import com.filevault.storage.blob.BlobLocation;
+import com.filevault.storage.blob.BlobStores;
+
+/**
+ * Testklasse für Sicherung und Wiederherstellung des Tresors (VaultBackup).
+ */
+class VaultBackupTest {
+
+    /** Temporäres Verzeichnis für Datenbank, Testdateien und Sicherungen */
+    @TempDir
+    Path tempDir;
+
+    /** Zielordner der Importe */
+    private final VirtualFolder folder = new VirtualFolder(1, "TestFolder", "Test-Ordner", null);
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner und setzt einen Master-Schlüssel.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        byte[] key = new byte[32];
+        for (int i = 0; i < key.length; i++) {
+            key[i] = (byte) i;
+        }
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), key);
+
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+    }
+
+    /**
+     * Setzt die Einstellungen zurück, löscht die Testdatenbank und entfernt den Master-Schlüssel.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        VaultBackup.getInstance().configure(4, 0);
+        Field masterKeyField = UserManager.class.getDeclaredField("masterKey");
+        masterKeyField.setAccessible(true);
+        masterKeyField.set(UserManager.getInstance(), null);
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass eine Folgesicherung nur neue Blobs kopiert und auf das vorherige Archiv verweist.
+     */
+    @Test
+    void testIncrementalBackup() throws Exception {
+        Path target = tempDir.resolve("backups");
+        importText("a.txt", "Erste Datei");
+        importText("b.txt", "Zweite Datei");
+
+        BackupReport full = VaultBackup.getInstance().backup(target);
+        assertNull(full.getBaseArchive());
+        assertEquals(2, full.getTotalBlobs());
+        assertEquals(2, full.getCopiedBlobs());
+        assertEquals(0, full.getReusedBlobs());
+
+        importText("c.txt", "Dritte Datei");
+        BackupReport incremental = VaultBackup.getInstance().backup(target);
+        assertEquals(full.getArchive(), incremental.getBaseArchive());
+        assertEquals(3, incremental.getTotalBlobs());
+        assertEquals(1, incremental.getCopiedBlobs());
+        assertEquals(2, incremental.getReusedBlobs());
+
+        List<Path> archives = VaultBackup.getInstance().listArchives(target);
+        assertEquals(2, archives.size());
+        assertEquals(incremental.getArchive(), archives.get(1).getFileName().toString());
+        try (ZipFile zip = new ZipFile(archives.get(1).toFile())) {
+            assertNotNull(zip.getEntry("vault.db"));
+            assertNotNull(zip.getEntry("manifest.txt"));
+            assertEquals(1, zip.stream().filter(entry -> entry.getName().startsWith("blobs/")).count());
+        }
+        // Keine Zwischendateien im Sicherungsverzeichnis
+        try (var files = Files.list(target)) {
+            assertEquals(2, files.count());
+        }
+    }
+
+    /**
+     * Testet die Wiederherstellung über mehrere Archive hinweg, nachdem Dateien gelöscht wurden.
+     */
+    @Test
+    void testRestoreFromIncrementalChain() throws Exception {
+        Path target = tempDir.resolve("backups");
+        EncryptedFile first = importText("a.txt", "Erste Datei");
+        VaultBackup.getInstance().backup(target);
+        EncryptedFile second = importText("b.txt", "Zweite Datei");
+        BackupReport backup = VaultBackup.getInstance().backup(target);
+
+        assertTrue(FileStorage.getInstance().deleteFile(first));
+        assertTrue(FileStorage.getInstance().deleteFile(second));
+        DeletionQueue.getInstance().processPending();
+        assertFalse(BlobStores.getInstance().resolve(first.getEncryptedPath()).exists());
+        importText("c.txt", "Nach der Sicherung");
+
+        VaultBackup.getInstance().configure(2, 0);
+        BackupReport restore = VaultBackup.getInstance().restore(target.resolve(backup.getArchive()));
+        assertTrue(restore.isRestore());
+        assertEquals(2, restore.getTotalBlobs());
+        assertEquals(1, restore.getReusedBlobs());
+
+        assertEquals(2, count("SELECT COUNT(*) FROM files"));
+        assertEquals("Erste Datei", readCurrent(first.getId()));
+        assertEquals("Zweite Datei", readCurrent(second.getId()));
+        assertNull(FileStorage.getInstance().getFileByName(1, "c.txt"));
+    }
+
+    /**
+     * Testet, dass ein beschädigter Blob erkannt wird und Datenbank und vorhandene Blobs dann
+     * unverändert bleiben.
+     */
+    @Test
+    void testRestoreRejectsCorruptBlob() throws Exception {
+        Path target = tempDir.resolve("backups");
+        EncryptedFile first = importText("a.txt", "Inhalt");
+        EncryptedFile second = importText("b.txt", "Gelöscht");
+        BackupReport backup = VaultBackup.getInstance().backup(target);
+        assertTrue(FileStorage.getInstance().deleteFile(second));
+        DeletionQueue.getInstance().processPending();
+        importText("c.txt", "Später");
+
+        Path archive = target.resolve(backup.getArchive());
+        Path corrupt = target.resolve("corrupt.zip");
+        try (ZipFile zip = new ZipFile(archive.toFile());
+             ZipOutputStream out = new ZipOutputStream(Files.newOutputStream(corrupt))) {
+            Enumeration<? extends ZipEntry> entries = zip.entries();
+            while (entries.hasMoreElements()) {
+                ZipEntry entry = entries.nextElement();
+                byte[] data;
+                try (InputStream in = zip.getInputStream(entry)) {
+                    data = in.readAllBytes();
+                }
+                if (entry.getName().startsWith("blobs/")) {
+                    data[data.length / 2] ^= 0x01;
+                }
+                out.putNextEntry(new ZipEntry(entry.getName()));
+                out.write(data);
+                out.closeEntry();
+            }
+        }
+        Files.move(corrupt, archive, StandardCopyOption.REPLACE_EXISTING);
+
+        IOException error = assertThrows(IOException.class, () -> VaultBackup.getInstance().restore(archive));
+        assertTrue(error.getMessage().contains("beschädigt"), error.getMessage());
+        assertEquals(2, count("SELECT COUNT(*) FROM files"));
+        // Der intakte Blob im Backend wurde nicht überschrieben oder gelöscht
+        assertEquals("Inhalt", readCurrent(first.getId()));
+        try (var files = Files.list(target)) {
+            assertTrue(files.noneMatch(path -> path.getFileName().toString().endsWith(".part")));
+        }
+    }
+
+    /**
+     * Testet, dass die Wiederherstellung zwischengespeicherte Klartexte verwirft, da Datei-ID und
+     * Version danach für einen anderen Inhalt stehen können.
+     */
+    @Test
+    void testRestoreClearsContentCache() throws Exception {
+        Path target = tempDir.resolve("backups");
+        EncryptedFile first = importText("a.txt", "Inhalt");
+        BackupReport backup = VaultBackup.getInstance().backup(target);
+
+        DecryptedContentCache cache = DecryptedContentCache.getInstance();
+        cache.configure(1024 * 1024, 1024);
+        try {
+            cache.openCurrent(first.getId()).close();
+            assertEquals(1, cache.getEntryCount());
+            VaultBackup.getInstance().restore(target.resolve(backup.getArchive()));
+            assertEquals(0, cache.getEntryCount());
+        } finally {
+            cache.clear();
+            cache.configure(0, 256 * 1024);
+        }
+    }
+
+    /**
+     * Testet, dass ein vorhandener Blob mit passender Prüfsumme nicht erneut geschrieben wird.
+     */
+    @Test
+    void testRestoreSkipsIntactBlobs() throws Exception {
+        Path target = tempDir.resolve("backups");
+        EncryptedFile first = importText("a.txt", "Inhalt");
+        BackupReport backup = VaultBackup.getInstance().backup(target);
+
+        BlobLocation location = BlobStores.getInstance().resolve(first.getEncryptedPath());
+        long blobSize = location.getStore().size(location.getKey());
+
+        BackupReport restore = VaultBackup.getInstance().restore(target.resolve(backup.getArchive()));
+        assertEquals(1, restore.getTotalBlobs());
+        assertEquals(backup.getBytes() - blobSize, restore.getBytes(),
+                "Nur die Datenbank wird übertragen");
+        assertEquals("Inhalt", readCurrent(first.getId()));
+    }
+
+    /**
+     * Testet, dass eine Sicherung verworfen wird, wenn ein referenzierter Blob fehlt.
+     */
+    @Test
+    void testBackupFailsOnMissingBlob() throws Exception {
+        Path target = tempDir.resolve("backups");
+        EncryptedFile first = importText("a.txt", "Inhalt");
+        importText("b.txt", "Zweite Datei");
+        assertTrue(BlobStores.getInstance().resolve(first.getEncryptedPath()).delete());
+
+        IOException error = assertThrows(IOException.class, () -> VaultBackup.getInstance().backup(target));
+        assertTrue(error.getMessage().contains("fehlen"), error.getMessage());
+        assertTrue(VaultBackup.getInstance().listArchives(target).isEmpty());
+        try (var files = Files.list(target)) {
+            assertEquals(0, files.count());
+        }
+    }
+
+    /**
+     * Testet, dass die Übertragung die eingestellte Obergrenze einhält.
+     */
+    @Test
+    void testThroughputCap() throws Exception {
+        byte[] content = new byte[256 * 1024];
+        new Random(7).nextBytes(content);
+        Path source = Files.createTempDirectory(tempDir, "import").resolve("gross.bin");
+        Files.write(source, content);
+        FileStorage.getInstance().importFile(source.toFile(), folder);
+
+        long bytesPerSecond = 1024 * 1024;
+        VaultBackup.getInstance().configure(4, bytesPerSecond);
+        BackupReport report = VaultBackup.getInstance().backup(tempDir.resolve("backups"));
+        long expectedMillis = (report.getBytes() - 64 * 1024) * 1000 / bytesPerSecond;
+        assertTrue(report.getDurationMillis() >= expectedMillis * 9 / 10,
+                report.getDurationMillis() + " ms for " + report.getBytes() + " bytes");
+    }
+
+    private EncryptedFile importText(String name, String content) throws Exception {
+        Path dir = Files.createTempDirectory(tempDir, "import");
+        Path source = dir.resolve(name);
+        Files.writeString(source, content);
+        return FileStorage.getInstance().importFile(source.toFile(), folder);
+    }
+
+    private static String readCurrent(int fileId) throws Exception {
+        int version = FileVersions.getInstance().list(fileId).get(0).getVersion();
+        return new String(FileVersions.getInstance().read(fileId, version), StandardCharsets.UTF_8);
+    }
+
+    private static int count(String sql) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery(sql)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+}
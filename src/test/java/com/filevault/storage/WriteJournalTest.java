@@ -0,0 +1,163 @@
+package com.filevault.storage;
+
+import java.io.ByteArrayInputStream;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.filevault.storage.blob.BlobStores;
+import com.filevault.storage.blob.InMemoryBlobStore;
+import com.filevault.storage.blob.LocalBlobStore;
+
+/**
+ * Testklasse für das WriteJournal.
+ */
+class WriteJournalTest {
+
+    /** Temporäres Verzeichnis für die Datenbank */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Initialisiert eine temporäre Datenbank mit einem Ordner.
+     */
+    @BeforeEach
+    void setUp() throws Exception {
+        Field dbPathField = DatabaseManager.class.getDeclaredField("currentDbPath");
+        dbPathField.setAccessible(true);
+        dbPathField.set(null, tempDir.resolve("test.db").toString());
+        DatabaseManager.initDatabase(true);
+
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (id, name) VALUES (1, 'TestFolder')");
+        }
+    }
+
+    /**
+     * Löscht die Testdatenbank.
+     */
+    @AfterEach
+    void tearDown() throws Exception {
+        DatabaseManager.closeConnections();
+        DatabaseManager.deleteTestDatabase();
+    }
+
+    /**
+     * Testet, dass ein abgeschlossener Import den Dateieintrag anlegt und den Journaleintrag entfernt.
+     */
+    @Test
+    void testCompleteCreatesFileEntry() throws Exception {
+        WriteJournal journal = WriteJournal.getInstance();
+        long intentId = journal.begin("mem:complete", 1, "test.txt", 3, "text/plain");
+        assertEquals(1, countRows("write_intents"));
+
+        int fileId = journal.complete(intentId);
+
+        assertEquals(0, countRows("write_intents"));
+        assertEquals("mem:complete", readEncryptedPath(fileId));
+    }
+
+    /**
+     * Testet, dass die Wiederherstellung Importe mit vollständigem Blob nachträgt.
+     */
+    @Test
+    void testRecoverReplaysCompleteBlob() throws Exception {
+        String key = "replay-" + UUID.randomUUID();
+        BlobStores.getInstance().get(InMemoryBlobStore.SCHEME).put(key, new ByteArrayInputStream(new byte[] {1}));
+        WriteJournal.getInstance().begin("mem:" + key, 1, "replay.txt", 1, "text/plain");
+
+        assertEquals(1, WriteJournal.getInstance().recover());
+
+        assertEquals(0, countRows("write_intents"));
+        assertEquals(1, countRows("files"));
+    }
+
+    /**
+     * Testet, dass die Wiederherstellung Importe ohne fertigen Blob verwirft und
+     * temporäre Dateien entfernt.
+     */
+    @Test
+    void testRecoverRollsBackIncompleteBlob() throws Exception {
+        LocalBlobStore local = BlobStores.getInstance().getLocal();
+        String key = BlobLayout.key(UUID.randomUUID().toString());
+        Path target = local.toPath(key);
+        Files.createDirectories(target.getParent());
+        Path temp = Files.write(target.resolveSibling(target.getFileName() + "12345.tmp"), new byte[] {1, 2});
+        WriteJournal.getInstance().begin("local:" + key, 1, "partial.txt", 2, "text/plain");
+
+        WriteJournal.getInstance().recover();
+
+        assertEquals(0, countRows("write_intents"));
+        assertEquals(0, countRows("files"));
+        assertFalse(Files.exists(temp));
+    }
+
+    /**
+     * Testet, dass gleichzeitige Schreibzugriffe gemeinsam festgeschrieben werden und ein
+     * fehlschlagender Zugriff die anderen nicht beeinträchtigt.
+     */
+    @Test
+    void testGroupCommit() throws Exception {
+        WriteJournal journal = WriteJournal.getInstance();
+        long writesBefore = journal.getCommittedWrites();
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Integer>> results = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                String path = "mem:group-" + i;
+                results.add(executor.submit(() -> journal.complete(journal.begin(path, 1, "f.txt", 1, "text/plain"))));
+            }
+            for (Future<Integer> result : results) {
+                assertTrue(result.get() > 0);
+            }
+        } finally {
+            executor.shutdown();
+        }
+
+        assertThrows(SQLException.class, () -> journal.execute(conn -> {
+            throw new SQLException("Testfehler");
+        }));
+        assertEquals(32, countRows("files"));
+        assertEquals(64, journal.getCommittedWrites() - writesBefore);
+    }
+
+    private int countRows(String table) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM " + table)) {
+            return rs.next() ? rs.getInt(1) : 0;
+        }
+    }
+
+    private String readEncryptedPath(int id) throws Exception {
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement("SELECT encrypted_path FROM files WHERE id = ?")) {
+            stmt.setInt(1, id);
+            try (ResultSet rs = stmt.executeQuery()) {
+                assertTrue(rs.next());
+                return rs.getString(1);
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package com.filevault.storage.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Testklasse für BlobStores sowie das lokale und das In-Memory-Backend.
+ */
+class BlobStoresTest {
+
+    /** Temporäres Wurzelverzeichnis für das lokale Backend */
+    @TempDir
+    Path tempDir;
+
+    /**
+     * Testet die Auflösung von Blob-URIs und alten absoluten Pfaden.
+     */
+    @Test
+    void testResolve() {
+        BlobStores stores = BlobStores.getInstance();
+
+        BlobLocation uri = stores.resolve("local:ab/cd/abcd-1234");
+        assertSame(stores.getLocal(), uri.getStore());
+        assertEquals("ab/cd/abcd-1234", uri.getKey());
+        assertEquals("local:ab/cd/abcd-1234", uri.getUri());
+
+        String legacy = tempDir.resolve("abcd-1234").toAbsolutePath().toString();
+        BlobLocation legacyLocation = stores.resolve(legacy);
+        assertSame(stores.getLocal(), legacyLocation.getStore());
+        assertEquals(legacy, legacyLocation.getKey());
+
+        assertTrue(BlobStores.isUri("mem:key"));
+        assertFalse(BlobStores.isUri(legacy));
+        assertFalse(BlobStores.isUri("C:\\data\\abcd-1234"));
+        assertThrows(IllegalArgumentException.class, () -> stores.resolve("unknown:key"));
+    }
+
+    /**
+     * Testet Schreiben, Lesen, Teilbereiche, Auflisten und Löschen im lokalen Backend.
+     */
+    @Test
+    void testLocalStoreRoundtrip() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(tempDir);
+        assertRoundtrip(store);
+
+        assertTrue(Files.exists(tempDir.resolve("ab").resolve("ef").resolve("abef-2")));
+        assertEquals("ab/cd/abcd-1", store.toKey(tempDir.resolve("ab").resolve("cd").resolve("abcd-1")));
+    }
+
+    /**
+     * Testet, dass Schlüssel nicht aus dem Wurzelverzeichnis des lokalen Backends herausführen.
+     */
+    @Test
+    void testLocalStoreRejectsEscapingKeys() throws Exception {
+        LocalBlobStore store = new LocalBlobStore(tempDir.resolve("data"));
+        Files.write(tempDir.resolve("outside"), new byte[] {1});
+
+        assertThrows(IllegalArgumentException.class, () -> store.toPath("../outside"));
+        assertThrows(IllegalArgumentException.class, () -> store.delete("ab/../../outside"));
+        assertThrows(IllegalArgumentException.class, () -> store.put("..", new ByteArrayInputStream(new byte[0])));
+        assertTrue(Files.exists(tempDir.resolve("outside")));
+        assertEquals(tempDir.resolve("data").resolve("ab").resolve("cd").resolve("x").toAbsolutePath(),
+                store.toPath("ab/./cd/x"));
+    }
+
+    /**
+     * Testet Schreiben, Lesen, Teilbereiche, Auflisten und Löschen im In-Memory-Backend.
+     */
+    @Test
+    void testInMemoryStoreRoundtrip() throws Exception {
+        assertRoundtrip(new InMemoryBlobStore());
+    }
+
+    private void assertRoundtrip(BlobStore store) throws Exception {
+        byte[] content = "0123456789".getBytes();
+        assertEquals(10, store.put("ab/cd/abcd-1", new ByteArrayInputStream(content)));
+        store.put("ab/ef/abef-2", new ByteArrayInputStream(new byte[] {1}));
+        store.put("cd/00/cd00-3", new ByteArrayInputStream(new byte[] {2}));
+
+        try (InputStream in = store.get("ab/cd/abcd-1")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        try (InputStream in = store.get("ab/cd/abcd-1", 3, 4)) {
+            assertArrayEquals("3456".getBytes(), in.readAllBytes());
+        }
+        try (InputStream in = store.get("ab/cd/abcd-1", 8, -1)) {
+            assertArrayEquals("89".getBytes(), in.readAllBytes());
+        }
+        assertEquals(10, store.size("ab/cd/abcd-1"));
+        assertEquals(-1, store.size("ab/cd/missing"));
+
+        List<String> keys = new ArrayList<>();
+        store.list("ab/", keys::add);
+        keys.sort(null);
+        assertEquals(List.of("ab/cd/abcd-1", "ab/ef/abef-2"), keys);
+
+        assertTrue(store.delete("ab/cd/abcd-1"));
+        assertFalse(store.delete("ab/cd/abcd-1"));
+        assertFalse(store.exists("ab/cd/abcd-1"));
+    }
+}
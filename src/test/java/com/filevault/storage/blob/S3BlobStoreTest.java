@@ -0,0 +1,264 @@
+package com.filevault.storage.blob;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.jupiter.api.AfterEach;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Testklasse für das S3BlobStore gegen einen minimalen S3-kompatiblen Testserver.
+ */
+class S3BlobStoreTest {
+
+    /** Der Testserver */
+    private HttpServer server;
+
+    /** Objekte im Testbucket */
+    private final ConcurrentSkipListMap<String, byte[]> objects = new ConcurrentSkipListMap<>();
+
+    /** Hochgeladene Teile laufender Multipart-Uploads nach UploadId */
+    private final Map<String, Map<Integer, byte[]>> uploads = new ConcurrentHashMap<>();
+
+    /** Anzahl der hochgeladenen Teile */
+    private final AtomicInteger partCount = new AtomicInteger();
+
+    /** Lässt den Testserver bei HEAD-Anfragen die Content-Length weg */
+    private volatile boolean omitContentLength;
+
+    /** Das zu testende Backend */
+    private S3BlobStore store;
+
+    /**
+     * Startet den Testserver und erstellt ein Backend mit kleiner Teilgröße.
+     */
+    @BeforeEach
+    void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/bucket", this::handle);
+        server.start();
+        URI endpoint = URI.create("http://127.0.0.1:" + server.getAddress().getPort());
+        store = new S3BlobStore(endpoint, "us-east-1", "bucket", "access", "secret", 1024, 3);
+    }
+
+    /**
+     * Beendet das Backend und stoppt den Testserver.
+     */
+    @AfterEach
+    void tearDown() {
+        store.close();
+        server.stop(0);
+    }
+
+    /**
+     * Testet Schreiben, Lesen, Größe und Löschen eines kleinen Blobs.
+     */
+    @Test
+    void testPutGetDelete() throws IOException {
+        byte[] content = "verschluesselt".getBytes(StandardCharsets.UTF_8);
+
+        assertEquals(content.length, store.put("ab/cd/abcd-1", new ByteArrayInputStream(content)));
+        try (InputStream in = store.get("ab/cd/abcd-1")) {
+            assertArrayEquals(content, in.readAllBytes());
+        }
+        assertEquals(content.length, store.size("ab/cd/abcd-1"));
+        assertEquals(0, partCount.get());
+
+        assertTrue(store.delete("ab/cd/abcd-1"));
+        assertFalse(store.exists("ab/cd/abcd-1"));
+        assertFalse(store.delete("ab/cd/abcd-1"));
+    }
+
+    /**
+     * Testet, dass große Blobs in Teilen hochgeladen und korrekt zusammengesetzt werden.
+     */
+    @Test
+    void testMultipartUpload() throws IOException {
+        byte[] content = new byte[5 * 1024 + 100];
+        new Random(42).nextBytes(content);
+
+        assertEquals(content.length, store.put("ab/cd/large", new ByteArrayInputStream(content)));
+
+        assertEquals(6, partCount.get());
+        assertTrue(uploads.isEmpty());
+        assertArrayEquals(content, objects.get("ab/cd/large"));
+        try (InputStream in = store.get("ab/cd/large", 1000, 50)) {
+            byte[] expected = new byte[50];
+            System.arraycopy(content, 1000, expected, 0, 50);
+            assertArrayEquals(expected, in.readAllBytes());
+        }
+    }
+
+    /**
+     * Testet das Auflisten von Schlüsseln per Präfix.
+     */
+    @Test
+    void testList() throws IOException {
+        store.put("ab/cd/abcd-1", new ByteArrayInputStream(new byte[] {1}));
+        store.put("ab/ef/abef-2", new ByteArrayInputStream(new byte[] {2}));
+        store.put("cd/00/cd00-3", new ByteArrayInputStream(new byte[] {3}));
+
+        List<String> keys = new ArrayList<>();
+        store.list("ab/", keys::add);
+
+        assertEquals(List.of("ab/cd/abcd-1", "ab/ef/abef-2"), keys);
+    }
+
+    /**
+     * Testet, dass ein leerer Ausschnitt ohne ungültigen Range-Header gelesen wird.
+     */
+    @Test
+    void testEmptyRange() throws IOException {
+        store.put("ab/cd/abcd-1", new ByteArrayInputStream(new byte[] {1, 2, 3}));
+
+        try (InputStream in = store.get("ab/cd/abcd-1", 2, 0)) {
+            assertEquals(0, in.readAllBytes().length);
+        }
+        assertThrows(FileNotFoundException.class, () -> store.get("ab/cd/missing", 0, 0));
+    }
+
+    /**
+     * Testet, dass eine fehlende Content-Length als Fehler und nicht als leerer Blob gilt.
+     */
+    @Test
+    void testSizeWithoutContentLengthFails() throws IOException {
+        store.put("ab/cd/abcd-1", new ByteArrayInputStream(new byte[] {1, 2, 3}));
+        omitContentLength = true;
+
+        assertThrows(IOException.class, () -> store.size("ab/cd/abcd-1"));
+        assertEquals(-1, store.size("ab/cd/missing"));
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        String path = exchange.getRequestURI().getPath();
+        String key = path.length() > "/bucket/".length() ? path.substring("/bucket/".length()) : null;
+        Map<String, String> query = parseQuery(exchange.getRequestURI().getRawQuery());
+        byte[] body = exchange.getRequestBody().readAllBytes();
+        if (!exchange.getRequestHeaders().getFirst("Authorization").startsWith("AWS4-HMAC-SHA256 Credential=access/")) {
+            respond(exchange, 403, new byte[0]);
+            return;
+        }
+
+        String method = exchange.getRequestMethod();
+        if (key == null) {
+            StringBuilder xml = new StringBuilder("<ListBucketResult><IsTruncated>false</IsTruncated>");
+            String prefix = query.getOrDefault("prefix", "");
+            objects.tailMap(prefix).keySet().stream().filter(k -> k.startsWith(prefix))
+                    .forEach(k -> xml.append("<Contents><Key>").append(k).append("</Key></Contents>"));
+            respond(exchange, 200, xml.append("</ListBucketResult>").toString().getBytes(StandardCharsets.UTF_8));
+        } else if ("POST".equals(method) && query.containsKey("uploads")) {
+            String uploadId = "upload-" + uploads.size();
+            uploads.put(uploadId, new ConcurrentHashMap<>());
+            respond(exchange, 200, ("<InitiateMultipartUploadResult><UploadId>" + uploadId
+                    + "</UploadId></InitiateMultipartUploadResult>").getBytes(StandardCharsets.UTF_8));
+        } else if ("PUT".equals(method) && query.containsKey("partNumber")) {
+            int partNumber = Integer.parseInt(query.get("partNumber"));
+            uploads.get(query.get("uploadId")).put(partNumber, body);
+            partCount.incrementAndGet();
+            exchange.getResponseHeaders().set("ETag", "\"etag-" + partNumber + "\"");
+            respond(exchange, 200, new byte[0]);
+        } else if ("POST".equals(method) && query.containsKey("uploadId")) {
+            Map<Integer, byte[]> parts = uploads.remove(query.get("uploadId"));
+            Matcher matcher = Pattern.compile("<PartNumber>(\\d+)</PartNumber>").matcher(new String(body, StandardCharsets.UTF_8));
+            ByteArrayOutputStream assembled = new ByteArrayOutputStream();
+            while (matcher.find()) {
+                assembled.write(parts.get(Integer.parseInt(matcher.group(1))));
+            }
+            objects.put(key, assembled.toByteArray());
+            respond(exchange, 200, "<CompleteMultipartUploadResult/>".getBytes(StandardCharsets.UTF_8));
+        } else if ("DELETE".equals(method) && query.containsKey("uploadId")) {
+            uploads.remove(query.get("uploadId"));
+            respond(exchange, 204, null);
+        } else if ("PUT".equals(method)) {
+            objects.put(key, body);
+            respond(exchange, 200, new byte[0]);
+        } else if ("DELETE".equals(method)) {
+            objects.remove(key);
+            respond(exchange, 204, null);
+        } else if ("HEAD".equals(method)) {
+            byte[] content = objects.get(key);
+            if (content == null) {
+                respond(exchange, 404, null);
+            } else {
+                if (!omitContentLength) {
+                    exchange.getResponseHeaders().set("Content-Length", Integer.toString(content.length));
+                }
+                exchange.sendResponseHeaders(200, -1);
+                exchange.close();
+            }
+        } else {
+            byte[] content = objects.get(key);
+            if (content == null) {
+                respond(exchange, 404, new byte[0]);
+                return;
+            }
+            String range = exchange.getRequestHeaders().getFirst("Range");
+            if (range != null) {
+                String[] bounds = range.substring("bytes=".length()).split("-", -1);
+                int start = Integer.parseInt(bounds[0]);
+                int end = bounds[1].isEmpty() ? content.length - 1 : Math.min(Integer.parseInt(bounds[1]), content.length - 1);
+                if (end < start) {
+                    respond(exchange, 416, new byte[0]);
+                    return;
+                }
+                byte[] slice = new byte[end - start + 1];
+                System.arraycopy(content, start, slice, 0, slice.length);
+                respond(exchange, 206, slice);
+            } else {
+                respond(exchange, 200, content);
+            }
+        }
+    }
+
+    private static void respond(HttpExchange exchange, int status, byte[] body) throws IOException {
+        exchange.sendResponseHeaders(status, body == null || body.length == 0 ? -1 : body.length);
+        if (body != null && body.length > 0) {
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(body);
+            }
+        }
+        exchange.close();
+    }
+
+    private static Map<String, String> parseQuery(String query) {
+        Map<String, String> result = new HashMap<>();
+        if (query == null) {
+            return result;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            String name = eq >= 0 ? pair.substring(0, eq) : pair;
+            String value = eq >= 0 ? pair.substring(eq + 1) : "";
+            result.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return result;
+    }
+}
@@ -4,12 +4,24 @@ import java.io.File;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
 
 import org.junit.jupiter.api.AfterEach;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import org.junit.jupiter.api.BeforeEach;
@@ -183,4 +195,228 @@ public class FolderManagerAdditionalTest {
         
         assertTrue(foundChild1 && foundChild2 && foundChild3, "Alle Unterordner sollten gefunden werden");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Testet, dass die Indizes bei Umbenennen, Löschen und Neuladen aktuell bleiben.
+     */
+    @Test
+    void testIndexesFollowMutations() {
+        VirtualFolder root = folderManager.createFolder("IndexRoot", null);
+        VirtualFolder child = folderManager.createFolder("Alt", root.getId());
+        assertSame(child, folderManager.getFolderById(child.getId()));
+
+        assertTrue(folderManager.renameFolder(child, "Neu"));
+        assertNull(folderManager.getFolderByName("Alt"));
+        assertSame(child, folderManager.getFolderByName("Neu"));
+        folderManager.createFolder("alt", root.getId());
+        assertThrows(IllegalArgumentException.class, () -> folderManager.createFolder("NEU", root.getId()),
+                "Doppelte Namen werden ohne Beachtung der Groß-/Kleinschreibung erkannt");
+        assertEquals(2, folderManager.getSubfolders(root.getId()).size());
+
+        folderManager.deleteFolder(child);
+        assertNull(folderManager.getFolderById(child.getId()));
+        assertNull(folderManager.getFolderByName("Neu"));
+        assertEquals(1, folderManager.getSubfolders(root.getId()).size());
+        assertNotNull(folderManager.createFolder("Neu", root.getId()), "Name ist nach dem Löschen wieder frei");
+
+        folderManager.reloadFromDatabase();
+        VirtualFolder reloaded = folderManager.getFolderById(root.getId());
+        assertEquals(2, reloaded.getChildren().size());
+        assertEquals(2, folderManager.getSubfolders(root.getId()).size());
+        assertThrows(IllegalArgumentException.class, () -> folderManager.createFolder("ALT", root.getId()));
+    }
+
+    /**
+     * Testet, dass viele Ordner in einem Durchlauf geladen und ohne lineare Suche gefunden werden.
+     */
+    @Test
+    void testManyFolders() throws Exception {
+        VirtualFolder root = folderManager.createFolder("ManyRoot", null);
+        try (Connection conn = DatabaseManager.getConnection();
+             PreparedStatement stmt = conn.prepareStatement(
+                     "INSERT INTO folders (name, description, parent_id) VALUES (?, '', ?)")) {
+            conn.setAutoCommit(false);
+            for (int i = 0; i < 20000; i++) {
+                stmt.setString(1, "Ordner" + i);
+                stmt.setInt(2, root.getId());
+                stmt.addBatch();
+            }
+            stmt.executeBatch();
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+
+        long start = System.nanoTime();
+        folderManager.reloadFromDatabase();
+        LoggingUtil.logInfo("FolderManagerAdditionalTest", "Reload of 20001 folders took "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        assertEquals(20000, folderManager.getSubfolders(root.getId()).size());
+        assertEquals(20000, folderManager.getFolderById(root.getId()).getChildren().size());
+        assertNotNull(folderManager.getFolderByName("Ordner19999"));
+        assertThrows(IllegalArgumentException.class, () -> folderManager.createFolder("ordner1", root.getId()));
+
+        // Änderungen erzeugen einen neuen Stand, ältere Listen bleiben unverändert
+        List<VirtualFolder> before = folderManager.getSubfolders(root.getId());
+        start = System.nanoTime();
+        for (int i = 0; i < 100; i++) {
+            VirtualFolder added = folderManager.createFolder("Neu" + i, root.getId());
+            folderManager.renameFolder(added, "Umbenannt" + i);
+        }
+        LoggingUtil.logInfo("FolderManagerAdditionalTest", "200 writes among 20001 folders took "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        assertEquals(20000, before.size());
+        assertEquals(20100, folderManager.getSubfolders(root.getId()).size());
+        assertEquals(20100, folderManager.getFolderById(root.getId()).getChildren().size());
+    }
+
+    /**
+     * Testet, dass refresh() Änderungen anderer Verbindungen übernimmt und ohne Änderungen nichts tut.
+     */
+    @Test
+    void testRefreshAppliesExternalChanges() throws Exception {
+        VirtualFolder root = folderManager.createFolder("RefreshRoot", null);
+        VirtualFolder target = folderManager.createFolder("Ziel", root.getId());
+        VirtualFolder moved = folderManager.createFolder("Wandert", root.getId());
+        VirtualFolder doomed = folderManager.createFolder("Weg", root.getId());
+        folderManager.refresh();
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 1000; i++) {
+            assertFalse(folderManager.refresh(), "Ohne Änderung wird nichts geladen");
+        }
+        LoggingUtil.logInfo("FolderManagerAdditionalTest", "Idle refresh took "
+                + (System.nanoTime() - start) / 1000 / 1000 + " us per call");
+
+        int addedId;
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement()) {
+            stmt.executeUpdate("INSERT INTO folders (name, description, parent_id) VALUES ('Neu', 'extern', "
+                    + root.getId() + ")");
+            try (ResultSet rs = stmt.executeQuery("SELECT last_insert_rowid()")) {
+                rs.next();
+                addedId = rs.getInt(1);
+            }
+            stmt.executeUpdate("INSERT INTO folders (name, description, parent_id) VALUES ('Enkel', '', "
+                    + addedId + ")");
+            stmt.executeUpdate("UPDATE folders SET name = 'Umbenannt' WHERE id = " + target.getId());
+            stmt.executeUpdate("UPDATE folders SET parent_id = " + target.getId() + " WHERE id = " + moved.getId());
+            stmt.executeUpdate("DELETE FROM folders WHERE id = " + doomed.getId());
+        }
+
+        assertTrue(folderManager.refresh());
+        VirtualFolder added = folderManager.getFolderById(addedId);
+        assertNotNull(added);
+        assertEquals("extern", added.getDescription());
+        assertSame(root, added.getParent());
+        assertEquals(1, added.getChildren().size());
+        assertEquals("/RefreshRoot/Neu/Enkel", folderManager.getFolderPath(added.getChildren().get(0).getId()));
+
+        assertSame(target, folderManager.getFolderByPath("/RefreshRoot/Umbenannt"));
+        assertNull(folderManager.getFolderByName("Ziel"));
+        assertSame(moved, folderManager.getFolderByPath("/RefreshRoot/Umbenannt/Wandert"));
+        assertSame(target, moved.getParent());
+        assertNull(folderManager.getFolderById(doomed.getId()));
+        assertEquals(2, folderManager.getSubfolders(root.getId()).size());
+        assertEquals(2, root.getChildren().size());
+        assertFalse(folderManager.refresh());
+    }
+
+    /**
+     * Testet, dass Leser aus anderen Threads während laufender Änderungen einen gültigen Stand
+     * sehen und unveränderte Stände ohne Kopie zurückgegeben werden.
+     */
+    @Test
+    void testConcurrentReadersDuringWrites() throws Exception {
+        VirtualFolder root = folderManager.createFolder("ConcurrentRoot", null);
+        List<VirtualFolder> folders = folderManager.getFolders();
+        assertSame(folders, folderManager.getFolders(), "Ohne Änderung wird derselbe Stand geliefert");
+        assertThrows(UnsupportedOperationException.class, () -> folders.add(root));
+
+        AtomicBoolean done = new AtomicBoolean();
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService readers = Executors.newFixedThreadPool(4);
+        for (int r = 0; r < 4; r++) {
+            readers.submit(() -> {
+                try {
+                    while (!done.get()) {
+                        for (VirtualFolder folder : folderManager.getFolders()) {
+                            assertNotNull(folderManager.getFolderById(folder.getId()));
+                        }
+                        for (VirtualFolder child : folderManager.getSubfolders(root.getId())) {
+                            assertSame(root, child.getParent());
+                        }
+                        assertSame(root, folderManager.getFolderByPath("/ConcurrentRoot"));
+                        Thread.yield();
+                    }
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (int i = 0; i < 200; i++) {
+            VirtualFolder child = folderManager.createFolder("Kind" + i, root.getId());
+            folderManager.renameFolder(child, "Umbenannt" + i);
+        }
+        LoggingUtil.logInfo("FolderManagerAdditionalTest", "400 writes with concurrent readers took "
+                + (System.nanoTime() - start) / 1_000_000 + " ms");
+        done.set(true);
+        readers.shutdown();
+        assertTrue(readers.awaitTermination(10, TimeUnit.SECONDS));
+        if (failure.get() != null) {
+            fail(failure.get());
+        }
+        assertEquals(200, folderManager.getSubfolders(root.getId()).size());
+        assertSame(root, folderManager.getFolderByPath("/ConcurrentRoot/Umbenannt199").getParent());
+    }
+
+    /**
+     * Testet das Verschieben von Ordnern samt Prüfung auf Zyklen und doppelte Namen sowie die
+     * Übereinstimmung von folder_paths mit der Ordnerhierarchie.
+     */
+    @Test
+    void testMoveFolder() throws Exception {
+        VirtualFolder a = folderManager.createFolder("MoveA", null);
+        VirtualFolder b = folderManager.createFolder("MoveB", null);
+        VirtualFolder child = folderManager.createFolder("Kind", a.getId());
+        VirtualFolder grandchild = folderManager.createFolder("Enkel", child.getId());
+        folderManager.createFolder("kind", b.getId());
+        assertTrue(folderManager.isAncestor(a.getId(), grandchild.getId()));
+
+        assertThrows(IllegalArgumentException.class, () -> folderManager.moveFolder(a, grandchild.getId()),
+                "Ein Ordner darf nicht in seinen eigenen Teilbaum verschoben werden");
+        assertThrows(IllegalArgumentException.class, () -> folderManager.moveFolder(a, a.getId()));
+        assertThrows(IllegalArgumentException.class, () -> folderManager.moveFolder(child, b.getId()),
+                "Im Ziel existiert bereits ein gleichnamiger Ordner");
+        assertSame(a, child.getParent());
+
+        VirtualFolder target = folderManager.createFolder("Ziel", b.getId());
+        assertTrue(folderManager.moveFolder(child, target.getId()));
+        assertSame(target, child.getParent());
+        assertTrue(a.getChildren().isEmpty());
+        assertTrue(folderManager.getSubfolders(a.getId()).isEmpty());
+        assertEquals(List.of(child), folderManager.getSubfolders(target.getId()));
+        assertSame(grandchild, folderManager.getFolderByPath("/MoveB/Ziel/Kind/Enkel"));
+        assertNull(folderManager.getFolderByPath("/MoveA/Kind"));
+        assertFalse(folderManager.isAncestor(a.getId(), grandchild.getId()));
+        assertTrue(folderManager.isAncestor(b.getId(), grandchild.getId()));
+
+        assertTrue(folderManager.moveFolder(child, null));
+        assertEquals("/Kind/Enkel", folderManager.getFolderPath(grandchild.getId()));
+        assertFalse(folderManager.isAncestor(b.getId(), grandchild.getId()));
+
+        try (Connection conn = DatabaseManager.openConnection();
+             Statement stmt = conn.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM (SELECT ancestor, descendant, depth FROM folder_paths "
+                     + "EXCEPT SELECT * FROM (WITH RECURSIVE p(ancestor, descendant, depth) AS (SELECT id, id, 0 FROM folders "
+                     + "UNION ALL SELECT p.ancestor, f.id, p.depth + 1 FROM folders f JOIN p ON f.parent_id = p.descendant) "
+                     + "SELECT * FROM p))")) {
+            rs.next();
+            assertEquals(0, rs.getInt(1), "folder_paths enthält keine überholten Einträge");
+        }
+
+        folderManager.reloadFromDatabase();
+        assertEquals("/Kind/Enkel", folderManager.getFolderPath(grandchild.getId()));
+    }
+}
@@ -1,6 +1,10 @@
 package com.filevault.util;
 
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.sql.Statement;
 import java.util.List;
 
 import org.junit.jupiter.api.AfterEach;
@@ -8,11 +12,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import com.filevault.model.VirtualFolder;
 import com.filevault.storage.DatabaseManager;
+import com.filevault.storage.FolderStats;
 
 /**
  * Tests für die rekursive Löschfunktion des FolderManagers.
@@ -137,4 +143,63 @@ public class FolderManagerRecursiveDeleteTest {
         
         LoggingUtil.log("Regular delete fail test completed successfully");
     }
-} 
\ No newline at end of file
+
+    /**
+     * Testet das rekursive Löschen eines großen Teilbaums samt Dateien.
+     * Überprüft Datenbank, Indizes, Löschwarteschlange und Ordnergrößen.
+     */
+    @Test
+    public void testRecursiveDeletionOfLargeTree() throws SQLException {
+        String testPrefix = "TEST_" + System.currentTimeMillis() + "_";
+        VirtualFolder keep = folderManager.createFolder(testPrefix + "Keep", null);
+        VirtualFolder root = folderManager.createFolder(testPrefix + "Root", keep.getId());
+        try (Connection conn = DatabaseManager.getConnection()) {
+            conn.setAutoCommit(false);
+            try (PreparedStatement folderStmt = conn.prepareStatement(
+                         "INSERT INTO folders (id, name, parent_id) VALUES (?, ?, ?)");
+                 PreparedStatement fileStmt = conn.prepareStatement(
+                         "INSERT INTO files (folder_id, original_name, encrypted_path, size_bytes) VALUES (?, ?, ?, 10)")) {
+                // 2000 Ordner, jeder unter einem der vorherigen, mit je einer Datei
+                int base = root.getId() + 1000;
+                for (int i = 0; i < 2000; i++) {
+                    int parentId = i == 0 ? root.getId() : base + (i - 1) / 3;
+                    folderStmt.setInt(1, base + i);
+                    folderStmt.setString(2, "F" + i);
+                    folderStmt.setInt(3, parentId);
+                    folderStmt.addBatch();
+                    fileStmt.setInt(1, base + i);
+                    fileStmt.setString(2, "f" + i + ".txt");
+                    fileStmt.setString(3, "missing-blob-" + i);
+                    fileStmt.addBatch();
+                }
+                folderStmt.executeBatch();
+                fileStmt.executeBatch();
+            }
+            conn.commit();
+            conn.setAutoCommit(true);
+        }
+        folderManager.reloadFromDatabase();
+        assertEquals(20000, FolderStats.getInstance().get(keep.getId()).getTotalBytes());
+        int foldersBefore = folderManager.getAllFolders().size();
+
+        folderManager.deleteFolderRecursive(folderManager.getFolderById(root.getId()));
+
+        assertEquals(foldersBefore - 2001, folderManager.getAllFolders().size());
+        assertNull(folderManager.getFolderById(root.getId() + 1500));
+        assertTrue(folderManager.getSubfolders(keep.getId()).isEmpty());
+        assertEquals(0, FolderStats.getInstance().get(keep.getId()).getTotalBytes());
+        try (Connection conn = DatabaseManager.getConnection();
+             Statement stmt = conn.createStatement()) {
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM folders WHERE id > " + root.getId())) {
+                assertEquals(0, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM files")) {
+                assertEquals(0, rs.getInt(1));
+            }
+            try (ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM deletion_queue WHERE encrypted_path LIKE 'missing-blob-%'")) {
+                assertEquals(2000, rs.getInt(1));
+            }
+        }
+        assertTrue(FolderStats.getInstance().verify().isEmpty());
+    }
+}
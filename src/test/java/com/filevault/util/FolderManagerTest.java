@@ -201,4 +201,36 @@ class FolderManagerTest {
         assertEquals("Test", folder1.getName());
         assertEquals("Test", folder2.getName());
     }
-}
\ No newline at end of file
+
+    /**
+     * Testet die Adressierung von Ordnern über ihren vollständigen Pfad.
+     * Überprüft, dass zwischengespeicherte Pfade nach dem Umbenennen und Löschen verworfen werden.
+     */
+    @Test
+    public void testOrdnerUeberPfad() {
+        VirtualFolder root = folderManager.createFolder("PfadRoot", null);
+        VirtualFolder level1 = folderManager.createFolder("Ebene", root.getId());
+        VirtualFolder level2 = folderManager.createFolder("Blatt", level1.getId());
+        VirtualFolder other = folderManager.createFolder("Ebene", null);
+
+        assertEquals("/PfadRoot/Ebene/Blatt", folderManager.getFolderPath(level2.getId()));
+        assertEquals(level2, folderManager.getFolderByPath("/PfadRoot/Ebene/Blatt"));
+        assertEquals(level2, folderManager.getFolderByPath("/pfadroot/EBENE/blatt/"));
+        assertEquals(other, folderManager.getFolderByPath("/Ebene"));
+        assertNull(folderManager.getFolderByPath("/PfadRoot/Blatt"));
+        assertNull(folderManager.getFolderByPath("Ebene"));
+
+        assertTrue(folderManager.renameFolder(level1, "Mitte"));
+        assertNull(folderManager.getFolderByPath("/PfadRoot/Ebene/Blatt"));
+        assertEquals(level2, folderManager.getFolderByPath("/PfadRoot/Mitte/Blatt"));
+        assertEquals("/PfadRoot/Mitte/Blatt", folderManager.getFolderPath(level2.getId()));
+
+        folderManager.deleteFolder(level2);
+        assertNull(folderManager.getFolderByPath("/PfadRoot/Mitte/Blatt"));
+        assertNull(folderManager.getFolderPath(level2.getId()));
+
+        assertThrows(IllegalArgumentException.class, () -> folderManager.createFolder("a/b", root.getId()));
+        assertThrows(IllegalArgumentException.class, () -> folderManager.renameFolder(level1, "a/b"));
+        assertEquals("Mitte", level1.getName());
+    }
+}
@@ -0,0 +1,64 @@
+package com.filevault.util;
+
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testklasse für PersistentIntMap.
+ * Vergleicht die Map mit einer TreeMap und prüft, dass ältere Stände unverändert bleiben.
+ */
+class PersistentIntMapTest {
+
+    /**
+     * Testet zufällige Einfüge- und Löschfolgen gegen eine TreeMap, auch mit negativen Schlüsseln.
+     */
+    @Test
+    void testMatchesTreeMap() {
+        Random random = new Random(42);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        PersistentIntMap<Integer> map = PersistentIntMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000) - 1000;
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        for (int key = -1000; key < 1000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+    }
+
+    /**
+     * Testet, dass Änderungen ältere Stände nicht verändern.
+     */
+    @Test
+    void testOlderVersionsStayUnchanged() {
+        PersistentIntMap<String> empty = PersistentIntMap.empty();
+        PersistentIntMap<String> one = empty.put(1, "a");
+        PersistentIntMap<String> two = one.put(2, "b");
+        PersistentIntMap<String> replaced = two.put(1, "c");
+        PersistentIntMap<String> removed = replaced.remove(2);
+
+        assertTrue(empty.isEmpty());
+        assertNull(empty.get(1));
+        assertEquals("a", one.get(1));
+        assertNull(one.get(2));
+        assertEquals("b", two.get(2));
+        assertEquals("c", replaced.get(1));
+        assertEquals("a", two.get(1));
+        assertNull(removed.get(2));
+        assertEquals(1, removed.size());
+        assertSame(removed, removed.remove(99), "Entfernen eines fehlenden Schlüssels kopiert nichts");
+    }
+}
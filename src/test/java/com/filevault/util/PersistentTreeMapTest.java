@@ -0,0 +1,96 @@
+package com.filevault.util;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testklasse für PersistentTreeMap.
+ * Vergleicht die Map mit einer TreeMap und prüft, dass ältere Stände unverändert bleiben.
+ */
+class PersistentTreeMapTest {
+
+    /**
+     * Testet zufällige Einfüge- und Löschfolgen gegen eine TreeMap.
+     */
+    @Test
+    void testMatchesTreeMap() {
+        Random random = new Random(42);
+        TreeMap<Integer, Integer> expected = new TreeMap<>();
+        PersistentTreeMap<Integer, Integer> map = PersistentTreeMap.empty();
+        for (int i = 0; i < 20000; i++) {
+            int key = random.nextInt(2000);
+            if (random.nextInt(3) == 0) {
+                expected.remove(key);
+                map = map.remove(key);
+            } else {
+                expected.put(key, i);
+                map = map.put(key, i);
+            }
+        }
+        assertEquals(expected.size(), map.size());
+        assertEquals(new ArrayList<>(expected.values()), map.values());
+        assertEquals(expected.firstEntry().getValue(), map.firstValue());
+        for (int key = 0; key < 2000; key++) {
+            assertEquals(expected.get(key), map.get(key));
+        }
+        List<Integer> keys = new ArrayList<>();
+        map.forEach((key, value) -> keys.add(key));
+        assertEquals(new ArrayList<>(expected.keySet()), keys);
+    }
+
+    /**
+     * Testet, dass Änderungen ältere Stände nicht verändern.
+     */
+    @Test
+    void testOlderVersionsStayUnchanged() {
+        PersistentTreeMap<String, String> empty = PersistentTreeMap.empty();
+        PersistentTreeMap<String, String> one = empty.put("a", "1");
+        PersistentTreeMap<String, String> two = one.put("b", "2");
+        PersistentTreeMap<String, String> replaced = two.put("a", "3");
+        PersistentTreeMap<String, String> removed = replaced.remove("b");
+
+        assertTrue(empty.isEmpty());
+        assertNull(empty.firstValue());
+        assertEquals(List.of("1"), one.values());
+        assertEquals(List.of("1", "2"), two.values());
+        assertEquals(List.of("3", "2"), replaced.values());
+        assertEquals(List.of("3"), removed.values());
+        assertSame(removed, removed.remove("fehlt"), "Entfernen eines fehlenden Schlüssels kopiert nichts");
+    }
+
+    /**
+     * Testet Schlüssel null mit einem passenden Vergleich und aufsteigend eingefügte Schlüssel.
+     */
+    @Test
+    void testNullKeysAndSequentialInserts() {
+        PersistentTreeMap<Integer, String> map =
+                PersistentTreeMap.empty(Comparator.nullsFirst(Comparator.<Integer>naturalOrder()));
+        map = map.put(5, "fünf").put(null, "root").put(1, "eins");
+        assertEquals("root", map.get(null));
+        assertEquals(List.of("root", "eins", "fünf"), map.values());
+        assertEquals(List.of("eins", "fünf"), map.remove(null).values());
+
+        PersistentTreeMap<Long, Long> sequential = PersistentTreeMap.empty();
+        Map<Long, Long> expected = new TreeMap<>();
+        for (long i = 0; i < 100000; i++) {
+            sequential = sequential.put(i, i);
+            expected.put(i, i);
+        }
+        for (long i = 0; i < 100000; i += 2) {
+            sequential = sequential.remove(i);
+            expected.remove(i);
+        }
+        assertEquals(new ArrayList<>(expected.values()), sequential.values());
+        assertEquals(1L, sequential.firstValue());
+    }
+}